@@ -1,8 +1,11 @@
 package wkduke;
 
 import wkduke.command.Command;
+import wkduke.common.Messages;
 import wkduke.exception.WKDukeException;
 import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageConflictException;
+import wkduke.exception.storage.UncheckedFileContentException;
 import wkduke.exception.storage.StorageOperationException;
 import wkduke.parser.CommandParser;
 import wkduke.storage.Storage;
@@ -29,6 +32,10 @@ public class WKDuke {
         try {
             storage = ui.getFlexibleDataSource();
             taskList = storage.load();
+            if (storage.getQuarantinedRecordCount() > 0) {
+                ui.printMessages(String.format(Messages.MESSAGE_RECORDS_QUARANTINED,
+                        storage.getQuarantinedRecordCount(), storage.getQuarantinePath()));
+            }
         } catch (StorageOperationException | FileContentException e) {
             ui.showError(e);
             System.exit(1);
@@ -48,7 +55,8 @@ public class WKDuke {
      * Executes the main application loop.
      * The method displays the welcome message, reads and processes user commands,
      * and catches and handles exceptions related to storage and command execution.
-     * If storage operations fail, the application will terminate with an error.
+     * If storage operations fail, the application will terminate with an error. Errors of storage work done in the
+     * background, such as shipping to a replica, are shown after the command instead.
      */
     public void run() {
         ui.showWelcome();
@@ -57,13 +65,23 @@ public class WKDuke {
             try {
                 String userInput = ui.readCommand();
                 Command c = CommandParser.parseCommand(userInput);
-                c.execute(taskList, ui, storage);
+                // Storage may read the task list on its write-behind thread while holding this monitor
+                synchronized (taskList) {
+                    storage.refresh(taskList);
+                    c.execute(taskList, ui, storage);
+                }
+                storage.pollBackgroundErrors().forEach(ui::showError);
                 isExit = c.isExit();
+            } catch (StorageConflictException e) {
+                ui.showError(e);
             } catch (StorageOperationException e) {
                 ui.showError(e);
                 System.exit(1);
             } catch (WKDukeException e) {
                 ui.showError(e);
+            } catch (UncheckedFileContentException e) {
+                // A lazily loaded task turned out to be invalid when a command first accessed it
+                ui.showError(e.getCause());
             }
         }
     }
@@ -0,0 +1,54 @@
+package wkduke.command;
+
+import wkduke.common.Messages;
+import wkduke.exception.command.CommandOperationException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.Storage;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.ui.Ui;
+import wkduke.ui.UiTaskGroup;
+
+import java.util.List;
+
+/**
+ * Represents a command to move the completed tasks that have long been over from the task list to the archive.
+ * Tasks are otherwise only archived when WKDuke starts, so the task numbers only change when the user asks.
+ */
+public class ArchiveCommand extends Command {
+    public static final String COMMAND_WORD = "archive";
+
+    /**
+     * Executes the archive command by archiving the completed tasks that are old enough and listing them.
+     *
+     * @param taskList The task list to archive completed tasks from.
+     * @param ui       The user interface for displaying messages to the user.
+     * @param storage  The storage that keeps the archive.
+     * @throws CommandOperationException If completed tasks are not archived.
+     * @throws StorageOperationException If the archive or the storage file cannot be written.
+     */
+    @Override
+    public void execute(TaskList taskList, Ui ui, Storage storage)
+            throws CommandOperationException, StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert ui != null : "Precondition failed: 'ui' cannot be null";
+        assert storage != null : "Precondition failed: 'storage' cannot be null";
+        if (!storage.isArchiving()) {
+            throw new CommandOperationException(
+                    Messages.MESSAGE_ARCHIVE_DISABLED,
+                    String.format("FilePath='%s'", storage.getFilePath()),
+                    Messages.MESSAGE_ARCHIVE_DISABLED_HELP
+            );
+        }
+        List<Task> archivedTasks = storage.archiveCompletedTasks(taskList);
+        if (archivedTasks.isEmpty()) {
+            ui.printMessages(Messages.MESSAGE_ARCHIVE_NOTHING);
+            return;
+        }
+        ui.printUiTaskGroup(taskList, new UiTaskGroup(
+                String.format(Messages.MESSAGE_ARCHIVE_SUCCESS, archivedTasks.size()),
+                Messages.MESSAGE_ARCHIVED_TASKS_TIPS,
+                archivedTasks
+        ));
+    }
+}
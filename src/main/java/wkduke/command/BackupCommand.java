@@ -0,0 +1,43 @@
+package wkduke.command;
+
+import wkduke.common.Messages;
+import wkduke.exception.command.CommandOperationException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.Storage;
+import wkduke.task.TaskList;
+import wkduke.ui.Ui;
+
+/**
+ * Represents a command to back up the storage file while WKDuke keeps running.
+ * The backup is listed once its files are copied in the background, and can be brought back with
+ * {@link RestoreCommand}.
+ */
+public class BackupCommand extends Command {
+    public static final String COMMAND_WORD = "backup";
+
+    /**
+     * Executes the backup command by starting a backup of the storage file and reporting its name.
+     *
+     * @param taskList The task list the storage file reflects.
+     * @param ui       The user interface for displaying messages to the user.
+     * @param storage  The storage to back up.
+     * @throws CommandOperationException If the storage does not support backups.
+     * @throws StorageOperationException If the backup cannot be started.
+     */
+    @Override
+    public void execute(TaskList taskList, Ui ui, Storage storage)
+            throws CommandOperationException, StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert ui != null : "Precondition failed: 'ui' cannot be null";
+        assert storage != null : "Precondition failed: 'storage' cannot be null";
+        if (!storage.isBackupSupported()) {
+            throw new CommandOperationException(
+                    Messages.MESSAGE_BACKUP_UNSUPPORTED,
+                    String.format("FilePath='%s'", storage.getFilePath()),
+                    Messages.MESSAGE_BACKUP_UNSUPPORTED_HELP
+            );
+        }
+        String name = storage.backup(taskList);
+        ui.printMessages(String.format(Messages.MESSAGE_BACKUP_STARTED, name, storage.getBackupDirectory()));
+    }
+}
@@ -1,5 +1,6 @@
 package wkduke.command;
 
+import wkduke.exception.storage.StorageOperationException;
 import wkduke.storage.Storage;
 import wkduke.task.TaskList;
 import wkduke.ui.Ui;
@@ -11,14 +12,17 @@ public class ExitCommand extends Command {
     public static final String COMMAND_WORD = "bye";
 
     /**
-     * Executes the exit command by displaying a goodbye message to the user.
+     * Executes the exit command by writing any pending changes to storage, closing it and displaying a goodbye
+     * message.
      *
      * @param taskList The task list being managed (not used in this command).
      * @param ui       The user interface to interact with the user.
-     * @param storage  The storage being used (not used in this command).
+     * @param storage  The storage to flush pending changes to and close.
+     * @throws StorageOperationException If the pending changes cannot be written.
      */
     @Override
-    public void execute(TaskList taskList, Ui ui, Storage storage) {
+    public void execute(TaskList taskList, Ui ui, Storage storage) throws StorageOperationException {
+        storage.close();
         ui.showGoodbyeMessage();
     }
 
@@ -0,0 +1,94 @@
+package wkduke.command;
+
+import wkduke.common.Messages;
+import wkduke.exception.command.CommandOperationException;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.Storage;
+import wkduke.task.TaskList;
+import wkduke.ui.Ui;
+
+import java.util.List;
+
+import static wkduke.ui.Ui.INDENT_HELP_MSG_NUM;
+
+/**
+ * Represents a command to replace the task list with a backup taken by {@link BackupCommand}.
+ */
+public class RestoreCommand extends Command {
+    public static final String COMMAND_WORD = "restore";
+    public static final String MESSAGE_USAGE = COMMAND_WORD + " {backup-name}\n"
+            + "Description:".indent(INDENT_HELP_MSG_NUM)
+            + "  - Replaces your task list with a backup of it.".indent(INDENT_HELP_MSG_NUM)
+            + "Example:".indent(INDENT_HELP_MSG_NUM)
+            + "  restore 20241101-181500".indent(INDENT_HELP_MSG_NUM)
+            + "Constraints:".indent(INDENT_HELP_MSG_NUM)
+            + "  - 'backup-name' must be the name reported by the 'backup' command.".indent(INDENT_HELP_MSG_NUM)
+            + "  - Changes made since the backup are lost.".indent(INDENT_HELP_MSG_NUM);
+
+    private final String name;
+
+    /**
+     * Constructs a RestoreCommand for the specified backup.
+     *
+     * @param name The name of the backup to restore.
+     */
+    public RestoreCommand(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Checks if this RestoreCommand is equal to another object.
+     * A RestoreCommand is considered equal if it is of the same type and restores the same backup.
+     *
+     * @param obj The object to compare with this RestoreCommand.
+     * @return {@code true} if the specified object is a RestoreCommand with an equal backup name; otherwise,
+     * {@code false}.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof RestoreCommand command)) {
+            return false;
+        }
+        return name.equals(command.name);
+    }
+
+    /**
+     * Executes the restore command by replacing the task list with the backup and saving it.
+     *
+     * @param taskList The task list to replace.
+     * @param ui       The user interface for displaying messages to the user.
+     * @param storage  The storage holding the backup.
+     * @throws CommandOperationException If the storage does not support backups, there is no backup with the name,
+     *                                   or the backup contains an invalid or duplicate task.
+     * @throws StorageOperationException If the backup cannot be read or the storage file cannot be written.
+     */
+    @Override
+    public void execute(TaskList taskList, Ui ui, Storage storage)
+            throws CommandOperationException, StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert ui != null : "Precondition failed: 'ui' cannot be null";
+        assert storage != null : "Precondition failed: 'storage' cannot be null";
+        if (!storage.isBackupSupported()) {
+            throw new CommandOperationException(
+                    Messages.MESSAGE_BACKUP_UNSUPPORTED,
+                    String.format("FilePath='%s'", storage.getFilePath()),
+                    Messages.MESSAGE_BACKUP_UNSUPPORTED_HELP
+            );
+        }
+        try {
+            if (!storage.restore(taskList, name)) {
+                List<String> backups = storage.listBackups();
+                throw new CommandOperationException(
+                        String.format(Messages.MESSAGE_BACKUP_NOT_FOUND, name),
+                        String.format("Command='%s', Name='%s'", COMMAND_WORD, name),
+                        String.format(Messages.MESSAGE_BACKUP_NOT_FOUND_HELP, backups)
+                );
+            }
+        } catch (FileContentException e) {
+            // Reported without exiting, since the task list is left unchanged by a backup that cannot be loaded
+            throw new CommandOperationException(e.getMessage(), e.getDetail(), e.getHelp());
+        }
+        ui.printMessages(String.format(Messages.MESSAGE_RESTORE_SUCCESS, taskList.size(), name));
+    }
+}
@@ -0,0 +1,56 @@
+package wkduke.command;
+
+import wkduke.common.Messages;
+import wkduke.exception.command.CommandOperationException;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.Storage;
+import wkduke.storage.VerificationResult;
+import wkduke.task.TaskList;
+import wkduke.ui.Ui;
+
+import java.util.List;
+
+/**
+ * Represents a command to check the storage file for invalid or duplicate tasks.
+ * This is mainly useful when tasks are loaded lazily, since an invalid line is otherwise only reported once it is
+ * accessed, and when lines are checksummed, since a corrupted line is then found without decoding the file.
+ */
+public class VerifyCommand extends Command {
+    public static final String COMMAND_WORD = "verify";
+    private static final int MAX_REPORTED_OFFSETS = 10;
+
+    /**
+     * Executes the verify command by decoding the whole storage file and reporting the number of tasks found.
+     *
+     * @param taskList The task list (not used in this command).
+     * @param ui       The user interface for displaying messages to the user.
+     * @param storage  The storage to verify.
+     * @throws CommandOperationException If the storage file contains an invalid or duplicate task, or records with
+     *                                   a missing or mismatched checksum.
+     * @throws StorageOperationException If the storage file cannot be read.
+     */
+    @Override
+    public void execute(TaskList taskList, Ui ui, Storage storage)
+            throws CommandOperationException, StorageOperationException {
+        assert ui != null : "Precondition failed: 'ui' cannot be null";
+        assert storage != null : "Precondition failed: 'storage' cannot be null";
+        try {
+            VerificationResult result = storage.verify();
+            List<Long> badRecordOffsets = result.badRecordOffsets();
+            if (!badRecordOffsets.isEmpty()) {
+                String offsets = badRecordOffsets.subList(0, Math.min(MAX_REPORTED_OFFSETS, badRecordOffsets.size()))
+                        + (badRecordOffsets.size() > MAX_REPORTED_OFFSETS ? "..." : "");
+                throw new CommandOperationException(
+                        String.format(Messages.MESSAGE_VERIFY_BAD_RECORDS, badRecordOffsets.size()),
+                        String.format("FilePath='%s', Offsets=%s", storage.getFilePath(), offsets),
+                        Messages.MESSAGE_VERIFY_BAD_RECORDS_HELP
+                );
+            }
+            ui.printMessages(String.format(Messages.MESSAGE_VERIFY_SUCCESS, result.recordCount()));
+        } catch (FileContentException e) {
+            // Reported without exiting, unlike a storage failure, so the user can fix the file and verify again
+            throw new CommandOperationException(e.getMessage(), e.getDetail(), e.getHelp());
+        }
+    }
+}
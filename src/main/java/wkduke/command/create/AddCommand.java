@@ -33,8 +33,7 @@ public abstract class AddCommand extends Command {
      * @throws CommandOperationException if the task already exists.
      */
     private void validateTaskUniqueness(TaskList taskList) throws CommandOperationException {
-        List<Task> tasks = taskList.getTasks();
-        if (tasks.contains(task)) {
+        if (taskList.contains(task)) {
             throw new CommandOperationException(MESSAGE_DUPLICATE_TASK,
                     String.format("Task='%s'", task), MESSAGE_DUPLICATE_TASK_HELP);
         }
@@ -72,7 +71,7 @@ public abstract class AddCommand extends Command {
 
         validateTaskUniqueness(taskList);
         taskList.addTask(task);
-        storage.save(taskList);
+        storage.saveAddedTask(taskList, task);
         ui.printUiTaskGroup(taskList, new UiTaskGroup(String.format(MESSAGE_SUCCESS_PRE),
                 String.format(MESSAGE_SUCCESS_POST, taskList.size()), List.of(task)));
     }
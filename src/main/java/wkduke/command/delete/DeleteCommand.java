@@ -13,7 +13,9 @@ import wkduke.ui.UiTaskGroup;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static wkduke.ui.Ui.INDENT_HELP_MSG_NUM;
@@ -51,17 +53,17 @@ public class DeleteCommand extends Command {
      * Deletes tasks from the given task list based on the specified task numbers.
      *
      * @param taskList The task list from which tasks will be deleted.
-     * @return A list of tasks that were successfully deleted.
+     * @return The tasks that were successfully deleted, keyed by their 0-based index before the deletion.
      */
-    private List<Task> deleteTasks(TaskList taskList) {
-        List<Task> deletedTasks = new ArrayList<>();
+    private Map<Integer, Task> deleteTasks(TaskList taskList) {
+        Map<Integer, Task> deletedTasks = new LinkedHashMap<>();
         for (Integer taskNumber : taskNumbers) {
             int taskIndex = taskNumber - 1;
             Task task = taskList.getTask(taskIndex);
-            deletedTasks.add(task);
+            deletedTasks.put(taskIndex, task);
         }
 
-        for (Task task : deletedTasks) {
+        for (Task task : deletedTasks.values()) {
             taskList.deleteTask(task);
         }
         return deletedTasks;
@@ -103,16 +105,16 @@ public class DeleteCommand extends Command {
             Utils.validateTaskNumbers(taskList, taskNumbers);
 
             // Delete task
-            List<Task> deletedTasks = deleteTasks(taskList);
+            Map<Integer, Task> deletedTasks = deleteTasks(taskList);
 
             // Save taskList to storage
             if (!deletedTasks.isEmpty()) {
-                storage.save(taskList);
+                storage.saveDeletedTasks(taskList, deletedTasks);
             }
 
             // Display success messages
             ui.printUiTaskGroup(taskList, new UiTaskGroup(MESSAGE_SUCCESS_PRE,
-                    String.format(MESSAGE_SUCCESS_POST, taskList.size()), deletedTasks)
+                    String.format(MESSAGE_SUCCESS_POST, taskList.size()), new ArrayList<>(deletedTasks.values()))
             );
         } catch (IndexOutOfBoundsException e) {
             throw new CommandOperationException(
@@ -1,15 +1,24 @@
 package wkduke.command.read;
 
 import wkduke.command.Command;
+import wkduke.exception.command.CommandOperationException;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.parser.TimeParser;
 import wkduke.storage.Storage;
 import wkduke.task.Task;
 import wkduke.task.TaskList;
 import wkduke.ui.Ui;
 import wkduke.ui.UiTaskGroup;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
+import static wkduke.common.Messages.MESSAGE_ARCHIVED_TASKS_TIPS;
+import static wkduke.common.Messages.MESSAGE_NO_HISTORY_AS_OF;
+import static wkduke.common.Messages.MESSAGE_NO_HISTORY_AS_OF_HELP;
 import static wkduke.common.Messages.MESSAGE_TASK_LIST_TIPS;
 import static wkduke.ui.Ui.INDENT_HELP_MSG_NUM;
 
@@ -18,18 +27,28 @@ import static wkduke.ui.Ui.INDENT_HELP_MSG_NUM;
  */
 public class FindCommand extends Command {
     public static final String COMMAND_WORD = "find";
-    public static final String MESSAGE_USAGE = COMMAND_WORD + " {keywords}\n"
+    public static final String MESSAGE_USAGE = COMMAND_WORD + " {keywords} [/archive | /asof {dateTime}]\n"
             + "Description:".indent(INDENT_HELP_MSG_NUM)
             + "  - Search for tasks that contain specified keywords in description.".indent(INDENT_HELP_MSG_NUM)
+            + "  - With /archive, archived tasks are searched too.".indent(INDENT_HELP_MSG_NUM)
+            + "  - With /asof, your task list as it was at that time is searched.".indent(INDENT_HELP_MSG_NUM)
             + "Example:".indent(INDENT_HELP_MSG_NUM)
             + "  find report, assignment".indent(INDENT_HELP_MSG_NUM)
             + "  find meeting".indent(INDENT_HELP_MSG_NUM)
+            + "  find meeting /archive".indent(INDENT_HELP_MSG_NUM)
+            + "  find report /asof 2024-11-01".indent(INDENT_HELP_MSG_NUM)
             + "Constraints:".indent(INDENT_HELP_MSG_NUM)
             + "  - Multiple keywords should be separated by commas.".indent(INDENT_HELP_MSG_NUM)
-            + "  - At least one keyword must be specified.".indent(INDENT_HELP_MSG_NUM);
+            + "  - At least one keyword must be specified.".indent(INDENT_HELP_MSG_NUM)
+            + "  - /archive and /asof cannot be combined.".indent(INDENT_HELP_MSG_NUM);
     private static final String MESSAGE_SUCCESS = "Here are the tasks in your list with the keyword '%s':";
+    private static final String MESSAGE_SUCCESS_ARCHIVED = "Here are the archived tasks with the keyword '%s':";
+    private static final String MESSAGE_SUCCESS_AS_OF = "Here are the tasks as of '%s' with the keyword '%s':";
     private static final String MESSAGE_FAILED = "No tasks found with the keyword: %s";
+    private static final String MESSAGE_FAILED_AS_OF = "No tasks found as of '%s' with the keyword: %s";
     private final List<String> keywords;
+    private final boolean isArchiveIncluded;
+    private final LocalDateTime asOf;
 
     /**
      * Constructs a FindCommand with the specified keywords for searching tasks.
@@ -37,31 +56,89 @@ public class FindCommand extends Command {
      * @param keywords A list of keywords to search for in task descriptions.
      */
     public FindCommand(List<String> keywords) {
+        this(keywords, false);
+    }
+
+    /**
+     * Constructs a FindCommand with the specified keywords for searching tasks, optionally in the archive too.
+     *
+     * @param keywords          A list of keywords to search for in task descriptions.
+     * @param isArchiveIncluded {@code true} to also search the archived tasks; {@code false} otherwise.
+     */
+    public FindCommand(List<String> keywords, boolean isArchiveIncluded) {
         this.keywords = keywords;
+        this.isArchiveIncluded = isArchiveIncluded;
+        this.asOf = null;
     }
 
     /**
-     * Searches for tasks in the task list that match the specified keywords.
+     * Constructs a FindCommand with the specified keywords for searching the tasks as they were at a past time,
+     * reconstructed from the history.
      *
-     * @param taskList The task list to search in.
+     * @param keywords A list of keywords to search for in task descriptions.
+     * @param asOf     The date and time to search the tasks as of.
+     */
+    public FindCommand(List<String> keywords, LocalDateTime asOf) {
+        assert asOf != null : "Precondition failed: 'asOf' cannot be null";
+        this.keywords = keywords;
+        this.isArchiveIncluded = false;
+        this.asOf = asOf;
+    }
+
+    /**
+     * Searches for tasks among the candidates that match the specified keywords.
+     *
+     * @param candidateTasks The tasks to search in.
      * @return A list of tasks that contain any of the keywords in their descriptions.
      */
-    private List<Task> findMatchingKeywordTasks(TaskList taskList) {
+    private List<Task> findMatchingKeywordTasks(List<Task> candidateTasks) {
         List<Task> matchingTasks = new ArrayList<>();
-        for (Task task : taskList.getTasks()) {
-            for (String keyword : keywords) {
-                if (task.getDescription().contains(keyword)) {
-                    matchingTasks.add(task);
-                    break; // Avoid duplicate matching for the same task
-                }
+        for (Task task : candidateTasks) {
+            if (isMatching(task)) {
+                matchingTasks.add(task);
             }
         }
         return matchingTasks;
     }
 
+    /**
+     * Searches the archive for tasks that match the specified keywords, streaming it rather than loading it.
+     *
+     * @param storage The storage whose archive to search.
+     * @return A list of archived tasks that contain any of the keywords in their descriptions.
+     * @throws FileContentException      If the archive is corrupt.
+     * @throws StorageOperationException If the archive cannot be read.
+     */
+    private List<Task> findMatchingKeywordArchivedTasks(Storage storage)
+            throws FileContentException, StorageOperationException {
+        List<Task> matchingTasks = new ArrayList<>();
+        storage.forEachArchivedTask(task -> {
+            if (isMatching(task)) {
+                matchingTasks.add(task);
+            }
+        });
+        return matchingTasks;
+    }
+
+    /**
+     * Checks whether a task contains any of the keywords in its description.
+     *
+     * @param task The task to check.
+     * @return {@code true} if the description contains a keyword; {@code false} otherwise.
+     */
+    private boolean isMatching(Task task) {
+        for (String keyword : keywords) {
+            if (task.getDescription().contains(keyword)) {
+                return true; // Avoid duplicate matching for the same task
+            }
+        }
+        return false;
+    }
+
     /**
      * Checks if this FindCommand is equal to another object.
-     * A FindCommand is considered equal if it is of the same type and has the same keywords.
+     * A FindCommand is considered equal if it is of the same type and has the same keywords, archive flag and past
+     * time, if any.
      *
      * @param obj The object to compare with this FindCommand.
      * @return {@code true} if the specified object is a FindCommand with equal keywords; otherwise, {@code false}.
@@ -71,7 +148,8 @@ public class FindCommand extends Command {
         if (!(obj instanceof FindCommand command)) {
             return false;
         }
-        return keywords.equals(command.keywords);
+        return keywords.equals(command.keywords) && isArchiveIncluded == command.isArchiveIncluded
+                && Objects.equals(asOf, command.asOf);
     }
 
     /**
@@ -79,21 +157,69 @@ public class FindCommand extends Command {
      *
      * @param taskList The task list to search in.
      * @param ui       The user interface for displaying messages to the user.
-     * @param storage  The storage being used (not used in this command).
+     * @param storage  The storage the task list was loaded from, used to narrow down the candidate tasks, and whose
+     *                 archive or history is searched if requested.
+     * @throws StorageOperationException If the tasks, the archive or the history cannot be read.
+     * @throws CommandOperationException If the archive or the history is corrupt.
      */
     @Override
-    public void execute(TaskList taskList, Ui ui, Storage storage) {
+    public void execute(TaskList taskList, Ui ui, Storage storage)
+            throws StorageOperationException, CommandOperationException {
         assert taskList != null : "Precondition failed: 'taskList' cannot be null";
         assert ui != null : "Precondition failed: 'ui' cannot be null";
+        assert storage != null : "Precondition failed: 'storage' cannot be null";
+        if (asOf != null) {
+            executeAsOf(ui, storage);
+            return;
+        }
 
-        List<Task> matchingTasks = findMatchingKeywordTasks(taskList);
-        if (matchingTasks.isEmpty()) {
+        List<Task> matchingTasks = findMatchingKeywordTasks(storage.getTasksPossiblyContaining(taskList, keywords));
+        List<Task> matchingArchivedTasks = List.of();
+        if (isArchiveIncluded) {
+            try {
+                matchingArchivedTasks = findMatchingKeywordArchivedTasks(storage);
+            } catch (FileContentException e) {
+                throw new CommandOperationException(e.getMessage(), e.getDetail(), e.getHelp());
+            }
+        }
+        if (matchingTasks.isEmpty() && matchingArchivedTasks.isEmpty()) {
             ui.printMessages(String.format(MESSAGE_FAILED, keywords));
             return;
         }
-        assert !matchingTasks.isEmpty() : "Postcondition failed: 'matchingTasks' cannot be empty";
-        ui.printUiTaskGroup(taskList, new UiTaskGroup(String.format(MESSAGE_SUCCESS, keywords),
-                MESSAGE_TASK_LIST_TIPS, matchingTasks)
-        );
+        ui.printUiTaskGroups(taskList, List.of(
+                new UiTaskGroup(String.format(MESSAGE_SUCCESS, keywords), MESSAGE_TASK_LIST_TIPS, matchingTasks),
+                new UiTaskGroup(String.format(MESSAGE_SUCCESS_ARCHIVED, keywords), MESSAGE_ARCHIVED_TASKS_TIPS,
+                        matchingArchivedTasks)
+        ));
+    }
+
+    /**
+     * Searches the tasks as they were at the past time, reconstructed from the history of the storage.
+     *
+     * @param ui      The user interface for displaying messages to the user.
+     * @param storage The storage whose history is read.
+     * @throws StorageOperationException If the history cannot be read.
+     * @throws CommandOperationException If the history is corrupt.
+     */
+    private void executeAsOf(Ui ui, Storage storage) throws StorageOperationException, CommandOperationException {
+        assert storage != null : "Precondition failed: 'storage' cannot be null";
+        TaskList pastTaskList;
+        try {
+            pastTaskList = storage.loadAsOf(asOf);
+        } catch (FileContentException e) {
+            throw new CommandOperationException(e.getMessage(), e.getDetail(), e.getHelp());
+        }
+        String asOfDateTime = asOf.format(TimeParser.CLI_DATE_TIME_FORMATTER);
+        if (pastTaskList == null) {
+            ui.printMessages(String.format(MESSAGE_NO_HISTORY_AS_OF, asOfDateTime), MESSAGE_NO_HISTORY_AS_OF_HELP);
+            return;
+        }
+        List<Task> matchingTasks = findMatchingKeywordTasks(pastTaskList.getTasks());
+        if (matchingTasks.isEmpty()) {
+            ui.printMessages(String.format(MESSAGE_FAILED_AS_OF, asOfDateTime, keywords));
+            return;
+        }
+        ui.printUiTaskGroup(pastTaskList, new UiTaskGroup(String.format(MESSAGE_SUCCESS_AS_OF, asOfDateTime,
+                keywords), MESSAGE_TASK_LIST_TIPS, matchingTasks));
     }
 }
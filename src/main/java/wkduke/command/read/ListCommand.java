@@ -1,14 +1,24 @@
 package wkduke.command.read;
 
 import wkduke.command.Command;
+import wkduke.exception.command.CommandOperationException;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.parser.TimeParser;
 import wkduke.storage.Storage;
 import wkduke.task.Task;
 import wkduke.task.TaskList;
 import wkduke.ui.Ui;
 import wkduke.ui.UiTaskGroup;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
+import static wkduke.common.Messages.MESSAGE_ARCHIVED_TASKS_TIPS;
+import static wkduke.common.Messages.MESSAGE_NO_HISTORY_AS_OF;
+import static wkduke.common.Messages.MESSAGE_NO_HISTORY_AS_OF_HELP;
 import static wkduke.common.Messages.MESSAGE_TASK_LIST_TIPS;
 
 /**
@@ -17,18 +27,53 @@ import static wkduke.common.Messages.MESSAGE_TASK_LIST_TIPS;
 public class ListCommand extends Command {
     public static final String COMMAND_WORD = "list";
     private static final String MESSAGE_SUCCESS = "Here are the tasks in your list:";
+    private static final String MESSAGE_SUCCESS_ARCHIVED = "Here are the archived tasks:";
+    private static final String MESSAGE_SUCCESS_AS_OF = "Here are the tasks in your list as of '%s':";
     private static final String MESSAGE_FAILED = "Your task list is currently empty.";
+    private static final String MESSAGE_FAILED_AS_OF = "Your task list was empty as of '%s'.";
+    private final boolean isArchiveIncluded;
+    private final LocalDateTime asOf;
+
+    /**
+     * Constructs a ListCommand that lists the tasks in the task list only.
+     */
+    public ListCommand() {
+        this(false);
+    }
+
+    /**
+     * Constructs a ListCommand that optionally lists the archived tasks too.
+     *
+     * @param isArchiveIncluded {@code true} to also list the archived tasks; {@code false} otherwise.
+     */
+    public ListCommand(boolean isArchiveIncluded) {
+        this.isArchiveIncluded = isArchiveIncluded;
+        this.asOf = null;
+    }
+
+    /**
+     * Constructs a ListCommand that lists the tasks as they were at a past time, reconstructed from the history.
+     *
+     * @param asOf The date and time to list the tasks as of.
+     */
+    public ListCommand(LocalDateTime asOf) {
+        assert asOf != null : "Precondition failed: 'asOf' cannot be null";
+        this.isArchiveIncluded = false;
+        this.asOf = asOf;
+    }
 
     /**
      * Checks if this ListCommand is equal to another object.
-     * A ListCommand is considered equal to another object if the specified object is also a ListCommand.
+     * A ListCommand is considered equal to another object if the specified object is also a ListCommand with the
+     * same archive flag and the same past time, if any.
      *
      * @param obj The object to compare with this ListCommand.
-     * @return {@code true} if the specified object is a ListCommand; otherwise, {@code false}.
+     * @return {@code true} if the specified object is an equal ListCommand; otherwise, {@code false}.
      */
     @Override
     public boolean equals(Object obj) {
-        return obj instanceof ListCommand;
+        return obj instanceof ListCommand command && isArchiveIncluded == command.isArchiveIncluded
+                && Objects.equals(asOf, command.asOf);
     }
 
     /**
@@ -38,18 +83,74 @@ public class ListCommand extends Command {
      *
      * @param taskList The task list containing all tasks.
      * @param ui       The user interface for displaying messages to the user.
-     * @param storage  The storage being used (not used in this command).
+     * @param storage  The storage whose archive or history is listed if requested.
+     * @throws StorageOperationException If the archive or the history cannot be read.
+     * @throws CommandOperationException If the archive or the history is corrupt.
      */
     @Override
-    public void execute(TaskList taskList, Ui ui, Storage storage) {
+    public void execute(TaskList taskList, Ui ui, Storage storage)
+            throws StorageOperationException, CommandOperationException {
         assert taskList != null : "Precondition failed: 'taskList' cannot be null";
         assert ui != null : "Precondition failed: 'ui' cannot be null";
+        if (asOf != null) {
+            executeAsOf(ui, storage);
+            return;
+        }
         List<Task> tasks = taskList.getTasks();
-        if (tasks.isEmpty()) {
+        if (!isArchiveIncluded) {
+            if (tasks.isEmpty()) {
+                ui.printMessages(MESSAGE_FAILED);
+                return;
+            }
+            assert !tasks.isEmpty() : "Postcondition failed: 'tasks' cannot be empty";
+            ui.printUiTaskGroup(taskList, new UiTaskGroup(String.format(MESSAGE_SUCCESS), MESSAGE_TASK_LIST_TIPS,
+                    tasks));
+            return;
+        }
+
+        assert storage != null : "Precondition failed: 'storage' cannot be null";
+        List<Task> archivedTasks = new ArrayList<>();
+        try {
+            storage.forEachArchivedTask(archivedTasks::add);
+        } catch (FileContentException e) {
+            throw new CommandOperationException(e.getMessage(), e.getDetail(), e.getHelp());
+        }
+        if (tasks.isEmpty() && archivedTasks.isEmpty()) {
             ui.printMessages(MESSAGE_FAILED);
             return;
         }
-        assert !tasks.isEmpty() : "Postcondition failed: 'tasks' cannot be empty";
-        ui.printUiTaskGroup(taskList, new UiTaskGroup(String.format(MESSAGE_SUCCESS), MESSAGE_TASK_LIST_TIPS, tasks));
+        ui.printUiTaskGroups(taskList, List.of(
+                new UiTaskGroup(MESSAGE_SUCCESS, MESSAGE_TASK_LIST_TIPS, tasks),
+                new UiTaskGroup(MESSAGE_SUCCESS_ARCHIVED, MESSAGE_ARCHIVED_TASKS_TIPS, archivedTasks)
+        ));
+    }
+
+    /**
+     * Lists the tasks as they were at the past time, reconstructed from the history of the storage.
+     *
+     * @param ui      The user interface for displaying messages to the user.
+     * @param storage The storage whose history is read.
+     * @throws StorageOperationException If the history cannot be read.
+     * @throws CommandOperationException If the history is corrupt.
+     */
+    private void executeAsOf(Ui ui, Storage storage) throws StorageOperationException, CommandOperationException {
+        assert storage != null : "Precondition failed: 'storage' cannot be null";
+        TaskList pastTaskList;
+        try {
+            pastTaskList = storage.loadAsOf(asOf);
+        } catch (FileContentException e) {
+            throw new CommandOperationException(e.getMessage(), e.getDetail(), e.getHelp());
+        }
+        String asOfDateTime = asOf.format(TimeParser.CLI_DATE_TIME_FORMATTER);
+        if (pastTaskList == null) {
+            ui.printMessages(String.format(MESSAGE_NO_HISTORY_AS_OF, asOfDateTime), MESSAGE_NO_HISTORY_AS_OF_HELP);
+            return;
+        }
+        if (pastTaskList.getTasks().isEmpty()) {
+            ui.printMessages(String.format(MESSAGE_FAILED_AS_OF, asOfDateTime));
+            return;
+        }
+        ui.printUiTaskGroup(pastTaskList, new UiTaskGroup(String.format(MESSAGE_SUCCESS_AS_OF, asOfDateTime),
+                MESSAGE_TASK_LIST_TIPS, pastTaskList.getTasks()));
     }
 }
@@ -1,6 +1,9 @@
 package wkduke.command.read;
 
 import wkduke.command.Command;
+import wkduke.exception.command.CommandOperationException;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
 import wkduke.parser.TimeParser;
 import wkduke.storage.Storage;
 import wkduke.task.Task;
@@ -13,6 +16,7 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import static wkduke.common.Messages.MESSAGE_ARCHIVED_TASKS_TIPS;
 import static wkduke.common.Messages.MESSAGE_TASK_LIST_TIPS;
 import static wkduke.ui.Ui.INDENT_HELP_MSG_NUM;
 
@@ -21,24 +25,33 @@ import static wkduke.ui.Ui.INDENT_HELP_MSG_NUM;
  */
 public class ListOnCommand extends Command {
     private static final String COMMAND_WORD = "list";
-    public static final String MESSAGE_USAGE = COMMAND_WORD + " /on {datetime}\n"
+    public static final String MESSAGE_USAGE = COMMAND_WORD + " /on {datetime} [/archive]\n"
             + "Description:".indent(INDENT_HELP_MSG_NUM)
             + "  - Lists all tasks in your task list. Optionally, filter tasks scheduled for a specific date.".indent(INDENT_HELP_MSG_NUM)
             + "Format:".indent(INDENT_HELP_MSG_NUM)
             + "  list".indent(INDENT_HELP_MSG_NUM)
             + "  list /on {dateTime}".indent(INDENT_HELP_MSG_NUM)
+            + "  list [/on {dateTime}] /archive".indent(INDENT_HELP_MSG_NUM)
+            + "  list /asof {dateTime}".indent(INDENT_HELP_MSG_NUM)
             + TimeParser.MESSAGE_USAGE
             + "Example:".indent(INDENT_HELP_MSG_NUM)
             + "  list".indent(INDENT_HELP_MSG_NUM)
             + "  list /on 2024-11-05".indent(INDENT_HELP_MSG_NUM)
+            + "  list /on 2024-11-05 /archive".indent(INDENT_HELP_MSG_NUM)
+            + "  list /asof 2024-11-01 18:00".indent(INDENT_HELP_MSG_NUM)
             + "Constraints:".indent(INDENT_HELP_MSG_NUM)
             + "  - If /on is omitted, all tasks will be listed.".indent(INDENT_HELP_MSG_NUM)
             + "  - If /on is provided, only time aware tasks occurring on the".indent(INDENT_HELP_MSG_NUM)
-            + "    specified date will be listed.".indent(INDENT_HELP_MSG_NUM);
+            + "    specified date will be listed.".indent(INDENT_HELP_MSG_NUM)
+            + "  - If /archive is provided, archived tasks will be listed too.".indent(INDENT_HELP_MSG_NUM)
+            + "  - If /asof is provided, your task list as it was at that time will be".indent(INDENT_HELP_MSG_NUM)
+            + "    listed. It cannot be combined with /on or /archive.".indent(INDENT_HELP_MSG_NUM);
 
     private static final String MESSAGE_SUCCESS = "Here are the tasks in your list on '%s':";
+    private static final String MESSAGE_SUCCESS_ARCHIVED = "Here are the archived tasks on '%s':";
     private static final String MESSAGE_FAILED = "Your task list is currently empty on '%s'.";
     private final LocalDateTime on;
+    private final boolean isArchiveIncluded;
 
     /**
      * Constructs a ListOnCommand with the specified date and time to filter tasks.
@@ -46,28 +59,73 @@ public class ListOnCommand extends Command {
      * @param on The date and time for which tasks should be listed.
      */
     public ListOnCommand(LocalDateTime on) {
+        this(on, false);
+    }
+
+    /**
+     * Constructs a ListOnCommand with the specified date and time to filter tasks, optionally in the archive too.
+     *
+     * @param on                The date and time for which tasks should be listed.
+     * @param isArchiveIncluded {@code true} to also list the archived tasks; {@code false} otherwise.
+     */
+    public ListOnCommand(LocalDateTime on, boolean isArchiveIncluded) {
         this.on = on;
+        this.isArchiveIncluded = isArchiveIncluded;
     }
 
     /**
      * Finds all tasks in the task list that occur on the specified date.
+     * The storage narrows down the candidates where it can, e.g. to the shards or indexed records that can hold
+     * such tasks, so that the other tasks are not read.
      *
      * @param taskList The task list to search.
+     * @param storage  The storage the task list was loaded from.
      * @return A list of tasks occurring on the specified date.
+     * @throws StorageOperationException If the storage cannot read the candidates.
      */
-    private List<Task> findOnDateTasks(TaskList taskList) {
+    private List<Task> findOnDateTasks(TaskList taskList, Storage storage) throws StorageOperationException {
+        List<Task> candidateTasks = storage.getTasksPossiblyOn(taskList, on);
         List<Task> matchingTasks = new ArrayList<>();
-        for (Task task : taskList.getTasks()) {
-            if (task instanceof TimeAware timeAwareTask && timeAwareTask.isOccursOnDate(on)) {
+        for (Task task : candidateTasks) {
+            if (isOccursOn(task)) {
                 matchingTasks.add(task);
             }
         }
         return matchingTasks;
     }
 
+    /**
+     * Finds all archived tasks that occur on the specified date, streaming the archive rather than loading it.
+     *
+     * @param storage The storage whose archive to search.
+     * @return A list of archived tasks occurring on the specified date.
+     * @throws FileContentException      If the archive is corrupt.
+     * @throws StorageOperationException If the archive cannot be read.
+     */
+    private List<Task> findOnDateArchivedTasks(Storage storage) throws FileContentException, StorageOperationException {
+        List<Task> matchingTasks = new ArrayList<>();
+        storage.forEachArchivedTask(task -> {
+            if (isOccursOn(task)) {
+                matchingTasks.add(task);
+            }
+        });
+        return matchingTasks;
+    }
+
+    /**
+     * Checks whether a task occurs on the specified date.
+     *
+     * @param task The task to check.
+     * @return {@code true} if the task is time aware and occurs on the date; {@code false} otherwise.
+     */
+    private boolean isOccursOn(Task task) {
+        return task instanceof TimeAware timeAwareTask && timeAwareTask.isOccursOnDate(on);
+    }
+
     /**
      * Checks if this ListOnCommand is equal to another object.
-     * A ListOnCommand is considered equal if it is of the same type and has the same date for listing tasks.
+     * A ListOnCommand is considered equal if it is of the same type and has the same date for listing tasks and
+     * the same archive flag.
      *
      * @param obj The object to compare with this ListOnCommand.
      * @return {@code true} if the specified object is a ListOnCommand with an equal date; otherwise, {@code false}.
@@ -77,7 +135,7 @@ public class ListOnCommand extends Command {
         if (!(obj instanceof ListOnCommand command)) {
             return false;
         }
-        return on.equals(command.on);
+        return on.equals(command.on) && isArchiveIncluded == command.isArchiveIncluded;
     }
 
     /**
@@ -86,21 +144,35 @@ public class ListOnCommand extends Command {
      *
      * @param taskList The task list containing all tasks.
      * @param ui       The user interface for displaying messages to the user.
-     * @param storage  The storage being used (not used in this command).
+     * @param storage  The storage the task list was loaded from, used to narrow down the candidate tasks.
+     * @throws StorageOperationException If the storage cannot read the candidate tasks or the archive.
+     * @throws CommandOperationException If the archive is corrupt.
      */
     @Override
-    public void execute(TaskList taskList, Ui ui, Storage storage) {
+    public void execute(TaskList taskList, Ui ui, Storage storage)
+            throws StorageOperationException, CommandOperationException {
         assert taskList != null : "Precondition failed: 'taskList' cannot be null";
         assert ui != null : "Precondition failed: 'ui' cannot be null";
+        assert storage != null : "Precondition failed: 'storage' cannot be null";
 
-        List<Task> matchingTasks = findOnDateTasks(taskList);
-        if (matchingTasks.isEmpty()) {
-            ui.printMessages(String.format(MESSAGE_FAILED, on.format(TimeParser.CLI_DATE_FORMATTER)));
+        List<Task> matchingTasks = findOnDateTasks(taskList, storage);
+        List<Task> matchingArchivedTasks = List.of();
+        if (isArchiveIncluded) {
+            try {
+                matchingArchivedTasks = findOnDateArchivedTasks(storage);
+            } catch (FileContentException e) {
+                throw new CommandOperationException(e.getMessage(), e.getDetail(), e.getHelp());
+            }
+        }
+        String onDate = on.format(TimeParser.CLI_DATE_FORMATTER);
+        if (matchingTasks.isEmpty() && matchingArchivedTasks.isEmpty()) {
+            ui.printMessages(String.format(MESSAGE_FAILED, onDate));
             return;
         }
-        assert !matchingTasks.isEmpty() : "Postcondition failed: 'tasks' cannot be empty";
-        ui.printUiTaskGroup(taskList, new UiTaskGroup(String.format(MESSAGE_SUCCESS,
-                on.format(TimeParser.CLI_DATE_FORMATTER)), MESSAGE_TASK_LIST_TIPS, matchingTasks)
-        );
+        ui.printUiTaskGroups(taskList, List.of(
+                new UiTaskGroup(String.format(MESSAGE_SUCCESS, onDate), MESSAGE_TASK_LIST_TIPS, matchingTasks),
+                new UiTaskGroup(String.format(MESSAGE_SUCCESS_ARCHIVED, onDate), MESSAGE_ARCHIVED_TASKS_TIPS,
+                        matchingArchivedTasks)
+        ));
     }
 }
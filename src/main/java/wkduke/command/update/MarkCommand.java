@@ -54,9 +54,11 @@ public class MarkCommand extends Command {
      *
      * @param taskList           The task list containing the tasks.
      * @param updatedTasks       A list to store tasks successfully marked as done.
+     * @param updatedTaskIndices A list to store the 0-based indices of the tasks marked as done.
      * @param alreadyMarkedTasks A list to store tasks that were already marked as done.
      */
-    private void markTasks(TaskList taskList, List<Task> updatedTasks, List<Task> alreadyMarkedTasks) {
+    private void markTasks(TaskList taskList, List<Task> updatedTasks, List<Integer> updatedTaskIndices,
+                           List<Task> alreadyMarkedTasks) {
         for (Integer taskNumber : taskNumbers) {
             int taskIndex = taskNumber - 1;
             Task task = taskList.getTask(taskIndex);
@@ -65,6 +67,7 @@ public class MarkCommand extends Command {
             } else {
                 task.markAsDone();
                 updatedTasks.add(task);
+                updatedTaskIndices.add(taskIndex);
             }
         }
     }
@@ -105,12 +108,13 @@ public class MarkCommand extends Command {
 
             // Update task statuses
             List<Task> updatedTasks = new ArrayList<>();
+            List<Integer> updatedTaskIndices = new ArrayList<>();
             List<Task> alreadyMarkedTasks = new ArrayList<>();
-            markTasks(taskList, updatedTasks, alreadyMarkedTasks);
+            markTasks(taskList, updatedTasks, updatedTaskIndices, alreadyMarkedTasks);
 
             // Save taskList to storage
             if (!updatedTasks.isEmpty()) {
-                storage.save(taskList);
+                storage.saveUpdatedTasks(taskList, updatedTaskIndices);
             }
 
             // Display success and failure messages
@@ -54,14 +54,17 @@ public class UnmarkCommand extends Command {
      *
      * @param taskList            The task list containing the tasks.
      * @param updatedTasks        A list to store tasks successfully marked as not done.
+     * @param updatedTaskIndices  A list to store the 0-based indices of the tasks marked as not done.
      * @param alreadyNotDoneTasks A list to store tasks that were already in the "not done" status.
      */
-    private void unmarkTasks(TaskList taskList, List<Task> updatedTasks, List<Task> alreadyNotDoneTasks) {
+    private void unmarkTasks(TaskList taskList, List<Task> updatedTasks, List<Integer> updatedTaskIndices,
+                             List<Task> alreadyNotDoneTasks) {
         for (Integer taskNumber : taskNumbers) {
             int taskIndex = taskNumber - 1;
             Task task = taskList.getTask(taskIndex);
             if (task.isDone()) {
                 updatedTasks.add(task);
+                updatedTaskIndices.add(taskIndex);
                 task.markAsUndone();
             } else {
                 alreadyNotDoneTasks.add(task);
@@ -105,12 +108,13 @@ public class UnmarkCommand extends Command {
 
             // Update task statuses
             List<Task> updatedTasks = new ArrayList<>();
+            List<Integer> updatedTaskIndices = new ArrayList<>();
             List<Task> alreadyNotDoneTasks = new ArrayList<>();
-            unmarkTasks(taskList, updatedTasks, alreadyNotDoneTasks);
+            unmarkTasks(taskList, updatedTasks, updatedTaskIndices, alreadyNotDoneTasks);
 
             // Save taskList to storage
             if (!updatedTasks.isEmpty()) {
-                storage.save(taskList);
+                storage.saveUpdatedTasks(taskList, updatedTaskIndices);
             }
 
             // Display success and failure messages
@@ -102,7 +102,7 @@ public class UpdatePriorityCommand extends Command {
             task.setPriority(priority);
 
             // Save taskList to storage
-            storage.save(taskList);
+            storage.saveUpdatedTasks(taskList, List.of(taskIndex));
 
             // Display success messages
             ui.printUiTaskGroup(taskList, new UiTaskGroup(String.format(MESSAGE_SUCCESS), "", List.of(task)));
@@ -23,15 +23,79 @@ public class Messages {
     public static final String MESSAGE_INVALID_DEADLINE_ENCODED = "Deadline task missing 'by' information!";
     public static final String MESSAGE_INVALID_EVENT_ENCODED = "Event task missing 'from' or 'to' information!";
 
+    public static final String MESSAGE_INVALID_BINARY_HEADER = "Unrecognised binary task file!";
+    public static final String MESSAGE_INVALID_BINARY_HEADER_HELP = "Please check that the file was written by WKDuke in the '.wkd' format.";
+    public static final String MESSAGE_INVALID_BINARY_RECORD = "Invalid binary task record!";
+    public static final String MESSAGE_INVALID_COMPRESSED_BLOCK = "Corrupt compressed task block!";
+    public static final String MESSAGE_INVALID_COMPRESSED_BLOCK_HELP = "Please check that the file was written by WKDuke in the '.txt.gz' format.";
+
     public static final String MESSAGE_DUPLICATE_TASK = "Task already exists in your task list!";
     public static final String MESSAGE_DUPLICATE_TASK_IN_FILE = "A duplicate task was found in your task file!";
     public static final String MESSAGE_DUPLICATE_TASK_HELP = "Use the 'list' command to view all tasks and avoid duplicates.";
     public static final String MESSAGE_DUPLICATE_TASK_IN_FILE_HELP = "Please check your file to ensure no duplicate entries exist.";
 
+    public static final String MESSAGE_INVALID_JOURNAL_ENTRY = "Invalid journal entry content!";
+    public static final String MESSAGE_JOURNAL_ENTRY_MISMATCH = "A journal entry does not match your task file!";
+    public static final String MESSAGE_JOURNAL_ENTRY_MISMATCH_HELP = "Please check that your task file was not edited while its journal was pending.";
+    public static final String MESSAGE_SHARED_WRITE_CONFLICT = "Another WKDuke changed your task list first, so your change was not saved!";
+    public static final String MESSAGE_SHARED_WRITE_CONFLICT_HELP = "Your task list now shows the latest changes. Please try again.";
+    public static final String MESSAGE_EXTERNAL_CHANGE_CONFLICT = "Your task file was changed outside WKDuke, so your change was not saved!";
+    public static final String MESSAGE_EXTERNAL_CHANGE_CONFLICT_HELP = "Your task list now shows the changes made to the file. Please try again.";
+    public static final String MESSAGE_EXTERNAL_CHANGE_INVALID_HELP = "Your task file was changed outside WKDuke and your change was not saved. Please fix the file and try again.";
+
+    public static final String MESSAGE_INVALID_SHARD_MANIFEST = "Invalid shard manifest content!";
+    public static final String MESSAGE_SHARD_MANIFEST_MISMATCH = "A shard does not match the shard manifest!";
+    public static final String MESSAGE_INVALID_SHARD_MANIFEST_HELP = "Delete the 'manifest.txt' in the shard folder to rebuild it from the shards.";
+
+    public static final String MESSAGE_INVALID_DATE_INDEX = "Invalid date index content!";
+    public static final String MESSAGE_INVALID_DATE_INDEX_HELP = "Delete the '.idx' file next to the task file to rebuild it.";
+
+    public static final String MESSAGE_INVALID_FORMAT_HEADER = "Invalid task file format header!";
+    public static final String MESSAGE_INVALID_FORMAT_HEADER_HELP = "The first line of the task file should be a task, or '#wkduke-format' followed by a version number above 1.";
+    public static final String MESSAGE_UNSUPPORTED_FORMAT_VERSION = "The task file is written in format version %d, but this WKDuke only reads up to version %d!";
+    public static final String MESSAGE_UNSUPPORTED_FORMAT_VERSION_HELP = "Update WKDuke to open this task file.";
+    public static final String MESSAGE_MIGRATE_WITH_JOURNAL = "The task file needs upgrading to a newer format, but has a journal in the older format!";
+    public static final String MESSAGE_MIGRATE_WITH_JOURNAL_HELP = "Open the task file once with the previous version of WKDuke outside journal mode to fold the journal into it.";
+
+    public static final String MESSAGE_INVALID_BLOB_REFERENCE = "Invalid task description blob reference!";
+    public static final String MESSAGE_INVALID_HISTORY_LINE = "Invalid task history content!";
+    public static final String MESSAGE_INVALID_HISTORY_LINE_HELP = "Delete the '.history' and '.history.idx' files next to the task file to start a new history.";
+    public static final String MESSAGE_NO_HISTORY_AS_OF = "No history of your task list is recorded as of '%s'.";
+    public static final String MESSAGE_NO_HISTORY_AS_OF_HELP = "A history is only kept when 'wkduke.storage.historyCheckpointInterval' is set, and starts when it is first set.";
+
+    public static final String MESSAGE_INVALID_BLOB_REFERENCE_HELP = "Restore the '.blobs' file next to the task file, or remove the lines referring to it.";
+
     public static final String MESSAGE_CREATE_FILE_ERROR = "Error while creating folder or file!";
     public static final String MESSAGE_READ_FILE_ERROR = "Error while reading from file!";
     public static final String MESSAGE_WRITE_FILE_ERROR = "Error while writing to file!";
-    public static final String MESSAGE_FILE_PATH_ERROR = "Storage file should end with '.txt'";
+    public static final String MESSAGE_COMPACT_JOURNAL_ERROR = "Error while compacting the journal!";
+    public static final String MESSAGE_REPLICATE_FILE_ERROR = "Error while shipping changes to the replica file!";
+    public static final String MESSAGE_BACKUP_FILE_ERROR = "Error while backing up the task file!";
+    public static final String MESSAGE_FILE_PATH_ERROR = "Storage file should end with '.txt', '.wkd' or '.txt.gz'";
+    public static final String MESSAGE_REPLICA_DURABILITY_ERROR = "A replica can only be kept when every change is saved before the command completes!";
+    public static final String MESSAGE_REPLICA_DURABILITY_HELP = "Remove 'wkduke.storage.replicaPath', or set 'wkduke.storage.durability' to 'sync'.";
+    public static final String MESSAGE_REPLICA_PATH_ERROR = "Replica file should be another file with the same extension as the storage file";
+
+    public static final String MESSAGE_CONVERT_USAGE = "Usage: StorageConverter <source file> <target file>";
+    public static final String MESSAGE_CONVERT_SUCCESS = "Converted %d task(s) from %s to %s";
+    public static final String MESSAGE_VERIFY_SUCCESS = "Verified %d task(s) in the task file. No problems found.";
+    public static final String MESSAGE_VERIFY_BAD_RECORDS = "Found %d record(s) with a missing or mismatched checksum!";
+    public static final String MESSAGE_VERIFY_BAD_RECORDS_HELP = "Restart WKDuke to quarantine records with a mismatched checksum. Records without one get a checksum on the next save.";
+    public static final String MESSAGE_CHECKSUM_MISMATCH = "A record in your task file does not match its checksum!";
+    public static final String MESSAGE_RECORDS_QUARANTINED = "Skipped %d bad record(s) in the task file and moved them to: %s";
+    public static final String MESSAGE_CONVERT_SAME_FILE = "Source and target of a conversion must be different files!";
+    public static final String MESSAGE_CONVERT_SOURCE_NOT_FOUND = "Source of a conversion does not exist!";
+
+    public static final String MESSAGE_BACKUP_STARTED = "Backing up your task list as '%s' in: %s";
+    public static final String MESSAGE_BACKUP_UNSUPPORTED = "Backups are not supported for a sharded or SQL-backed task list!";
+    public static final String MESSAGE_BACKUP_UNSUPPORTED_HELP = "Copy the shard folder or the database file by hand while WKDuke is not running.";
+    public static final String MESSAGE_BACKUP_NOT_FOUND = "There is no complete backup named '%s'!";
+    public static final String MESSAGE_BACKUP_NOT_FOUND_HELP = "Available backups: %s";
+    public static final String MESSAGE_ARCHIVE_SUCCESS = "Moved %d completed task(s) to the archive:";
+    public static final String MESSAGE_ARCHIVE_NOTHING = "No completed tasks have been over for long enough to archive.";
+    public static final String MESSAGE_ARCHIVE_DISABLED = "Completed tasks are not archived!";
+    public static final String MESSAGE_ARCHIVE_DISABLED_HELP = "Set 'wkduke.storage.archiveAfterDays' to the number of days after which completed tasks are archived.";
+    public static final String MESSAGE_RESTORE_SUCCESS = "Restored %d task(s) from the backup '%s'.";
 
     public static final String MESSAGE_FLEXIBLE_INPUT_PROMPT = "\t Please enter your filepath: ";
     public static final String MESSAGE_FLEXIBLE_INPUT_RETRY_PROMPT = "\t Please enter your filepath again: ";
@@ -52,6 +116,8 @@ public class Messages {
             Available commands:
               list       - Lists all tasks.
               list /on   - Lists tasks on a specific date.
+              list /archive - Lists tasks, including archived ones.
+              list /asof - Lists tasks as they were at a past time.
               find       - Finds tasks by keyword(s).
               todo       - Adds a Todo task.
               deadline   - Adds a Deadline task.
@@ -63,6 +129,10 @@ public class Messages {
               update-priority - Updates the priority of a task.
               bye        - Exits the application.
               help       - Displays this help message.
+              verify     - Checks the task file for invalid or duplicate tasks.
+              backup     - Backs up the task file while you keep working.
+              restore    - Restores the task list from a backup.
+              archive    - Moves long-completed tasks to the archive.
             
               Tips: You can type the command name (e.g., 'todo', 'delete', etc.) to see
                     detailed usage and examples for that command.
@@ -73,4 +143,8 @@ public class Messages {
               Priority: [H] High, [M] Medium, [L] Low
               Status:   [X] Done, [ ] Not done
             """;
+    public static final String MESSAGE_ARCHIVED_TASKS_TIPS = """
+            \nTips:
+              Archived tasks are numbered 'x' as they are no longer in your list.
+            """;
 }
@@ -4,6 +4,11 @@ import wkduke.exception.TaskFormatException;
 import wkduke.parser.TimeParser;
 import wkduke.task.TaskList;
 
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.Set;
 
@@ -11,6 +16,21 @@ import java.util.Set;
  * Utility class providing common helper methods for operations.
  */
 public class Utils {
+    /**
+     * Moves a file over its target, atomically where the file system supports it.
+     *
+     * @param source The file to move.
+     * @param target The file to replace.
+     * @throws IOException If the file cannot be moved.
+     */
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     /**
      * Validates that the start date-time is not after the end date-time.
      *
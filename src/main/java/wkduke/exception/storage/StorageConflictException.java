@@ -0,0 +1,19 @@
+package wkduke.exception.storage;
+
+/**
+ * Represents an exception that is thrown when a change could not be saved because another process changed the
+ * shared task file first. Unlike other storage operation failures, the task list stays usable and the change can
+ * simply be retried.
+ */
+public class StorageConflictException extends StorageOperationException {
+    /**
+     * Constructs a StorageConflictException with the specified error message, detailed information and help text.
+     *
+     * @param message The error message describing the conflict.
+     * @param detail  Additional detail about the conflict.
+     * @param help    Suggested help or guidance for resolving the conflict.
+     */
+    public StorageConflictException(String message, String detail, String help) {
+        super(message, detail, help);
+    }
+}
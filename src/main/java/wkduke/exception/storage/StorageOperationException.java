@@ -16,4 +16,15 @@ public class StorageOperationException extends WKDukeException {
     public StorageOperationException(String message, String detail) {
         super(message, detail);
     }
+
+    /**
+     * Constructs a StorageOperationException with the specified error message, detailed information and help text.
+     *
+     * @param message The error message describing the storage operation issue.
+     * @param detail  Additional detail about the storage operation issue.
+     * @param help    Suggested help or guidance for resolving the issue.
+     */
+    public StorageOperationException(String message, String detail, String help) {
+        super(message, detail, help);
+    }
 }
@@ -0,0 +1,26 @@
+package wkduke.exception.storage;
+
+/**
+ * Represents a runtime exception that is thrown when a lazily decoded task turns out to be invalid.
+ * It wraps the {@code FileContentException} that eager decoding would have reported at load time.
+ */
+public class UncheckedFileContentException extends RuntimeException {
+    /**
+     * Constructs an UncheckedFileContentException wrapping the given file content error.
+     *
+     * @param cause The file content error describing the invalid task.
+     */
+    public UncheckedFileContentException(FileContentException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    /**
+     * Retrieves the wrapped file content error.
+     *
+     * @return The {@code FileContentException} describing the invalid task.
+     */
+    @Override
+    public synchronized FileContentException getCause() {
+        return (FileContentException) super.getCause();
+    }
+}
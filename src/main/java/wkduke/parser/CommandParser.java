@@ -1,8 +1,12 @@
 package wkduke.parser;
 
+import wkduke.command.ArchiveCommand;
+import wkduke.command.BackupCommand;
 import wkduke.command.Command;
 import wkduke.command.ExitCommand;
 import wkduke.command.HelpCommand;
+import wkduke.command.RestoreCommand;
+import wkduke.command.VerifyCommand;
 import wkduke.command.create.AddCommand;
 import wkduke.command.create.AddDeadlineCommand;
 import wkduke.command.create.AddEventCommand;
@@ -48,6 +52,9 @@ public class CommandParser {
     private static final Pattern UPDATE_TASK_PRIORITY_ARGS_FORMAT = Pattern.compile("^(?<taskNumber>\\d.*) (?<priority>[LMH])$");
     private static final Pattern SORT_TASK_ARGS_FORMAT = Pattern.compile("(?=.*?/by\\s+(?<by>priority|tasktype|datetime))(?=.*?/order\\s+(?<order>asc|desc))");
     private static final Pattern FIND_TASK_ARGS_FORMAT = Pattern.compile("([^,]+)");
+    private static final Pattern ARCHIVE_FLAG_ARGS_FORMAT = Pattern.compile("(?<arguments>.*?)\\s*/archive");
+    private static final Pattern AS_OF_ARGS_FORMAT = Pattern.compile("(?<arguments>.*?)\\s*/asof\\s+(?<asOf>.+)");
+    private static final Pattern RESTORE_ARGS_FORMAT = Pattern.compile("(?<name>[0-9A-Za-z-]+)");
 
     /**
      * Parses the user input into a command.
@@ -69,6 +76,10 @@ public class CommandParser {
         return switch (commandWord) {
             case ExitCommand.COMMAND_WORD -> new ExitCommand();
             case HelpCommand.COMMAND_WORD -> new HelpCommand();
+            case VerifyCommand.COMMAND_WORD -> new VerifyCommand();
+            case BackupCommand.COMMAND_WORD -> new BackupCommand();
+            case ArchiveCommand.COMMAND_WORD -> new ArchiveCommand();
+            case RestoreCommand.COMMAND_WORD -> prepareRestore(arguments);
             case ListCommand.COMMAND_WORD -> prepareList(arguments);
             case AddCommand.COMMAND_WORD_TODO -> prepareAddToDo(arguments);
             case AddCommand.COMMAND_WORD_DEADLINE -> prepareAddDeadline(arguments);
@@ -168,43 +179,95 @@ public class CommandParser {
         }
     }
 
+    /**
+     * Parses the date-time of a trailing {@code /asof} argument.
+     *
+     * @param command   The command word, for the error detail.
+     * @param arguments The arguments of the command.
+     * @param asOf      The date-time argument of {@code /asof}.
+     * @param usage     The usage message of the command.
+     * @return The parsed date-time.
+     * @throws CommandFormatException If the date-time format is invalid.
+     */
+    private static LocalDateTime parseAsOf(String command, String arguments, String asOf, String usage)
+            throws CommandFormatException {
+        try {
+            return TimeParser.parseDateTime(asOf.trim());
+        } catch (TaskFormatException e) {
+            throw new CommandFormatException(
+                    e.getMessage(),
+                    String.format("Command='%s', Arguments='%s'", command, arguments),
+                    usage
+            );
+        }
+    }
+
     /**
      * Prepares a FindCommand based on the specified arguments.
+     * A trailing {@code /archive} flag includes the archived tasks in the search, and a trailing
+     * {@code /asof {dateTime}} searches the task list as it was at that time instead.
      *
      * @param arguments The arguments containing keywords to search for in task descriptions.
      * @return A {@code FindCommand} with the specified keywords.
      * @throws CommandFormatException If the arguments format is invalid.
      */
     private static Command prepareFind(String arguments) throws CommandFormatException {
-        final Matcher matcher = FIND_TASK_ARGS_FORMAT.matcher(arguments.trim());
+        final Matcher asOfMatcher = AS_OF_ARGS_FORMAT.matcher(arguments.trim());
+        final LocalDateTime asOf = asOfMatcher.matches()
+                ? parseAsOf("find", arguments, asOfMatcher.group("asOf"), FindCommand.MESSAGE_USAGE)
+                : null;
+        final String flagArguments = asOf != null ? asOfMatcher.group("arguments") : arguments;
+        final Matcher archiveMatcher = ARCHIVE_FLAG_ARGS_FORMAT.matcher(flagArguments.trim());
+        final boolean isArchiveIncluded = archiveMatcher.matches();
+        final String keywordArguments = isArchiveIncluded ? archiveMatcher.group("arguments") : flagArguments;
+        final Matcher matcher = FIND_TASK_ARGS_FORMAT.matcher(keywordArguments.trim());
         List<String> keywords = new ArrayList<>();
         while (matcher.find()) {
             keywords.add(matcher.group(1).trim());
         }
 
-        if (keywords.isEmpty()) {
+        // The archive is not part of the history, so it cannot be searched as of a past time
+        if (keywords.isEmpty() || (isArchiveIncluded && asOf != null)) {
             throw new CommandFormatException(
                     Messages.MESSAGE_INVALID_COMMAND_FORMAT,
                     String.format("Command='find', Arguments='%s'", arguments),
                     FindCommand.MESSAGE_USAGE
             );
         }
-        return new FindCommand(keywords);
+        return asOf != null ? new FindCommand(keywords, asOf) : new FindCommand(keywords, isArchiveIncluded);
     }
 
     /**
      * Prepares a ListCommand or ListOnCommand based on the arguments.
+     * A trailing {@code /archive} flag includes the archived tasks in the listing, and a lone
+     * {@code /asof {dateTime}} lists the task list as it was at that time instead.
      *
      * @param arguments The arguments specifying a date for filtering, if provided.
      * @return A {@code ListCommand} if no date is provided, or a {@code ListOnCommand} if a date is specified.
      * @throws CommandFormatException If the arguments format is invalid.
      */
     private static Command prepareList(String arguments) throws CommandFormatException {
-        if (arguments.isEmpty()) {
-            return new ListCommand();
+        final Matcher asOfMatcher = AS_OF_ARGS_FORMAT.matcher(arguments.trim());
+        if (asOfMatcher.matches()) {
+            if (!asOfMatcher.group("arguments").isEmpty()) {
+                throw new CommandFormatException(
+                        Messages.MESSAGE_INVALID_COMMAND_FORMAT,
+                        String.format("Command='list', Arguments='%s'", arguments),
+                        ListOnCommand.MESSAGE_USAGE
+                );
+            }
+            return new ListCommand(parseAsOf("list", arguments, asOfMatcher.group("asOf"),
+                    ListOnCommand.MESSAGE_USAGE));
+        }
+
+        final Matcher archiveMatcher = ARCHIVE_FLAG_ARGS_FORMAT.matcher(arguments.trim());
+        final boolean isArchiveIncluded = archiveMatcher.matches();
+        final String listArguments = isArchiveIncluded ? archiveMatcher.group("arguments") : arguments;
+        if (listArguments.isEmpty()) {
+            return new ListCommand(isArchiveIncluded);
         }
 
-        final Matcher matcher = LIST_TASK_ARGS_FORMAT.matcher(arguments.trim());
+        final Matcher matcher = LIST_TASK_ARGS_FORMAT.matcher(listArguments.trim());
         if (!matcher.matches()) {
             throw new CommandFormatException(
                     Messages.MESSAGE_INVALID_COMMAND_FORMAT,
@@ -214,7 +277,7 @@ public class CommandParser {
         }
         try {
             LocalDateTime onDateTime = TimeParser.parseDateTime(matcher.group("on"));
-            return new ListOnCommand(onDateTime);
+            return new ListOnCommand(onDateTime, isArchiveIncluded);
         } catch (TaskFormatException e) {
             throw new CommandFormatException(
                     e.getMessage(),
@@ -244,6 +307,25 @@ public class CommandParser {
         }
     }
 
+    /**
+     * Prepares a RestoreCommand from the given arguments.
+     *
+     * @param arguments The arguments provided to specify the backup to restore.
+     * @return A new {@code RestoreCommand} for the specified backup.
+     * @throws CommandFormatException If the arguments format is invalid.
+     */
+    private static Command prepareRestore(String arguments) throws CommandFormatException {
+        final Matcher matcher = RESTORE_ARGS_FORMAT.matcher(arguments.trim());
+        if (!matcher.matches()) {
+            throw new CommandFormatException(
+                    Messages.MESSAGE_INVALID_COMMAND_FORMAT,
+                    String.format("Command='restore', Arguments='%s'", arguments),
+                    RestoreCommand.MESSAGE_USAGE
+            );
+        }
+        return new RestoreCommand(matcher.group("name"));
+    }
+
     /**
      * Prepares a SortCommand from the given arguments.
      *
@@ -0,0 +1,56 @@
+package wkduke.storage;
+
+/**
+ * Enum representing when a {@code Storage} writes mutations of the task list to disk.
+ */
+public enum Durability {
+    /**
+     * Every mutation is written before the command completes.
+     */
+    SYNC("sync"),
+    /**
+     * Mutations are written shortly afterwards on a background thread, coalescing bursts into one write.
+     */
+    ASYNC("async"),
+    /**
+     * Mutations are only written when the application exits.
+     */
+    ON_EXIT("on-exit");
+
+    private final String code;
+
+    /**
+     * Constructs a {@code Durability} with the specified code.
+     *
+     * @param code The code representing the durability level.
+     */
+    Durability(String code) {
+        this.code = code;
+    }
+
+    /**
+     * Retrieves the {@code Durability} corresponding to the given code.
+     *
+     * @param code The code representing the durability level.
+     * @return The {@code Durability} associated with the given code.
+     * @throws IllegalArgumentException If the code does not match any durability level.
+     */
+    public static Durability fromCode(String code) {
+        for (Durability durability : Durability.values()) {
+            if (durability.code.equalsIgnoreCase(code)) {
+                return durability;
+            }
+        }
+        throw new IllegalArgumentException("Unknown durability: " + code);
+    }
+
+    /**
+     * Returns the string representation of the durability level.
+     *
+     * @return The durability code as a {@code String}.
+     */
+    @Override
+    public String toString() {
+        return code;
+    }
+}
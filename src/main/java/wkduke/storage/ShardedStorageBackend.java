@@ -0,0 +1,180 @@
+package wkduke.storage;
+
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.shard.ShardDirectory;
+import wkduke.storage.shard.ShardManifest;
+import wkduke.storage.shard.ShardedTaskList;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the tasks of a storage in a {@link ShardDirectory}, one shard per month of time aware tasks and one for
+ * todos, loaded as a {@link ShardedTaskList} that only reads a shard once one of its tasks is accessed. A save only
+ * rewrites the shards changed since the last save, followed by the manifest.
+ */
+class ShardedStorageBackend implements StorageBackend {
+    private final ShardDirectory shardDirectory;
+    private final TaskImporter importer;
+
+    /**
+     * Initialises a backend over the given shard directory.
+     *
+     * @param shardDirectory The directory holding the shards.
+     * @param importer       The importer reading the tasks of the storage file to be split into shards.
+     */
+    ShardedStorageBackend(ShardDirectory shardDirectory, TaskImporter importer) {
+        assert shardDirectory != null : "Precondition failed: 'shardDirectory' cannot be null";
+        assert importer != null : "Precondition failed: 'importer' cannot be null";
+        this.shardDirectory = shardDirectory;
+        this.importer = importer;
+    }
+
+    /**
+     * Loads the sharded task list, without reading any shard yet.
+     * A missing manifest is rebuilt from the shard files, and if there are none, the storage file is split into
+     * shards so that switching to the sharded layout keeps existing tasks. The split always ends by writing the
+     * manifest, so a manifest that lists no shards means every task was deleted, not that the split is pending.
+     *
+     * @return A {@code TaskList} backed by a {@code ShardedTaskList}.
+     * @throws FileContentException      If the manifest, a shard or the storage file is improperly formatted.
+     * @throws StorageOperationException If there is an error reading or writing the shards.
+     */
+    @Override
+    public TaskList load() throws FileContentException, StorageOperationException {
+        try {
+            boolean hasManifest = shardDirectory.hasManifest();
+            ShardManifest manifest = hasManifest ? shardDirectory.readManifest() : shardDirectory.rebuildManifest();
+            ShardedTaskList shardedTasks = new ShardedTaskList(shardDirectory, manifest);
+            if (!hasManifest && manifest.shardInfos().isEmpty()) {
+                List<Task> importedTasks = importer.readTasks();
+                if (!importedTasks.isEmpty()) {
+                    shardedTasks.addAll(importedTasks);
+                    shardedTasks.writeDirtyShards();
+                }
+                shardDirectory.writeManifest(shardedTasks.getManifest());
+            }
+            return new TaskList(shardedTasks);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", shardDirectory.getDirectory())
+            );
+        }
+    }
+
+    @Override
+    public void save(TaskList taskList) throws StorageOperationException {
+        saveShards(taskList, true);
+    }
+
+    @Override
+    public void saveAddedTask(TaskList taskList, Task task) throws StorageOperationException {
+        saveShards(taskList, false);
+    }
+
+    @Override
+    public void saveUpdatedTasks(TaskList taskList, Collection<Integer> taskIndices)
+            throws StorageOperationException {
+        if (taskList.getTasks() instanceof ShardedTaskList shardedTasks) {
+            taskIndices.forEach(taskIndex -> shardedTasks.markDirty(taskList.getTask(taskIndex)));
+        }
+        saveShards(taskList, false);
+    }
+
+    @Override
+    public void saveDeletedTasks(TaskList taskList) throws StorageOperationException {
+        saveShards(taskList, false);
+    }
+
+    /**
+     * Writes the shards changed since the last save, followed by the manifest.
+     * A task list not loaded from the shards replaces them entirely.
+     *
+     * @param taskList           The {@code TaskList} to save.
+     * @param isWholeListChanged {@code true} if any loaded task may have changed, e.g. after sorting.
+     * @throws StorageOperationException If there is an error writing the shards.
+     */
+    private void saveShards(TaskList taskList, boolean isWholeListChanged) throws StorageOperationException {
+        try {
+            if (taskList.getTasks() instanceof ShardedTaskList shardedTasks) {
+                if (isWholeListChanged) {
+                    shardedTasks.markAllLoadedDirty();
+                }
+                shardedTasks.writeDirtyShards();
+                return;
+            }
+            ShardedTaskList shardedTasks = new ShardedTaskList(shardDirectory, ShardManifest.EMPTY);
+            shardedTasks.addAll(taskList.getTasks());
+            shardedTasks.writeDirtyShards();
+            Set<String> shardNames = new HashSet<>();
+            shardedTasks.getShardInfos().forEach(shardInfo -> shardNames.add(shardInfo.name()));
+            shardDirectory.deleteShardsExcept(shardNames);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", shardDirectory.getDirectory())
+            );
+        }
+    }
+
+    /**
+     * Checks every shard against the manifest by reading it in full.
+     *
+     * @return The number of tasks in the shards, with no failed checksums.
+     * @throws FileContentException      If the manifest or a shard is improperly formatted or inconsistent.
+     * @throws StorageOperationException If there is an error reading the shards.
+     */
+    @Override
+    public VerificationResult verify() throws FileContentException, StorageOperationException {
+        try {
+            ShardManifest manifest = shardDirectory.hasManifest() ? shardDirectory.readManifest() : ShardManifest.EMPTY;
+            ShardedTaskList shardedTasks = new ShardedTaskList(shardDirectory, manifest);
+            shardedTasks.loadAll();
+            return new VerificationResult(shardedTasks.size(), List.of());
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", shardDirectory.getDirectory())
+            );
+        }
+    }
+
+    @Override
+    public List<Task> findTasksBetween(LocalDateTime from, LocalDateTime to)
+            throws FileContentException, StorageOperationException {
+        return load().getTasks();
+    }
+
+    @Override
+    public List<Task> getTasksPossiblyOn(TaskList taskList, LocalDateTime dateTime) {
+        if (taskList.getTasks() instanceof ShardedTaskList shardedTasks) {
+            return shardedTasks.getTasksPossiblyOn(dateTime);
+        }
+        return taskList.getTasks();
+    }
+
+    @Override
+    public List<Task> getTasksPossiblyContaining(TaskList taskList, List<String> keywords) {
+        return taskList.getTasks();
+    }
+
+    /**
+     * Checks whether the mutations of the task list can be shipped to a replica of the storage file.
+     * Shards are not replicated, since the replica is a single file in the storage format.
+     *
+     * @return {@code false}.
+     */
+    @Override
+    public boolean isReplicable() {
+        return false;
+    }
+}
@@ -0,0 +1,194 @@
+package wkduke.storage;
+
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the tasks of a storage in a {@link TaskStore}, one record per task, so that a mutation only writes the
+ * records it changes. Loading only reads the keys of the records into a {@link StoredTaskList}, and date and keyword
+ * queries are answered by the store.
+ */
+class SqlStorageBackend implements StorageBackend {
+    private final TaskStore taskStore;
+    private final TaskImporter importer;
+
+    /**
+     * Changes the records of the task store for a mutation of a task list loaded from it.
+     */
+    @FunctionalInterface
+    private interface StoreWriter {
+        /**
+         * Writes the change.
+         *
+         * @param storedTasks The tasks of the mutated list, holding the keys of their records.
+         * @throws IOException If the store cannot be written.
+         */
+        void write(StoredTaskList storedTasks) throws IOException;
+    }
+
+    /**
+     * Initialises a backend over the given task store.
+     *
+     * @param taskStore The store holding the tasks.
+     * @param importer  The importer reading the tasks of the storage file into a new store.
+     */
+    SqlStorageBackend(TaskStore taskStore, TaskImporter importer) {
+        assert taskStore != null : "Precondition failed: 'taskStore' cannot be null";
+        assert importer != null : "Precondition failed: 'importer' cannot be null";
+        this.taskStore = taskStore;
+        this.importer = importer;
+    }
+
+    /**
+     * Loads the task list from the task store, importing the tasks of the storage file and its journal into a new
+     * store first. Only the keys of the records are read; each task is read when it is first accessed.
+     *
+     * @return A {@code TaskList} over the records of the store, in order.
+     * @throws FileContentException      If the storage file is improperly formatted.
+     * @throws StorageOperationException If there is an error reading the storage file or the store.
+     */
+    @Override
+    public TaskList load() throws FileContentException, StorageOperationException {
+        try {
+            if (!taskStore.exists()) {
+                taskStore.create(importer.readTasks());
+            }
+            return new TaskList(new StoredTaskList(taskStore, taskStore.loadKeys()));
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", taskStore.getStorePath())
+            );
+        }
+    }
+
+    @Override
+    public void save(TaskList taskList) throws StorageOperationException {
+        // Every task is read before the records are replaced, since a stored list reads them from the store
+        List<Task> tasks = new ArrayList<>(taskList.getTasks());
+        writeStore(taskList, storedTasks -> storedTasks.rebase(taskStore.replaceAll(tasks)));
+    }
+
+    @Override
+    public void saveAddedTask(TaskList taskList, Task task) throws StorageOperationException {
+        writeStore(taskList, storedTasks -> storedTasks.markPersisted(taskList.size() - 1, taskStore.insert(task)));
+    }
+
+    @Override
+    public void saveUpdatedTasks(TaskList taskList, Collection<Integer> taskIndices)
+            throws StorageOperationException {
+        writeStore(taskList, storedTasks -> {
+            Map<Long, Task> updatedTasks = new TreeMap<>();
+            taskIndices.forEach(taskIndex -> updatedTasks.put(storedTasks.getKey(taskIndex),
+                    taskList.getTask(taskIndex)));
+            taskStore.update(updatedTasks);
+        });
+    }
+
+    @Override
+    public void saveDeletedTasks(TaskList taskList) throws StorageOperationException {
+        writeStore(taskList, storedTasks -> taskStore.delete(storedTasks.takeRemovedKeys()));
+    }
+
+    /**
+     * Writes a mutation of the task list to the task store. A task list not loaded from this store has no keys for
+     * its records, so it replaces every record instead.
+     *
+     * @param taskList The {@code TaskList} after the mutation.
+     * @param writer   The writer changing the records of the mutation.
+     * @throws StorageOperationException If the store cannot be written.
+     */
+    private void writeStore(TaskList taskList, StoreWriter writer) throws StorageOperationException {
+        try {
+            if (taskList.getTasks() instanceof StoredTaskList storedTasks && storedTasks.getStore() == taskStore) {
+                writer.write(storedTasks);
+            } else {
+                taskStore.replaceAll(new ArrayList<>(taskList.getTasks()));
+            }
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", taskStore.getStorePath())
+            );
+        }
+    }
+
+    @Override
+    public VerificationResult verify() throws FileContentException, StorageOperationException {
+        try {
+            return new VerificationResult(taskStore.loadAll().size(), List.of());
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", taskStore.getStorePath())
+            );
+        }
+    }
+
+    @Override
+    public List<Task> findTasksBetween(LocalDateTime from, LocalDateTime to)
+            throws FileContentException, StorageOperationException {
+        try {
+            return taskStore.findTasksBetween(from, to);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", taskStore.getStorePath())
+            );
+        }
+    }
+
+    @Override
+    public List<Task> getTasksPossiblyOn(TaskList taskList, LocalDateTime dateTime)
+            throws StorageOperationException {
+        if (!(taskList.getTasks() instanceof StoredTaskList storedTasks)) {
+            return taskList.getTasks();
+        }
+        try {
+            return storedTasks.getTasksPossiblyOn(dateTime);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", storedTasks.getStore().getStorePath())
+            );
+        }
+    }
+
+    @Override
+    public List<Task> getTasksPossiblyContaining(TaskList taskList, List<String> keywords)
+            throws StorageOperationException {
+        if (!(taskList.getTasks() instanceof StoredTaskList storedTasks)) {
+            return taskList.getTasks();
+        }
+        try {
+            return storedTasks.getTasksPossiblyContaining(keywords);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", storedTasks.getStore().getStorePath())
+            );
+        }
+    }
+
+    /**
+     * Checks whether the mutations of the task list can be shipped to a replica of the storage file.
+     * The store is written synchronously, so its mutations are committed before they are shipped.
+     *
+     * @return {@code true}.
+     */
+    @Override
+    public boolean isReplicable() {
+        return true;
+    }
+}
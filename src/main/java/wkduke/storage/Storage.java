@@ -1,27 +1,258 @@
 package wkduke.storage;
 
 import wkduke.common.Messages;
+import wkduke.common.Utils;
 import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageConflictException;
 import wkduke.exception.storage.StorageFilePathException;
 import wkduke.exception.storage.StorageOperationException;
+import wkduke.exception.storage.UncheckedFileContentException;
+import wkduke.storage.checksum.RecordChecksum;
+import wkduke.storage.decoder.BinaryTaskListDecoder;
+import wkduke.storage.decoder.CompressedTaskListDecoder;
+import wkduke.storage.decoder.LazyTaskList;
+import wkduke.storage.decoder.PagedTaskList;
+import wkduke.storage.decoder.TaskDecoder;
+import wkduke.storage.decoder.TaskFileReader;
 import wkduke.storage.decoder.TaskListDecoder;
+import wkduke.storage.archive.TaskArchive;
+import wkduke.storage.backup.Backup;
+import wkduke.storage.backup.BackupDirectory;
+import wkduke.storage.binary.BinaryFormat;
+import wkduke.storage.blob.BlobStore;
+import wkduke.storage.encoder.BinaryTaskListEncoder;
+import wkduke.storage.encoder.CompressedTaskListEncoder;
+import wkduke.storage.encoder.TaskEncoder;
+import wkduke.storage.encoder.RecordLayout;
 import wkduke.storage.encoder.TaskListEncoder;
+import wkduke.storage.format.FormatHeader;
+import wkduke.storage.format.FormatMigrator;
+import wkduke.storage.index.ContentFingerprint;
+import wkduke.storage.index.DateIndex;
+import wkduke.storage.history.TaskHistory;
+import wkduke.storage.journal.Journal;
+import wkduke.storage.journal.JournalEntry;
+import wkduke.storage.journal.JournalLock;
+import wkduke.storage.journal.JournalOperation;
+import wkduke.storage.journal.JournalPosition;
+import wkduke.storage.replica.Replica;
+import wkduke.storage.replica.ReplicationLog;
+import wkduke.storage.shard.ShardDirectory;
+import wkduke.storage.shard.ShardedTaskList;
+import wkduke.storage.sql.SqlTaskStore;
+import wkduke.storage.watch.FileStamp;
+import wkduke.storage.watch.FileWatcher;
+import wkduke.storage.watch.TaskFileDiff;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
 import wkduke.task.TaskList;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * Manages storage of task data in the file system.
  * Handles file reading, writing, and ensures proper file setup.
+ *
+ * <p>The {@link StorageFormat} is chosen by the extension of the storage file: {@code .txt} files hold one
+ * readable line per task, {@code .wkd} files use the compact binary format, and {@code .txt.gz} files hold the
+ * lines in independently compressed blocks.</p>
+ *
+ * <p>In {@link WriteMode#JOURNAL} mode, mutations are appended to a {@link Journal} next to the storage file
+ * instead of rewriting it, and the journal is folded into a fresh snapshot in the background once it grows
+ * past {@link StorageOptions#getJournalCompactionThreshold()}.</p>
+ *
+ * <p>With {@link StorageOptions#isLazyLoad()}, a text file is loaded as a {@link LazyTaskList} that decodes each
+ * task on first access, and {@link #verify()} validates the whole file on request.</p>
+ *
+ * <p>With {@link StorageOptions#isSharded()}, tasks are kept by a {@link ShardedStorageBackend} in a
+ * {@link ShardDirectory} next to the storage file instead, with one shard per month of time aware tasks and one for
+ * todos, and loaded as a {@link ShardedTaskList} that only reads a shard when it is accessed. The manifest of the
+ * shards also records the order of the list across them, so the list keeps its order when it is sorted or reloaded.
+ * An existing storage file is split into shards on the first load.</p>
+ *
+ * <p>In {@link WriteMode#PATCH} mode, the offset of every record is kept from load time, so marking a task or
+ * changing its priority overwrites just those bytes; the file is only rewritten when tasks are added, removed or
+ * reordered.</p>
+ *
+ * <p>With {@link StorageOptions#isChecksummed()}, every line of a text file ends with a {@link RecordChecksum}.
+ * {@link #verify()} then checks the raw lines without decoding them, and {@link #load()} moves lines that fail
+ * their checksum or cannot be decoded into a quarantine file next to the storage file instead of failing.</p>
+ *
+ * <p>With {@link StorageOptions#isDateIndexed()}, the dates of time aware tasks are kept in a {@link DateIndex}
+ * next to an uncompressed storage file, so that {@link #findTasksBetween(LocalDateTime, LocalDateTime)} and
+ * {@link #getTasksPossiblyOn(TaskList, LocalDateTime)} only read the matching records. Added tasks are appended to
+ * the file and inserted into the index; other rewrites rebuild it. An index left stale, e.g. by a write-behind
+ * snapshot or an edit outside WKDuke, is rebuilt from the file on the next query.</p>
+ *
+ * <p>With a {@link StorageOptions#getHeapBudget()}, a text file is loaded as a {@link PagedTaskList} that keeps a
+ * compact index of every task on the heap, but only as many decoded tasks as fit within the budget. Full rewrites
+ * then stream the tasks into a new file one at a time and move it over the storage file, and {@link #verify()}
+ * validates the file without holding its tasks.</p>
+ *
+ * <p>With a {@link StorageOptions#getBlobThreshold()}, descriptions longer than the threshold are appended to a
+ * {@link BlobStore} next to an unsharded text file as they are written, and the lines refer to them by offset and
+ * length, so that rewriting the file does not copy them again. A decoded task only reads its description from the
+ * blob file when the description is first needed, and the blob file is forced to disk before a line referring to new
+ * descriptions is published. References in a text file are resolved whatever the threshold, and written back inline
+ * once it is turned off.</p>
+ *
+ * <p>With {@link StorageOptions#getArchiveAfterDays()}, every load, and the {@code archive} command, moves
+ * completed deadlines and events that have long been over into a {@link TaskArchive} next to the storage file,
+ * through {@link #saveDeletedTasks(TaskList, Map)}. Tasks are never archived in the middle of a session, so the
+ * task numbers the user sees only change when the user asks. The archive is never loaded, only streamed by
+ * {@link #forEachArchivedTask(Consumer)}.</p>
+ *
+ * <p>With {@link StorageOptions#isWatched()}, every load of a text file starts a {@link FileWatcher} that notes
+ * changes made to the file outside WKDuke, and {@link #refresh(TaskList)} applies them to the loaded task list
+ * through {@link #reloadExternalChanges(TaskList)} before the next command, so tasks are never renumbered while the
+ * user looks at them. Only the lines that no longer match a task in memory are decoded. Every save first compares
+ * the file with the {@link FileStamp} of its last read or write, and a change that arrived since is applied instead
+ * of being overwritten, with a {@link StorageConflictException}.</p>
+ *
+ * <p>With {@link StorageOptions#isShared()}, several processes can work on the same journaled file. A process only
+ * locks the journal while appending to it, and {@link #refresh(TaskList)} applies the entries appended by the others
+ * since its last read. An append made on a task list that is no longer current is rejected with a
+ * {@link StorageConflictException} instead of overwriting the other change. The journal is then compacted on the
+ * writing thread while the lock is held, and the other processes reload the whole list once.</p>
+ *
+ * <p>With a {@link StorageOptions#getReplicaPath()}, every committed mutation is appended to a
+ * {@link ReplicationLog} as journal entries and shipped to a {@link Replica} on a background thread. The replica
+ * records the log offset it has applied up to, so shipping catches up from that offset after the replica was
+ * unavailable or WKDuke was restarted, and {@link #getReplicationLag()} reports how far behind it is. Mutations
+ * that entries cannot describe, such as sorting, and replicas too far behind are sent a full snapshot instead.</p>
+ *
+ * <p>With a {@link StorageOptions#getHistoryCheckpointInterval()}, every committed mutation is also recorded with its
+ * time in a {@link TaskHistory}, together with periodic checkpoints of the whole list, so that
+ * {@link #loadAsOf(LocalDateTime)} can reconstruct the task list as it was at any time since the history started.
+ * Mutations written behind are recorded once they are written, and a
+ * {@link StorageOptions#getHistoryRetentionDays()} bounds how far back the history reaches.</p>
+ *
+ * <p>{@link #backup(TaskList)} takes a consistent {@link Backup} of an unsharded storage file without holding up the
+ * session: files that are only replaced by moving a new file over them are hard linked, and the append-only journal
+ * and blob file are copied up to their current size on a background thread. A text file rewritten in place is copied
+ * straight away. {@link #restore(TaskList, String)} replaces the task list with a backup and publishes it with an
+ * atomic move.</p>
+ *
+ * <p>With {@link StorageOptions#isSqlBacked()}, tasks are kept by a {@link SqlStorageBackend} in a {@link TaskStore},
+ * an embedded {@link SqlTaskStore} next to the storage file, with one row per task. Loading only reads the keys of
+ * the rows into a {@link StoredTaskList}, which reads tasks as they are accessed. Adding, updating or deleting tasks
+ * only changes their rows, and {@link #getTasksPossiblyOn(TaskList, LocalDateTime)} and
+ * {@link #getTasksPossiblyContaining(TaskList, List)} are answered by queries on the database. An existing storage
+ * file is imported into the database on the first load and left untouched afterwards.</p>
+ *
+ * <p>Neither backend uses the file-based write modes or durabilities, as each writes its mutations synchronously.
+ * The history and archive are kept on top of either one as for the storage file, and so is the replica of the
+ * database.</p>
+ *
+ * <p>With a {@link Durability} other than {@link Durability#SYNC}, mutations only mark the task list dirty and
+ * a full snapshot is written later: on a background thread for {@link Durability#ASYNC}, or by {@link #flush()}
+ * and a shutdown hook. The background writer reads the task list while holding its monitor, so code that
+ * mutates the task list on another thread must hold the same monitor, as {@code WKDuke.run} does.</p>
  */
-public class Storage {
+public class Storage implements AutoCloseable {
     private static final String DEFAULT_STORAGE_FILEPATH = "./data/tasks.txt";
+    private static final String SHARD_DIRECTORY_SUFFIX = "-shards";
+    private static final String QUARANTINE_FILE_SUFFIX = ".quarantine";
+    private static final Set<Storage> WRITE_BEHIND_STORAGES = Collections.newSetFromMap(new WeakHashMap<>());
+    private static boolean isShutdownHookRegistered;
     private final Path filePath;
+    private final StorageFormat format;
+    private final StorageOptions options;
+    private final Journal journal;
+    private final StorageBackend backend;
+    private final DateIndex dateIndex;
+    private final BlobStore blobStore;
+    private final TaskArchive archive;
+    private final Replica replica;
+    private final ReplicationLog replicationLog;
+    private final TaskHistory history;
+    private final BackupDirectory backupDirectory;
+    private final FormatMigrator formatMigrator;
+    private final Queue<StorageOperationException> backgroundErrors = new ConcurrentLinkedQueue<>();
+    private ExecutorService compactionExecutor;
+    private Future<?> pendingCompaction;
+    private final ReentrantLock writeBehindLock = new ReentrantLock();
+    private final Deque<UnwrittenMutation> unwrittenHistory = new ArrayDeque<>();
+    private ScheduledExecutorService writeBehindExecutor;
+    private TaskList dirtyTaskList;
+    private long dirtyVersion;
+    private long persistedVersion;
+    private boolean isWriteBehindScheduled;
+    private StorageOperationException writeBehindError;
+    private long[] recordOffsets;
+    private int quarantinedRecordCount;
+    private FileWatcher fileWatcher;
+    private FileStamp watchedStamp;
+    private volatile boolean isExternalChangeSeen;
+    private JournalPosition sharedPosition;
+    private ExecutorService replicationExecutor;
+    private TaskList replicatedTaskList;
+    private volatile boolean isReplicaFailing;
+    private ExecutorService backupExecutor;
+    private Future<?> pendingBackup;
+
+    /**
+     * Writes a full snapshot of the task list to a file.
+     */
+    @FunctionalInterface
+    private interface SnapshotWriter {
+        /**
+         * Writes the snapshot.
+         *
+         * @param path The file to overwrite.
+         * @throws IOException If the file cannot be written.
+         */
+        void write(Path path) throws IOException;
+    }
+
+    /**
+     * A mutation written behind that is recorded in the history once a snapshot of its version is written.
+     *
+     * @param version The dirty version the mutation produced.
+     * @param entries The entries describing the mutation, or {@code null} for a mutation of the whole list.
+     */
+    private record UnwrittenMutation(long version, List<JournalEntry> entries) {
+    }
 
     /**
      * Initializes a Storage instance with the default file path.
@@ -32,33 +263,97 @@ public class Storage {
         this(DEFAULT_STORAGE_FILEPATH);
     }
 
+    /**
+     * Initializes a Storage instance with the default file path and the given options.
+     *
+     * @param options The options controlling how tasks are persisted.
+     * @throws StorageOperationException If there is an error in creating the file or directories.
+     */
+    public Storage(StorageOptions options) throws StorageOperationException {
+        this(DEFAULT_STORAGE_FILEPATH, options);
+    }
+
     /**
      * Initialises a Storage instance with a specified file path.
      *
      * @param filePathString The file path for storing tasks.
      * @throws StorageOperationException If there is an error in creating the file or directories.
-     * @throws StorageFilePathException  If the file path is invalid (must end with ".txt").
+     * @throws StorageFilePathException  If the file path is invalid (must end with ".txt", ".wkd" or ".txt.gz").
      */
     public Storage(String filePathString) throws StorageOperationException {
+        this(filePathString, new StorageOptions());
+    }
+
+    /**
+     * Initialises a Storage instance with a specified file path and options.
+     *
+     * @param filePathString The file path for storing tasks.
+     * @param options        The options controlling how tasks are persisted.
+     * @throws StorageOperationException If there is an error in creating the file or directories.
+     * @throws StorageFilePathException  If the file path is invalid (must end with ".txt", ".wkd" or ".txt.gz").
+     */
+    public Storage(String filePathString, StorageOptions options) throws StorageOperationException {
+        this(filePathString, options, new FormatMigrator());
+    }
+
+    /**
+     * Initialises a Storage instance that reads and writes text files in the version of the given migrator,
+     * e.g. a version newer than {@link wkduke.storage.format.FormatHeader#CURRENT_VERSION} under test.
+     *
+     * @param filePathString The file path for storing tasks.
+     * @param options        The options controlling how tasks are persisted.
+     * @param formatMigrator The migrator upgrading text files to the version they are written in.
+     * @throws StorageOperationException If there is an error in creating the file or directories.
+     * @throws StorageFilePathException  If the file path is invalid (must end with ".txt", ".wkd" or ".txt.gz").
+     */
+    Storage(String filePathString, StorageOptions options, FormatMigrator formatMigrator)
+            throws StorageOperationException {
         assert filePathString != null : "Precondition failed: 'filePathString' cannot be null";
+        assert options != null : "Precondition failed: 'options' cannot be null";
+        assert formatMigrator != null : "Precondition failed: 'formatMigrator' cannot be null";
+        this.formatMigrator = formatMigrator;
         filePath = Paths.get(filePathString);
-        if (!isValidPath(filePath)) {
+        format = StorageFormat.fromPath(filePath);
+        if (format == null) {
             throw new StorageFilePathException(Messages.MESSAGE_FILE_PATH_ERROR);
         }
         createFileAndDirectories(filePath);
+        this.options = options;
+        this.journal = new Journal(filePath);
+        this.backend = createBackend();
+        this.dateIndex = new DateIndex(filePath);
+        this.blobStore = (format == StorageFormat.TEXT) ? new BlobStore(filePath) : null;
+        this.archive = new TaskArchive(filePath);
+        this.backupDirectory = new BackupDirectory(filePath);
+        if (options.getReplicaPath() != null) {
+            Path replicaPath = Paths.get(options.getReplicaPath());
+            if (StorageFormat.fromPath(replicaPath) != format || replicaPath.equals(filePath)) {
+                throw new StorageFilePathException(Messages.MESSAGE_REPLICA_PATH_ERROR);
+            }
+            if (isWriteBehind()) {
+                // Entries would be shipped before the write-behind flush commits them, or without it ever doing so
+                throw new StorageOperationException(
+                        Messages.MESSAGE_REPLICA_DURABILITY_ERROR,
+                        String.format("Durability='%s'", options.getDurability()),
+                        Messages.MESSAGE_REPLICA_DURABILITY_HELP
+                );
+            }
+            createFileAndDirectories(replicaPath);
+            this.replica = new Replica(replicaPath);
+            this.replicationLog = new ReplicationLog(filePath);
+        } else {
+            this.replica = null;
+            this.replicationLog = null;
+        }
+        this.history = options.getHistoryCheckpointInterval() > 0
+                ? new TaskHistory(filePath, options.getHistoryCheckpointInterval(), options.getHistoryRetentionDays())
+                : null;
+        if (isWriteBehind()) {
+            flushOnShutdown(this);
+        }
         assert filePath != null : "Postcondition failed: 'filePath' should be initialised to a valid path";
     }
 
-    /**
-     * Validates that the file path ends with ".txt".
-     *
-     * @param filePath The file path to validate.
-     * @return {@code true} if the path ends with ".txt"; {@code false} otherwise.
-     */
-    private static boolean isValidPath(Path filePath) {
-        return filePath.toString().endsWith(".txt");
-    }
-
     /**
      * Creates the necessary directories and file if they do not exist.
      *
@@ -73,7 +368,7 @@ public class Storage {
                 Files.createDirectories(folderPath);
             }
             if (Files.notExists(filePath)) {
-                Files.createFile(filePath);
+                createFileIfAbsent(filePath);
             }
         } catch (IOException e) {
             throw new StorageOperationException(
@@ -83,6 +378,47 @@ public class Storage {
         }
     }
 
+    /**
+     * Creates an empty file unless another process sharing it created it first.
+     *
+     * @param filePath The file to create.
+     * @throws IOException If the file cannot be created.
+     */
+    private static void createFileIfAbsent(Path filePath) throws IOException {
+        try {
+            Files.createFile(filePath);
+        } catch (FileAlreadyExistsException e) {
+            // Another process created the file between the existence check and the creation
+        }
+    }
+
+    /**
+     * Creates the backend holding the tasks in place of the storage file, if the options ask for one.
+     *
+     * @return The SQL or sharded backend, or {@code null} if tasks are kept in the storage file.
+     */
+    private StorageBackend createBackend() {
+        if (options.isSqlBacked()) {
+            return new SqlStorageBackend(new SqlTaskStore(filePath), this::readTasksToImport);
+        }
+        if (options.isSharded()) {
+            return new ShardedStorageBackend(new ShardDirectory(resolveShardDirectory(), format),
+                    this::readTasksToShard);
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the directory holding the shards of a storage file, e.g. {@code tasks-shards} for {@code tasks.txt}.
+     *
+     * @return The shard directory next to the storage file.
+     */
+    private Path resolveShardDirectory() {
+        String fileName = filePath.getFileName().toString();
+        String baseName = fileName.substring(0, fileName.length() - format.getExtension().length());
+        return filePath.resolveSibling(baseName + SHARD_DIRECTORY_SUFFIX);
+    }
+
     /**
      * Retrieves the file path where tasks are stored.
      *
@@ -92,16 +428,218 @@ public class Storage {
         return filePath;
     }
 
+    /**
+     * Retrieves the format of the storage file.
+     *
+     * @return The {@code StorageFormat} selected by the file extension.
+     */
+    public StorageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Retrieves the file that bad records are moved to when they are skipped on load.
+     *
+     * @return The path of the quarantine file next to the storage file.
+     */
+    public Path getQuarantinePath() {
+        return Path.of(filePath + QUARANTINE_FILE_SUFFIX);
+    }
+
+    /**
+     * Retrieves the file that completed tasks are archived to.
+     *
+     * @return The path of the archive file next to the storage file.
+     */
+    public Path getArchivePath() {
+        return archive.getArchivePath();
+    }
+
+    /**
+     * Retrieves the directory that backups of the storage file are kept in.
+     *
+     * @return The path of the backup directory next to the storage file.
+     */
+    public Path getBackupDirectory() {
+        return backupDirectory.getDirectory();
+    }
+
+    /**
+     * Retrieves the number of bad records that the last {@link #load()} skipped and moved to the quarantine file.
+     *
+     * @return The number of quarantined records, {@code 0} unless checksums are enabled.
+     */
+    public int getQuarantinedRecordCount() {
+        return quarantinedRecordCount;
+    }
+
+    /**
+     * Checks whether mutations are appended to the journal rather than rewriting the file.
+     *
+     * @return {@code true} if the storage runs in {@link WriteMode#JOURNAL} mode on the storage file; {@code false}
+     * otherwise.
+     */
+    private boolean isJournaled() {
+        return options.getWriteMode() == WriteMode.JOURNAL && isFileBacked();
+    }
+
+    /**
+     * Checks whether the journal is shared with other processes.
+     *
+     * @return {@code true} if the journal is locked and tailed for other processes; {@code false} otherwise.
+     */
+    private boolean isShared() {
+        return options.isShared() && isJournaled() && !isWriteBehind();
+    }
+
+    /**
+     * Checks whether tasks are kept in the storage file rather than in a {@link StorageBackend}.
+     *
+     * @return {@code true} if neither the sharded layout nor the SQL database is used; {@code false} otherwise.
+     */
+    private boolean isFileBacked() {
+        return backend == null;
+    }
+
+    /**
+     * Checks whether a date index is kept next to the storage file.
+     * The index only applies to uncompressed single files whose records stay in the file, outside journal mode.
+     *
+     * @return {@code true} if the date index is maintained and used for date queries; {@code false} otherwise.
+     */
+    private boolean isDateIndexed() {
+        return options.isDateIndexed() && isFileBacked() && !isJournaled()
+                && format != StorageFormat.COMPRESSED;
+    }
+
+    /**
+     * Checks whether tasks are paged from the storage file within a heap budget.
+     * Paging applies to text files that are rewritten synchronously, outside journal mode, since the paged list
+     * reads its tasks from the storage file as it was last written.
+     *
+     * @return {@code true} if the storage file is loaded as a {@link PagedTaskList}; {@code false} otherwise.
+     */
+    private boolean isPaged() {
+        return options.getHeapBudget() > 0 && format == StorageFormat.TEXT && isFileBacked() && !isJournaled()
+                && !isWriteBehind();
+    }
+
+    /**
+     * Checks whether long descriptions are stored out of line in the blob file.
+     * Blobs apply to unsharded text files, whose lines can hold a reference in place of the description.
+     *
+     * @return {@code true} if descriptions above the blob threshold are written to the blob file; {@code false}
+     * otherwise.
+     */
+    private boolean isBlobbed() {
+        return options.getBlobThreshold() > 0 && format == StorageFormat.TEXT && isFileBacked();
+    }
+
+    /**
+     * Retrieves the blob store that written lines may refer to.
+     *
+     * @return The blob store of the storage file, or {@code null} if every description is written inline.
+     */
+    private BlobStore getWriteBlobStore() {
+        return isBlobbed() ? blobStore : null;
+    }
+
+    /**
+     * Stores the description of a task in the blob file if it is longer than the blob threshold and not stored
+     * there yet, so that the task is written with a reference to it. Call {@link #syncBlobs()} before publishing
+     * the line.
+     *
+     * @param task The task about to be written.
+     * @throws IOException If the blob file cannot be written.
+     */
+    private void storeDescriptionOutOfLine(Task task) throws IOException {
+        if (isBlobbed() && blobStore.findReference(task) == null
+                && task.getDescription().length() > options.getBlobThreshold()) {
+            blobStore.append(task.getDescription());
+        }
+    }
+
+    /**
+     * Forces the descriptions just stored in the blob file to disk, before a line referring to them is published.
+     *
+     * @throws IOException If the blob file cannot be forced.
+     */
+    private void syncBlobs() throws IOException {
+        if (isBlobbed()) {
+            blobStore.sync();
+        }
+    }
+
     /**
      * Loads the task list from the storage file.
+     * A text file written in an older format version is upgraded to the current version first.
+     * A journal left next to the file is replayed on top of the snapshot and any interrupted compaction is
+     * completed. Outside journal mode the journal is folded into the file straight away.
+     * If completed tasks are archived, those that are old enough are moved to the archive before the list is
+     * returned.
      *
      * @return A {@code TaskList} containing tasks read from the file.
      * @throws FileContentException      If the file content is improperly formatted.
      * @throws StorageOperationException If there is an error reading from the file.
      */
     public TaskList load() throws FileContentException, StorageOperationException {
-        try {
-            return TaskListDecoder.decodeTaskList(Files.readAllLines(filePath));
+        TaskList taskList = loadTaskList();
+        if (isArchiving()) {
+            archiveCompletedTasks(taskList);
+        }
+        return taskList;
+    }
+
+    /**
+     * Loads the task list from the storage file, and starts the history, watcher and replication of the loaded
+     * list.
+     *
+     * @return A {@code TaskList} containing tasks read from the file.
+     * @throws FileContentException      If the file content is improperly formatted.
+     * @throws StorageOperationException If there is an error reading from the file.
+     */
+    private TaskList loadTaskList() throws FileContentException, StorageOperationException {
+        if (!isFileBacked()) {
+            TaskList taskList = backend.load();
+            startHistory(taskList);
+            startReplication(taskList);
+            return taskList;
+        }
+        try (JournalLock lock = isShared() ? journal.lock(false) : null) {
+            boolean hasJournal = journal.exists();
+            migrateFormat(journal.resolveSnapshotPath(filePath), hasJournal);
+            List<String> quarantine = new ArrayList<>();
+            TaskList taskList;
+            if (!isJournaled() && !hasJournal) {
+                if (isWatched()) {
+                    watchedStamp = FileStamp.read(filePath);
+                }
+                taskList = readSnapshot(filePath, quarantine);
+                quarantineRecords(quarantine);
+                if (!quarantine.isEmpty()) {
+                    writeSnapshotAtomically(taskList);
+                }
+            } else {
+                taskList = readSnapshot(journal.resolveSnapshotPath(filePath), quarantine);
+                quarantineRecords(quarantine);
+                journal.replay(taskList);
+                if (journal.isRecoveryNeeded() || (hasJournal && !isJournaled()) || !quarantine.isEmpty()) {
+                    if (lock != null) {
+                        lock.advanceGeneration();
+                    }
+                    compact(taskList);
+                }
+            }
+            if (lock != null) {
+                sharedPosition = journal.position(lock);
+            }
+            if (isPatching()) {
+                indexRecords();
+            }
+            startHistory(taskList);
+            startWatching();
+            startReplication(taskList);
+            return taskList;
         } catch (FileNotFoundException e) {
             throw new AssertionError("A non-existent file scenario is already handled earlier");
         } catch (IOException e) {
@@ -112,17 +650,72 @@ public class Storage {
         }
     }
 
+    /**
+     * Upgrades a text snapshot written in an older format version to the current version, record by record.
+     * Journal entries carry no version, so a snapshot with a journal next to it is only upgraded once the journal
+     * has been folded into it.
+     *
+     * @param snapshotPath The snapshot to load.
+     * @param hasJournal   {@code true} if a journal is left next to the snapshot.
+     * @throws FileContentException If the snapshot is in a newer version, or in an older version with a journal.
+     * @throws IOException          If the snapshot cannot be read or upgraded.
+     */
+    private void migrateFormat(Path snapshotPath, boolean hasJournal) throws FileContentException, IOException {
+        if (format != StorageFormat.TEXT || !formatMigrator.isMigrationNeeded(snapshotPath)) {
+            return;
+        }
+        if (hasJournal) {
+            throw new FileContentException(
+                    Messages.MESSAGE_MIGRATE_WITH_JOURNAL,
+                    String.format("FilePath='%s'", snapshotPath),
+                    Messages.MESSAGE_MIGRATE_WITH_JOURNAL_HELP
+            );
+        }
+        formatMigrator.migrate(snapshotPath);
+    }
+
     /**
      * Saves the given task list to the storage file.
+     * In journal mode, this replaces the snapshot and discards the journal, so it is meant for
+     * mutations such as sorting that touch the whole list.
      *
      * @param taskList The {@code TaskList} to save to the file.
      * @throws StorageOperationException If there is an error writing to the file.
      */
     public void save(TaskList taskList) throws StorageOperationException {
         assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        checkExternalChanges(taskList);
+        persist(taskList);
+        replicateSnapshot(taskList);
+        recordHistorySnapshot(taskList);
+    }
+
+    /**
+     * Writes the whole task list to the storage file in the configured write mode.
+     *
+     * @param taskList The {@code TaskList} to save to the file.
+     * @throws StorageOperationException If there is an error writing to the file.
+     */
+    private void persist(TaskList taskList) throws StorageOperationException {
+        decodeAll(taskList);
+        if (!isFileBacked()) {
+            backend.save(taskList);
+            return;
+        }
+        if (isWriteBehind()) {
+            markDirty(taskList, null);
+            return;
+        }
+        if (isShared()) {
+            writeShared(taskList, null);
+            return;
+        }
+        if (isJournaled()) {
+            compact(taskList);
+            return;
+        }
         try {
-            List<String> encodedTasks = TaskListEncoder.encodeTaskList(taskList);
-            Files.write(filePath, encodedTasks);
+            indexSnapshot(taskList, writeSnapshot(taskList, filePath));
         } catch (IOException ioe) {
             throw new StorageOperationException(
                     Messages.MESSAGE_WRITE_FILE_ERROR,
@@ -130,4 +723,2205 @@ public class Storage {
             );
         }
     }
+
+    /**
+     * Writes the whole task list to the storage file like {@link #persist(TaskList)}, but never leaves a partly
+     * written file behind: a snapshot that would be rewritten in place is written next to the file and moved over it.
+     *
+     * @param taskList The {@code TaskList} to save to the file.
+     * @throws StorageOperationException If there is an error writing to the file.
+     */
+    private void persistAtomically(TaskList taskList) throws StorageOperationException {
+        if (!isFileBacked() || isJournaled() || isWriteBehind() || isPaged()) {
+            persist(taskList);
+            return;
+        }
+        try {
+            indexSnapshot(taskList, writeSnapshotAtomically(taskList));
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+    }
+
+    /**
+     * Replaces the storage file with a full snapshot of the task list, written next to it and moved over it, so
+     * that a failed write leaves the previous file intact.
+     *
+     * @param taskList The {@code TaskList} to write.
+     * @return The layout of the records written, or {@code null} for a compressed file.
+     * @throws IOException If the snapshot cannot be written or moved into place.
+     */
+    private RecordLayout writeSnapshotAtomically(TaskList taskList) throws IOException {
+        if (taskList.getTasks() instanceof PagedTaskList) {
+            return writeSnapshot(taskList, filePath); // A paged snapshot is always published with a move
+        }
+        Path temporaryPath = Path.of(filePath + ".tmp");
+        RecordLayout layout = writeSnapshot(taskList, temporaryPath);
+        Utils.moveAtomically(temporaryPath, filePath);
+        return layout;
+    }
+
+    /**
+     * Keeps the record offsets and stamp and rebuilds the date index of a freshly written storage file, where they
+     * are kept, from the layout recorded while writing it rather than by reading the file again.
+     *
+     * @param taskList The {@code TaskList} just written.
+     * @param layout   The layout of the records written, or {@code null} for a compressed file.
+     * @throws IOException If the index cannot be written.
+     */
+    private void indexSnapshot(TaskList taskList, RecordLayout layout) throws IOException {
+        if (isPatching()) {
+            recordOffsets = layout.recordStarts();
+        }
+        if (isDateIndexed()) {
+            dateIndex.rebuild(taskList.getTasks(), layout.recordStarts(), layout.fingerprint());
+        }
+        if (isWatched()) {
+            watchedStamp = FileStamp.of(filePath, layout.fingerprint());
+        }
+    }
+
+    /**
+     * Persists a task that was just appended to the end of the task list.
+     *
+     * @param taskList The {@code TaskList} the task was added to.
+     * @param task     The task that was added.
+     * @throws StorageOperationException If there is an error writing to the file.
+     */
+    public void saveAddedTask(TaskList taskList, Task task) throws StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        checkExternalChanges(taskList);
+        List<JournalEntry> entries = List.of(
+                new JournalEntry(JournalOperation.ADD, taskList.size() - 1, TaskEncoder.encodeTask(task))
+        );
+        persistAddedTask(taskList, task, entries);
+        replicate(taskList, entries);
+        recordHistory(taskList, entries);
+    }
+
+    /**
+     * Writes a task that was just appended to the end of the task list in the configured write mode.
+     *
+     * @param taskList The {@code TaskList} the task was added to.
+     * @param task     The task that was added.
+     * @param entries  The journal entries describing the addition.
+     * @throws StorageOperationException If there is an error writing to the file.
+     */
+    private void persistAddedTask(TaskList taskList, Task task, List<JournalEntry> entries)
+            throws StorageOperationException {
+        if (!isFileBacked()) {
+            backend.saveAddedTask(taskList, task);
+            return;
+        }
+        if (isWriteBehind()) {
+            markDirty(taskList, entries);
+            return;
+        }
+        if (isDateIndexed()) {
+            appendTask(taskList, task);
+            return;
+        }
+        if (!isJournaled()) {
+            persist(taskList);
+            return;
+        }
+        appendToJournal(taskList, entries);
+    }
+
+    /**
+     * Persists tasks whose status or priority was changed in place.
+     *
+     * @param taskList    The {@code TaskList} containing the updated tasks.
+     * @param taskIndices The 0-based indices of the updated tasks.
+     * @throws StorageOperationException If there is an error writing to the file.
+     */
+    public void saveUpdatedTasks(TaskList taskList, Collection<Integer> taskIndices) throws StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert taskIndices != null : "Precondition failed: 'taskIndices' cannot be null";
+        checkExternalChanges(taskList);
+        List<JournalEntry> entries = new ArrayList<>();
+        for (int taskIndex : taskIndices) {
+            entries.add(new JournalEntry(JournalOperation.UPDATE, taskIndex,
+                    TaskEncoder.encodeTask(taskList.getTask(taskIndex))));
+        }
+        persistUpdatedTasks(taskList, taskIndices, entries);
+        replicate(taskList, entries);
+        recordHistory(taskList, entries);
+    }
+
+    /**
+     * Writes tasks whose status or priority was changed in place in the configured write mode.
+     *
+     * @param taskList    The {@code TaskList} containing the updated tasks.
+     * @param taskIndices The 0-based indices of the updated tasks.
+     * @param entries     The journal entries describing the updates.
+     * @throws StorageOperationException If there is an error writing to the file.
+     */
+    private void persistUpdatedTasks(TaskList taskList, Collection<Integer> taskIndices, List<JournalEntry> entries)
+            throws StorageOperationException {
+        if (!isFileBacked()) {
+            backend.saveUpdatedTasks(taskList, taskIndices);
+            return;
+        }
+        if (isWriteBehind()) {
+            markDirty(taskList, entries);
+            return;
+        }
+        if (isPatching() && recordOffsets != null && recordOffsets.length == taskList.size()) {
+            boolean isIndexCurrent = isDateIndexCurrent();
+            long fingerprintChange = patchRecords(taskList, taskIndices);
+            if (taskList.getTasks() instanceof PagedTaskList pagedTasks) {
+                taskIndices.forEach(taskIndex -> pagedTasks.markPersisted(taskIndex, recordOffsets[taskIndex]));
+            }
+            if (isIndexCurrent) {
+                // Patches move no record and change no date, so the index only needs the new file stamp
+                try {
+                    dateIndex.markCurrent(fingerprintChange);
+                } catch (IOException | FileContentException e) {
+                    throw new StorageOperationException(
+                            Messages.MESSAGE_WRITE_FILE_ERROR,
+                            String.format("FilePath='%s'", dateIndex.getIndexPath())
+                    );
+                }
+            }
+            if (isWatched() && watchedStamp != null) {
+                try {
+                    watchedStamp = watchedStamp.changedBy(filePath, fingerprintChange);
+                } catch (IOException e) {
+                    throw new StorageOperationException(
+                            Messages.MESSAGE_READ_FILE_ERROR,
+                            String.format("FilePath='%s'", filePath)
+                    );
+                }
+            }
+            return;
+        }
+        if (!isJournaled()) {
+            persist(taskList);
+            return;
+        }
+        appendToJournal(taskList, entries);
+    }
+
+    /**
+     * Persists the removal of tasks from the task list.
+     *
+     * @param taskList     The {@code TaskList} the tasks were removed from.
+     * @param deletedTasks The removed tasks, keyed by their 0-based index before the removal.
+     * @throws StorageOperationException If there is an error writing to the file.
+     */
+    public void saveDeletedTasks(TaskList taskList, Map<Integer, Task> deletedTasks) throws StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert deletedTasks != null : "Precondition failed: 'deletedTasks' cannot be null";
+        checkExternalChanges(taskList);
+        // Deleting from the highest index first keeps the recorded indices valid during replay
+        Map<Integer, Task> descendingTasks = new TreeMap<>(Comparator.reverseOrder());
+        descendingTasks.putAll(deletedTasks);
+        List<JournalEntry> entries = new ArrayList<>();
+        for (Map.Entry<Integer, Task> deletedTask : descendingTasks.entrySet()) {
+            entries.add(new JournalEntry(JournalOperation.DELETE, deletedTask.getKey(),
+                    TaskEncoder.encodeTask(deletedTask.getValue())));
+        }
+        persistDeletedTasks(taskList, entries);
+        replicate(taskList, entries);
+        recordHistory(taskList, entries);
+    }
+
+    /**
+     * Writes the removal of tasks from the task list in the configured write mode.
+     *
+     * @param taskList The {@code TaskList} the tasks were removed from.
+     * @param entries  The journal entries describing the removal.
+     * @throws StorageOperationException If there is an error writing to the file.
+     */
+    private void persistDeletedTasks(TaskList taskList, List<JournalEntry> entries) throws StorageOperationException {
+        if (!isFileBacked()) {
+            backend.saveDeletedTasks(taskList);
+            return;
+        }
+        if (isWriteBehind()) {
+            markDirty(taskList, entries);
+            return;
+        }
+        if (!isJournaled()) {
+            persist(taskList);
+            return;
+        }
+        appendToJournal(taskList, entries);
+    }
+
+    /**
+     * Moves the completed tasks that have been over for longer than the archive age from the task list to the
+     * archive, and persists their removal. The archive is written and forced to disk first, so an interrupted sweep
+     * can at worst archive a task twice, but never lose it.
+     * It runs when the list is loaded and when the user asks, never on its own, since it renumbers the tasks.
+     *
+     * @param taskList The {@code TaskList} to sweep.
+     * @return The archived tasks, in their former order.
+     * @throws StorageOperationException If the archive or the storage file cannot be written.
+     */
+    public List<Task> archiveCompletedTasks(TaskList taskList) throws StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert isArchiving() : "Precondition failed: completed tasks are not archived";
+        synchronized (taskList) {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(options.getArchiveAfterDays());
+            Map<Integer, Task> archivedTasks = new LinkedHashMap<>();
+            int taskIndex = 0;
+            for (Task task : taskList.getTasks()) {
+                if (TaskArchive.isArchivable(task, cutoff)) {
+                    archivedTasks.put(taskIndex, task);
+                }
+                taskIndex++;
+            }
+            if (archivedTasks.isEmpty()) {
+                return List.of();
+            }
+
+            List<Task> tasks = new ArrayList<>(archivedTasks.values());
+            try {
+                archive.append(tasks);
+            } catch (IOException e) {
+                throw new StorageOperationException(
+                        Messages.MESSAGE_WRITE_FILE_ERROR,
+                        String.format("FilePath='%s'", archive.getArchivePath())
+                );
+            }
+            tasks.forEach(taskList::deleteTask);
+            saveDeletedTasks(taskList, archivedTasks);
+            return tasks;
+        }
+    }
+
+    /**
+     * Streams the archived tasks to the handler without loading the archive.
+     *
+     * @param handler The handler invoked for each archived task, in the order archived.
+     * @throws FileContentException      If the archive is corrupt.
+     * @throws StorageOperationException If the archive cannot be read.
+     */
+    public void forEachArchivedTask(Consumer<Task> handler) throws FileContentException, StorageOperationException {
+        assert handler != null : "Precondition failed: 'handler' cannot be null";
+        try {
+            archive.forEachTask(handler);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", archive.getArchivePath())
+            );
+        }
+    }
+
+    /**
+     * Checks whether completed tasks are moved to the archive once they have been over for long enough.
+     *
+     * @return {@code true} if an archive age is set; {@code false} otherwise.
+     */
+    public boolean isArchiving() {
+        return options.getArchiveAfterDays() > 0;
+    }
+
+    /**
+     * Checks whether the storage file is watched for external changes.
+     * Watching applies to text files that are fully loaded and rewritten synchronously, outside journal mode, since
+     * the tasks in memory must match the file as it was last written for the two to be compared line by line.
+     *
+     * @return {@code true} if external changes are applied to the loaded task list; {@code false} otherwise.
+     */
+    private boolean isWatched() {
+        return options.isWatched() && format == StorageFormat.TEXT && isFileBacked() && !isJournaled()
+                && !isPaged() && !options.isLazyLoad() && !isWriteBehind();
+    }
+
+    /**
+     * Starts watching the storage file for external changes, if the file is watched. The watcher thread only notes
+     * that the file changed, and the change is applied by the next {@link #refresh(TaskList)}. The watcher of a
+     * previously loaded list is closed.
+     *
+     * @throws IOException If the directory of the storage file cannot be watched.
+     */
+    private synchronized void startWatching() throws IOException {
+        if (!isWatched()) {
+            return;
+        }
+        if (fileWatcher != null) {
+            fileWatcher.close();
+        }
+        isExternalChangeSeen = false;
+        fileWatcher = new FileWatcher(filePath, () -> isExternalChangeSeen = true);
+    }
+
+    /**
+     * Starts watching the storage file again if the storage was closed after a watched list was loaded. The file
+     * may have changed while no watcher ran, so the next {@link #refresh(TaskList)} compares it with its stamp.
+     *
+     * @throws StorageOperationException If the directory of the storage file cannot be watched.
+     */
+    private synchronized void resumeWatching() throws StorageOperationException {
+        if (!isWatched() || watchedStamp == null || fileWatcher != null) {
+            return;
+        }
+        try {
+            fileWatcher = new FileWatcher(filePath, () -> isExternalChangeSeen = true);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+        isExternalChangeSeen = true;
+    }
+
+    /**
+     * Stops watching the storage file, releasing the watch service and its thread.
+     *
+     * @throws IOException If the watch service cannot be closed.
+     */
+    private synchronized void stopWatching() throws IOException {
+        if (fileWatcher == null) {
+            return;
+        }
+        fileWatcher.close();
+        fileWatcher = null;
+    }
+
+    /**
+     * Applies the changes the watcher noted since the last call to the task list, unless the file still matches its
+     * stamp, e.g. because the watcher saw a write of WKDuke itself.
+     *
+     * @param taskList The {@code TaskList} loaded from the storage file.
+     * @throws FileContentException      If a changed line is invalid or duplicates another task.
+     * @throws StorageOperationException If there is an error reading the file.
+     */
+    private void applySeenExternalChanges(TaskList taskList) throws FileContentException, StorageOperationException {
+        if (!isExternalChangeSeen) {
+            return;
+        }
+        isExternalChangeSeen = false;
+        try {
+            if (watchedStamp == null || !watchedStamp.matches(filePath)) {
+                reloadExternalChanges(taskList);
+            }
+        } catch (IOException e) {
+            isExternalChangeSeen = true;
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        } catch (FileContentException | StorageOperationException e) {
+            isExternalChangeSeen = true; // Reported again by the next command until the file is fixed
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that a watched storage file was not changed outside WKDuke since it was last read or written, before
+     * a mutation of the task list is written over it. A change is applied to the task list instead, which also
+     * drops the mutation, so that the user can retry it on the current list.
+     *
+     * @param taskList The {@code TaskList} after the mutation.
+     * @throws StorageConflictException  If the file was changed, in which case nothing is written.
+     * @throws StorageOperationException If there is an error reading the file.
+     */
+    private void checkExternalChanges(TaskList taskList) throws StorageOperationException {
+        if (!isWatched() || watchedStamp == null) {
+            return;
+        }
+        resumeWatching();
+        try {
+            if (watchedStamp.matches(filePath) || !reloadExternalChanges(taskList).isChanged()) {
+                return;
+            }
+        } catch (FileContentException e) {
+            throw new StorageConflictException(e.getMessage(), e.getDetail(),
+                    Messages.MESSAGE_EXTERNAL_CHANGE_INVALID_HELP);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+        throw new StorageConflictException(Messages.MESSAGE_EXTERNAL_CHANGE_CONFLICT,
+                String.format("FilePath='%s'", filePath), Messages.MESSAGE_EXTERNAL_CHANGE_CONFLICT_HELP);
+    }
+
+    /**
+     * Applies the changes made to the storage file outside WKDuke to the task list, by comparing each line of the
+     * file with the line of a task in memory. Only the lines without a matching task are decoded, and only the range
+     * of tasks that differs is replaced, so the tasks in memory are never reloaded as a whole.
+     * It runs on the command thread, before a command or a save, since it may renumber the tasks.
+     *
+     * @param taskList The {@code TaskList} loaded from the storage file.
+     * @return The differences that were applied.
+     * @throws FileContentException      If a changed line is invalid or duplicates another task, in which case the
+     *                                   task list is left unchanged.
+     * @throws StorageOperationException If there is an error reading the file.
+     */
+    public TaskFileDiff reloadExternalChanges(TaskList taskList)
+            throws FileContentException, StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        synchronized (taskList) {
+            try {
+                FileStamp stamp = isWatched() ? FileStamp.read(filePath) : null;
+                TaskFileDiff diff = TaskFileDiff.compare(taskList.getTasks(), filePath, options.isChecksummed(),
+                        getWriteBlobStore(), blobStore);
+                if (diff.isChanged()) {
+                    taskList.replaceTasks(diff.getFromIndex(), diff.getCurrentToIndex(), diff.getChangedTasks());
+                    if (isPatching()) {
+                        indexRecords();
+                    }
+                    replicateSnapshot(taskList);
+                    recordHistorySnapshot(taskList);
+                }
+                watchedStamp = stamp;
+                return diff;
+            } catch (IOException e) {
+                throw new StorageOperationException(
+                        Messages.MESSAGE_READ_FILE_ERROR,
+                        String.format("FilePath='%s'", filePath)
+                );
+            }
+        }
+    }
+
+    /**
+     * Checks whether status and priority changes are patched into the storage file in place.
+     * Compressed files are rewritten instead, since a changed byte would change the whole compressed block.
+     * Checksummed text files are rewritten too, since a patched line would no longer match its checksum.
+     *
+     * @return {@code true} if the storage runs in {@link WriteMode#PATCH} mode on an uncompressed file without
+     * checksums, rather than on a {@link StorageBackend}; {@code false} otherwise.
+     */
+    private boolean isPatching() {
+        boolean isPatchable = switch (format) {
+            case TEXT -> !options.isChecksummed();
+            case BINARY -> true;
+            case COMPRESSED -> false;
+        };
+        return options.getWriteMode() == WriteMode.PATCH && isPatchable && isFileBacked();
+    }
+
+    /**
+     * Rebuilds the offsets of the records in the storage file, one per task.
+     *
+     * @throws IOException If the file cannot be read.
+     */
+    private void indexRecords() throws IOException {
+        recordOffsets = readRecordStarts();
+    }
+
+    /**
+     * Reads the offsets of the records in an uncompressed storage file, one per task.
+     *
+     * @return The ascending offsets of the records.
+     * @throws IOException If the file cannot be read.
+     */
+    private long[] readRecordStarts() throws IOException {
+        return switch (format) {
+            case TEXT -> TaskFileReader.lineStarts(filePath, FormatHeader.findRecordsStart(filePath));
+            case BINARY -> BinaryTaskListDecoder.recordStarts(filePath);
+            case COMPRESSED -> throw new AssertionError("Compressed files have no record offsets");
+        };
+    }
+
+    /**
+     * Appends the record of a task that was just added to the end of the task list to the storage file, and
+     * inserts it into the date index if the index was up to date.
+     *
+     * @param taskList The {@code TaskList} the task was added to.
+     * @param task     The task that was added.
+     * @throws StorageOperationException If there is an error writing to the file or the index.
+     */
+    private void appendTask(TaskList taskList, Task task) throws StorageOperationException {
+        try {
+            boolean isIndexCurrent = dateIndex.isCurrent();
+            long recordOffset;
+            long appendedFingerprint;
+            try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                long fileSize = channel.size();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                switch (format) {
+                    case TEXT -> {
+                        if (fileSize == 0) {
+                            out.write(FormatHeader.encodeLine(formatMigrator.getTargetVersion()));
+                        }
+                        if (fileSize > 0 && !isAfterLineTerminator(channel, fileSize)) {
+                            out.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+                        }
+                        recordOffset = fileSize + out.size();
+                        storeDescriptionOutOfLine(task);
+                        syncBlobs();
+                        out.write(TaskEncoder.encodeLine(task, options.isChecksummed(), getWriteBlobStore()));
+                    }
+                    case BINARY -> {
+                        if (fileSize == 0) {
+                            out.write(BinaryFormat.MAGIC);
+                            out.write(BinaryFormat.VERSION);
+                        }
+                        recordOffset = fileSize + out.size();
+                        BinaryTaskListEncoder.encodeTask(task, out);
+                    }
+                    default -> throw new AssertionError("Compressed files are never appended to");
+                }
+                byte[] appendedBytes = out.toByteArray();
+                appendedFingerprint = ContentFingerprint.of(appendedBytes, fileSize);
+                ByteBuffer buffer = ByteBuffer.wrap(appendedBytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, fileSize + buffer.position());
+                }
+            }
+            if (recordOffsets != null && recordOffsets.length == taskList.size() - 1) {
+                recordOffsets = Arrays.copyOf(recordOffsets, taskList.size());
+                recordOffsets[taskList.size() - 1] = recordOffset;
+            }
+            if (taskList.getTasks() instanceof PagedTaskList pagedTasks) {
+                pagedTasks.markPersisted(taskList.size() - 1, recordOffset);
+            }
+            if (isIndexCurrent) {
+                dateIndex.insert(task, recordOffset, appendedFingerprint);
+            }
+            if (isWatched() && watchedStamp != null) {
+                watchedStamp = watchedStamp.changedBy(filePath, appendedFingerprint);
+            }
+        } catch (IOException | FileContentException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+    }
+
+    /**
+     * Checks whether a text file ends with a line terminator, so that an appended line starts on its own line.
+     *
+     * @param channel  The channel of the text file.
+     * @param fileSize The size of the file. Must be positive.
+     * @return {@code true} if the last byte is a line terminator; {@code false} otherwise.
+     * @throws IOException If the file cannot be read.
+     */
+    private static boolean isAfterLineTerminator(FileChannel channel, long fileSize) throws IOException {
+        ByteBuffer lastByte = ByteBuffer.allocate(1);
+        channel.read(lastByte, fileSize - 1);
+        return lastByte.get(0) == '\n' || lastByte.get(0) == '\r';
+    }
+
+    /**
+     * Checks whether the date index is kept and describes the storage file as it is now.
+     *
+     * @return {@code true} if the index is maintained and up to date; {@code false} otherwise.
+     * @throws StorageOperationException If the index cannot be read.
+     */
+    private boolean isDateIndexCurrent() throws StorageOperationException {
+        try {
+            return isDateIndexed() && dateIndex.isCurrent();
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", dateIndex.getIndexPath())
+            );
+        }
+    }
+
+    /**
+     * Overwrites the status and priority of the given tasks in their records, leaving the rest of the file untouched.
+     * Both fields sit at a fixed position in every record, so no other byte moves.
+     *
+     * @param taskList    The {@code TaskList} containing the updated tasks.
+     * @param taskIndices The 0-based indices of the updated tasks.
+     * @return The change in the content fingerprint of the file made by the overwritten bytes.
+     * @throws StorageOperationException If there is an error writing to the file.
+     */
+    private long patchRecords(TaskList taskList, Collection<Integer> taskIndices) throws StorageOperationException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fingerprintChange = 0;
+            for (int taskIndex : taskIndices) {
+                Task task = taskList.getTask(taskIndex);
+                long recordOffset = recordOffsets[taskIndex];
+                byte[] patch;
+                long patchOffset;
+                switch (format) {
+                    case TEXT -> {
+                        patch = TaskEncoder.encodeStatusFields(task);
+                        patchOffset = recordOffset + TaskEncoder.STATUS_FIELDS_OFFSET;
+                    }
+                    case BINARY -> {
+                        patch = new byte[]{BinaryTaskListEncoder.encodeFlags(task)};
+                        patchOffset = recordOffset;
+                    }
+                    default -> throw new AssertionError(format);
+                }
+                ByteBuffer previous = ByteBuffer.allocate(patch.length);
+                while (previous.hasRemaining()) {
+                    if (channel.read(previous, patchOffset + previous.position()) < 0) {
+                        throw new EOFException(filePath.toString());
+                    }
+                }
+                fingerprintChange += ContentFingerprint.of(patch, patchOffset)
+                        - ContentFingerprint.of(previous.array(), patchOffset);
+                ByteBuffer buffer = ByteBuffer.wrap(patch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, patchOffset + buffer.position());
+                }
+            }
+            return fingerprintChange;
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+    }
+
+    /**
+     * Checks whether mutations are written behind the command thread instead of before the command completes.
+     * A {@link StorageBackend} is always written synchronously, since each mutation only changes its own records.
+     *
+     * @return {@code true} if the durability of the storage file is not {@link Durability#SYNC}; {@code false}
+     * otherwise.
+     */
+    private boolean isWriteBehind() {
+        return options.getDurability() != Durability.SYNC && isFileBacked();
+    }
+
+    /**
+     * Records that the task list has unsaved mutations and, for {@link Durability#ASYNC}, schedules a write.
+     * Mutations arriving before the scheduled write starts are coalesced into it. The mutation is kept for the
+     * history under its version until a snapshot of that version is written.
+     *
+     * @param taskList The mutated {@code TaskList}.
+     * @param entries  The entries describing the mutation, or {@code null} for a mutation of the whole list.
+     * @throws StorageOperationException If an earlier background write failed.
+     */
+    private synchronized void markDirty(TaskList taskList, List<JournalEntry> entries)
+            throws StorageOperationException {
+        decodeAll(taskList); // Decoding on the background writer would surface an invalid line too late
+        throwWriteBehindError();
+        dirtyTaskList = taskList;
+        dirtyVersion++;
+        if (isHistoryKept()) {
+            unwrittenHistory.add(new UnwrittenMutation(dirtyVersion, entries));
+        }
+        if (options.getDurability() != Durability.ASYNC || isWriteBehindScheduled) {
+            return;
+        }
+        if (writeBehindExecutor == null) {
+            writeBehindExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wkduke-storage-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        isWriteBehindScheduled = true;
+        writeBehindExecutor.schedule(() -> {
+            synchronized (this) {
+                isWriteBehindScheduled = false;
+            }
+            try {
+                writeBehind();
+            } catch (StorageOperationException e) {
+                synchronized (this) {
+                    writeBehindError = e;
+                }
+            }
+        }, options.getWriteBehindDelayMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rethrows the failure of a background write on the calling thread, once.
+     *
+     * @throws StorageOperationException If an earlier background write failed.
+     */
+    private synchronized void throwWriteBehindError() throws StorageOperationException {
+        StorageOperationException error = writeBehindError;
+        writeBehindError = null;
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Writes the latest dirty task list, if any, as a full snapshot.
+     * The snapshot is encoded while holding the monitor of the task list and written after releasing it, so the
+     * command thread is never held up by the disk. A snapshot older than the one already written is discarded.
+     *
+     * @throws StorageOperationException If the snapshot cannot be written.
+     */
+    private void writeBehind() throws StorageOperationException {
+        TaskList taskList;
+        synchronized (this) {
+            if (dirtyVersion == persistedVersion) {
+                return;
+            }
+            taskList = dirtyTaskList;
+        }
+        long version;
+        SnapshotWriter snapshotWriter;
+        TaskList writtenTaskList;
+        synchronized (taskList) {
+            synchronized (this) {
+                version = dirtyVersion;
+            }
+            writtenTaskList = isHistoryKept() ? copyTaskList(taskList) : null;
+            try {
+                snapshotWriter = prepareSnapshot(taskList);
+            } catch (IOException e) {
+                throw new StorageOperationException(
+                        Messages.MESSAGE_WRITE_FILE_ERROR,
+                        String.format("FilePath='%s'", filePath)
+                );
+            }
+        }
+
+        writeBehindLock.lock();
+        try {
+            synchronized (this) {
+                if (version <= persistedVersion) {
+                    return;
+                }
+            }
+            if (isJournaled()) {
+                journal.beginCompaction();
+                writeCompactedSnapshot(snapshotWriter);
+            } else {
+                Path temporaryPath = Path.of(filePath + ".tmp");
+                snapshotWriter.write(temporaryPath);
+                Utils.moveAtomically(temporaryPath, filePath);
+            }
+            synchronized (this) {
+                persistedVersion = version;
+            }
+            recordWrittenHistory(writtenTaskList, version);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        } finally {
+            writeBehindLock.unlock();
+        }
+    }
+
+    /**
+     * Copies a task list by encoding and decoding its tasks, so the copy is not changed by later mutations of the
+     * tasks in place.
+     *
+     * @param taskList The {@code TaskList} to copy.
+     * @return The copy.
+     */
+    private static TaskList copyTaskList(TaskList taskList) {
+        List<Task> tasks = new ArrayList<>(taskList.size());
+        try {
+            for (Task task : taskList.getTasks()) {
+                tasks.add(TaskDecoder.decodeTask(TaskEncoder.encodeTask(task)));
+            }
+        } catch (FileContentException e) {
+            throw new AssertionError("An encoded task always decodes", e);
+        }
+        return new TaskList(tasks);
+    }
+
+    /**
+     * Records the mutations up to a version that was just written behind in the history, as entries or, if one of
+     * them mutated the whole list, as a checkpoint. It is called while holding the write-behind lock, so mutations
+     * are recorded in the order they were written.
+     *
+     * @param writtenTaskList A copy of the task list as written, or {@code null} if no history is kept.
+     * @param version         The version that was written.
+     * @throws StorageOperationException If the history cannot be written.
+     */
+    private void recordWrittenHistory(TaskList writtenTaskList, long version) throws StorageOperationException {
+        if (writtenTaskList == null) {
+            return;
+        }
+        List<JournalEntry> entries = new ArrayList<>();
+        boolean isWholeListMutated = false;
+        synchronized (this) {
+            while (!unwrittenHistory.isEmpty() && unwrittenHistory.peekFirst().version() <= version) {
+                UnwrittenMutation mutation = unwrittenHistory.pollFirst();
+                if (mutation.entries() == null) {
+                    isWholeListMutated = true;
+                } else {
+                    entries.addAll(mutation.entries());
+                }
+            }
+        }
+        try {
+            if (isWholeListMutated) {
+                history.checkpoint(writtenTaskList);
+            } else if (!entries.isEmpty()) {
+                history.record(writtenTaskList, entries);
+            }
+        } catch (IOException | FileContentException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", history.getHistoryPath())
+            );
+        }
+    }
+
+    /**
+     * Writes any mutations not yet written to disk and reports a failed background write, and ships the mutations
+     * not yet applied to the replica. It also waits for a backup still being copied and for a journal compaction
+     * still running. Without a replica, a backup or a compaction, this is a no-op for {@link Durability#SYNC}, where
+     * every mutation is already written.
+     * It may be called while holding the monitor of the task list.
+     *
+     * @throws StorageOperationException If the pending mutations cannot be written or a background write failed.
+     */
+    public void flush() throws StorageOperationException {
+        awaitBackup();
+        awaitCompaction();
+        if (isReplicated() && replicatedTaskList != null) {
+            shipToReplica(replicatedTaskList);
+        }
+        if (!isWriteBehind()) {
+            return;
+        }
+        writeBehind();
+        throwWriteBehindError();
+    }
+
+    /**
+     * Flushes the pending mutations like {@link #flush()}, stops the compaction, replication and watcher threads and
+     * closes the files kept open between operations, so that another storage can be opened on the same file. A
+     * closed storage starts the threads and opens the files again if it is used afterwards.
+     *
+     * @throws StorageOperationException If the pending mutations cannot be written or a file cannot be closed.
+     */
+    @Override
+    public void close() throws StorageOperationException {
+        flush();
+        stopCompaction();
+        stopReplication();
+        try {
+            stopWatching();
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+        try {
+            if (blobStore != null) {
+                blobStore.close();
+            }
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", blobStore.getBlobPath())
+            );
+        }
+    }
+
+    /**
+     * Registers a storage to have its pending mutations flushed when the JVM shuts down, e.g. on Ctrl-C.
+     * A single shutdown hook serves every storage, and storages are only held weakly, so that a storage that is no
+     * longer used can be collected. One with mutations still pending is kept reachable by its write-behind thread.
+     *
+     * @param storage The storage to flush on shutdown.
+     */
+    private static synchronized void flushOnShutdown(Storage storage) {
+        WRITE_BEHIND_STORAGES.add(storage);
+        if (!isShutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Storage::flushAllOnShutdown, "wkduke-storage-flush"));
+            isShutdownHookRegistered = true;
+        }
+    }
+
+    /**
+     * Flushes the pending mutations of every registered storage when the JVM shuts down.
+     * A failed flush is queued with the other background errors of its storage, and the storage file is left with
+     * the last snapshot written, which the next load recovers from like after a crash.
+     */
+    private static void flushAllOnShutdown() {
+        List<Storage> storages;
+        synchronized (Storage.class) {
+            storages = new ArrayList<>(WRITE_BEHIND_STORAGES);
+        }
+        for (Storage storage : storages) {
+            try {
+                storage.flush();
+            } catch (StorageOperationException e) {
+                storage.backgroundErrors.add(e);
+            }
+        }
+    }
+
+    /**
+     * Appends entries to the journal and starts a background compaction once the journal is large enough.
+     *
+     * @param taskList The {@code TaskList} after the mutation described by the entries.
+     * @param entries  The entries describing the mutation.
+     * @throws StorageOperationException If there is an error writing the journal or a compaction failed.
+     */
+    private void appendToJournal(TaskList taskList, List<JournalEntry> entries) throws StorageOperationException {
+        if (isShared()) {
+            writeShared(taskList, entries);
+            return;
+        }
+        if (pendingCompaction != null && pendingCompaction.isDone()) {
+            awaitCompaction();
+        }
+        try {
+            journal.append(entries);
+            if (journal.size() < options.getJournalCompactionThreshold()) {
+                return;
+            }
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+        startCompaction(taskList);
+    }
+
+    /**
+     * Retrieves and clears the errors of work done on background threads since the last call, such as shipping to
+     * the replica, so that they can be shown to the user between commands. Unlike a failed write of the storage file,
+     * they leave the task list and the storage file intact.
+     *
+     * @return The errors, in the order they occurred.
+     */
+    public List<StorageOperationException> pollBackgroundErrors() {
+        List<StorageOperationException> errors = new ArrayList<>();
+        StorageOperationException error;
+        while ((error = backgroundErrors.poll()) != null) {
+            errors.add(error);
+        }
+        return errors;
+    }
+
+    /**
+     * Checks whether committed mutations are shipped to a replica.
+     * Replication applies to unsharded files that only this process writes.
+     *
+     * @return {@code true} if a replica is kept; {@code false} otherwise.
+     */
+    private boolean isReplicated() {
+        return replica != null && (isFileBacked() || backend.isReplicable()) && !isShared();
+    }
+
+    /**
+     * Starts shipping the given task list to the replica on a background thread, catching up from the offset the
+     * replica has applied up to, if a replica is kept.
+     *
+     * @param taskList The loaded {@code TaskList}.
+     */
+    private synchronized void startReplication(TaskList taskList) {
+        if (!isReplicated()) {
+            return;
+        }
+        replicatedTaskList = taskList;
+        scheduleReplication(taskList);
+    }
+
+    /**
+     * Logs committed journal entries for the replica and schedules shipping them, if a replica is kept.
+     *
+     * @param taskList The {@code TaskList} after the mutation described by the entries.
+     * @param entries  The entries describing the mutation.
+     * @throws StorageOperationException If the replication log cannot be written.
+     */
+    private void replicate(TaskList taskList, List<JournalEntry> entries) throws StorageOperationException {
+        if (!isReplicated()) {
+            return;
+        }
+        try {
+            replicationLog.append(entries);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath + ReplicationLog.LOG_FILE_SUFFIX)
+            );
+        }
+        scheduleReplication(taskList);
+    }
+
+    /**
+     * Starts a new segment of the replication log after a mutation of the whole list, so that the replica is sent a
+     * snapshot, and schedules shipping it, if a replica is kept.
+     *
+     * @param taskList The {@code TaskList} after the mutation.
+     * @throws StorageOperationException If the replication log cannot be written.
+     */
+    private void replicateSnapshot(TaskList taskList) throws StorageOperationException {
+        if (!isReplicated()) {
+            return;
+        }
+        try {
+            replicationLog.startSegment();
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath + ReplicationLog.LOG_FILE_SUFFIX)
+            );
+        }
+        scheduleReplication(taskList);
+    }
+
+    /**
+     * Schedules shipping the replication log to the replica on the replication thread.
+     *
+     * @param taskList The {@code TaskList} to send as a snapshot if the replica cannot catch up from the log.
+     */
+    private synchronized void scheduleReplication(TaskList taskList) {
+        replicatedTaskList = taskList;
+        if (replicationExecutor == null) {
+            replicationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wkduke-replicator");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        replicationExecutor.execute(() -> {
+            try {
+                shipToReplica(taskList);
+                isReplicaFailing = false;
+            } catch (StorageOperationException e) {
+                // A replica that stays unavailable is reported once, and caught up with once it is back
+                if (!isReplicaFailing) {
+                    backgroundErrors.add(e);
+                }
+                isReplicaFailing = true;
+            }
+        });
+    }
+
+    /**
+     * Stops the replication thread once the shipments already scheduled are done, so that a closed storage no longer
+     * writes the replica, e.g. while another storage is opened on it.
+     */
+    private void stopReplication() {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = replicationExecutor;
+            replicationExecutor = null;
+        }
+        shutDown(executor);
+    }
+
+    /**
+     * Shuts down a background thread once the tasks already submitted to it are done.
+     *
+     * @param executor The executor of the thread, or {@code null} if it was never started.
+     */
+    private static void shutDown(ExecutorService executor) {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ships the entries of the replication log that the replica has not applied yet, or a snapshot of the task list
+     * if the replica has no offset within the log, its journal has grown past the compaction threshold, or the
+     * entries do not fit its tasks because it missed one. The log is emptied once the replica has applied all of it.
+     * Shipments are serialised on the replica, and a snapshot is dropped if another shipment got the replica past it
+     * first. The monitor of the task list is only held while a snapshot is encoded, so that it matches the end of
+     * the log, and never while the replica is written.
+     *
+     * @param taskList The {@code TaskList} that reflects every entry in the log.
+     * @throws StorageOperationException If the log cannot be read or the replica cannot be written.
+     */
+    private void shipToReplica(TaskList taskList) throws StorageOperationException {
+        try {
+            long appliedOffset;
+            synchronized (replica) {
+                long end = replicationLog.getEnd();
+                appliedOffset = replica.getAppliedOffset();
+                if (appliedOffset == end) {
+                    return;
+                }
+                if (appliedOffset >= replicationLog.getBase() && appliedOffset < end
+                        && replica.getJournalSize() < options.getJournalCompactionThreshold()) {
+                    try {
+                        replica.apply(replicationLog.read(appliedOffset, end), end, this::decodeSnapshot);
+                        replicationLog.clear(end);
+                        return;
+                    } catch (FileContentException e) {
+                        // The replica missed an entry, so it is sent a snapshot below
+                    }
+                }
+            }
+            long end;
+            Replica.SnapshotWriter snapshotWriter;
+            synchronized (taskList) {
+                end = replicationLog.getEnd();
+                snapshotWriter = prepareReplicaSnapshot(taskList);
+            }
+            synchronized (replica) {
+                // Another shipment got the replica to or past the end of the log this snapshot was encoded at
+                long currentOffset = replica.getAppliedOffset();
+                if (currentOffset != appliedOffset && currentOffset >= end) {
+                    return;
+                }
+                replica.install(snapshotWriter, end);
+                replicationLog.clear(end);
+            }
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_REPLICATE_FILE_ERROR,
+                    String.format("FilePath='%s'", replica.getReplicaPath())
+            );
+        }
+    }
+
+    /**
+     * Encodes a full snapshot of the task list for the replica in the storage format, so that it can be written
+     * without holding the monitor of the task list. Descriptions are encoded inline, since the blob file is not
+     * replicated.
+     *
+     * @param taskList The {@code TaskList} to encode.
+     * @return Writes the encoded snapshot to the given path.
+     */
+    private Replica.SnapshotWriter prepareReplicaSnapshot(TaskList taskList) {
+        return switch (format) {
+            case TEXT -> {
+                List<byte[]> encodedTasks = TaskListEncoder.encodeLines(taskList, options.isChecksummed(), null);
+                int formatVersion = formatMigrator.getTargetVersion();
+                yield path -> TaskListEncoder.writeLines(encodedTasks, path, formatVersion);
+            }
+            case BINARY -> {
+                byte[] encodedTasks = BinaryTaskListEncoder.encodeTaskList(taskList);
+                yield path -> Files.write(path, encodedTasks);
+            }
+            case COMPRESSED -> {
+                byte[] encodedTasks = CompressedTaskListEncoder.encodeTaskList(taskList);
+                yield path -> Files.write(path, encodedTasks);
+            }
+        };
+    }
+
+    /**
+     * Checks whether a timestamped history of the mutations is kept.
+     * The history applies to task lists that only this process writes, since it records the mutations of this
+     * process.
+     *
+     * @return {@code true} if mutations are recorded in the history; {@code false} otherwise.
+     */
+    private boolean isHistoryKept() {
+        return history != null && !isShared();
+    }
+
+    /**
+     * Starts the history with a checkpoint of the loaded task list, unless the history already leads up to it.
+     *
+     * @param taskList The loaded {@code TaskList}.
+     * @throws StorageOperationException If the history cannot be read or written.
+     */
+    private void startHistory(TaskList taskList) throws StorageOperationException {
+        if (!isHistoryKept()) {
+            return;
+        }
+        try {
+            history.start(taskList);
+        } catch (IOException | FileContentException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", history.getHistoryPath())
+            );
+        }
+    }
+
+    /**
+     * Records committed journal entries in the history, if a history is kept.
+     * Mutations written behind are only recorded by {@link #writeBehind()} once they are written.
+     *
+     * @param taskList The {@code TaskList} after the mutation described by the entries.
+     * @param entries  The entries describing the mutation.
+     * @throws StorageOperationException If the history cannot be written.
+     */
+    private void recordHistory(TaskList taskList, List<JournalEntry> entries) throws StorageOperationException {
+        if (!isHistoryKept() || isWriteBehind()) {
+            return;
+        }
+        try {
+            history.record(taskList, entries);
+        } catch (IOException | FileContentException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", history.getHistoryPath())
+            );
+        }
+    }
+
+    /**
+     * Records a checkpoint of the whole task list in the history after a mutation that entries cannot describe,
+     * if a history is kept. Mutations written behind are only recorded by {@link #writeBehind()} once they are
+     * written.
+     *
+     * @param taskList The {@code TaskList} after the mutation.
+     * @throws StorageOperationException If the history cannot be written.
+     */
+    private void recordHistorySnapshot(TaskList taskList) throws StorageOperationException {
+        if (!isHistoryKept() || isWriteBehind()) {
+            return;
+        }
+        try {
+            history.checkpoint(taskList);
+        } catch (IOException | FileContentException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", history.getHistoryPath())
+            );
+        }
+    }
+
+    /**
+     * Reconstructs the task list as it was at the given time from the history, starting from the last checkpoint
+     * before it rather than from the beginning of the history. Mutations written behind only show up once they are
+     * written, e.g. by {@link #flush()}.
+     *
+     * @param asOf The time to reconstruct the task list at.
+     * @return The task list as it was, or {@code null} if no history is kept or it does not reach back to the time.
+     * @throws FileContentException      If the history is corrupt.
+     * @throws StorageOperationException If the history cannot be read.
+     */
+    public TaskList loadAsOf(LocalDateTime asOf) throws FileContentException, StorageOperationException {
+        assert asOf != null : "Precondition failed: 'asOf' cannot be null";
+        if (!isHistoryKept()) {
+            return null;
+        }
+        try {
+            return history.reconstruct(asOf);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", history.getHistoryPath())
+            );
+        }
+    }
+
+    /**
+     * Retrieves how far the replica is behind the committed mutations, as the number of bytes of the replication log
+     * it has not applied yet. A replica that is waiting for a snapshot is as far behind as the whole log.
+     *
+     * @return The replication lag in bytes, or {@code 0} if no replica is kept.
+     * @throws StorageOperationException If the log or the offset of the replica cannot be read.
+     */
+    public long getReplicationLag() throws StorageOperationException {
+        if (!isReplicated()) {
+            return 0;
+        }
+        try {
+            long end = replicationLog.getEnd();
+            long appliedOffset = replica.getAppliedOffset();
+            return (appliedOffset < 0 || appliedOffset > end) ? end : end - appliedOffset;
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", replica.getReplicaPath())
+            );
+        }
+    }
+
+    /**
+     * Checks whether the storage file can be backed up and restored.
+     * Backups apply to unsharded files outside the SQL database, whose tasks are held in the storage file and its
+     * sidecar files.
+     *
+     * @return {@code true} if {@link #backup(TaskList)} and {@link #restore(TaskList, String)} are supported;
+     * {@code false} otherwise.
+     */
+    public boolean isBackupSupported() {
+        return isFileBacked();
+    }
+
+    /**
+     * Takes a backup of the storage file as it reflects the task list now, without waiting for its content to be
+     * copied. The files are fixed while holding the write-behind lock, and the lock of a shared journal, so that no
+     * write is midway: a snapshot only ever replaced by a move is hard linked, a snapshot rewritten in place is
+     * copied, and the journal and blob file, which are only appended to, are copied up to their current size on a
+     * background thread. Mutations made meanwhile only append past that size, so they are not part of the backup.
+     * It must be called while holding the monitor of the task list.
+     *
+     * @param taskList The {@code TaskList} loaded from the storage file.
+     * @return The name of the backup, which is listed once it is complete.
+     * @throws StorageOperationException If pending mutations cannot be written or the backup cannot be started.
+     */
+    public String backup(TaskList taskList) throws StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert isBackupSupported() : "Precondition failed: sharded or SQL storage cannot be backed up";
+        flush();
+        awaitCompaction();
+        Backup backup = null;
+        writeBehindLock.lock();
+        try {
+            // Held while the files are fixed, although nothing is read from the lock itself
+            JournalLock lock = isShared() ? journal.lock(false) : null;
+            try {
+                backup = backupDirectory.begin();
+                Path snapshotPath = journal.resolveSnapshotPath(filePath);
+                if (isJournaled() || isWriteBehind()) {
+                    backup.link(snapshotPath, "");
+                } else {
+                    backup.copy(snapshotPath, "");
+                }
+                for (Path entryPath : journal.getEntryPaths()) {
+                    backup.pin(entryPath, Journal.JOURNAL_SUFFIX);
+                }
+                if (blobStore != null) {
+                    backup.pin(blobStore.getBlobPath(), BlobStore.BLOB_FILE_SUFFIX);
+                }
+            } finally {
+                if (lock != null) {
+                    lock.close();
+                }
+            }
+        } catch (IOException e) {
+            discardBackup(backup);
+            throw new StorageOperationException(
+                    Messages.MESSAGE_BACKUP_FILE_ERROR,
+                    String.format("FilePath='%s'", backupDirectory.getDirectory())
+            );
+        } finally {
+            writeBehindLock.unlock();
+        }
+        scheduleBackup(backup);
+        return backup.getName();
+    }
+
+    /**
+     * Schedules copying the pinned content of a backup on the backup thread. A failure is queued for
+     * {@link #pollBackgroundErrors()}.
+     *
+     * @param backup The backup whose files are fixed.
+     */
+    private synchronized void scheduleBackup(Backup backup) {
+        if (backupExecutor == null) {
+            backupExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wkduke-backup");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pendingBackup = backupExecutor.submit(() -> {
+            try {
+                completeBackup(backup);
+            } catch (StorageOperationException e) {
+                backgroundErrors.add(e);
+            }
+        });
+    }
+
+    /**
+     * Copies the pinned content of a backup and publishes it under its name. A backup that cannot be completed is
+     * discarded.
+     *
+     * @param backup The backup whose files are fixed.
+     * @throws StorageOperationException If the backup cannot be completed.
+     */
+    private void completeBackup(Backup backup) throws StorageOperationException {
+        try {
+            backup.complete();
+        } catch (IOException | UncheckedIOException e) {
+            discardBackup(backup);
+            throw new StorageOperationException(
+                    Messages.MESSAGE_BACKUP_FILE_ERROR,
+                    String.format("FilePath='%s'", backupDirectory.getDirectory())
+            );
+        }
+    }
+
+    /**
+     * Deletes what was written of a failed backup.
+     *
+     * @param backup The failed backup, or {@code null} if it was not started.
+     */
+    private static void discardBackup(Backup backup) {
+        if (backup == null) {
+            return;
+        }
+        try {
+            backup.abort();
+        } catch (IOException e) {
+            // A staging directory left behind is never listed or restored
+        }
+    }
+
+    /**
+     * Waits for the backup still being copied on the backup thread, if any. A failure that the backup thread could
+     * not queue, since it was not an I/O error, is reported here, once.
+     *
+     * @throws StorageOperationException If the backup thread failed unexpectedly.
+     */
+    private void awaitBackup() throws StorageOperationException {
+        Future<?> backup;
+        synchronized (this) {
+            backup = pendingBackup;
+        }
+        if (backup == null) {
+            return;
+        }
+        try {
+            backup.get();
+        } catch (ExecutionException e) {
+            synchronized (this) {
+                if (pendingBackup == backup) {
+                    pendingBackup = null;
+                }
+            }
+            throw new StorageOperationException(
+                    Messages.MESSAGE_BACKUP_FILE_ERROR,
+                    String.format("FilePath='%s', Cause='%s'", backupDirectory.getDirectory(), e.getCause())
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lists the names of the complete backups of the storage file, oldest first, once the backup still being copied,
+     * if any, is complete.
+     *
+     * @return The backup names.
+     * @throws StorageOperationException If the backup directory cannot be read or the backup thread failed.
+     */
+    public List<String> listBackups() throws StorageOperationException {
+        awaitBackup();
+        try {
+            return backupDirectory.list();
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", backupDirectory.getDirectory())
+            );
+        }
+    }
+
+    /**
+     * Replaces the tasks of the task list with those of a backup and saves it, publishing the new storage file with
+     * an atomic move so that it never holds a mix of both. The task list is left unchanged if the backup cannot be
+     * loaded.
+     * It must be called while holding the monitor of the task list.
+     *
+     * @param taskList The {@code TaskList} loaded from the storage file.
+     * @param name     The name of the backup to restore.
+     * @return {@code true} if the backup was restored; {@code false} if there is no complete backup with the name.
+     * @throws FileContentException      If the backup is improperly formatted.
+     * @throws StorageOperationException If the backup cannot be read or the storage file cannot be written.
+     */
+    public boolean restore(TaskList taskList, String name) throws FileContentException, StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert name != null : "Precondition failed: 'name' cannot be null";
+        assert isBackupSupported() : "Precondition failed: sharded or SQL storage cannot be restored";
+        awaitBackup(); // A backup only counts as complete once it is copied
+        Path backupPath = backupDirectory.resolve(name);
+        if (backupPath == null) {
+            return false;
+        }
+        flush();
+        List<Task> restoredTasks = new ArrayList<>();
+        for (Task task : readBackup(backupPath).getTasks()) {
+            // Inlined, as the blob file of the backup is not the blob file of this storage
+            restoredTasks.add(TaskDecoder.decodeTask(TaskEncoder.encodeTask(task)));
+        }
+        taskList.replaceTasks(0, taskList.size(), restoredTasks);
+        persistAtomically(taskList);
+        replicateSnapshot(taskList);
+        recordHistorySnapshot(taskList);
+        return true;
+    }
+
+    /**
+     * Reads the task list held by a backup, decoding its snapshot and replaying its journal without writing to the
+     * backup: a torn or bad record fails the restore rather than being cut off or quarantined, and the blob file of
+     * the backup is only opened to read descriptions and closed again.
+     *
+     * @param backupPath The task file of the backup.
+     * @return The task list held by the backup.
+     * @throws FileContentException      If the backup is improperly formatted.
+     * @throws StorageOperationException If the backup cannot be read.
+     */
+    private TaskList readBackup(Path backupPath) throws FileContentException, StorageOperationException {
+        try (BlobStore backupBlobStore = format == StorageFormat.TEXT ? new BlobStore(backupPath) : null) {
+            TaskList taskList = switch (format) {
+                case TEXT -> TaskListDecoder.decodeTaskList(backupPath, options.getParallelDecodeThreshold(), null,
+                        options.isChecksummed(), backupBlobStore);
+                case BINARY -> BinaryTaskListDecoder.decodeTaskList(backupPath);
+                case COMPRESSED -> CompressedTaskListDecoder.decodeTaskList(backupPath,
+                        options.getParallelDecodeThreshold());
+            };
+            new Journal(backupPath).replay(taskList);
+            return taskList;
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", backupPath)
+            );
+        }
+    }
+
+    /**
+     * Applies the changes that other processes appended to the shared journal since it was last read to the task
+     * list. Only the new entries are applied, unless another process compacted the journal, in which case the whole
+     * list is reloaded. For a watched file, the changes made outside WKDuke that the watcher noted are applied
+     * instead. This is a no-op unless the storage file is shared or watched.
+     * It holds the monitor of the task list, so it may run on a background thread.
+     *
+     * @param taskList The {@code TaskList} loaded from the storage file.
+     * @throws FileContentException      If the snapshot, the journal or a changed line is improperly formatted.
+     * @throws StorageOperationException If there is an error reading the files.
+     */
+    public void refresh(TaskList taskList) throws FileContentException, StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        if (isWatched()) {
+            resumeWatching();
+            synchronized (taskList) {
+                applySeenExternalChanges(taskList);
+            }
+            return;
+        }
+        if (!isShared()) {
+            return;
+        }
+        synchronized (taskList) {
+            try (JournalLock lock = journal.lock(true)) {
+                JournalPosition position = journal.position(lock);
+                if (position.equals(sharedPosition)) {
+                    return;
+                }
+                if (position.follows(sharedPosition)) {
+                    try {
+                        journal.tail(taskList, sharedPosition.offset());
+                        sharedPosition = position;
+                        return;
+                    } catch (FileContentException e) {
+                        // The entries may have been partly applied, so the whole list is reloaded below
+                    }
+                }
+                reloadShared(taskList, position);
+            } catch (IOException e) {
+                throw new StorageOperationException(
+                        Messages.MESSAGE_READ_FILE_ERROR,
+                        String.format("FilePath='%s'", filePath)
+                );
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of the task list with the snapshot and journal as they are now.
+     * It must be called while holding the journal lock.
+     *
+     * @param taskList The {@code TaskList} to reload.
+     * @param position The current position of the journal.
+     * @throws FileContentException If the snapshot or the journal is improperly formatted.
+     * @throws IOException          If either cannot be read.
+     */
+    private void reloadShared(TaskList taskList, JournalPosition position) throws FileContentException, IOException {
+        TaskList reloadedTaskList = decodeWithJournal();
+        taskList.replaceTasks(0, taskList.size(), reloadedTaskList.getTasks());
+        sharedPosition = position;
+    }
+
+    /**
+     * Appends entries to the shared journal, or replaces the snapshot with the whole task list, while holding the
+     * journal lock. If another process wrote since the task list was last refreshed, the mutation was made on an
+     * outdated list, so nothing is written and the task list is reloaded instead.
+     *
+     * @param taskList The {@code TaskList} after the mutation.
+     * @param entries  The entries describing the mutation, or {@code null} to write a new snapshot of the whole list.
+     * @throws StorageConflictException  If another process wrote first.
+     * @throws StorageOperationException If there is an error reading or writing the files.
+     */
+    private void writeShared(TaskList taskList, List<JournalEntry> entries) throws StorageOperationException {
+        try (JournalLock lock = journal.lock(false)) {
+            JournalPosition position = journal.position(lock);
+            if (!position.equals(sharedPosition)) {
+                reloadShared(taskList, position);
+                throw new StorageConflictException(Messages.MESSAGE_SHARED_WRITE_CONFLICT,
+                        String.format("FilePath='%s'", filePath), Messages.MESSAGE_SHARED_WRITE_CONFLICT_HELP);
+            }
+            if (entries != null) {
+                journal.append(entries);
+            }
+            if (entries == null || journal.size() >= options.getJournalCompactionThreshold()) {
+                lock.advanceGeneration();
+                compact(taskList);
+            }
+            sharedPosition = journal.position(lock);
+        } catch (FileContentException e) {
+            throw new StorageOperationException(e.getMessage(), e.getDetail(), e.getHelp());
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+    }
+
+    /**
+     * Moves the journal aside and writes the current task list as the new snapshot on a background thread.
+     * The tasks are encoded up front so that later mutations cannot leak into the snapshot.
+     *
+     * @param taskList The {@code TaskList} reflecting every entry in the journal.
+     * @throws StorageOperationException If the journal cannot be moved or a previous compaction failed.
+     */
+    private void startCompaction(TaskList taskList) throws StorageOperationException {
+        awaitCompaction();
+        decodeAll(taskList);
+        SnapshotWriter snapshotWriter;
+        try {
+            snapshotWriter = prepareSnapshot(taskList);
+            journal.beginCompaction();
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_COMPACT_JOURNAL_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+        if (compactionExecutor == null) {
+            compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wkduke-journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        pendingCompaction = compactionExecutor.submit(() -> {
+            writeCompactedSnapshot(snapshotWriter);
+            return null;
+        });
+    }
+
+    /**
+     * Stops the compaction thread, once the running compaction is done, so that a closed storage no longer writes
+     * the compaction files, e.g. while another storage on the same file recovers an interrupted compaction.
+     * {@link #flush()} has already waited for the compaction, so none is running.
+     */
+    private void stopCompaction() {
+        assert pendingCompaction == null : "Precondition failed: the compaction must be awaited first";
+        ExecutorService executor = compactionExecutor;
+        compactionExecutor = null;
+        shutDown(executor);
+    }
+
+    /**
+     * Folds the journal into a fresh snapshot of the given task list on the calling thread.
+     *
+     * @param taskList The {@code TaskList} to write as the new snapshot.
+     * @throws StorageOperationException If the snapshot cannot be written.
+     */
+    private void compact(TaskList taskList) throws StorageOperationException {
+        awaitCompaction();
+        try {
+            journal.beginCompaction();
+            writeCompactedSnapshot(path -> writeSnapshot(taskList, path));
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_COMPACT_JOURNAL_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+    }
+
+    /**
+     * Checks the storage file, including any pending journal, for invalid or duplicate tasks by decoding it fully.
+     * Pending write-behind changes are flushed first so that the file reflects the task list.
+     *
+     * <p>With checksums on a text file, the lines are instead streamed and checked against their checksums
+     * without decoding them, and every line with a missing or mismatched checksum is reported. The journal is not
+     * checksummed, so it is not checked in this case.</p>
+     *
+     * @return The number of records in the storage file and the offsets of those that failed their checksum.
+     * @throws FileContentException      If the file content is improperly formatted.
+     * @throws StorageOperationException If there is an error reading from or flushing to the file.
+     */
+    public VerificationResult verify() throws FileContentException, StorageOperationException {
+        if (!isFileBacked()) {
+            return backend.verify();
+        }
+        flush();
+        awaitCompaction();
+        try {
+            Path snapshotPath = journal.resolveSnapshotPath(filePath);
+            if (options.isChecksummed() && format == StorageFormat.TEXT) {
+                return verifyChecksums(snapshotPath);
+            }
+            if (isPaged()) {
+                return verifyPaged(snapshotPath);
+            }
+            return new VerificationResult(decodeWithJournal().size(), List.of());
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+    }
+
+    /**
+     * Decodes and validates the snapshot and replays the journal on top of it.
+     *
+     * @return A {@code TaskList} containing the tasks in the storage file and journal.
+     * @throws FileContentException If the snapshot or the journal is improperly formatted.
+     * @throws IOException          If either cannot be read.
+     */
+    private TaskList decodeWithJournal() throws FileContentException, IOException {
+        TaskList taskList = decodeSnapshot(journal.resolveSnapshotPath(filePath));
+        journal.replay(taskList);
+        return taskList;
+    }
+
+    /**
+     * Finds the tasks in the storage file that fall within a date-time range: deadlines due within it and events
+     * overlapping it. With a date index, only the matching records are read from the file; otherwise the whole
+     * file is decoded. Pending write-behind changes are flushed first so that the file reflects the task list.
+     *
+     * @param from The start of the range.
+     * @param to   The end of the range, inclusive.
+     * @return The matching tasks, in file order.
+     * @throws FileContentException      If the file, a record or the index is improperly formatted.
+     * @throws StorageOperationException If there is an error reading from or flushing to the file.
+     */
+    public List<Task> findTasksBetween(LocalDateTime from, LocalDateTime to)
+            throws FileContentException, StorageOperationException {
+        assert from != null : "Precondition failed: 'from' cannot be null";
+        assert to != null : "Precondition failed: 'to' cannot be null";
+        List<Task> candidateTasks;
+        if (!isFileBacked()) {
+            candidateTasks = backend.findTasksBetween(from, to);
+        } else {
+            flush();
+            awaitCompaction();
+            try {
+                candidateTasks = isDateIndexed()
+                        ? readRecords(findRecordOffsets(from, to))
+                        : decodeWithJournal().getTasks();
+            } catch (IOException e) {
+                throw new StorageOperationException(
+                        Messages.MESSAGE_READ_FILE_ERROR,
+                        String.format("FilePath='%s'", filePath)
+                );
+            }
+        }
+        List<Task> matchingTasks = new ArrayList<>();
+        for (Task task : candidateTasks) {
+            if (isWithin(task, from, to)) {
+                matchingTasks.add(task);
+            }
+        }
+        return matchingTasks;
+    }
+
+    /**
+     * Retrieves the tasks of a loaded task list that may occur on the date of the given date-time, without
+     * decoding the others where possible: a sharded list only reads the shards that can hold them, a paged list
+     * only decodes the tasks whose indexed dates match, a lazily loaded list with a date index only decodes the
+     * records the index points at, and a list loaded from the SQL database only reads the tasks its date query returns.
+     *
+     * @param taskList The task list loaded from this storage.
+     * @param dateTime The date-time whose date is queried.
+     * @return The candidate tasks, in list order. Callers still need to check each one.
+     * @throws StorageOperationException     If the index or the file cannot be read.
+     * @throws UncheckedFileContentException If the file or the index is improperly formatted.
+     */
+    public List<Task> getTasksPossiblyOn(TaskList taskList, LocalDateTime dateTime) throws StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert dateTime != null : "Precondition failed: 'dateTime' cannot be null";
+        if (!isFileBacked()) {
+            return backend.getTasksPossiblyOn(taskList, dateTime);
+        }
+        if (taskList.getTasks() instanceof PagedTaskList pagedTasks) {
+            return pagedTasks.getTasksPossiblyOn(dateTime);
+        }
+        if (!(taskList.getTasks() instanceof LazyTaskList lazyTasks) || lazyTasks.isFullyDecoded()
+                || !isDateIndexed()) {
+            return taskList.getTasks();
+        }
+        // Until every task is decoded the file has only been appended to or patched, so the lines have not moved
+        try {
+            LocalDateTime startOfDay = dateTime.toLocalDate().atStartOfDay();
+            return lazyTasks.getTasksAtLineStarts(
+                    findRecordOffsets(startOfDay, dateTime.toLocalDate().atTime(LocalTime.MAX)));
+        } catch (FileContentException e) {
+            throw new UncheckedFileContentException(e);
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", dateIndex.getIndexPath())
+            );
+        }
+    }
+
+    /**
+     * Finds the candidate records for a date-time range through the date index, rebuilding the index from the
+     * storage file first if it is missing or stale.
+     *
+     * @param from The start of the range.
+     * @param to   The end of the range, inclusive.
+     * @return The ascending offsets of the candidate records.
+     * @throws FileContentException If the storage file or the index is improperly formatted.
+     * @throws IOException          If either cannot be read, or the index cannot be written.
+     */
+    private long[] findRecordOffsets(LocalDateTime from, LocalDateTime to) throws FileContentException, IOException {
+        if (!dateIndex.isCurrent()) {
+            dateIndex.rebuild(decodeSnapshot(filePath).getTasks(), readRecordStarts(), ContentFingerprint.of(filePath));
+        }
+        return dateIndex.findRecordOffsets(from, to);
+    }
+
+    /**
+     * Retrieves the tasks of a loaded task list whose description may contain any of the keywords. Only a list loaded
+     * from the SQL database is narrowed down, by a query on the descriptions; otherwise every task is returned.
+     *
+     * @param taskList The task list loaded from this storage.
+     * @param keywords The keywords to search for. Must not be empty.
+     * @return The candidate tasks, in list order. Callers still need to check each one.
+     * @throws StorageOperationException If the database cannot be read.
+     */
+    public List<Task> getTasksPossiblyContaining(TaskList taskList, List<String> keywords)
+            throws StorageOperationException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert keywords != null && !keywords.isEmpty() : "Precondition failed: 'keywords' cannot be empty";
+        if (isFileBacked()) {
+            return taskList.getTasks();
+        }
+        return backend.getTasksPossiblyContaining(taskList, keywords);
+    }
+
+    /**
+     * Decodes the records at the given offsets of the storage file.
+     *
+     * @param recordOffsets The ascending offsets of the records to decode.
+     * @return The decoded tasks, in file order.
+     * @throws FileContentException If a record is improperly formatted.
+     * @throws IOException          If the file cannot be read.
+     */
+    private List<Task> readRecords(long[] recordOffsets) throws FileContentException, IOException {
+        List<Task> tasks = new ArrayList<>(recordOffsets.length);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            for (long recordOffset : recordOffsets) {
+                tasks.add(switch (format) {
+                    case TEXT -> TaskDecoder.decodeLine(TaskFileReader.readLine(channel, recordOffset),
+                            options.isChecksummed(), blobStore);
+                    case BINARY -> BinaryTaskListDecoder.decodeRecord(channel, recordOffset, filePath);
+                    case COMPRESSED -> throw new AssertionError("Compressed files are never indexed");
+                });
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Checks whether a task falls within a date-time range.
+     *
+     * @param task The task to check.
+     * @param from The start of the range.
+     * @param to   The end of the range, inclusive.
+     * @return {@code true} for a deadline due within the range or an event overlapping it; {@code false} otherwise.
+     */
+    private static boolean isWithin(Task task, LocalDateTime from, LocalDateTime to) {
+        if (task instanceof Deadline deadline) {
+            return !deadline.getBy().isBefore(from) && !deadline.getBy().isAfter(to);
+        }
+        if (task instanceof Event event) {
+            return !event.getFrom().isAfter(to) && !event.getTo().isBefore(from);
+        }
+        return false;
+    }
+
+    /**
+     * Streams the raw lines of a text file and checks each against its checksum, without building any task.
+     *
+     * @param path The text file to check.
+     * @return The number of lines and the offsets of those with a missing or mismatched checksum.
+     * @throws IOException If the file cannot be read.
+     */
+    private VerificationResult verifyChecksums(Path path) throws IOException {
+        int[] recordCount = {0};
+        List<Long> badRecordOffsets = new ArrayList<>();
+        try {
+            long recordsStart = FormatHeader.findRecordsStart(path);
+            TaskFileReader.forEachRawLine(path, recordsStart, Long.MAX_VALUE, (line, length, lineOffset) -> {
+                recordCount[0]++;
+                if (RecordChecksum.check(line, length) != RecordChecksum.Status.VALID) {
+                    badRecordOffsets.add(lineOffset);
+                }
+            });
+        } catch (FileContentException e) {
+            throw new AssertionError("The line handler never rejects a line", e);
+        }
+        return new VerificationResult(recordCount[0], badRecordOffsets);
+    }
+
+    /**
+     * Decodes and validates every line of a text file through the index of a {@link PagedTaskList}, so that
+     * the decoded tasks are dropped as they go instead of being held together.
+     *
+     * @param path The text file to validate.
+     * @return The number of records in the file.
+     * @throws FileContentException If a line is invalid or a duplicate.
+     * @throws IOException          If the file cannot be read.
+     */
+    private VerificationResult verifyPaged(Path path) throws FileContentException, IOException {
+        PagedTaskList pagedTasks =
+                new PagedTaskList(path, options.getHeapBudget(), null, options.isChecksummed(), blobStore);
+        pagedTasks.close();
+        return new VerificationResult(pagedTasks.size(), List.of());
+    }
+
+    /**
+     * Appends the given bad records to the quarantine file, so that they are kept when the storage file is
+     * rewritten without them.
+     *
+     * @param records The raw lines of the bad records.
+     * @throws IOException If the quarantine file cannot be written.
+     */
+    private void quarantineRecords(List<String> records) throws IOException {
+        quarantinedRecordCount = records.size();
+        if (!records.isEmpty()) {
+            Files.write(getQuarantinePath(), records, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Reads the tasks of the storage file and its journal to be imported into a new task store.
+     *
+     * @return The tasks of the storage file, in order.
+     * @throws FileContentException      If the storage file is improperly formatted.
+     * @throws StorageOperationException If there is an error reading the storage file.
+     */
+    private List<Task> readTasksToImport() throws FileContentException, StorageOperationException {
+        try {
+            migrateFormat(journal.resolveSnapshotPath(filePath), journal.exists());
+            return decodeWithJournal().getTasks();
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+    }
+
+    /**
+     * Reads the tasks of the storage file to be split into shards. The journal is not replayed, as the sharded
+     * layout only takes over a storage file that was last written without one.
+     *
+     * @return The tasks of the storage file, in order, or none if the file is empty.
+     * @throws FileContentException      If the storage file is improperly formatted.
+     * @throws StorageOperationException If there is an error reading the storage file.
+     */
+    private List<Task> readTasksToShard() throws FileContentException, StorageOperationException {
+        try {
+            return Files.size(filePath) > 0 ? decodeSnapshot(filePath).getTasks() : List.of();
+        } catch (IOException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_READ_FILE_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        }
+    }
+
+    /**
+     * Decodes any tasks of a lazily loaded task list not decoded yet and checks it for duplicates, so that the
+     * storage file can be rewritten in place. A bad line is reported as the content error that eager decoding
+     * would have raised at load time, and the file is left untouched.
+     *
+     * @param taskList The {@code TaskList} about to be written.
+     * @throws UncheckedFileContentException If a task not decoded yet is invalid or the list holds a duplicate.
+     */
+    private void decodeAll(TaskList taskList) {
+        if (!(taskList.getTasks() instanceof LazyTaskList lazyTasks) || lazyTasks.isValidated()) {
+            return;
+        }
+        try {
+            lazyTasks.decodeAll();
+        } catch (FileContentException e) {
+            throw new UncheckedFileContentException(e);
+        }
+    }
+
+    /**
+     * Reads a full snapshot of the task list in the storage format, lazily or paged if configured to.
+     * A checksummed text snapshot that is read eagerly or paged skips its bad records and collects them in the
+     * quarantine.
+     *
+     * @param path       The snapshot file to read.
+     * @param quarantine The list to append the raw lines of skipped records to.
+     * @return A {@code TaskList} containing the tasks in the snapshot.
+     * @throws FileContentException If the snapshot content is improperly formatted.
+     * @throws IOException          If the snapshot cannot be read.
+     */
+    private TaskList readSnapshot(Path path, List<String> quarantine) throws FileContentException, IOException {
+        if (format != StorageFormat.TEXT) {
+            return decodeSnapshot(path);
+        }
+        if (isPaged()) {
+            return new TaskList(new PagedTaskList(path, options.getHeapBudget(),
+                    options.isChecksummed() ? quarantine : null, options.isChecksummed(), blobStore));
+        }
+        if (options.isLazyLoad()) {
+            return new TaskList(new LazyTaskList(path, options.isChecksummed(), blobStore));
+        }
+        if (options.isChecksummed()) {
+            return TaskListDecoder.decodeTaskList(path, options.getParallelDecodeThreshold(), quarantine, true,
+                    blobStore);
+        }
+        return decodeSnapshot(path);
+    }
+
+    /**
+     * Decodes and validates a full snapshot of the task list in the storage format.
+     *
+     * @param path The snapshot file to read.
+     * @return A {@code TaskList} containing the tasks in the snapshot.
+     * @throws FileContentException If the snapshot content is improperly formatted.
+     * @throws IOException          If the snapshot cannot be read.
+     */
+    private TaskList decodeSnapshot(Path path) throws FileContentException, IOException {
+        return switch (format) {
+            case TEXT -> TaskListDecoder.decodeTaskList(path, options.getParallelDecodeThreshold(), null,
+                    options.isChecksummed(), blobStore);
+            case BINARY -> BinaryTaskListDecoder.decodeTaskList(path);
+            case COMPRESSED -> CompressedTaskListDecoder.decodeTaskList(path, options.getParallelDecodeThreshold());
+        };
+    }
+
+    /**
+     * Writes a full snapshot of the task list in the storage format.
+     *
+     * @param taskList The {@code TaskList} to write.
+     * @param path     The file to overwrite.
+     * @return The layout of the records written, or {@code null} for a compressed file, whose records have no
+     * offsets.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    private RecordLayout writeSnapshot(TaskList taskList, Path path) throws IOException {
+        if (taskList.getTasks() instanceof PagedTaskList pagedTasks) {
+            return writePagedSnapshot(pagedTasks, path);
+        }
+        if (isBlobbed()) {
+            for (Task task : taskList.getTasks()) {
+                storeDescriptionOutOfLine(task);
+            }
+            syncBlobs();
+        }
+        return switch (format) {
+            case TEXT -> TaskListEncoder.writeTaskList(taskList, path, options.isChecksummed(), getWriteBlobStore(),
+                    formatMigrator.getTargetVersion());
+            case BINARY -> BinaryTaskListEncoder.writeTaskList(taskList, path);
+            case COMPRESSED -> {
+                CompressedTaskListEncoder.writeTaskList(taskList, path);
+                yield null;
+            }
+        };
+    }
+
+    /**
+     * Writes a full text snapshot of a paged task list one line at a time, so that only a budget's worth of tasks is
+     * decoded at once. The list still reads its tasks from the file being replaced, so the snapshot is written next
+     * to it and moved over it, and the list is then rebased onto the new lines.
+     *
+     * @param pagedTasks The tasks to write.
+     * @param path       The file to replace.
+     * @return The layout of the lines written.
+     * @throws IOException If the snapshot cannot be written or published.
+     */
+    private RecordLayout writePagedSnapshot(PagedTaskList pagedTasks, Path path) throws IOException {
+        Path temporaryPath = Path.of(path + ".tmp");
+        byte[] header = FormatHeader.encodeLine(formatMigrator.getTargetVersion());
+        long[] lineStarts = new long[pagedTasks.size()];
+        long lineStart = header.length;
+        long fingerprint = ContentFingerprint.of(header, 0);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporaryPath))) {
+            out.write(header);
+            for (int i = 0; i < lineStarts.length; i++) {
+                // Stored one task at a time, as the blob store only remembers descriptions that tasks still hold
+                Task task = pagedTasks.get(i);
+                storeDescriptionOutOfLine(task);
+                byte[] line = TaskEncoder.encodeLine(task, options.isChecksummed(), getWriteBlobStore());
+                lineStarts[i] = lineStart;
+                out.write(line);
+                fingerprint += ContentFingerprint.of(line, lineStart);
+                lineStart += line.length;
+            }
+        }
+        syncBlobs();
+        Utils.moveAtomically(temporaryPath, path);
+        pagedTasks.rebase(path, lineStarts);
+        return new RecordLayout(lineStarts, fingerprint);
+    }
+
+    /**
+     * Encodes the task list up front and returns a writer for the encoded snapshot,
+     * so that the snapshot can be written on another thread while the task list keeps changing.
+     *
+     * @param taskList The {@code TaskList} to encode.
+     * @return A {@code SnapshotWriter} that writes the encoded snapshot.
+     * @throws IOException If a long description cannot be moved to the blob file.
+     */
+    private SnapshotWriter prepareSnapshot(TaskList taskList) throws IOException {
+        return switch (format) {
+            case TEXT -> {
+                for (Task task : taskList.getTasks()) {
+                    storeDescriptionOutOfLine(task);
+                }
+                syncBlobs();
+                List<byte[]> encodedTasks = TaskListEncoder.encodeLines(taskList, options.isChecksummed(),
+                        getWriteBlobStore());
+                int formatVersion = formatMigrator.getTargetVersion();
+                yield path -> TaskListEncoder.writeLines(encodedTasks, path, formatVersion);
+            }
+            case BINARY -> {
+                byte[] encodedTasks = BinaryTaskListEncoder.encodeTaskList(taskList);
+                yield path -> Files.write(path, encodedTasks);
+            }
+            case COMPRESSED -> {
+                byte[] encodedTasks = CompressedTaskListEncoder.encodeTaskList(taskList);
+                yield path -> Files.write(path, encodedTasks);
+            }
+        };
+    }
+
+    /**
+     * Writes a compacted snapshot next to the storage file and publishes it over the storage file.
+     *
+     * @param snapshotWriter Writes the snapshot content to the given path.
+     * @throws IOException If the snapshot cannot be written or published.
+     */
+    private void writeCompactedSnapshot(SnapshotWriter snapshotWriter) throws IOException {
+        Path compactedPath = journal.getCompactedPath();
+        Path temporaryPath = Path.of(compactedPath + ".tmp");
+        snapshotWriter.write(temporaryPath);
+        Utils.moveAtomically(temporaryPath, compactedPath);
+        journal.finishCompaction(filePath);
+    }
+
+    /**
+     * Waits for the running background compaction, if any, and reports its failure.
+     *
+     * @throws StorageOperationException If the background compaction failed.
+     */
+    private void awaitCompaction() throws StorageOperationException {
+        if (pendingCompaction == null) {
+            return;
+        }
+        try {
+            pendingCompaction.get();
+        } catch (ExecutionException e) {
+            throw new StorageOperationException(
+                    Messages.MESSAGE_COMPACT_JOURNAL_ERROR,
+                    String.format("FilePath='%s', Cause='%s'", filePath, e.getCause().getMessage())
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageOperationException(
+                    Messages.MESSAGE_COMPACT_JOURNAL_ERROR,
+                    String.format("FilePath='%s'", filePath)
+            );
+        } finally {
+            pendingCompaction = null;
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package wkduke.storage;
+
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Represents where a {@link Storage} keeps its tasks when they are not held in the storage file itself, e.g. in
+ * shards or in the SQL database. The backend loads and writes the tasks and answers queries on them, while the
+ * storage keeps the history, replica and archive of the task list on top of it.
+ *
+ * <p>Each mutation is written synchronously before the call returns. An existing storage file is imported through
+ * the {@link TaskImporter} given to the backend when its tasks are first loaded.</p>
+ */
+interface StorageBackend {
+    /**
+     * Reads the tasks of the storage file to be imported into a backend that holds no tasks yet.
+     */
+    @FunctionalInterface
+    interface TaskImporter {
+        /**
+         * Reads the tasks.
+         *
+         * @return The tasks of the storage file, in order.
+         * @throws FileContentException      If the storage file is improperly formatted.
+         * @throws StorageOperationException If there is an error reading the storage file.
+         */
+        List<Task> readTasks() throws FileContentException, StorageOperationException;
+    }
+
+    /**
+     * Loads the task list, importing the tasks of the storage file first if the backend holds none yet.
+     *
+     * @return A {@code TaskList} over the tasks of the backend.
+     * @throws FileContentException      If the backend or the storage file is improperly formatted.
+     * @throws StorageOperationException If there is an error reading or writing the backend.
+     */
+    TaskList load() throws FileContentException, StorageOperationException;
+
+    /**
+     * Writes the whole task list, e.g. after sorting. A task list not loaded from the backend replaces its tasks.
+     *
+     * @param taskList The {@code TaskList} to write.
+     * @throws StorageOperationException If there is an error writing the backend.
+     */
+    void save(TaskList taskList) throws StorageOperationException;
+
+    /**
+     * Writes a task that was just appended to the end of the task list.
+     *
+     * @param taskList The {@code TaskList} the task was added to.
+     * @param task     The task that was added.
+     * @throws StorageOperationException If there is an error writing the backend.
+     */
+    void saveAddedTask(TaskList taskList, Task task) throws StorageOperationException;
+
+    /**
+     * Writes tasks whose status or priority was changed in place.
+     *
+     * @param taskList    The {@code TaskList} containing the updated tasks.
+     * @param taskIndices The 0-based indices of the updated tasks.
+     * @throws StorageOperationException If there is an error writing the backend.
+     */
+    void saveUpdatedTasks(TaskList taskList, Collection<Integer> taskIndices) throws StorageOperationException;
+
+    /**
+     * Writes the removal of tasks from the task list.
+     *
+     * @param taskList The {@code TaskList} the tasks were removed from.
+     * @throws StorageOperationException If there is an error writing the backend.
+     */
+    void saveDeletedTasks(TaskList taskList) throws StorageOperationException;
+
+    /**
+     * Checks every task of the backend by reading it in full.
+     *
+     * @return The number of tasks in the backend, with no failed checksums.
+     * @throws FileContentException      If the backend is improperly formatted or inconsistent.
+     * @throws StorageOperationException If there is an error reading the backend.
+     */
+    VerificationResult verify() throws FileContentException, StorageOperationException;
+
+    /**
+     * Finds the tasks of the backend that may fall within a date-time range.
+     *
+     * @param from The start of the range.
+     * @param to   The end of the range, inclusive.
+     * @return The candidate tasks, in list order. Callers still need to check each one.
+     * @throws FileContentException      If the backend is improperly formatted.
+     * @throws StorageOperationException If there is an error reading the backend.
+     */
+    List<Task> findTasksBetween(LocalDateTime from, LocalDateTime to)
+            throws FileContentException, StorageOperationException;
+
+    /**
+     * Retrieves the tasks of a loaded task list that may occur on the date of the given date-time.
+     *
+     * @param taskList The task list loaded from this backend.
+     * @param dateTime The date-time whose date is queried.
+     * @return The candidate tasks, in list order. Callers still need to check each one.
+     * @throws StorageOperationException If there is an error reading the backend.
+     */
+    List<Task> getTasksPossiblyOn(TaskList taskList, LocalDateTime dateTime) throws StorageOperationException;
+
+    /**
+     * Retrieves the tasks of a loaded task list whose description may contain every one of the given keywords.
+     *
+     * @param taskList The task list loaded from this backend.
+     * @param keywords The keywords to match.
+     * @return The candidate tasks, in list order. Callers still need to check each one.
+     * @throws StorageOperationException If there is an error reading the backend.
+     */
+    List<Task> getTasksPossiblyContaining(TaskList taskList, List<String> keywords) throws StorageOperationException;
+
+    /**
+     * Checks whether the mutations of the task list can be shipped to a replica of the storage file.
+     *
+     * @return {@code true} if a replica can follow the backend; {@code false} otherwise.
+     */
+    boolean isReplicable();
+}
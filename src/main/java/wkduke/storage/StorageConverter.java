@@ -0,0 +1,85 @@
+package wkduke.storage;
+
+import wkduke.common.Messages;
+import wkduke.common.Utils;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.TaskList;
+import wkduke.ui.Ui;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Converts a task file between the storage formats, e.g. from {@code tasks.txt} to {@code tasks.wkd}.
+ * The formats of the source and target are selected by their file extensions.
+ */
+public class StorageConverter {
+    private static final String CONVERTING_FILE_PREFIX = ".converting-";
+
+    /**
+     * Converts the tasks in one storage file into another, overwriting the target.
+     * A journal left next to the source is folded in before the tasks are written. The target is written next to
+     * itself and moved over it, so it is never left partly written.
+     *
+     * @param sourcePathString The path of the file to read.
+     * @param targetPathString The path of the file to write.
+     * @return The converted {@code TaskList}.
+     * @throws FileContentException      If the source content is improperly formatted.
+     * @throws StorageOperationException If the source does not exist, either file cannot be read or written, or both
+     *                                   paths are the same.
+     */
+    public static TaskList convert(String sourcePathString, String targetPathString)
+            throws FileContentException, StorageOperationException {
+        assert sourcePathString != null : "Precondition failed: 'sourcePathString' cannot be null";
+        assert targetPathString != null : "Precondition failed: 'targetPathString' cannot be null";
+        Path sourcePath = Path.of(sourcePathString).toAbsolutePath().normalize();
+        Path targetPath = Path.of(targetPathString).toAbsolutePath().normalize();
+        if (sourcePath.equals(targetPath)) {
+            throw new StorageOperationException(Messages.MESSAGE_CONVERT_SAME_FILE,
+                    String.format("FilePath='%s'", sourcePath));
+        }
+        if (Files.notExists(sourcePath)) {
+            throw new StorageOperationException(Messages.MESSAGE_CONVERT_SOURCE_NOT_FOUND,
+                    String.format("FilePath='%s'", sourcePath));
+        }
+        TaskList taskList = new Storage(sourcePathString).load();
+        // The temporary file keeps the extension of the target, which selects the format it is written in
+        Path convertingPath = targetPath.resolveSibling(CONVERTING_FILE_PREFIX + targetPath.getFileName());
+        try {
+            new Storage(convertingPath.toString()).save(taskList);
+            Utils.moveAtomically(convertingPath, targetPath);
+        } catch (IOException e) {
+            throw new StorageOperationException(Messages.MESSAGE_WRITE_FILE_ERROR,
+                    String.format("FilePath='%s'", targetPath));
+        } finally {
+            try {
+                Files.deleteIfExists(convertingPath);
+            } catch (IOException e) {
+                // A leftover temporary file is overwritten by the next conversion
+            }
+        }
+        return taskList;
+    }
+
+    /**
+     * Converts the file given as the first argument into the file given as the second argument.
+     *
+     * @param args The source and target file paths.
+     */
+    public static void main(String[] args) {
+        Ui ui = new Ui();
+        if (args.length != 2) {
+            ui.printMessages(Messages.MESSAGE_CONVERT_USAGE);
+            System.exit(1);
+        }
+        try {
+            TaskList taskList = convert(args[0], args[1]);
+            ui.printMessages(String.format(Messages.MESSAGE_CONVERT_SUCCESS, taskList.size(), args[0], args[1]));
+        } catch (StorageOperationException | FileContentException e) {
+            ui.showError(e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package wkduke.storage;
+
+import java.nio.file.Path;
+
+/**
+ * Enum representing the on-disk formats a {@code Storage} can read and write.
+ * The format of a storage file is selected by its file extension.
+ */
+public enum StorageFormat {
+    TEXT(".txt"),
+    BINARY(".wkd"),
+    COMPRESSED(".txt.gz");
+
+    private final String extension;
+
+    /**
+     * Constructs a {@code StorageFormat} with the specified file extension.
+     *
+     * @param extension The file extension identifying the format.
+     */
+    StorageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Retrieves the {@code StorageFormat} identified by the extension of the given path.
+     *
+     * @param filePath The path of the storage file.
+     * @return The {@code StorageFormat} of the file, or {@code null} if the extension is not recognised.
+     */
+    public static StorageFormat fromPath(Path filePath) {
+        String fileName = filePath.toString();
+        for (StorageFormat format : StorageFormat.values()) {
+            if (fileName.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the file extension identifying this format.
+     *
+     * @return The file extension, including the leading dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,479 @@
+package wkduke.storage;
+
+/**
+ * Holds the configurable behaviour of a {@code Storage}.
+ * Options default to a plain full-file rewrite and can be overridden through JVM system properties,
+ * e.g. {@code -Dwkduke.storage.writeMode=journal}.
+ */
+public class StorageOptions {
+    public static final long DEFAULT_JOURNAL_COMPACTION_THRESHOLD = 1024 * 1024;
+    public static final long DEFAULT_PARALLEL_DECODE_THRESHOLD = 8 * 1024 * 1024;
+    public static final long DEFAULT_WRITE_BEHIND_DELAY_MILLIS = 200;
+    private static final String PROPERTY_PREFIX = "wkduke.storage.";
+    private WriteMode writeMode = WriteMode.REWRITE;
+    private long journalCompactionThreshold = DEFAULT_JOURNAL_COMPACTION_THRESHOLD;
+    private long parallelDecodeThreshold = DEFAULT_PARALLEL_DECODE_THRESHOLD;
+    private Durability durability = Durability.SYNC;
+    private long writeBehindDelayMillis = DEFAULT_WRITE_BEHIND_DELAY_MILLIS;
+    private boolean isLazyLoad = false;
+    private boolean isSharded = false;
+    private boolean isChecksummed = false;
+    private boolean isDateIndexed = false;
+    private long heapBudget = 0;
+    private int blobThreshold = 0;
+    private long archiveAfterDays = 0;
+    private boolean isWatched = false;
+    private boolean isShared = false;
+    private String replicaPath = null;
+    private int historyCheckpointInterval = 0;
+    private long historyRetentionDays = 0;
+    private boolean isSqlBacked = false;
+
+    /**
+     * Creates a {@code StorageOptions} populated from the {@code wkduke.storage.*} system properties.
+     * Properties that are not set keep their default values.
+     *
+     * @return The {@code StorageOptions} described by the system properties.
+     * @throws IllegalArgumentException If a property holds an unrecognised value.
+     */
+    public static StorageOptions fromSystemProperties() {
+        StorageOptions options = new StorageOptions();
+        String writeMode = System.getProperty(PROPERTY_PREFIX + "writeMode");
+        if (writeMode != null) {
+            options.setWriteMode(WriteMode.fromCode(writeMode));
+        }
+        String threshold = System.getProperty(PROPERTY_PREFIX + "journalCompactionThreshold");
+        if (threshold != null) {
+            options.setJournalCompactionThreshold(Long.parseLong(threshold));
+        }
+        String parallelDecodeThreshold = System.getProperty(PROPERTY_PREFIX + "parallelDecodeThreshold");
+        if (parallelDecodeThreshold != null) {
+            options.setParallelDecodeThreshold(Long.parseLong(parallelDecodeThreshold));
+        }
+        String durability = System.getProperty(PROPERTY_PREFIX + "durability");
+        if (durability != null) {
+            options.setDurability(Durability.fromCode(durability));
+        }
+        String writeBehindDelay = System.getProperty(PROPERTY_PREFIX + "writeBehindDelayMillis");
+        if (writeBehindDelay != null) {
+            options.setWriteBehindDelayMillis(Long.parseLong(writeBehindDelay));
+        }
+        String lazyLoad = System.getProperty(PROPERTY_PREFIX + "lazyLoad");
+        if (lazyLoad != null) {
+            options.setLazyLoad(Boolean.parseBoolean(lazyLoad));
+        }
+        String sharded = System.getProperty(PROPERTY_PREFIX + "sharded");
+        if (sharded != null) {
+            options.setSharded(Boolean.parseBoolean(sharded));
+        }
+        String checksums = System.getProperty(PROPERTY_PREFIX + "checksums");
+        if (checksums != null) {
+            options.setChecksummed(Boolean.parseBoolean(checksums));
+        }
+        String dateIndex = System.getProperty(PROPERTY_PREFIX + "dateIndex");
+        if (dateIndex != null) {
+            options.setDateIndexed(Boolean.parseBoolean(dateIndex));
+        }
+        String heapBudget = System.getProperty(PROPERTY_PREFIX + "heapBudget");
+        if (heapBudget != null) {
+            options.setHeapBudget(Long.parseLong(heapBudget));
+        }
+        String blobThreshold = System.getProperty(PROPERTY_PREFIX + "blobThreshold");
+        if (blobThreshold != null) {
+            options.setBlobThreshold(Integer.parseInt(blobThreshold));
+        }
+        String archiveAfterDays = System.getProperty(PROPERTY_PREFIX + "archiveAfterDays");
+        if (archiveAfterDays != null) {
+            options.setArchiveAfterDays(Long.parseLong(archiveAfterDays));
+        }
+        String watch = System.getProperty(PROPERTY_PREFIX + "watch");
+        if (watch != null) {
+            options.setWatched(Boolean.parseBoolean(watch));
+        }
+        String shared = System.getProperty(PROPERTY_PREFIX + "shared");
+        if (shared != null) {
+            options.setShared(Boolean.parseBoolean(shared));
+        }
+        String replicaPath = System.getProperty(PROPERTY_PREFIX + "replicaPath");
+        if (replicaPath != null) {
+            options.setReplicaPath(replicaPath.isBlank() ? null : replicaPath);
+        }
+        String historyCheckpointInterval = System.getProperty(PROPERTY_PREFIX + "historyCheckpointInterval");
+        if (historyCheckpointInterval != null) {
+            options.setHistoryCheckpointInterval(Integer.parseInt(historyCheckpointInterval));
+        }
+        String historyRetentionDays = System.getProperty(PROPERTY_PREFIX + "historyRetentionDays");
+        if (historyRetentionDays != null) {
+            options.setHistoryRetentionDays(Long.parseLong(historyRetentionDays));
+        }
+        String sql = System.getProperty(PROPERTY_PREFIX + "sql");
+        if (sql != null) {
+            options.setSqlBacked(Boolean.parseBoolean(sql));
+        }
+        return options;
+    }
+
+    /**
+     * Retrieves how mutations are persisted.
+     *
+     * @return The {@code WriteMode} in use.
+     */
+    public WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    /**
+     * Sets how mutations are persisted.
+     *
+     * @param writeMode The new write mode. Must not be {@code null}.
+     */
+    public void setWriteMode(WriteMode writeMode) {
+        assert writeMode != null : "Precondition failed: 'writeMode' cannot be null";
+        this.writeMode = writeMode;
+    }
+
+    /**
+     * Retrieves the journal size, in bytes, above which the journal is folded into a fresh snapshot.
+     *
+     * @return The journal compaction threshold in bytes.
+     */
+    public long getJournalCompactionThreshold() {
+        return journalCompactionThreshold;
+    }
+
+    /**
+     * Sets the journal size, in bytes, above which the journal is folded into a fresh snapshot.
+     *
+     * @param journalCompactionThreshold The new threshold in bytes. Must be positive.
+     */
+    public void setJournalCompactionThreshold(long journalCompactionThreshold) {
+        assert journalCompactionThreshold > 0 : "Precondition failed: 'journalCompactionThreshold' must be positive";
+        this.journalCompactionThreshold = journalCompactionThreshold;
+    }
+
+    /**
+     * Retrieves the task file size, in bytes, above which the file is decoded in parallel on load.
+     *
+     * @return The parallel decode threshold in bytes.
+     */
+    public long getParallelDecodeThreshold() {
+        return parallelDecodeThreshold;
+    }
+
+    /**
+     * Sets the task file size, in bytes, above which the file is decoded in parallel on load.
+     *
+     * @param parallelDecodeThreshold The new threshold in bytes. Must not be negative.
+     */
+    public void setParallelDecodeThreshold(long parallelDecodeThreshold) {
+        assert parallelDecodeThreshold >= 0 : "Precondition failed: 'parallelDecodeThreshold' cannot be negative";
+        this.parallelDecodeThreshold = parallelDecodeThreshold;
+    }
+
+    /**
+     * Retrieves when mutations are written to disk.
+     *
+     * @return The {@code Durability} in use.
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Sets when mutations are written to disk.
+     *
+     * @param durability The new durability. Must not be {@code null}.
+     */
+    public void setDurability(Durability durability) {
+        assert durability != null : "Precondition failed: 'durability' cannot be null";
+        this.durability = durability;
+    }
+
+    /**
+     * Retrieves how long, in milliseconds, an {@link Durability#ASYNC} storage waits after a mutation
+     * before writing, so that a burst of mutations is coalesced into one write.
+     *
+     * @return The write-behind delay in milliseconds.
+     */
+    public long getWriteBehindDelayMillis() {
+        return writeBehindDelayMillis;
+    }
+
+    /**
+     * Sets how long, in milliseconds, an {@link Durability#ASYNC} storage waits after a mutation before writing.
+     *
+     * @param writeBehindDelayMillis The new delay in milliseconds. Must not be negative.
+     */
+    public void setWriteBehindDelayMillis(long writeBehindDelayMillis) {
+        assert writeBehindDelayMillis >= 0 : "Precondition failed: 'writeBehindDelayMillis' cannot be negative";
+        this.writeBehindDelayMillis = writeBehindDelayMillis;
+    }
+
+    /**
+     * Checks whether tasks are decoded on first access instead of at load time.
+     *
+     * @return {@code true} if loading is lazy; {@code false} otherwise.
+     */
+    public boolean isLazyLoad() {
+        return isLazyLoad;
+    }
+
+    /**
+     * Sets whether tasks are decoded on first access instead of at load time.
+     * Lazy loading skips validation of the file, which can then be run explicitly with the {@code verify} command.
+     *
+     * @param isLazyLoad {@code true} to decode tasks lazily; {@code false} to decode and validate them on load.
+     */
+    public void setLazyLoad(boolean isLazyLoad) {
+        this.isLazyLoad = isLazyLoad;
+    }
+
+    /**
+     * Checks whether tasks are stored in per-month shards instead of a single file.
+     *
+     * @return {@code true} if the sharded layout is used; {@code false} otherwise.
+     */
+    public boolean isSharded() {
+        return isSharded;
+    }
+
+    /**
+     * Sets whether tasks are stored in per-month shards instead of a single file.
+     * Each changed shard is rewritten directly, so the write mode, durability and lazy loading do not apply.
+     *
+     * @param isSharded {@code true} to use the sharded layout; {@code false} to use a single file.
+     */
+    public void setSharded(boolean isSharded) {
+        this.isSharded = isSharded;
+    }
+
+    /**
+     * Checks whether every line of a text task file carries a checksum.
+     *
+     * @return {@code true} if lines are checksummed; {@code false} otherwise.
+     */
+    public boolean isChecksummed() {
+        return isChecksummed;
+    }
+
+    /**
+     * Sets whether every line of a text task file carries a checksum.
+     * Checksummed lines can be verified without decoding them, and lines that fail their checksum are
+     * quarantined on load instead of failing it. Other formats and the journal are not affected.
+     *
+     * @param isChecksummed {@code true} to checksum lines; {@code false} to write plain lines.
+     */
+    public void setChecksummed(boolean isChecksummed) {
+        this.isChecksummed = isChecksummed;
+    }
+
+    /**
+     * Checks whether the dates of time aware tasks are indexed in a file next to the storage file.
+     *
+     * @return {@code true} if a date index is kept; {@code false} otherwise.
+     */
+    public boolean isDateIndexed() {
+        return isDateIndexed;
+    }
+
+    /**
+     * Sets whether the dates of time aware tasks are indexed in a file next to the storage file, so that date
+     * queries only read the matching records. The index applies to uncompressed single files outside
+     * {@link WriteMode#JOURNAL} mode, and added tasks are then appended to the file instead of rewriting it.
+     *
+     * @param isDateIndexed {@code true} to keep a date index; {@code false} otherwise.
+     */
+    public void setDateIndexed(boolean isDateIndexed) {
+        this.isDateIndexed = isDateIndexed;
+    }
+
+    /**
+     * Retrieves the estimated heap size, in bytes, that decoded tasks may take up, or {@code 0} if it is unbounded.
+     *
+     * @return The heap budget in bytes.
+     */
+    public long getHeapBudget() {
+        return heapBudget;
+    }
+
+    /**
+     * Sets the estimated heap size, in bytes, that decoded tasks may take up.
+     * With a budget, a text file outside {@link WriteMode#JOURNAL} mode is loaded as a paged task list that keeps
+     * a compact index of every task resident and decodes the tasks themselves from the file on access.
+     *
+     * @param heapBudget The new budget in bytes, or {@code 0} to keep every task on the heap. Must not be negative.
+     */
+    public void setHeapBudget(long heapBudget) {
+        assert heapBudget >= 0 : "Precondition failed: 'heapBudget' cannot be negative";
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * Retrieves the description length above which descriptions are stored out of line, or {@code 0} if every
+     * description is stored inline.
+     *
+     * @return The blob threshold in characters.
+     */
+    public int getBlobThreshold() {
+        return blobThreshold;
+    }
+
+    /**
+     * Sets the description length above which descriptions are stored out of line.
+     * With a threshold, longer descriptions of an unsharded text file are appended to a blob file next to it, so
+     * that rewriting the task file does not copy them again.
+     *
+     * @param blobThreshold The new threshold in characters, or {@code 0} to store every description inline.
+     *                      Must not be negative.
+     */
+    public void setBlobThreshold(int blobThreshold) {
+        assert blobThreshold >= 0 : "Precondition failed: 'blobThreshold' cannot be negative";
+        this.blobThreshold = blobThreshold;
+    }
+
+    /**
+     * Retrieves the number of days after which completed tasks are moved to the archive, or {@code 0} if tasks are
+     * never archived.
+     *
+     * @return The archive age in days.
+     */
+    public long getArchiveAfterDays() {
+        return archiveAfterDays;
+    }
+
+    /**
+     * Sets the number of days after which completed tasks are moved to the archive.
+     * With an age, each load and each {@code archive} command move completed deadlines and events that have been
+     * over for longer into a compressed archive next to the storage file.
+     *
+     * @param archiveAfterDays The new age in days, or {@code 0} to never archive tasks. Must not be negative.
+     */
+    public void setArchiveAfterDays(long archiveAfterDays) {
+        assert archiveAfterDays >= 0 : "Precondition failed: 'archiveAfterDays' cannot be negative";
+        this.archiveAfterDays = archiveAfterDays;
+    }
+
+    /**
+     * Checks whether the storage file is watched for changes made outside WKDuke.
+     *
+     * @return {@code true} if external changes are applied to the loaded task list; {@code false} otherwise.
+     */
+    public boolean isWatched() {
+        return isWatched;
+    }
+
+    /**
+     * Sets whether the storage file is watched for changes made outside WKDuke, e.g. by a file sync tool, so that
+     * they are applied to the loaded task list instead of being overwritten by the next save. Watching applies to
+     * text files that are loaded eagerly and rewritten synchronously, outside {@link WriteMode#JOURNAL} mode.
+     *
+     * @param isWatched {@code true} to watch the storage file; {@code false} otherwise.
+     */
+    public void setWatched(boolean isWatched) {
+        this.isWatched = isWatched;
+    }
+
+    /**
+     * Checks whether the storage file is shared with other WKDuke processes.
+     *
+     * @return {@code true} if the journal is locked and tailed for other processes; {@code false} otherwise.
+     */
+    public boolean isShared() {
+        return isShared;
+    }
+
+    /**
+     * Sets whether the storage file is shared with other WKDuke processes running at the same time. Sharing applies
+     * to unsharded files written synchronously in {@link WriteMode#JOURNAL} mode: each process locks the journal
+     * only while appending to it, and applies the entries appended by the others before every command.
+     *
+     * @param isShared {@code true} to share the storage file; {@code false} otherwise.
+     */
+    public void setShared(boolean isShared) {
+        this.isShared = isShared;
+    }
+
+    /**
+     * Retrieves the path of the replica file that committed mutations are shipped to, or {@code null} if there is
+     * none.
+     *
+     * @return The path of the replica file.
+     */
+    public String getReplicaPath() {
+        return replicaPath;
+    }
+
+    /**
+     * Sets the path of a replica file, e.g. on another disk, that committed mutations are shipped to in the
+     * background. The replica must have the same extension as the storage file and can be loaded in its place.
+     * Replication applies to unsharded files that are not shared with other processes, and requires
+     * {@link Durability#SYNC} outside the SQL database, so that only mutations already in the file are shipped.
+     *
+     * @param replicaPath The new replica path, or {@code null} to keep no replica.
+     */
+    public void setReplicaPath(String replicaPath) {
+        this.replicaPath = replicaPath;
+    }
+
+    /**
+     * Retrieves the number of recorded mutations after which the history writes a checkpoint of the whole list.
+     *
+     * @return The checkpoint interval, or {@code 0} if no history is kept.
+     */
+    public int getHistoryCheckpointInterval() {
+        return historyCheckpointInterval;
+    }
+
+    /**
+     * Sets the number of recorded mutations after which the history writes a checkpoint of the whole list.
+     * A past task list is reconstructed from the last checkpoint before it plus at most this many mutations, so a
+     * smaller interval makes time-travel queries faster at the cost of a larger history.
+     *
+     * @param historyCheckpointInterval The new interval, or {@code 0} to keep no history. Must not be negative.
+     */
+    public void setHistoryCheckpointInterval(int historyCheckpointInterval) {
+        assert historyCheckpointInterval >= 0 : "Precondition failed: 'historyCheckpointInterval' cannot be negative";
+        this.historyCheckpointInterval = historyCheckpointInterval;
+    }
+
+    /**
+     * Retrieves the number of days the history reaches back at least.
+     *
+     * @return The history retention in days.
+     */
+    public long getHistoryRetentionDays() {
+        return historyRetentionDays;
+    }
+
+    /**
+     * Sets the number of days the history reaches back at least.
+     * With a retention, each load drops the history before the last checkpoint older than the retention.
+     *
+     * @param historyRetentionDays The new retention in days, or {@code 0} to keep the whole history. Must not be
+     *                             negative.
+     */
+    public void setHistoryRetentionDays(long historyRetentionDays) {
+        assert historyRetentionDays >= 0 : "Precondition failed: 'historyRetentionDays' cannot be negative";
+        this.historyRetentionDays = historyRetentionDays;
+    }
+
+    /**
+     * Checks whether tasks are kept in an embedded SQL database instead of the storage file.
+     *
+     * @return {@code true} if the SQL database is used; {@code false} otherwise.
+     */
+    public boolean isSqlBacked() {
+        return isSqlBacked;
+    }
+
+    /**
+     * Sets whether tasks are kept in an embedded SQL database next to the storage file instead of the file itself.
+     * Each mutation then changes only its rows, and date and keyword queries are answered through the indexes of
+     * the database. The SQL database takes precedence over the sharded layout and the file-based write modes.
+     *
+     * @param isSqlBacked {@code true} to use the SQL database; {@code false} to use the storage file.
+     */
+    public void setSqlBacked(boolean isSqlBacked) {
+        this.isSqlBacked = isSqlBacked;
+    }
+}
@@ -0,0 +1,281 @@
+package wkduke.storage;
+
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.UncheckedFileContentException;
+import wkduke.task.SelfIndexedTasks;
+import wkduke.task.Task;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A list of tasks backed by a {@link TaskStore}, where each task is read from its record on first access.
+ * Loading only reads the keys of the records, so no task is decoded until a command asks for it.
+ *
+ * <p>A task is read together with the undecoded tasks after it, a page of records at a time, so that listing the
+ * tasks does not query the store once per task. Decoded tasks stay on the heap, since a command may change a task
+ * it retrieved before the change is saved. {@link #indexOf(Object)} and {@link #contains(Object)} only decode the
+ * records with the description of the task, and {@link #getTasksPossiblyOn(LocalDateTime)} and
+ * {@link #getTasksPossiblyContaining(List)} only decode the records the store finds.</p>
+ *
+ * <p>Tasks added since the list was written have no record yet and are kept until
+ * {@link #markPersisted(int, long)} or {@link #rebase(long[])} reports their keys. The keys of removed tasks are
+ * kept until {@link #takeRemovedKeys()} hands them over to delete their records. A record that cannot be read
+ * surfaces as an {@link UncheckedIOException} or {@link UncheckedFileContentException} from the access that reads
+ * it.</p>
+ */
+public class StoredTaskList extends AbstractList<Task> implements RandomAccess, SelfIndexedTasks {
+    private static final int MIN_CAPACITY = 16;
+    private static final int PAGE_SIZE = 256;
+    private static final long NO_KEY = -1;
+    private final TaskStore store;
+    private final List<Long> removedKeys = new ArrayList<>();
+    private long[] keys;
+    private Task[] tasks;
+    private int size;
+
+    /**
+     * Constructs a {@code StoredTaskList} over the records of a store, without reading any task.
+     *
+     * @param store The store holding the tasks.
+     * @param keys  The ascending keys of the records, one per task in list order.
+     */
+    public StoredTaskList(TaskStore store, long[] keys) {
+        assert store != null : "Precondition failed: 'store' cannot be null";
+        assert keys != null : "Precondition failed: 'keys' cannot be null";
+        this.store = store;
+        this.keys = keys.clone();
+        this.tasks = new Task[keys.length];
+        this.size = keys.length;
+    }
+
+    /**
+     * Retrieves the store the tasks are read from.
+     *
+     * @return The store of the list.
+     */
+    public TaskStore getStore() {
+        return store;
+    }
+
+    /**
+     * Retrieves the key of the record of a task.
+     *
+     * @param index The 0-based index of the task.
+     * @return The key of its record.
+     */
+    public long getKey(int index) {
+        Objects.checkIndex(index, size);
+        assert keys[index] != NO_KEY : "Precondition failed: the task must have a record";
+        return keys[index];
+    }
+
+    /**
+     * Records that the task at the given index was written to the store under the given key.
+     *
+     * @param index The 0-based index of the task.
+     * @param key   The key of its record.
+     */
+    public void markPersisted(int index, long key) {
+        Objects.checkIndex(index, size);
+        keys[index] = key;
+    }
+
+    /**
+     * Records that the whole list was written to the store under the given keys, e.g. after sorting, so that the
+     * records of removed tasks are gone as well.
+     *
+     * @param keys The keys of the records, one per task in list order.
+     */
+    public void rebase(long[] keys) {
+        assert keys != null && keys.length == size : "Precondition failed: 'keys' must hold one key per task";
+        System.arraycopy(keys, 0, this.keys, 0, size);
+        removedKeys.clear();
+    }
+
+    /**
+     * Retrieves the keys of the records of the tasks removed since the last call, so that they can be deleted.
+     *
+     * @return The keys of the removed tasks that have a record.
+     */
+    public List<Long> takeRemovedKeys() {
+        List<Long> keys = new ArrayList<>(removedKeys);
+        removedKeys.clear();
+        return keys;
+    }
+
+    /**
+     * Retrieves the tasks that may occur on the date of the given date-time: deadlines due on it, events
+     * overlapping it and tasks not written yet. Only the tasks found by the store are decoded.
+     *
+     * @param dateTime The date-time whose date is queried.
+     * @return The candidate tasks, in list order.
+     * @throws IOException If the store cannot be read.
+     */
+    public List<Task> getTasksPossiblyOn(LocalDateTime dateTime) throws IOException {
+        assert dateTime != null : "Precondition failed: 'dateTime' cannot be null";
+        return getTasksWithKeys(store.findKeysBetween(dateTime.toLocalDate().atStartOfDay(),
+                dateTime.toLocalDate().atTime(LocalTime.MAX)));
+    }
+
+    /**
+     * Retrieves the tasks whose description may contain any of the keywords: those found by the store and those
+     * not written yet.
+     *
+     * @param keywords The keywords to search for. Must not be empty.
+     * @return The candidate tasks, in list order.
+     * @throws IOException If the store cannot be read.
+     */
+    public List<Task> getTasksPossiblyContaining(List<String> keywords) throws IOException {
+        return getTasksWithKeys(store.findKeysContaining(keywords));
+    }
+
+    /**
+     * Retrieves the tasks whose records have one of the given keys, together with the tasks that have no record yet.
+     *
+     * @param selectedKeys The ascending keys of the records to include.
+     * @return The selected tasks, in list order.
+     */
+    private List<Task> getTasksWithKeys(long[] selectedKeys) {
+        List<Task> selectedTasks = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == NO_KEY || Arrays.binarySearch(selectedKeys, keys[i]) >= 0) {
+                selectedTasks.add(get(i));
+            }
+        }
+        return selectedTasks;
+    }
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        if (tasks[index] == null) {
+            readPage(index);
+        }
+        return tasks[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        Task previous = get(index);
+        tasks[index] = task;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        Objects.checkIndex(index, size + 1);
+        if (size == tasks.length) {
+            int capacity = Math.max(MIN_CAPACITY, size * 2);
+            tasks = Arrays.copyOf(tasks, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+        System.arraycopy(tasks, index, tasks, index + 1, size - index);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        tasks[index] = task;
+        keys[index] = NO_KEY;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        if (keys[index] != NO_KEY) {
+            removedKeys.add(keys[index]);
+        }
+        System.arraycopy(tasks, index + 1, tasks, index, size - index - 1);
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        size--;
+        tasks[size] = null;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public int indexOf(Object obj) {
+        if (!(obj instanceof Task task)) {
+            return -1;
+        }
+        long[] candidateKeys = null;
+        for (int i = 0; i < size; i++) {
+            if (tasks[i] == null) {
+                // Descriptions never change, so only records with the same description can hold an equal task
+                if (candidateKeys == null) {
+                    candidateKeys = findKeysWithDescription(task.getDescription());
+                }
+                if (Arrays.binarySearch(candidateKeys, keys[i]) < 0) {
+                    continue;
+                }
+            }
+            if (task.equals(get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        return indexOf(obj) >= 0;
+    }
+
+    /**
+     * Finds the keys of the records with the given description.
+     *
+     * @param description The description to look for.
+     * @return The ascending keys of the records.
+     * @throws UncheckedIOException If the store cannot be read.
+     */
+    private long[] findKeysWithDescription(String description) {
+        try {
+            return store.findKeysWithDescription(description);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the task at the given index together with the undecoded tasks right after it, up to a page of records.
+     *
+     * @param index The 0-based index of an undecoded task.
+     * @throws UncheckedFileContentException If a record holds an improperly formatted task.
+     * @throws UncheckedIOException          If the store cannot be read or a record is missing from it.
+     */
+    private void readPage(int index) {
+        assert keys[index] != NO_KEY : "Precondition failed: tasks added after loading are never undecoded";
+        int end = index + 1;
+        while (end < size && end - index < PAGE_SIZE && tasks[end] == null && keys[end] > keys[end - 1]) {
+            end++;
+        }
+        try {
+            Map<Long, Task> tasksByKey = store.readBetween(keys[index], keys[end - 1]);
+            for (int i = index; i < end; i++) {
+                tasks[i] = tasksByKey.get(keys[i]);
+                if (tasks[i] == null) {
+                    throw new IOException(String.format("FilePath='%s', Key='%d'", store.getStorePath(), keys[i]));
+                }
+            }
+        } catch (FileContentException e) {
+            throw new UncheckedFileContentException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package wkduke.storage;
+
+import wkduke.exception.storage.FileContentException;
+import wkduke.task.Task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a store that keeps every task as a record of its own, so that a mutation only writes the records it
+ * changes and queries are answered by the store without reading the whole task list.
+ *
+ * <p>Each record is identified by a key. Keys grow in list order and are never reused while the record exists, so
+ * that deleting a record leaves the keys of the records after it unchanged. A {@link StoredTaskList} keeps the keys
+ * of a loaded list and reads the records of the tasks it is asked for.</p>
+ */
+public interface TaskStore {
+    /**
+     * Retrieves the path of the store, to be reported in errors.
+     *
+     * @return The path of the store.
+     */
+    Path getStorePath();
+
+    /**
+     * Checks whether the store has been created.
+     *
+     * @return {@code true} if the store holds a task list; {@code false} otherwise.
+     * @throws IOException If the store cannot be read.
+     */
+    boolean exists() throws IOException;
+
+    /**
+     * Creates the store holding the given tasks, e.g. those imported from a task file.
+     *
+     * @param tasks The initial tasks, in order.
+     * @return The keys of the records written, one per task in list order.
+     * @throws IOException If the store cannot be created.
+     */
+    long[] create(List<Task> tasks) throws IOException;
+
+    /**
+     * Reads the keys of every record, without reading the tasks.
+     *
+     * @return The ascending keys, one per task in list order.
+     * @throws IOException If the store cannot be read.
+     */
+    long[] loadKeys() throws IOException;
+
+    /**
+     * Reads every task, in list order.
+     *
+     * @return The tasks in the store.
+     * @throws IOException          If the store cannot be read.
+     * @throws FileContentException If a record holds an improperly formatted task.
+     */
+    List<Task> loadAll() throws IOException, FileContentException;
+
+    /**
+     * Reads the tasks whose keys are within a range.
+     *
+     * @param fromKey The lowest key to read.
+     * @param toKey   The highest key to read.
+     * @return The tasks read, keyed by the keys of their records.
+     * @throws IOException          If the store cannot be read.
+     * @throws FileContentException If a record holds an improperly formatted task.
+     */
+    Map<Long, Task> readBetween(long fromKey, long toKey) throws IOException, FileContentException;
+
+    /**
+     * Inserts a task at the end of the list.
+     *
+     * @param task The task to insert.
+     * @return The key of the record written, above every other key.
+     * @throws IOException If the record cannot be written.
+     */
+    long insert(Task task) throws IOException;
+
+    /**
+     * Rewrites the records of tasks that were changed in place, leaving every other record untouched.
+     *
+     * @param tasksByKey The changed tasks, keyed by the keys of their records.
+     * @throws IOException If the records cannot be written.
+     */
+    void update(Map<Long, Task> tasksByKey) throws IOException;
+
+    /**
+     * Deletes the records of removed tasks, leaving every other record untouched.
+     *
+     * @param keys The keys of the records to delete.
+     * @throws IOException If the records cannot be deleted.
+     */
+    void delete(Collection<Long> keys) throws IOException;
+
+    /**
+     * Replaces every record with the given tasks, e.g. after sorting.
+     *
+     * @param tasks The tasks of the list, in order.
+     * @return The keys of the records written, one per task in list order.
+     * @throws IOException If the records cannot be replaced.
+     */
+    long[] replaceAll(List<Task> tasks) throws IOException;
+
+    /**
+     * Finds the keys of the time aware tasks that may fall within a date-time range: deadlines due within it and
+     * events overlapping it.
+     *
+     * @param from The start of the range.
+     * @param to   The end of the range, inclusive.
+     * @return The ascending keys of the candidate tasks.
+     * @throws IOException If the store cannot be read.
+     */
+    long[] findKeysBetween(LocalDateTime from, LocalDateTime to) throws IOException;
+
+    /**
+     * Reads the time aware tasks that may fall within a date-time range, without reading any other task.
+     *
+     * @param from The start of the range.
+     * @param to   The end of the range, inclusive.
+     * @return The candidate tasks, in list order.
+     * @throws IOException          If the store cannot be read.
+     * @throws FileContentException If a matching record holds an improperly formatted task.
+     */
+    List<Task> findTasksBetween(LocalDateTime from, LocalDateTime to) throws IOException, FileContentException;
+
+    /**
+     * Finds the keys of the tasks whose description contains any of the keywords, case-sensitively.
+     *
+     * @param keywords The keywords to search for. Must not be empty.
+     * @return The ascending keys of the matching tasks.
+     * @throws IOException If the store cannot be read.
+     */
+    long[] findKeysContaining(List<String> keywords) throws IOException;
+
+    /**
+     * Finds the keys of the tasks with exactly the given description, the only candidates for an equal task.
+     *
+     * @param description The description to look for.
+     * @return The ascending keys of the matching tasks.
+     * @throws IOException If the store cannot be read.
+     */
+    long[] findKeysWithDescription(String description) throws IOException;
+}
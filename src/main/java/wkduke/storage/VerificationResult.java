@@ -0,0 +1,13 @@
+package wkduke.storage;
+
+import java.util.List;
+
+/**
+ * Represents the outcome of verifying a storage file.
+ *
+ * @param recordCount      The number of records in the storage file.
+ * @param badRecordOffsets The file offsets of the records with a missing or mismatched checksum, in file order.
+ *                         Always empty unless checksums are enabled.
+ */
+public record VerificationResult(int recordCount, List<Long> badRecordOffsets) {
+}
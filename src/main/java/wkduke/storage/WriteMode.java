@@ -0,0 +1,47 @@
+package wkduke.storage;
+
+/**
+ * Enum representing how a {@code Storage} persists mutations of the task list.
+ */
+public enum WriteMode {
+    REWRITE("rewrite"),
+    JOURNAL("journal"),
+    PATCH("patch");
+
+    private final String code;
+
+    /**
+     * Constructs a {@code WriteMode} with the specified code.
+     *
+     * @param code The code representing the write mode.
+     */
+    WriteMode(String code) {
+        this.code = code;
+    }
+
+    /**
+     * Retrieves the {@code WriteMode} corresponding to the given code.
+     *
+     * @param code The code representing the write mode.
+     * @return The {@code WriteMode} associated with the given code.
+     * @throws IllegalArgumentException If the code does not match any write mode.
+     */
+    public static WriteMode fromCode(String code) {
+        for (WriteMode mode : WriteMode.values()) {
+            if (mode.code.equalsIgnoreCase(code)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown write mode: " + code);
+    }
+
+    /**
+     * Returns the string representation of the write mode.
+     *
+     * @return The write mode code as a {@code String}.
+     */
+    @Override
+    public String toString() {
+        return code;
+    }
+}
@@ -0,0 +1,114 @@
+package wkduke.storage.archive;
+
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.compressed.BlockGzipFormat;
+import wkduke.storage.decoder.CompressedTaskListDecoder;
+import wkduke.storage.encoder.CompressedTaskListEncoder;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Manages the append-only archive of completed tasks that sits next to a task file, e.g.
+ * {@code tasks.txt.archive.gz} for {@code tasks.txt}.
+ *
+ * <p>The archive uses the block-compressed text format of {@link BlockGzipFormat} whatever the format of the task
+ * file, so {@code zcat} prints its tasks. Each batch of archived tasks is appended as new blocks, and the archive is
+ * only ever read by streaming it block by block. A block torn by an interrupted append is cut off before the next
+ * append.</p>
+ */
+public class TaskArchive {
+    public static final String ARCHIVE_FILE_SUFFIX = ".archive.gz";
+    private final Path archivePath;
+
+    /**
+     * Constructs a {@code TaskArchive} for the given task file. The archive file is only created once tasks are
+     * archived.
+     *
+     * @param dataFilePath The task file whose completed tasks are archived.
+     */
+    public TaskArchive(Path dataFilePath) {
+        assert dataFilePath != null : "Precondition failed: 'dataFilePath' cannot be null";
+        archivePath = Path.of(dataFilePath + ARCHIVE_FILE_SUFFIX);
+    }
+
+    /**
+     * Retrieves the path of the archive file.
+     *
+     * @return The path of the archive file.
+     */
+    public Path getArchivePath() {
+        return archivePath;
+    }
+
+    /**
+     * Checks whether a task is completed and over before the given cutoff.
+     * Only time aware tasks have a date to age by: a deadline by its due date and an event by its end, so todos
+     * are never archived.
+     *
+     * @param task   The task to check.
+     * @param cutoff The date-time that the task must be over by.
+     * @return {@code true} if the task can be archived; {@code false} otherwise.
+     */
+    public static boolean isArchivable(Task task, LocalDateTime cutoff) {
+        if (!task.isDone()) {
+            return false;
+        }
+        if (task instanceof Deadline deadline) {
+            return deadline.getBy().isBefore(cutoff);
+        }
+        if (task instanceof Event event) {
+            return event.getTo().isBefore(cutoff);
+        }
+        return false;
+    }
+
+    /**
+     * Appends tasks to the end of the archive, and forces them to disk before returning, so that the tasks can be
+     * removed from the task file straight after.
+     *
+     * @param tasks The tasks to archive, in order.
+     * @throws IOException If the archive cannot be written.
+     */
+    public void append(List<Task> tasks) throws IOException {
+        assert tasks != null : "Precondition failed: 'tasks' cannot be null";
+        byte[] blocks = CompressedTaskListEncoder.encodeTaskList(new TaskList(new ArrayList<>(tasks)));
+        try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long completeLength = BlockGzipFormat.completeLength(channel, archivePath);
+            channel.truncate(completeLength);
+            channel.position(completeLength);
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(blocks);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Streams the archived tasks to the handler, one block of tasks at a time.
+     *
+     * @param handler The handler invoked for each archived task, in the order archived.
+     * @throws FileContentException If the archive is corrupt.
+     * @throws IOException          If the archive cannot be read.
+     */
+    public void forEachTask(Consumer<Task> handler) throws FileContentException, IOException {
+        assert handler != null : "Precondition failed: 'handler' cannot be null";
+        if (Files.notExists(archivePath)) {
+            return;
+        }
+        CompressedTaskListDecoder.forEachTask(archivePath, handler);
+    }
+}
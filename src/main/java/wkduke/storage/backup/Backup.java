@@ -0,0 +1,179 @@
+package wkduke.storage.backup;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Represents a backup being taken into a staging directory.
+ *
+ * <p>The content of the backup is fixed while the task file is not being written, by one of three means depending
+ * on how each file is written. A file that is only ever replaced by moving a new file over it is hard linked, which
+ * copies nothing. A file that is only ever appended to is opened and its current size recorded, so that its prefix
+ * can be copied later, while WKDuke keeps appending. Any other file is copied straight away. The prefixes are copied
+ * by {@link #complete()}, which may run on a background thread, with {@link FileChannel#transferTo}, so the bytes
+ * are moved by the kernel rather than through the heap.</p>
+ */
+public class Backup {
+    private final String name;
+    private final Path stagingDirectory;
+    private final Path backupDirectory;
+    private final Path dataFileName;
+    private final List<PinnedPrefix> pinnedPrefixes = new ArrayList<>();
+
+    /**
+     * Represents the prefix of a file that is copied into the backup once the backup completes.
+     *
+     * @param channel The channel opened on the file when the prefix was pinned.
+     * @param size    The size of the prefix.
+     * @param target  The file of the backup that the prefix is appended to.
+     */
+    private record PinnedPrefix(FileChannel channel, long size, Path target) {
+    }
+
+    /**
+     * Constructs a {@code Backup} writing into the given staging directory.
+     *
+     * @param name             The name of the backup.
+     * @param stagingDirectory The directory the backup is written to.
+     * @param backupDirectory  The directory the backup is moved to once complete.
+     * @param dataFileName     The file name of the task file.
+     */
+    Backup(String name, Path stagingDirectory, Path backupDirectory, Path dataFileName) {
+        this.name = name;
+        this.stagingDirectory = stagingDirectory;
+        this.backupDirectory = backupDirectory;
+        this.dataFileName = dataFileName;
+    }
+
+    /**
+     * Retrieves the name of the backup.
+     *
+     * @return The name of the backup.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the path the task file is backed up to, within the staging directory.
+     *
+     * @param suffix The suffix of a sidecar file of the task file, or an empty string for the task file itself.
+     * @return The path of the file within the backup.
+     */
+    private Path resolveTarget(String suffix) {
+        return stagingDirectory.resolve(dataFileName + suffix);
+    }
+
+    /**
+     * Backs up a file that is only ever replaced by moving a new file over it, by hard linking it. Where hard links
+     * are not supported, its content is pinned instead, which is just as stable since the file is never written.
+     *
+     * @param source The file to back up.
+     * @param suffix The suffix of the sidecar file, or an empty string for the task file itself.
+     * @throws IOException If the file can neither be linked nor opened.
+     */
+    public void link(Path source, String suffix) throws IOException {
+        try {
+            Files.createLink(resolveTarget(suffix), source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            pin(source, suffix);
+        }
+    }
+
+    /**
+     * Pins the current content of a file that is only ever appended to, so that it is copied into the backup once
+     * the backup completes. Pinning several files to the same suffix concatenates them in order.
+     *
+     * @param source The file to back up. A missing file is skipped.
+     * @param suffix The suffix of the sidecar file, or an empty string for the task file itself.
+     * @throws IOException If the file cannot be opened.
+     */
+    public void pin(Path source, String suffix) throws IOException {
+        if (Files.notExists(source)) {
+            return;
+        }
+        FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+        pinnedPrefixes.add(new PinnedPrefix(channel, channel.size(), resolveTarget(suffix)));
+    }
+
+    /**
+     * Copies a file that is written in place into the backup straight away.
+     *
+     * @param source The file to back up.
+     * @param suffix The suffix of the sidecar file, or an empty string for the task file itself.
+     * @throws IOException If the file cannot be copied.
+     */
+    public void copy(Path source, String suffix) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            transferPrefix(channel, channel.size(), resolveTarget(suffix));
+        }
+    }
+
+    /**
+     * Copies the pinned prefixes into the backup and moves it from the staging directory to its name.
+     *
+     * @throws IOException If a prefix cannot be copied or the backup cannot be moved.
+     */
+    public void complete() throws IOException {
+        try {
+            for (PinnedPrefix prefix : pinnedPrefixes) {
+                transferPrefix(prefix.channel(), prefix.size(), prefix.target());
+            }
+        } finally {
+            closePinnedFiles();
+        }
+        Files.move(stagingDirectory, backupDirectory);
+    }
+
+    /**
+     * Discards the backup, deleting its staging directory.
+     *
+     * @throws IOException If the staging directory cannot be deleted.
+     */
+    public void abort() throws IOException {
+        closePinnedFiles();
+        try (Stream<Path> files = Files.walk(stagingDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Closes the files opened for the pinned prefixes.
+     *
+     * @throws IOException If a file cannot be closed.
+     */
+    private void closePinnedFiles() throws IOException {
+        for (PinnedPrefix prefix : pinnedPrefixes) {
+            prefix.channel().close();
+        }
+    }
+
+    /**
+     * Appends a prefix of a file to a target file with {@link FileChannel#transferTo}, which may take several calls.
+     *
+     * @param source The channel of the file to copy from.
+     * @param size   The number of bytes to copy from the start of the file.
+     * @param target The file to append to.
+     * @throws IOException If the prefix cannot be copied.
+     */
+    private static void transferPrefix(FileChannel source, long size, Path target) throws IOException {
+        try (FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, targetChannel);
+            }
+            targetChannel.force(true);
+        }
+    }
+}
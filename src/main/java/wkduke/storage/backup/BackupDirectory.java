@@ -0,0 +1,105 @@
+package wkduke.storage.backup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Manages the backups of a task file, next to it in a directory such as {@code tasks.txt.backups}.
+ *
+ * <p>Every backup is a directory named after the time it was taken, e.g. {@code 20241101-101530}, holding the task
+ * file and its journal and blob file under their usual names, so a backup can be loaded like any task file. A backup
+ * is written to a staging directory ending in {@code .tmp} and only moved to its name once complete, so a listed
+ * backup is never partial.</p>
+ */
+public class BackupDirectory {
+    public static final String BACKUP_DIRECTORY_SUFFIX = ".backups";
+    private static final String STAGING_SUFFIX = ".tmp";
+    private static final DateTimeFormatter NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final Pattern NAME_PATTERN = Pattern.compile("[0-9A-Za-z-]+");
+    private final Path directory;
+    private final Path dataFileName;
+
+    /**
+     * Constructs a {@code BackupDirectory} for the given task file. The directory is only created once a backup is
+     * taken.
+     *
+     * @param dataFilePath The task file to back up.
+     */
+    public BackupDirectory(Path dataFilePath) {
+        assert dataFilePath != null : "Precondition failed: 'dataFilePath' cannot be null";
+        directory = Path.of(dataFilePath + BACKUP_DIRECTORY_SUFFIX);
+        dataFileName = dataFilePath.getFileName();
+    }
+
+    /**
+     * Retrieves the directory holding the backups.
+     *
+     * @return The path of the backup directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Starts a new backup named after the current time, in a fresh staging directory.
+     *
+     * @return The started backup.
+     * @throws IOException If the staging directory cannot be created.
+     */
+    public Backup begin() throws IOException {
+        Files.createDirectories(directory);
+        String baseName = LocalDateTime.now().format(NAME_FORMATTER);
+        String name = baseName;
+        for (int i = 2; Files.exists(directory.resolve(name)) || Files.exists(directory.resolve(name + STAGING_SUFFIX));
+                i++) {
+            name = baseName + "-" + i;
+        }
+        Path stagingDirectory = Files.createDirectory(directory.resolve(name + STAGING_SUFFIX));
+        return new Backup(name, stagingDirectory, directory.resolve(name), dataFileName);
+    }
+
+    /**
+     * Resolves the task file of a complete backup.
+     *
+     * @param name The name of the backup.
+     * @return The task file of the backup, or {@code null} if there is no complete backup with the name.
+     */
+    public Path resolve(String name) {
+        assert name != null : "Precondition failed: 'name' cannot be null";
+        if (!NAME_PATTERN.matcher(name).matches()) {
+            return null;
+        }
+        Path backupPath = directory.resolve(name).resolve(dataFileName);
+        return Files.isRegularFile(backupPath) ? backupPath : null;
+    }
+
+    /**
+     * Lists the names of the complete backups, oldest first.
+     *
+     * @return The backup names.
+     * @throws IOException If the backup directory cannot be read.
+     */
+    public List<String> list() throws IOException {
+        List<String> names = new ArrayList<>();
+        if (Files.notExists(directory)) {
+            return names;
+        }
+        try (DirectoryStream<Path> backups = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path backup : backups) {
+                String name = backup.getFileName().toString();
+                if (NAME_PATTERN.matcher(name).matches()) {
+                    names.add(name);
+                }
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+}
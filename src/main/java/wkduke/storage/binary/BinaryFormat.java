@@ -0,0 +1,119 @@
+package wkduke.storage.binary;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Describes the compact binary task file format ({@code .wkd}).
+ *
+ * <p>A file starts with the magic bytes {@code "WKD"} and a one-byte format version, followed by one record per task:</p>
+ * <pre>
+ *     flags         1 byte  - bits 0-1 task type, bits 2-3 priority, bit 4 done, bits 5-7 reserved (zero)
+ *     description   varint byte length, then UTF-8 bytes
+ *     by            zigzag varint epoch minute            (deadlines only)
+ *     from, to      zigzag varint epoch minute, then the
+ *                   zigzag varint minutes from 'from'     (events only)
+ * </pre>
+ * <p>Epoch minutes count whole minutes of the local date-time as if it were UTC.
+ * An empty file is a valid, empty task list.</p>
+ */
+public class BinaryFormat {
+    public static final byte[] MAGIC = {'W', 'K', 'D'};
+    public static final int VERSION = 1;
+    public static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    public static final int TYPE_TODO = 0;
+    public static final int TYPE_DEADLINE = 1;
+    public static final int TYPE_EVENT = 2;
+    public static final int TYPE_MASK = 0b11;
+    public static final int PRIORITY_SHIFT = 2;
+    public static final int PRIORITY_MASK = 0b11 << PRIORITY_SHIFT;
+    public static final int DONE_FLAG = 1 << 4;
+    public static final int RESERVED_MASK = 0b111 << 5;
+
+    private static final int SECONDS_PER_MINUTE = 60;
+
+    /**
+     * Converts a date-time to its epoch minute.
+     *
+     * @param dateTime The date-time to convert.
+     * @return The number of minutes since 1970-01-01T00:00.
+     */
+    public static long toEpochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), SECONDS_PER_MINUTE);
+    }
+
+    /**
+     * Converts an epoch minute back to a date-time.
+     *
+     * @param epochMinute The number of minutes since 1970-01-01T00:00.
+     * @return The corresponding {@code LocalDateTime}.
+     * @throws ArithmeticException If the epoch minute cannot be expressed in seconds.
+     * @throws java.time.DateTimeException If the epoch minute is outside the supported date-time range.
+     */
+    public static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(Math.multiplyExact(epochMinute, SECONDS_PER_MINUTE), 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Writes an unsigned variable-length integer, 7 bits per byte, least significant group first.
+     *
+     * @param out   The stream to write to.
+     * @param value The value to write, treated as unsigned.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Writes a signed variable-length integer using zigzag encoding, so small negative values stay short.
+     *
+     * @param out   The stream to write to.
+     * @param value The value to write.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void writeSignedVarLong(OutputStream out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Reads an unsigned variable-length integer written by {@link #writeVarLong(OutputStream, long)}.
+     *
+     * @param in The input to read from.
+     * @return The value read.
+     * @throws IOException              If the input ends early.
+     * @throws IllegalArgumentException If the value is longer than 64 bits.
+     */
+    public static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    /**
+     * Reads a signed variable-length integer written by {@link #writeSignedVarLong(OutputStream, long)}.
+     *
+     * @param in The input to read from.
+     * @return The value read.
+     * @throws IOException              If the input ends early.
+     * @throws IllegalArgumentException If the value is malformed.
+     */
+    public static long readSignedVarLong(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,80 @@
+package wkduke.storage.blob;
+
+import wkduke.task.DescriptionSource;
+
+import java.util.Objects;
+
+/**
+ * Supplies a description stored in a {@link BlobStore}. The description is read from the blob file the first time
+ * it is needed and kept from then on, so a task that is never displayed or searched never reads it.
+ * Two handles are equal if they refer to the same bytes of the same store.
+ */
+final class BlobDescription implements DescriptionSource {
+    private final BlobStore store;
+    private final BlobReference reference;
+    private volatile String description;
+
+    /**
+     * Constructs a {@code BlobDescription} for the description at the given reference.
+     *
+     * @param store     The store holding the description.
+     * @param reference The reference to the description, checked to lie within the blob file.
+     */
+    BlobDescription(BlobStore store, BlobReference reference) {
+        this.store = store;
+        this.reference = reference;
+    }
+
+    /**
+     * Retrieves the store holding the description.
+     *
+     * @return The blob store.
+     */
+    BlobStore getStore() {
+        return store;
+    }
+
+    /**
+     * Retrieves where the description is stored.
+     *
+     * @return The reference to the description.
+     */
+    BlobReference getReference() {
+        return reference;
+    }
+
+    /**
+     * Reads the description from the blob file on the first call, and returns the description read afterwards.
+     *
+     * @return The description.
+     * @throws wkduke.exception.storage.UncheckedFileContentException If the bytes no longer match the reference.
+     * @throws java.io.UncheckedIOException                           If the blob file cannot be read.
+     */
+    @Override
+    public String loadDescription() {
+        String loadedDescription = description;
+        if (loadedDescription == null) {
+            loadedDescription = store.read(reference);
+            description = loadedDescription;
+        }
+        return loadedDescription;
+    }
+
+    @Override
+    public int getDescriptionHashCode() {
+        return reference.hash();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BlobDescription blobDescription)) {
+            return false;
+        }
+        return store == blobDescription.store && reference.equals(blobDescription.reference);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(store), reference);
+    }
+}
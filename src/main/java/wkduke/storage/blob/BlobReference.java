@@ -0,0 +1,19 @@
+package wkduke.storage.blob;
+
+/**
+ * Refers to a description stored in a {@link BlobStore}.
+ *
+ * @param offset The offset of the description in the blob file.
+ * @param length The length of the description in bytes.
+ * @param hash   The hash code of the description, checked when the description is read.
+ */
+public record BlobReference(long offset, int length, int hash) {
+    /**
+     * Appends the encoded reference, {@code offset:length:hash}, as written in place of the description.
+     *
+     * @param buffer The buffer to append to.
+     */
+    public void appendTo(StringBuilder buffer) {
+        buffer.append(offset).append(':').append(length).append(':').append(hash);
+    }
+}
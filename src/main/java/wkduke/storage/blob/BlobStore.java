@@ -0,0 +1,236 @@
+package wkduke.storage.blob;
+
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.UncheckedFileContentException;
+import wkduke.task.DescriptionSource;
+import wkduke.task.Task;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Manages the append-only file that holds the long task descriptions of a text task file.
+ *
+ * <p>The blob file sits next to the task file as {@code tasks.txt.blobs} and is a plain sequence of UTF-8
+ * descriptions. A task line refers to its description with a lowercase type code and a {@link BlobReference} in
+ * place of the description, e.g. {@code t | L | 0 | 1024:5120:-1553218071} for the description of 5120 bytes at
+ * offset 1024 whose hash code is -1553218071. Descriptions are never overwritten, so a line keeps pointing at its
+ * description however often the task file is rewritten, and a crash between appending a description and writing
+ * its line only leaves unreferenced bytes behind.</p>
+ *
+ * <p>A decoded line only checks that its reference lies within the blob file, and the task gets a
+ * {@link BlobDescription} that reads the description the first time it is needed. A rewritten line refers to the
+ * bytes of such a task without reading them, and the store remembers where each description it has appended is
+ * stored, for as long as a task holds it, so that the description is never appended again. Appended descriptions
+ * are forced to disk by {@link #sync()}, which writers call before publishing a line that refers to them.</p>
+ */
+public class BlobStore implements Closeable {
+    public static final String BLOB_FILE_SUFFIX = ".blobs";
+    private static final char REFERENCE_SEPARATOR = ':';
+    private final Path blobPath;
+    private final Map<String, BlobReference> references = new WeakHashMap<>();
+    private FileChannel channel;
+    private boolean isSynced = true;
+
+    /**
+     * Constructs a {@code BlobStore} for the given task file. The blob file is only created once a description
+     * is appended.
+     *
+     * @param dataFilePath The task file whose descriptions are stored.
+     */
+    public BlobStore(Path dataFilePath) {
+        assert dataFilePath != null : "Precondition failed: 'dataFilePath' cannot be null";
+        blobPath = Path.of(dataFilePath + BLOB_FILE_SUFFIX);
+    }
+
+    /**
+     * Retrieves the path of the blob file.
+     *
+     * @return The path of the blob file.
+     */
+    public Path getBlobPath() {
+        return blobPath;
+    }
+
+    /**
+     * Appends a description to the end of the blob file, unless it is already stored there.
+     * The description is not forced to disk until the next {@link #sync()}.
+     *
+     * @param description The description to store.
+     * @return The reference to the stored description.
+     * @throws IOException If the blob file cannot be written.
+     */
+    public synchronized BlobReference append(String description) throws IOException {
+        assert description != null : "Precondition failed: 'description' cannot be null";
+        BlobReference reference = references.get(description);
+        if (reference != null) {
+            return reference;
+        }
+        FileChannel blobChannel = openChannel();
+        long offset = blobChannel.size();
+        ByteBuffer buffer = ByteBuffer.wrap(description.getBytes(StandardCharsets.UTF_8));
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            blobChannel.write(buffer, offset + buffer.position());
+        }
+        isSynced = false;
+        reference = new BlobReference(offset, length, description.hashCode());
+        references.put(description, reference);
+        return reference;
+    }
+
+    /**
+     * Retrieves where the description of a task is stored, if the task was decoded from a line referring to this
+     * store, or its description was appended to the blob file and a task still holds it. The description of a
+     * decoded task is not read.
+     *
+     * @param task The task.
+     * @return The reference to the stored description, or {@code null} if it is not known to be stored.
+     */
+    public BlobReference findReference(Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        if (task.getDescriptionSource() instanceof BlobDescription blobDescription
+                && blobDescription.getStore() == this) {
+            return blobDescription.getReference();
+        }
+        synchronized (this) {
+            return references.get(task.getDescription());
+        }
+    }
+
+    /**
+     * Forces the descriptions appended since the last call to disk, so that a line referring to them can be
+     * published.
+     *
+     * @throws IOException If the blob file cannot be forced.
+     */
+    public synchronized void sync() throws IOException {
+        if (!isSynced) {
+            channel.force(false);
+            isSynced = true;
+        }
+    }
+
+    /**
+     * Closes the blob file. It is opened again if the store is used afterwards.
+     *
+     * @throws IOException If the blob file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Creates the source of the description that a reference written in place of it refers to, without reading
+     * the description.
+     *
+     * @param encodedReference The encoded reference, {@code offset:length:hash}.
+     * @return The source of the description, which reads it when first asked.
+     * @throws FileContentException If the reference is malformed or points past the end of the blob file.
+     * @throws UncheckedIOException If the size of the blob file cannot be read.
+     */
+    public DescriptionSource openDescription(String encodedReference) throws FileContentException {
+        assert encodedReference != null : "Precondition failed: 'encodedReference' cannot be null";
+        return new BlobDescription(this, decodeReference(encodedReference));
+    }
+
+    /**
+     * Decodes a reference written in place of a description by {@link BlobReference#appendTo(StringBuilder)},
+     * checking that it lies within the blob file.
+     *
+     * @param encodedReference The encoded reference, {@code offset:length:hash}.
+     * @return The reference.
+     * @throws FileContentException If the reference is malformed or points past the end of the blob file.
+     */
+    private BlobReference decodeReference(String encodedReference) throws FileContentException {
+        assert encodedReference != null : "Precondition failed: 'encodedReference' cannot be null";
+        int lengthStart = encodedReference.indexOf(REFERENCE_SEPARATOR) + 1;
+        int hashStart = encodedReference.indexOf(REFERENCE_SEPARATOR, lengthStart) + 1;
+        try {
+            if (lengthStart == 0 || hashStart == 0) {
+                throw new NumberFormatException(encodedReference);
+            }
+            long offset = Long.parseLong(encodedReference, 0, lengthStart - 1, 10);
+            int length = Integer.parseInt(encodedReference, lengthStart, hashStart - 1, 10);
+            int hash = Integer.parseInt(encodedReference, hashStart, encodedReference.length(), 10);
+            if (offset < 0 || length < 0 || offset + length > openChannel().size()) {
+                throw invalidReference(encodedReference);
+            }
+            return new BlobReference(offset, length, hash);
+        } catch (NumberFormatException e) {
+            throw invalidReference(encodedReference);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("FilePath='%s'", blobPath), e);
+        }
+    }
+
+    /**
+     * Reads the description a reference points at, checking it against the recorded hash code.
+     *
+     * @param reference The reference to the description.
+     * @return The description.
+     * @throws UncheckedFileContentException If the description does not match the reference, e.g. because the blob
+     *                                       file was damaged after the line was decoded.
+     * @throws UncheckedIOException          If the blob file cannot be read.
+     */
+    String read(BlobReference reference) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(reference.length());
+            FileChannel blobChannel = openChannel();
+            while (buffer.hasRemaining()) {
+                if (blobChannel.read(buffer, reference.offset() + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            String description = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+            if (buffer.hasRemaining() || description.hashCode() != reference.hash()) {
+                StringBuilder encodedReference = new StringBuilder();
+                reference.appendTo(encodedReference);
+                throw new UncheckedFileContentException(invalidReference(encodedReference.toString()));
+            }
+            return description;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("FilePath='%s'", blobPath), e);
+        }
+    }
+
+    /**
+     * Opens the blob file on first use, creating it if needed. Reads and writes are positional only, so the
+     * channel is shared by every thread decoding or encoding tasks.
+     *
+     * @return The channel of the blob file.
+     * @throws IOException If the blob file cannot be opened.
+     */
+    private synchronized FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(blobPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    /**
+     * Creates the exception reported for a reference that does not point at a valid description.
+     *
+     * @param encodedReference The encoded reference.
+     * @return A {@code FileContentException} describing the reference.
+     */
+    private FileContentException invalidReference(String encodedReference) {
+        return new FileContentException(Messages.MESSAGE_INVALID_BLOB_REFERENCE,
+                String.format("FilePath='%s', Reference='%s'", blobPath, encodedReference),
+                Messages.MESSAGE_INVALID_BLOB_REFERENCE_HELP);
+    }
+}
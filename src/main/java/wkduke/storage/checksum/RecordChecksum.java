@@ -0,0 +1,142 @@
+package wkduke.storage.checksum;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes and checks the optional checksum suffix of a line in the text task file format.
+ *
+ * <p>A checksummed line ends with {@code " #"} and the CRC-32C of the rest of the line in eight lowercase hex
+ * digits, e.g. {@code T | L | 0 | Read book #1a2b3c4d}. The checksum covers the UTF-8 bytes of the line before the
+ * suffix, so a line can be checked straight from the file without decoding it. Lines without a suffix are still
+ * accepted, so files written before checksums were enabled stay readable.</p>
+ */
+public class RecordChecksum {
+    public static final int SUFFIX_LENGTH = 10;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int HEX_DIGIT_COUNT = 8;
+
+    /**
+     * Represents the outcome of checking the checksum suffix of a line.
+     */
+    public enum Status {
+        VALID, MISMATCH, ABSENT
+    }
+
+    /**
+     * Computes the CRC-32C of a range of bytes.
+     *
+     * @param bytes  The buffer holding the bytes.
+     * @param offset The offset of the first byte.
+     * @param length The number of bytes.
+     * @return The checksum, in the lower 32 bits.
+     */
+    public static int compute(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Appends the checksum suffix of the line built so far.
+     *
+     * @param line The encoded line, without a line terminator.
+     */
+    public static void appendChecksum(StringBuilder line) {
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        int checksum = compute(bytes, 0, bytes.length);
+        line.append(" #");
+        for (int shift = (HEX_DIGIT_COUNT - 1) * 4; shift >= 0; shift -= 4) {
+            line.append(HEX_DIGITS[(checksum >>> shift) & 0xf]);
+        }
+    }
+
+    /**
+     * Checks the checksum suffix of a line read from the file.
+     *
+     * @param line   The buffer holding the line, without its line terminator.
+     * @param length The number of bytes of the buffer that belong to the line.
+     * @return Whether the line has a suffix, and if so whether it matches the content.
+     */
+    public static Status check(byte[] line, int length) {
+        if (length < SUFFIX_LENGTH || line[length - SUFFIX_LENGTH] != ' ' || line[length - SUFFIX_LENGTH + 1] != '#') {
+            return Status.ABSENT;
+        }
+        long expected = 0;
+        for (int i = length - HEX_DIGIT_COUNT; i < length; i++) {
+            int digit = hexValue(line[i]);
+            if (digit < 0) {
+                return Status.ABSENT;
+            }
+            expected = (expected << 4) | digit;
+        }
+        return compute(line, 0, length - SUFFIX_LENGTH) == (int) expected ? Status.VALID : Status.MISMATCH;
+    }
+
+    /**
+     * Checks the checksum suffix of a decoded line.
+     *
+     * @param line The line, without its line terminator.
+     * @return Whether the line has a suffix, and if so whether it matches the content.
+     */
+    public static Status check(String line) {
+        if (!hasSuffixShape(line)) {
+            return Status.ABSENT;
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return check(bytes, bytes.length);
+    }
+
+    /**
+     * Removes the checksum suffix of a line if it matches the content.
+     * A line without a suffix, or with one that does not match, is returned unchanged.
+     *
+     * @param line The line, without its line terminator.
+     * @return The line without a valid checksum suffix.
+     */
+    public static String stripValidChecksum(String line) {
+        if (!hasSuffixShape(line) || check(line) != Status.VALID) {
+            return line;
+        }
+        return line.substring(0, line.length() - SUFFIX_LENGTH);
+    }
+
+    /**
+     * Checks whether a line ends with something shaped like a checksum suffix.
+     * This is checked on the characters first, so that plain lines are not converted to bytes.
+     *
+     * @param line The line to check.
+     * @return {@code true} if the line ends with {@code " #"} and eight lowercase hex digits.
+     */
+    private static boolean hasSuffixShape(String line) {
+        int length = line.length();
+        if (length < SUFFIX_LENGTH || line.charAt(length - SUFFIX_LENGTH) != ' '
+                || line.charAt(length - SUFFIX_LENGTH + 1) != '#') {
+            return false;
+        }
+        for (int i = length - HEX_DIGIT_COUNT; i < length; i++) {
+            char c = line.charAt(i);
+            if (c > 0x7f || hexValue((byte) c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts a lowercase hex digit to its value.
+     *
+     * @param b The digit.
+     * @return The value of the digit, or {@code -1} if it is not a lowercase hex digit.
+     */
+    private static int hexValue(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        return -1;
+    }
+}
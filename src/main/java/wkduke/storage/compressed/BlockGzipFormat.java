@@ -0,0 +1,241 @@
+package wkduke.storage.compressed;
+
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Describes the compressed task file format ({@code .txt.gz}): the text format split into blocks of whole lines,
+ * each compressed on its own as a gzip member.
+ *
+ * <p>Concatenated gzip members are a valid gzip file, so {@code zcat tasks.txt.gz} prints the same lines as a
+ * {@code .txt} file. Every member carries its total size in a gzip extra field, so the blocks can be located by
+ * hopping from header to header and decompressed independently, e.g. in parallel:</p>
+ * <pre>
+ *     header    1f 8b 08 04, mtime 0, xfl 0, os ff      10 bytes
+ *     extra     xlen 8, 'W' 'K', len 4, member size      10 bytes, little-endian
+ *     data      raw deflate stream of whole lines
+ *     trailer   CRC-32 and size of the uncompressed lines  8 bytes, little-endian
+ * </pre>
+ * <p>An empty file is a valid, empty task list.</p>
+ */
+public class BlockGzipFormat {
+    public static final int BLOCK_SIZE = 64 * 1024;
+    public static final int HEADER_LENGTH = 20;
+    public static final int TRAILER_LENGTH = 8;
+
+    private static final byte[] HEADER_PREFIX = {
+        (byte) 0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff, 8, 0, 'W', 'K', 4, 0
+    };
+    private static final int MEMBER_SIZE_OFFSET = HEADER_PREFIX.length;
+    // Deflate cannot compress by more than this ratio, so a longer uncompressed size cannot be genuine
+    private static final long MAX_DEFLATE_RATIO = 1032;
+
+    /**
+     * Compresses one block of whole lines and writes it as a gzip member.
+     *
+     * @param out      The stream to write to.
+     * @param block    The buffer holding the uncompressed lines.
+     * @param length   The number of bytes of the buffer to compress.
+     * @param deflater The deflater to compress with, created with {@code nowrap} set. It is reset before use.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void writeBlock(OutputStream out, byte[] block, int length, Deflater deflater) throws IOException {
+        deflater.reset();
+        deflater.setInput(block, 0, length);
+        deflater.finish();
+        byte[] compressed = new byte[HEADER_LENGTH + length + length / 8 + 64];
+        int compressedLength = HEADER_LENGTH;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(block, 0, length);
+
+        ByteBuffer header = ByteBuffer.wrap(compressed, 0, HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(HEADER_PREFIX).putInt(compressedLength + TRAILER_LENGTH);
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        trailer.putInt((int) crc.getValue()).putInt(length);
+        out.write(compressed, 0, compressedLength);
+        out.write(trailer.array());
+    }
+
+    /**
+     * Retrieves the offset of every block by reading only the block headers.
+     *
+     * @param channel  The channel of the compressed file.
+     * @param filePath The path of the file, reported if it is invalid.
+     * @return The ascending offsets of the blocks, one per block.
+     * @throws FileContentException If a block header is invalid.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static long[] blockStarts(FileChannel channel, Path filePath) throws FileContentException, IOException {
+        long fileSize = channel.size();
+        long[] blockStarts = new long[16];
+        int blockCount = 0;
+        for (long position = 0; position < fileSize; position += readMemberSize(channel, position, filePath)) {
+            if (blockCount == blockStarts.length) {
+                blockStarts = Arrays.copyOf(blockStarts, blockCount * 2);
+            }
+            blockStarts[blockCount++] = position;
+        }
+        return Arrays.copyOf(blockStarts, blockCount);
+    }
+
+    /**
+     * Retrieves the length of the leading run of complete blocks, by reading only the block headers.
+     * Anything past it is a block torn by an interrupted append, which can be cut off before appending again.
+     *
+     * @param channel  The channel of the compressed file.
+     * @param filePath The path of the file.
+     * @return The offset just past the last complete block.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long completeLength(FileChannel channel, Path filePath) throws IOException {
+        long fileSize = channel.size();
+        long position = 0;
+        try {
+            while (position < fileSize) {
+                position += readMemberSize(channel, position, filePath);
+            }
+        } catch (FileContentException e) {
+            // The block at this position is incomplete
+        }
+        return position;
+    }
+
+    /**
+     * Reads and decompresses the block starting at the given offset, checking its CRC-32.
+     * The channel is only read with positional reads, so it may be shared between threads.
+     * The uncompressed size in the trailer is not trusted before the CRC-32 is checked: it must be one the
+     * compressed data could produce, and the output buffer only grows past a block as the data inflates into it.
+     *
+     * @param channel    The channel of the compressed file.
+     * @param blockStart The offset of the block.
+     * @param filePath   The path of the file, reported if it is invalid.
+     * @return The uncompressed lines of the block.
+     * @throws FileContentException If the block is corrupt.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static byte[] readBlock(FileChannel channel, long blockStart, Path filePath)
+            throws FileContentException, IOException {
+        int memberSize = readMemberSize(channel, blockStart, filePath);
+        ByteBuffer member = ByteBuffer.allocate(memberSize).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, member, blockStart, filePath);
+        int expectedCrc = member.getInt(memberSize - TRAILER_LENGTH);
+        int uncompressedLength = member.getInt(memberSize - TRAILER_LENGTH + 4);
+        int compressedLength = memberSize - HEADER_LENGTH - TRAILER_LENGTH;
+        if (uncompressedLength < 0
+                || uncompressedLength > Math.max(BLOCK_SIZE, compressedLength * MAX_DEFLATE_RATIO)) {
+            throw invalidBlock(filePath, blockStart);
+        }
+
+        byte[] block = new byte[Math.min(uncompressedLength, BLOCK_SIZE)];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member.array(), HEADER_LENGTH, compressedLength);
+            int inflated = 0;
+            while (inflated < uncompressedLength && !inflater.finished()) {
+                if (inflated == block.length) {
+                    block = Arrays.copyOf(block, (int) Math.min(uncompressedLength, block.length * 2L));
+                }
+                int count = inflater.inflate(block, inflated, block.length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != uncompressedLength) {
+                throw invalidBlock(filePath, blockStart);
+            }
+        } catch (DataFormatException e) {
+            throw invalidBlock(filePath, blockStart);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(block);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw invalidBlock(filePath, blockStart);
+        }
+        return block;
+    }
+
+    /**
+     * Reads the header of the block at the given offset and retrieves the total size of its gzip member.
+     *
+     * @param channel    The channel of the compressed file.
+     * @param blockStart The offset of the block.
+     * @param filePath   The path of the file, reported if it is invalid.
+     * @return The size of the member, including its header and trailer.
+     * @throws FileContentException If the header is not a block header or the member overruns the file.
+     * @throws IOException          If the file cannot be read.
+     */
+    private static int readMemberSize(FileChannel channel, long blockStart, Path filePath)
+            throws FileContentException, IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, blockStart, filePath);
+        for (int i = 0; i < HEADER_PREFIX.length; i++) {
+            if (i >= 4 && i < 10) {
+                continue; // mtime, xfl and os are informational only
+            }
+            if (header.get(i) != HEADER_PREFIX[i]) {
+                throw invalidBlock(filePath, blockStart);
+            }
+        }
+        int memberSize = header.getInt(MEMBER_SIZE_OFFSET);
+        if (memberSize < HEADER_LENGTH + TRAILER_LENGTH || blockStart + memberSize > channel.size()) {
+            throw invalidBlock(filePath, blockStart);
+        }
+        return memberSize;
+    }
+
+    /**
+     * Fills a buffer from the channel, starting at the given offset.
+     *
+     * @param channel  The channel to read.
+     * @param buffer   The buffer to fill.
+     * @param position The offset to read from.
+     * @param filePath The path of the file, reported if it ends early.
+     * @throws FileContentException If the file ends before the buffer is full.
+     * @throws IOException          If the file cannot be read.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path filePath)
+            throws FileContentException, IOException {
+        long blockStart = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw invalidBlock(filePath, blockStart);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Creates the exception reported for a corrupt block.
+     *
+     * @param filePath   The path of the compressed file.
+     * @param blockStart The offset of the block.
+     * @return A {@code FileContentException} describing the block.
+     */
+    private static FileContentException invalidBlock(Path filePath, long blockStart) {
+        return new FileContentException(Messages.MESSAGE_INVALID_COMPRESSED_BLOCK,
+                String.format("FilePath='%s', Offset=%d", filePath, blockStart),
+                Messages.MESSAGE_INVALID_COMPRESSED_BLOCK_HELP);
+    }
+}
@@ -0,0 +1,252 @@
+package wkduke.storage.decoder;
+
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.binary.BinaryFormat;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Decodes a file in the compact binary task file format described by {@link BinaryFormat} into a {@code TaskList}.
+ * The file is streamed record by record, so only the decoded tasks are held in memory.
+ */
+public class BinaryTaskListDecoder {
+    private static final TaskPriority[] PRIORITIES = TaskPriority.values();
+    private static final int RECORD_READ_SIZE = 256;
+
+    /**
+     * Decodes a binary task file into a {@code TaskList}.
+     * An empty file decodes to an empty {@code TaskList}.
+     *
+     * @param filePath The task file to decode.
+     * @return A {@code TaskList} containing the decoded tasks.
+     * @throws FileContentException If the header or a record is invalid, or a task is duplicated.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static TaskList decodeTaskList(Path filePath) throws FileContentException, IOException {
+        long fileSize = Files.size(filePath);
+        TaskList taskList = new TaskList();
+        if (fileSize == 0) {
+            return taskList;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(filePath)))) {
+            readHeader(in, filePath);
+            int record = 0;
+            while (true) {
+                int flags = in.read();
+                if (flags < 0) {
+                    break;
+                }
+                record++;
+                String detail = String.format("FilePath='%s', Record=%d", filePath, record);
+                try {
+                    TaskListDecoder.addTask(taskList, decodeTask(flags, in, fileSize), detail);
+                } catch (EOFException | IllegalArgumentException | DateTimeException | ArithmeticException e) {
+                    throw new FileContentException(Messages.MESSAGE_INVALID_BINARY_RECORD, detail);
+                }
+            }
+        }
+        return taskList;
+    }
+
+    /**
+     * Decodes the single record starting at the given offset of a binary task file, e.g. one found through an
+     * index. The channel is read from its position, which is left just past the record.
+     *
+     * @param channel     The channel of the task file.
+     * @param recordStart The offset of the record.
+     * @param filePath    The task file, for error reporting.
+     * @return The decoded task.
+     * @throws FileContentException If the record is invalid.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static Task decodeRecord(FileChannel channel, long recordStart, Path filePath)
+            throws FileContentException, IOException {
+        String detail = String.format("FilePath='%s', Offset=%d", filePath, recordStart);
+        // The stream is not closed, since closing it would close the shared channel
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(recordStart)), RECORD_READ_SIZE));
+        try {
+            int flags = in.read();
+            if (flags < 0) {
+                throw new EOFException();
+            }
+            return decodeTask(flags, in, channel.size());
+        } catch (EOFException | IllegalArgumentException | DateTimeException | ArithmeticException e) {
+            throw new FileContentException(Messages.MESSAGE_INVALID_BINARY_RECORD, detail);
+        }
+    }
+
+    /**
+     * Retrieves the offset of every record in a binary task file, skipping over the record contents.
+     * The file is expected to have been decoded successfully already.
+     *
+     * @param filePath The task file to read.
+     * @return The ascending offsets of the records, one per task.
+     * @throws IOException If the file cannot be read or a record is malformed.
+     */
+    public static long[] recordStarts(Path filePath) throws IOException {
+        if (Files.size(filePath) == 0) {
+            return new long[0];
+        }
+        long[] recordStarts = new long[16];
+        int recordCount = 0;
+        try (CountingInputStream counter = new CountingInputStream(
+                new BufferedInputStream(Files.newInputStream(filePath)));
+             DataInputStream in = new DataInputStream(counter)) {
+            in.skipNBytes(BinaryFormat.HEADER_LENGTH);
+            while (true) {
+                long recordStart = counter.getCount();
+                int flags = in.read();
+                if (flags < 0) {
+                    break;
+                }
+                if (recordCount == recordStarts.length) {
+                    recordStarts = Arrays.copyOf(recordStarts, recordCount * 2);
+                }
+                recordStarts[recordCount++] = recordStart;
+                in.skipNBytes(BinaryFormat.readVarLong(in));
+                int dateCount = switch (flags & BinaryFormat.TYPE_MASK) {
+                    case BinaryFormat.TYPE_DEADLINE -> 1;
+                    case BinaryFormat.TYPE_EVENT -> 2;
+                    default -> 0;
+                };
+                for (int i = 0; i < dateCount; i++) {
+                    BinaryFormat.readVarLong(in);
+                }
+            }
+        }
+        return Arrays.copyOf(recordStarts, recordCount);
+    }
+
+    /**
+     * Counts the bytes read through it, so that record offsets can be tracked behind a buffered stream.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        /**
+         * Constructs a {@code CountingInputStream} reading from the given stream.
+         *
+         * @param in The stream to read from.
+         */
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        /**
+         * Retrieves the number of bytes read or skipped so far.
+         *
+         * @return The number of bytes consumed.
+         */
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Reads and validates the file header.
+     *
+     * @param in       The input positioned at the start of the file.
+     * @param filePath The file being decoded, for error reporting.
+     * @throws FileContentException If the magic bytes or the version are not recognised.
+     * @throws IOException          If the file cannot be read.
+     */
+    private static void readHeader(DataInputStream in, Path filePath) throws FileContentException, IOException {
+        byte[] header = new byte[BinaryFormat.HEADER_LENGTH];
+        int read = in.readNBytes(header, 0, header.length);
+        boolean isValid = read == header.length
+                && Arrays.equals(header, 0, BinaryFormat.MAGIC.length, BinaryFormat.MAGIC, 0, BinaryFormat.MAGIC.length)
+                && header[BinaryFormat.MAGIC.length] == BinaryFormat.VERSION;
+        if (!isValid) {
+            throw new FileContentException(Messages.MESSAGE_INVALID_BINARY_HEADER,
+                    String.format("FilePath='%s'", filePath), Messages.MESSAGE_INVALID_BINARY_HEADER_HELP);
+        }
+    }
+
+    /**
+     * Decodes the remainder of a record whose flags byte has already been read.
+     *
+     * @param flags    The flags byte of the record.
+     * @param in       The input positioned just after the flags byte.
+     * @param fileSize The size of the file, bounding the description length.
+     * @return The decoded task.
+     * @throws IOException              If the record is truncated.
+     * @throws IllegalArgumentException If the record holds values outside the format.
+     */
+    private static Task decodeTask(int flags, DataInputStream in, long fileSize) throws IOException {
+        int type = flags & BinaryFormat.TYPE_MASK;
+        int priority = (flags & BinaryFormat.PRIORITY_MASK) >>> BinaryFormat.PRIORITY_SHIFT;
+        if ((flags & BinaryFormat.RESERVED_MASK) != 0 || priority >= PRIORITIES.length) {
+            throw new IllegalArgumentException("Invalid flags: " + flags);
+        }
+        boolean isDone = (flags & BinaryFormat.DONE_FLAG) != 0;
+
+        long descriptionLength = BinaryFormat.readVarLong(in);
+        if (descriptionLength <= 0 || descriptionLength > fileSize) {
+            throw new IllegalArgumentException("Invalid description length: " + descriptionLength);
+        }
+        byte[] descriptionBytes = new byte[(int) descriptionLength];
+        in.readFully(descriptionBytes);
+        String description = new String(descriptionBytes, StandardCharsets.UTF_8);
+
+        return switch (type) {
+            case BinaryFormat.TYPE_TODO -> new Todo(description, isDone, PRIORITIES[priority]);
+            case BinaryFormat.TYPE_DEADLINE -> {
+                LocalDateTime by = BinaryFormat.fromEpochMinute(BinaryFormat.readSignedVarLong(in));
+                yield new Deadline(description, by, isDone, PRIORITIES[priority]);
+            }
+            case BinaryFormat.TYPE_EVENT -> {
+                long from = BinaryFormat.readSignedVarLong(in);
+                long to = Math.addExact(from, BinaryFormat.readSignedVarLong(in));
+                yield new Event(description, BinaryFormat.fromEpochMinute(from), BinaryFormat.fromEpochMinute(to),
+                        isDone, PRIORITIES[priority]);
+            }
+            default -> throw new IllegalArgumentException("Invalid task type: " + type);
+        };
+    }
+}
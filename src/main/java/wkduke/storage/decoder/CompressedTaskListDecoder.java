@@ -0,0 +1,218 @@
+package wkduke.storage.decoder;
+
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.compressed.BlockGzipFormat;
+import wkduke.storage.encoder.TaskEncoder;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import static wkduke.common.Messages.MESSAGE_DUPLICATE_TASK_IN_FILE;
+import static wkduke.common.Messages.MESSAGE_DUPLICATE_TASK_IN_FILE_HELP;
+
+/**
+ * Decodes a file in the compressed task file format described by {@link BlockGzipFormat} into a {@code TaskList}.
+ *
+ * <p>Blocks are decompressed one at a time, so only one block of lines is held in memory besides the decoded
+ * tasks. Files above a size threshold are decoded in parallel on the common {@link ForkJoinPool}, a run of blocks
+ * per fork, and merged in file order so that the result and the reported errors match a sequential decode.</p>
+ */
+public class CompressedTaskListDecoder {
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    /**
+     * The outcome of decoding a run of blocks: the tasks decoded before the first invalid block or line, if any.
+     *
+     * @param tasks The tasks decoded from the blocks, in order.
+     * @param error The error raised by the first invalid block or line, or {@code null} if all were decoded.
+     */
+    private record ChunkResult(List<Task> tasks, FileContentException error) {
+    }
+
+    /**
+     * Decodes the blocks in one range of a compressed task file.
+     */
+    private static class DecodeBlocksTask extends RecursiveTask<ChunkResult> {
+        private final FileChannel channel;
+        private final Path filePath;
+        private final long[] blockStarts;
+        private final int start;
+        private final int end;
+
+        /**
+         * Constructs a {@code DecodeBlocksTask} for the blocks in {@code [start, end)}.
+         *
+         * @param channel     The channel of the compressed file, read with positional reads only.
+         * @param filePath    The path of the compressed file.
+         * @param blockStarts The offsets of all blocks in the file.
+         * @param start       The index of the first block to decode.
+         * @param end         The index just past the last block to decode.
+         */
+        DecodeBlocksTask(FileChannel channel, Path filePath, long[] blockStarts, int start, int end) {
+            this.channel = channel;
+            this.filePath = filePath;
+            this.blockStarts = blockStarts;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            List<Task> tasks = new ArrayList<>();
+            try {
+                for (int i = start; i < end; i++) {
+                    decodeBlock(BlockGzipFormat.readBlock(channel, blockStarts[i], filePath), tasks);
+                }
+                return new ChunkResult(tasks, null);
+            } catch (FileContentException e) {
+                return new ChunkResult(tasks, e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Decodes a compressed task file into a {@code TaskList}, one block at a time.
+     *
+     * @param filePath The task file to decode.
+     * @return A {@code TaskList} containing the decoded tasks.
+     * @throws FileContentException If a block is corrupt, or a task is invalid or duplicated.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static TaskList decodeTaskList(Path filePath) throws FileContentException, IOException {
+        return decodeTaskList(filePath, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodes a compressed task file one block at a time and passes each task to the handler, without collecting
+     * the tasks. Duplicates are not checked, so the file may also be an append-only log of tasks.
+     *
+     * @param filePath The task file to decode.
+     * @param handler  The handler invoked for each task, in file order.
+     * @throws FileContentException If a block is corrupt or a task is invalid.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static void forEachTask(Path filePath, Consumer<Task> handler) throws FileContentException, IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            List<Task> blockTasks = new ArrayList<>();
+            for (long blockStart : BlockGzipFormat.blockStarts(channel, filePath)) {
+                blockTasks.clear();
+                decodeBlock(BlockGzipFormat.readBlock(channel, blockStart, filePath), blockTasks);
+                blockTasks.forEach(handler);
+            }
+        }
+    }
+
+    /**
+     * Decodes a compressed task file into a {@code TaskList}, decompressing and decoding runs of blocks in
+     * parallel if the file is larger than the given threshold.
+     *
+     * @param filePath          The task file to decode.
+     * @param parallelThreshold The compressed file size, in bytes, above which the file is decoded in parallel.
+     * @return A {@code TaskList} containing the decoded tasks, in file order.
+     * @throws FileContentException If a block is corrupt, or a task is invalid or duplicated.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static TaskList decodeTaskList(Path filePath, long parallelThreshold)
+            throws FileContentException, IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long[] blockStarts = BlockGzipFormat.blockStarts(channel, filePath);
+            int parallelism = ForkJoinPool.getCommonPoolParallelism();
+            if (channel.size() <= parallelThreshold || parallelism < 2 || blockStarts.length < 2) {
+                TaskList taskList = new TaskList();
+                List<Task> blockTasks = new ArrayList<>();
+                for (long blockStart : blockStarts) {
+                    blockTasks.clear();
+                    decodeBlock(BlockGzipFormat.readBlock(channel, blockStart, filePath), blockTasks);
+                    addTasks(taskList, blockTasks);
+                }
+                return taskList;
+            }
+
+            int chunkCount = Math.min(parallelism * BLOCKS_PER_THREAD, blockStarts.length);
+            List<DecodeBlocksTask> chunkTasks = new ArrayList<>();
+            for (int i = 0; i < chunkCount; i++) {
+                DecodeBlocksTask chunkTask = new DecodeBlocksTask(channel, filePath, blockStarts,
+                        blockStarts.length * i / chunkCount, blockStarts.length * (i + 1) / chunkCount);
+                chunkTask.fork(); // Forking from outside the pool submits the chunk to the common pool
+                chunkTasks.add(chunkTask);
+            }
+
+            // Merging in file order reports the same first error, invalid line or duplicate, as a sequential decode
+            TaskList taskList = new TaskList();
+            try {
+                for (DecodeBlocksTask chunkTask : chunkTasks) {
+                    ChunkResult result = chunkTask.join();
+                    addTasks(taskList, result.tasks());
+                    if (result.error() != null) {
+                        throw result.error();
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                // The chunks share the channel, so none may still be reading once it is closed
+                chunkTasks.forEach(chunkTask -> chunkTask.cancel(false));
+                chunkTasks.forEach(chunkTask -> chunkTask.quietlyJoin());
+            }
+            return taskList;
+        }
+    }
+
+    /**
+     * Appends decoded tasks to the tasks decoded so far, rejecting duplicates.
+     * The encoded task is only rebuilt on this error path, so blocks do not need to keep their lines.
+     *
+     * @param taskList The tasks decoded so far.
+     * @param tasks    The decoded tasks to append.
+     * @throws FileContentException If a task duplicates an earlier task.
+     */
+    private static void addTasks(TaskList taskList, List<Task> tasks) throws FileContentException {
+        for (Task task : tasks) {
+            if (taskList.contains(task)) {
+                throw new FileContentException(MESSAGE_DUPLICATE_TASK_IN_FILE,
+                        String.format("EncodedTask='%s'", TaskEncoder.encodeTask(task)),
+                        MESSAGE_DUPLICATE_TASK_IN_FILE_HELP);
+            }
+            taskList.addTask(task);
+        }
+    }
+
+    /**
+     * Decodes the lines of a decompressed block, splitting them as {@link TaskFileReader} does.
+     *
+     * @param block The uncompressed lines of the block.
+     * @param tasks The list to append the decoded tasks to.
+     * @throws FileContentException If a line is not a valid encoded task.
+     */
+    private static void decodeBlock(byte[] block, List<Task> tasks) throws FileContentException {
+        int lineStart = 0;
+        for (int i = 0; i < block.length; i++) {
+            byte b = block[i];
+            if (b != '\n' && b != '\r') {
+                continue;
+            }
+            tasks.add(TaskDecoder.decodeTask(new String(block, lineStart, i - lineStart, StandardCharsets.UTF_8)));
+            if (b == '\r' && i + 1 < block.length && block[i + 1] == '\n') {
+                i++; // Second half of a "\r\n" terminator
+            }
+            lineStart = i + 1;
+        }
+        if (lineStart < block.length) {
+            tasks.add(TaskDecoder.decodeTask(
+                    new String(block, lineStart, block.length - lineStart, StandardCharsets.UTF_8)));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package wkduke.storage.decoder;
+
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.UncheckedFileContentException;
+import wkduke.storage.blob.BlobStore;
+import wkduke.storage.encoder.TaskEncoder;
+import wkduke.storage.format.FormatHeader;
+import wkduke.task.Task;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import static wkduke.common.Messages.MESSAGE_DUPLICATE_TASK_IN_FILE;
+import static wkduke.common.Messages.MESSAGE_DUPLICATE_TASK_IN_FILE_HELP;
+
+/**
+ * A list of tasks backed by a task file, where each task is decoded from its line on first access.
+ * Loading only records where each line starts, so it costs a scan of the bytes rather than a decode of every task.
+ *
+ * <p>Lines are not validated until they are decoded: an invalid line surfaces as an
+ * {@link UncheckedFileContentException} from the access that decodes it, and duplicates are not detected
+ * until {@link #decodeAll()} validates the whole list, as eager decoding does at load time. The file is kept
+ * open until every task has been decoded, and must not be rewritten in place before that.</p>
+ */
+public class LazyTaskList extends AbstractList<Task> implements RandomAccess {
+    private static final int MIN_CAPACITY = 16;
+    private static final long NO_LINE = -1;
+    private final Path filePath;
+    private final boolean isChecksummed;
+    private final BlobStore blobStore;
+    private FileChannel channel;
+    private long[] lineStarts;
+    private Task[] tasks;
+    private int size;
+    private int undecodedCount;
+    private boolean isValidated;
+
+    /**
+     * Constructs a {@code LazyTaskList} over the lines of the given task file.
+     *
+     * @param filePath The task file to decode from.
+     * @throws IOException If the file cannot be read.
+     */
+    public LazyTaskList(Path filePath) throws IOException {
+        this(filePath, false, null);
+    }
+
+    /**
+     * Constructs a {@code LazyTaskList} over the lines of the given task file, resolving the descriptions stored
+     * out of line in the given blob store. The lines of a checksummed file are checked as they are decoded.
+     *
+     * @param filePath      The task file to decode from.
+     * @param isChecksummed {@code true} if the lines are written with a checksum suffix.
+     * @param blobStore     The blob store of the task file, or {@code null} if it has none.
+     * @throws IOException If the file cannot be read.
+     */
+    public LazyTaskList(Path filePath, boolean isChecksummed, BlobStore blobStore) throws IOException {
+        assert filePath != null : "Precondition failed: 'filePath' cannot be null";
+        this.filePath = filePath;
+        this.isChecksummed = isChecksummed;
+        this.blobStore = blobStore;
+        lineStarts = TaskFileReader.lineStarts(filePath, FormatHeader.findRecordsStart(filePath));
+        size = lineStarts.length;
+        undecodedCount = size;
+        tasks = new Task[size];
+        if (undecodedCount > 0) {
+            channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        }
+    }
+
+    /**
+     * Decodes every task not decoded yet and checks the list for duplicates, reporting the first invalid line or
+     * duplicate task. The check is repeated on every call until it passes.
+     *
+     * @throws FileContentException If a line is not a valid encoded task, or the list holds a duplicate task.
+     */
+    public void decodeAll() throws FileContentException {
+        if (isValidated) {
+            return;
+        }
+        try {
+            for (int i = 0; i < size && undecodedCount > 0; i++) {
+                get(i);
+            }
+        } catch (UncheckedFileContentException e) {
+            throw e.getCause();
+        }
+        Set<Task> seenTasks = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            if (!seenTasks.add(tasks[i])) {
+                throw new FileContentException(MESSAGE_DUPLICATE_TASK_IN_FILE,
+                        String.format("EncodedTask='%s'", TaskEncoder.encodeTask(tasks[i])),
+                        MESSAGE_DUPLICATE_TASK_IN_FILE_HELP);
+            }
+        }
+        isValidated = true;
+    }
+
+    /**
+     * Checks whether {@link #decodeAll()} has decoded every task and found no duplicates.
+     *
+     * @return {@code true} if the list is known to be valid; {@code false} otherwise.
+     */
+    public boolean isValidated() {
+        return isValidated;
+    }
+
+    /**
+     * Checks whether every task has been decoded, so that the file is no longer needed.
+     *
+     * @return {@code true} if no task is left to decode; {@code false} otherwise.
+     */
+    public boolean isFullyDecoded() {
+        return undecodedCount == 0;
+    }
+
+    /**
+     * Retrieves the tasks that are already decoded or whose lines start at one of the given offsets, decoding only
+     * the latter. This lets a query that found the matching records through an index skip every other line.
+     *
+     * @param lineStarts The ascending offsets of the lines to include, as recorded in the file at load time.
+     * @return The selected tasks, in list order.
+     */
+    public List<Task> getTasksAtLineStarts(long[] lineStarts) {
+        assert lineStarts != null : "Precondition failed: 'lineStarts' cannot be null";
+        List<Task> selectedTasks = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (tasks[i] != null || Arrays.binarySearch(lineStarts, this.lineStarts[i]) >= 0) {
+                selectedTasks.add(get(i));
+            }
+        }
+        return selectedTasks;
+    }
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        Task task = tasks[index];
+        if (task == null) {
+            task = decode(lineStarts[index]);
+            tasks[index] = task;
+            undecodedCount--;
+            if (undecodedCount == 0) {
+                closeChannel();
+            }
+        }
+        return task;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        Task previous = get(index);
+        tasks[index] = task;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        Objects.checkIndex(index, size + 1);
+        if (size == tasks.length) {
+            int capacity = Math.max(MIN_CAPACITY, size * 2);
+            tasks = Arrays.copyOf(tasks, capacity);
+            lineStarts = Arrays.copyOf(lineStarts, capacity);
+        }
+        System.arraycopy(tasks, index, tasks, index + 1, size - index);
+        System.arraycopy(lineStarts, index, lineStarts, index + 1, size - index);
+        tasks[index] = task;
+        lineStarts[index] = NO_LINE;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        System.arraycopy(tasks, index + 1, tasks, index, size - index - 1);
+        System.arraycopy(lineStarts, index + 1, lineStarts, index, size - index - 1);
+        size--;
+        tasks[size] = null;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Decodes the task on the line starting at the given offset.
+     *
+     * @param lineStart The offset of the line.
+     * @return The decoded task.
+     * @throws UncheckedFileContentException If the line does not match its checksum or is not a valid encoded task.
+     * @throws UncheckedIOException          If the file cannot be read.
+     */
+    private Task decode(long lineStart) {
+        assert lineStart != NO_LINE : "Precondition failed: tasks added after loading are never undecoded";
+        try {
+            return TaskDecoder.decodeLine(TaskFileReader.readLine(channel, lineStart), isChecksummed, blobStore);
+        } catch (FileContentException e) {
+            throw new UncheckedFileContentException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("FilePath='%s'", filePath), e);
+        }
+    }
+
+    /**
+     * Closes the file once no task is left to decode from it.
+     */
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing is read from the file any more, so failing to release it is harmless
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,605 @@
+package wkduke.storage.decoder;
+
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.UncheckedFileContentException;
+import wkduke.storage.binary.BinaryFormat;
+import wkduke.storage.blob.BlobStore;
+import wkduke.storage.encoder.BinaryTaskListEncoder;
+import wkduke.storage.encoder.TaskEncoder;
+import wkduke.storage.format.FormatHeader;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.SelfIndexedTasks;
+import wkduke.task.Task;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import static wkduke.common.Messages.MESSAGE_DUPLICATE_TASK_IN_FILE;
+import static wkduke.common.Messages.MESSAGE_DUPLICATE_TASK_IN_FILE_HELP;
+
+/**
+ * A list of tasks backed by a text task file that keeps only a bounded set of decoded tasks on the heap.
+ *
+ * <p>Loading decodes and validates every line once, but only keeps a compact index entry of about 30 bytes per
+ * task: the offset of its line, its type, priority and done flags as in the binary format, its dates in epoch
+ * minutes and its hash code. A task is decoded again from its line when it is accessed, and held in a least
+ * recently used cache whose estimated size is kept within the heap budget. Lookups such as
+ * {@link #indexOf(Object)} and {@link #getTasksPossiblyOn(LocalDateTime)} scan the index and only decode the tasks
+ * that can match.</p>
+ *
+ * <p>Changes must not be lost by evicting a task, so a cached task whose status or priority no longer matches its
+ * line is pinned instead, as are tasks added or replaced since the file was written. Pinned tasks do not count
+ * towards the budget and stay on the heap until {@link #markPersisted(int, long)} or {@link #rebase(Path, long[])}
+ * reports that their lines are written. An evicted task is still returned as the same instance while a caller holds
+ * on to it, so a change made through an older reference is not lost either.</p>
+ *
+ * <p>The file is kept open and must only be appended to or patched in place. A full rewrite must be written to
+ * another file that replaces it, followed by {@link #rebase(Path, long[])}.</p>
+ */
+public class PagedTaskList extends AbstractList<Task> implements RandomAccess, SelfIndexedTasks {
+    private static final int MIN_CAPACITY = 16;
+    private static final long TASK_OVERHEAD_BYTES = 256;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private final long heapBudget;
+    private final boolean isChecksummed;
+    private final BlobStore blobStore;
+    private final LinkedHashMap<Long, Page> pages = new LinkedHashMap<>(MIN_CAPACITY, 0.75f, true);
+    private final Map<Long, Task> pinnedTasks = new HashMap<>();
+    private final Map<Long, EvictedTask> evictedTasks = new HashMap<>();
+    private final ReferenceQueue<Task> evictedQueue = new ReferenceQueue<>();
+    private Path filePath;
+    private FileChannel channel;
+    private long[] keys;
+    private byte[] flags;
+    private long[] dateStarts;
+    private long[] dateEnds;
+    private int[] hashes;
+    private int size;
+    private long nextUnbackedKey = -1;
+    private long pagedBytes;
+
+    /**
+     * A decoded task held in the cache.
+     *
+     * @param task          The decoded task.
+     * @param lineFlags     The flags of the task as written in its line.
+     * @param estimatedSize The estimated heap size of the task, in bytes.
+     */
+    private record Page(Task task, byte lineFlags, long estimatedSize) {
+    }
+
+    /**
+     * An evicted task that may still be held by a caller.
+     */
+    private static class EvictedTask extends WeakReference<Task> {
+        private final long key;
+        private final byte lineFlags;
+
+        /**
+         * Constructs an {@code EvictedTask}.
+         *
+         * @param key       The key of the task in the index.
+         * @param task      The evicted task.
+         * @param lineFlags The flags of the task as written in its line.
+         * @param queue     The queue to enqueue this reference on once the task is collected.
+         */
+        EvictedTask(long key, Task task, byte lineFlags, ReferenceQueue<Task> queue) {
+            super(task, queue);
+            this.key = key;
+            this.lineFlags = lineFlags;
+        }
+    }
+
+    /**
+     * Constructs a {@code PagedTaskList} over the lines of the given task file, decoding each line once to build
+     * the index.
+     *
+     * @param filePath   The task file to page tasks from.
+     * @param heapBudget The estimated size, in bytes, that cached tasks may take up. Must be positive.
+     * @param quarantine The list to collect invalid, mismatched and duplicate lines in, or {@code null} to fail on
+     *                   the first one. Only a checksummed file is given one.
+     * @throws FileContentException If a line is invalid or a duplicate, and no quarantine list is given.
+     * @throws IOException          If the file cannot be read.
+     */
+    public PagedTaskList(Path filePath, long heapBudget, List<String> quarantine)
+            throws FileContentException, IOException {
+        this(filePath, heapBudget, quarantine, quarantine != null, null);
+    }
+
+    /**
+     * Constructs a {@code PagedTaskList} like {@link #PagedTaskList(Path, long, List)}, resolving the descriptions
+     * stored out of line in the given blob store whenever a line is paged in.
+     *
+     * @param filePath   The task file to page tasks from.
+     * @param heapBudget The estimated size, in bytes, that cached tasks may take up. Must be positive.
+     * @param quarantine    The list to collect invalid, mismatched and duplicate lines in, or {@code null} to fail
+     *                      on the first one.
+     * @param isChecksummed {@code true} if the lines are written with a checksum suffix, which is checked both
+     *                      here and whenever a line is paged in again. Must be set if a quarantine list is given.
+     * @param blobStore     The blob store of the task file, or {@code null} if it has none.
+     * @throws FileContentException If a line is invalid or a duplicate, and no quarantine list is given.
+     * @throws IOException          If the file cannot be read.
+     */
+    public PagedTaskList(Path filePath, long heapBudget, List<String> quarantine, boolean isChecksummed,
+                         BlobStore blobStore) throws FileContentException, IOException {
+        assert filePath != null : "Precondition failed: 'filePath' cannot be null";
+        assert heapBudget > 0 : "Precondition failed: 'heapBudget' must be positive";
+        assert quarantine == null || isChecksummed : "Precondition failed: only checksummed lines are quarantined";
+        this.filePath = filePath;
+        this.heapBudget = heapBudget;
+        this.isChecksummed = isChecksummed;
+        this.blobStore = blobStore;
+        keys = new long[MIN_CAPACITY];
+        flags = new byte[MIN_CAPACITY];
+        dateStarts = new long[MIN_CAPACITY];
+        dateEnds = new long[MIN_CAPACITY];
+        hashes = new int[MIN_CAPACITY];
+        long recordsStart = FormatHeader.findRecordsStart(filePath);
+        TaskFileReader.forEachRawLine(filePath, recordsStart, Long.MAX_VALUE, (line, length, lineOffset) -> {
+            Task task = (quarantine == null)
+                    ? TaskDecoder.decodeLine(new String(line, 0, length, StandardCharsets.UTF_8), isChecksummed,
+                    blobStore)
+                    : TaskListDecoder.decodeOrQuarantine(line, length, quarantine, blobStore);
+            if (task != null) {
+                insertEntry(size, lineOffset, task);
+            }
+        });
+        channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        removeDuplicates(quarantine);
+    }
+
+    /**
+     * Retrieves the tasks that may occur on the date of the given date-time: deadlines due on it and events
+     * overlapping it. Only those tasks are decoded, since their dates are in the index.
+     *
+     * @param dateTime The date-time whose date is queried.
+     * @return The candidate tasks, in list order.
+     */
+    public List<Task> getTasksPossiblyOn(LocalDateTime dateTime) {
+        assert dateTime != null : "Precondition failed: 'dateTime' cannot be null";
+        long dayStart = BinaryFormat.toEpochMinute(dateTime.toLocalDate().atStartOfDay());
+        long dayEnd = BinaryFormat.toEpochMinute(dateTime.toLocalDate().atTime(LocalTime.MAX));
+        List<Task> candidateTasks = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            boolean isTimeAware = (flags[i] & BinaryFormat.TYPE_MASK) != BinaryFormat.TYPE_TODO;
+            if (isTimeAware && dateStarts[i] <= dayEnd && dateEnds[i] >= dayStart) {
+                candidateTasks.add(get(i));
+            }
+        }
+        return candidateTasks;
+    }
+
+    /**
+     * Records that the line of a task now matches the task, e.g. after its line was appended to the file or its
+     * status fields were patched in place, so that the task can be evicted again.
+     *
+     * @param index     The index of the task.
+     * @param lineStart The offset of the line of the task in the file.
+     */
+    public void markPersisted(int index, long lineStart) {
+        Objects.checkIndex(index, size);
+        assert lineStart >= 0 : "Precondition failed: 'lineStart' cannot be negative";
+        Task task = findResident(keys[index]);
+        release(keys[index]);
+        keys[index] = lineStart;
+        if (task != null) {
+            flags[index] = BinaryTaskListEncoder.encodeFlags(task);
+            admit(lineStart, task, flags[index]);
+        }
+    }
+
+    /**
+     * Switches the list over to a file that holds the line of every task in list order, e.g. after the task file
+     * was rewritten, and releases every pinned task.
+     *
+     * @param filePath   The file holding the lines.
+     * @param lineStarts The offsets of the lines, one per task in list order.
+     * @throws IOException If the file cannot be opened.
+     */
+    public void rebase(Path filePath, long[] lineStarts) throws IOException {
+        assert filePath != null : "Precondition failed: 'filePath' cannot be null";
+        assert lineStarts != null && lineStarts.length == size
+                : "Precondition failed: 'lineStarts' must hold one offset per task";
+        FileChannel newChannel = FileChannel.open(filePath, StandardOpenOption.READ);
+        List<Integer> residentIndices = new ArrayList<>();
+        List<Task> residentTasks = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Task task = findResident(keys[i]);
+            if (task != null) {
+                residentIndices.add(i);
+                residentTasks.add(task);
+            }
+        }
+        pinnedTasks.clear();
+        pages.clear();
+        evictedTasks.clear();
+        pagedBytes = 0;
+        System.arraycopy(lineStarts, 0, keys, 0, size);
+        for (int i = 0; i < residentIndices.size(); i++) {
+            int index = residentIndices.get(i);
+            flags[index] = BinaryTaskListEncoder.encodeFlags(residentTasks.get(i));
+            admit(keys[index], residentTasks.get(i), flags[index]);
+        }
+        close();
+        channel = newChannel;
+        this.filePath = filePath;
+    }
+
+    /**
+     * Closes the task file. The list must not be accessed afterwards.
+     */
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing is read from the file any more, so failing to release it is harmless
+        }
+    }
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        long key = keys[index];
+        Task task = findResident(key);
+        if (task == null) {
+            task = decode(key);
+            admit(key, task, BinaryTaskListEncoder.encodeFlags(task));
+        }
+        return task;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        Task previous = get(index);
+        release(keys[index]);
+        keys[index] = nextUnbackedKey--;
+        setEntry(index, task);
+        pinnedTasks.put(keys[index], task);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        Objects.checkIndex(index, size + 1);
+        long key = nextUnbackedKey--;
+        insertEntry(index, key, task);
+        pinnedTasks.put(key, task);
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        release(keys[index]);
+        int tailLength = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, tailLength);
+        System.arraycopy(flags, index + 1, flags, index, tailLength);
+        System.arraycopy(dateStarts, index + 1, dateStarts, index, tailLength);
+        System.arraycopy(dateEnds, index + 1, dateEnds, index, tailLength);
+        System.arraycopy(hashes, index + 1, hashes, index, tailLength);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Finds the first task equal to the given object, only decoding the tasks whose hash code matches.
+     *
+     * @param o The object to look for.
+     * @return The index of the first equal task, or {@code -1} if there is none.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Task task)) {
+            return -1;
+        }
+        int hash = task.hashCode();
+        for (int i = 0; i < size; i++) {
+            if (hashes[i] == hash && task.equals(get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Sorts the tasks stably by permuting the index, so that sorting does not hold every task on the heap at once.
+     * The tasks being compared are decoded on demand, so this decodes each task several times if the list does not
+     * fit within the budget.
+     *
+     * @param comparator The order to sort the tasks in. Must not be {@code null}.
+     */
+    @Override
+    public void sort(Comparator<? super Task> comparator) {
+        assert comparator != null : "Precondition failed: 'comparator' cannot be null";
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size - width; low += 2 * width) {
+                merge(order, buffer, low, low + width, Math.min(low + 2 * width, size), comparator);
+            }
+        }
+        long[] sortedKeys = new long[keys.length];
+        byte[] sortedFlags = new byte[flags.length];
+        long[] sortedDateStarts = new long[dateStarts.length];
+        long[] sortedDateEnds = new long[dateEnds.length];
+        int[] sortedHashes = new int[hashes.length];
+        for (int i = 0; i < size; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedFlags[i] = flags[order[i]];
+            sortedDateStarts[i] = dateStarts[order[i]];
+            sortedDateEnds[i] = dateEnds[order[i]];
+            sortedHashes[i] = hashes[order[i]];
+        }
+        keys = sortedKeys;
+        flags = sortedFlags;
+        dateStarts = sortedDateStarts;
+        dateEnds = sortedDateEnds;
+        hashes = sortedHashes;
+        modCount++;
+    }
+
+    /**
+     * Merges two adjacent sorted runs of task indices, taking from the first run on ties.
+     *
+     * @param order      The task indices being sorted.
+     * @param buffer     Scratch space as long as {@code order}.
+     * @param low        The start of the first run.
+     * @param mid        The start of the second run.
+     * @param high       The end of the second run.
+     * @param comparator The order to sort the tasks in.
+     */
+    private void merge(int[] order, int[] buffer, int low, int mid, int high, Comparator<? super Task> comparator) {
+        int first = low;
+        int second = mid;
+        int merged = low;
+        while (first < mid && second < high) {
+            boolean isSecondFirst = comparator.compare(get(order[second]), get(order[first])) < 0;
+            buffer[merged++] = isSecondFirst ? order[second++] : order[first++];
+        }
+        while (first < mid) {
+            buffer[merged++] = order[first++];
+        }
+        while (second < high) {
+            buffer[merged++] = order[second++];
+        }
+        System.arraycopy(buffer, low, order, low, high - low);
+    }
+
+    /**
+     * Inserts the index entry of a task, growing the index if needed.
+     *
+     * @param index The position to insert the entry at.
+     * @param key   The offset of the line of the task, or a negative key if it has none.
+     * @param task  The task.
+     */
+    private void insertEntry(int index, long key, Task task) {
+        if (size == keys.length) {
+            int capacity = Math.max(MIN_CAPACITY, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            dateStarts = Arrays.copyOf(dateStarts, capacity);
+            dateEnds = Arrays.copyOf(dateEnds, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        int tailLength = size - index;
+        System.arraycopy(keys, index, keys, index + 1, tailLength);
+        System.arraycopy(flags, index, flags, index + 1, tailLength);
+        System.arraycopy(dateStarts, index, dateStarts, index + 1, tailLength);
+        System.arraycopy(dateEnds, index, dateEnds, index + 1, tailLength);
+        System.arraycopy(hashes, index, hashes, index + 1, tailLength);
+        keys[index] = key;
+        setEntry(index, task);
+        size++;
+    }
+
+    /**
+     * Fills in the flags, dates and hash code of the index entry of a task.
+     *
+     * @param index The position of the entry.
+     * @param task  The task.
+     */
+    private void setEntry(int index, Task task) {
+        flags[index] = BinaryTaskListEncoder.encodeFlags(task);
+        if (task instanceof Deadline deadline) {
+            dateStarts[index] = BinaryFormat.toEpochMinute(deadline.getBy());
+            dateEnds[index] = dateStarts[index];
+        } else if (task instanceof Event event) {
+            dateStarts[index] = BinaryFormat.toEpochMinute(event.getFrom());
+            dateEnds[index] = BinaryFormat.toEpochMinute(event.getTo());
+        } else {
+            dateStarts[index] = NO_DATE;
+            dateEnds[index] = NO_DATE;
+        }
+        hashes[index] = task.hashCode();
+    }
+
+    /**
+     * Finds duplicate tasks by sorting the index entries by hash code and decoding only the entries whose hash codes
+     * collide, then quarantines every duplicate after the first or reports the earliest one.
+     *
+     * @param quarantine The list to append the encoded duplicates to, or {@code null} to fail on the first one.
+     * @throws FileContentException If there is a duplicate and no quarantine list is given.
+     */
+    private void removeDuplicates(List<String> quarantine) throws FileContentException {
+        long[] hashOrder = new long[size];
+        for (int i = 0; i < size; i++) {
+            hashOrder[i] = ((long) hashes[i] << 32) | i;
+        }
+        Arrays.sort(hashOrder);
+        List<Integer> duplicateIndices = new ArrayList<>();
+        int runStart = 0;
+        while (runStart < size) {
+            int runEnd = runStart + 1;
+            while (runEnd < size && hashOrder[runEnd] >> 32 == hashOrder[runStart] >> 32) {
+                runEnd++;
+            }
+            // Within a run the indices ascend, so each task is only compared with the tasks before it in the file
+            for (int later = runStart + 1; later < runEnd; later++) {
+                Task task = get((int) hashOrder[later]);
+                for (int earlier = runStart; earlier < later; earlier++) {
+                    if (task.equals(get((int) hashOrder[earlier]))) {
+                        duplicateIndices.add((int) hashOrder[later]);
+                        break;
+                    }
+                }
+            }
+            runStart = runEnd;
+        }
+        if (duplicateIndices.isEmpty()) {
+            return;
+        }
+        duplicateIndices.sort(null);
+        if (quarantine == null) {
+            throw new FileContentException(MESSAGE_DUPLICATE_TASK_IN_FILE,
+                    String.format("EncodedTask='%s'", TaskEncoder.encodeTask(get(duplicateIndices.get(0)))),
+                    MESSAGE_DUPLICATE_TASK_IN_FILE_HELP);
+        }
+        for (int duplicateIndex : duplicateIndices) {
+            quarantine.add(TaskEncoder.encodeTask(get(duplicateIndex)));
+        }
+        for (int i = duplicateIndices.size() - 1; i >= 0; i--) {
+            remove((int) duplicateIndices.get(i));
+        }
+    }
+
+    /**
+     * Finds a task that is still on the heap, whether pinned, cached or evicted but held by a caller.
+     * An evicted task found this way is cached again, or pinned if it was changed after it was evicted.
+     *
+     * @param key The key of the task.
+     * @return The task, or {@code null} if it has to be decoded.
+     */
+    private Task findResident(long key) {
+        expungeEvicted();
+        Task task = pinnedTasks.get(key);
+        if (task != null) {
+            return task;
+        }
+        Page page = pages.get(key);
+        if (page != null) {
+            return page.task();
+        }
+        EvictedTask evictedTask = evictedTasks.remove(key);
+        task = (evictedTask == null) ? null : evictedTask.get();
+        if (task == null) {
+            return null;
+        }
+        if (BinaryTaskListEncoder.encodeFlags(task) != evictedTask.lineFlags) {
+            pinnedTasks.put(key, task);
+        } else {
+            admit(key, task, evictedTask.lineFlags);
+        }
+        return task;
+    }
+
+    /**
+     * Caches a task read from its line, evicting the least recently used tasks while the cache is over budget.
+     * The task just cached is never evicted, so a single task larger than the budget can still be accessed.
+     *
+     * @param key       The offset of the line of the task.
+     * @param task      The task.
+     * @param lineFlags The flags of the task as written in its line.
+     */
+    private void admit(long key, Task task, byte lineFlags) {
+        // A description stored out of line is not read just to estimate its size
+        long estimatedSize = TASK_OVERHEAD_BYTES
+                + (task.getDescriptionSource() == null ? 2L * task.getDescription().length() : 0);
+        pages.put(key, new Page(task, lineFlags, estimatedSize));
+        pagedBytes += estimatedSize;
+        Iterator<Map.Entry<Long, Page>> iterator = pages.entrySet().iterator();
+        while (pagedBytes > heapBudget && pages.size() > 1) {
+            Map.Entry<Long, Page> eldest = iterator.next();
+            Page page = eldest.getValue();
+            iterator.remove();
+            pagedBytes -= page.estimatedSize();
+            if (BinaryTaskListEncoder.encodeFlags(page.task()) != page.lineFlags()) {
+                // Its line no longer describes it, so it cannot be decoded back
+                pinnedTasks.put(eldest.getKey(), page.task());
+            } else {
+                evictedTasks.put(eldest.getKey(),
+                        new EvictedTask(eldest.getKey(), page.task(), page.lineFlags(), evictedQueue));
+            }
+        }
+    }
+
+    /**
+     * Forgets a task that is no longer at its key, e.g. because it was removed or replaced.
+     *
+     * @param key The key of the task.
+     */
+    private void release(long key) {
+        pinnedTasks.remove(key);
+        Page page = pages.remove(key);
+        if (page != null) {
+            pagedBytes -= page.estimatedSize();
+        }
+        evictedTasks.remove(key);
+    }
+
+    /**
+     * Drops the evicted tasks that have been garbage collected.
+     */
+    private void expungeEvicted() {
+        for (Reference<? extends Task> reference = evictedQueue.poll(); reference != null;
+                reference = evictedQueue.poll()) {
+            EvictedTask evictedTask = (EvictedTask) reference;
+            evictedTasks.remove(evictedTask.key, evictedTask);
+        }
+    }
+
+    /**
+     * Decodes the task on the line starting at the given offset.
+     *
+     * @param lineStart The offset of the line.
+     * @return The decoded task.
+     * @throws UncheckedFileContentException If the line does not match its checksum or is not a valid encoded task.
+     * @throws UncheckedIOException          If the file cannot be read.
+     */
+    private Task decode(long lineStart) {
+        assert lineStart >= 0 : "Precondition failed: tasks without a line are always pinned";
+        try {
+            return TaskDecoder.decodeLine(TaskFileReader.readLine(channel, lineStart), isChecksummed, blobStore);
+        } catch (FileContentException e) {
+            throw new UncheckedFileContentException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("FilePath='%s'", filePath), e);
+        }
+    }
+}
@@ -4,92 +4,167 @@ import wkduke.common.Messages;
 import wkduke.exception.TaskFormatException;
 import wkduke.exception.storage.FileContentException;
 import wkduke.parser.TimeParser;
+import wkduke.storage.blob.BlobReference;
+import wkduke.storage.blob.BlobStore;
+import wkduke.storage.checksum.RecordChecksum;
 import wkduke.task.Deadline;
+import wkduke.task.DescriptionSource;
 import wkduke.task.Event;
 import wkduke.task.Task;
 import wkduke.task.TaskPriority;
-import wkduke.task.TaskType;
 import wkduke.task.Todo;
 
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Decodes individual tasks from their encoded string format into {@code Task} objects.
  * Supports decoding of {@code Todo}, {@code Deadline}, and {@code Event} tasks.
+ *
+ * <p>The format is {@code "T | L | 0 | description"} optionally followed by {@code " | by"} for deadlines and
+ * {@code " | from | to"} for events. Lines are parsed in a single pass by locating the {@code " | "} separators,
+ * which accepts exactly the lines the former regular expression
+ * {@code [TDE] \| [LMH] \| [01] \| [^|]+( \| [^|]+)?( \| [^|]+ \| [^|]+)?} accepted.</p>
+ *
+ * <p>A lowercase type code marks a task whose description is stored in a {@link BlobStore}, with a
+ * {@link BlobReference} in place of the description. Such lines can only be decoded with the store, and the task
+ * only reads its description from the store when it is first needed.</p>
+ *
+ * <p>Only {@link #decodeLine(String, boolean, BlobStore)} knows about {@link RecordChecksum} suffixes, and only
+ * for a checksummed file. Everything else decodes the line exactly as given.</p>
  */
 public class TaskDecoder {
-    private static final Pattern TASK_PATTERN = Pattern.compile(
-            "(?<taskType>[TDE]) \\| (?<taskPriority>[LMH]) \\| (?<taskStatus>[01]) \\| (?<taskDescription>[^|]+)"
-                    + "(?: \\| (?<by>[^|]+))?"   // Optional by, only for D (Deadline task)
-                    + "(?: \\| (?<from>[^|]+) \\| (?<to>[^|]+))?" // Optional from and to, only for E (Event task)
-    );
+    private static final int MIN_FIELD_COUNT = 4;
+    private static final int MAX_FIELD_COUNT = 7;
+    private static final int DESCRIPTION_FIELD = 3;
+    private static final int ENCODED_DATE_TIME_LENGTH = "yyyy-MM-dd HH:mm".length();
 
     /**
-     * Creates a Deadline task from the provided matcher data.
+     * Locates the fields of an encoded task.
+     * Every {@code '|'} must be surrounded by single spaces and every field must be non-empty.
      *
-     * @param matcher     The matcher containing the captured task data.
-     * @param description The description of the deadline task.
-     * @param isDone      The completion status of the task.
-     * @param priority    The priority of the task.
-     * @return A {@code Deadline} task object with the specified attributes.
-     * @throws FileContentException If the "by" field is missing.
-     * @throws TaskFormatException  If an error occurs in date-time parsing.
+     * @param encodedTask The encoded task string.
+     * @param fieldStarts Receives the start index of each field.
+     * @param fieldEnds   Receives the end index (exclusive) of each field.
+     * @return The number of fields, or {@code -1} if the string is not a well-formed encoded task.
+     */
+    private static int locateFields(String encodedTask, int[] fieldStarts, int[] fieldEnds) {
+        int length = encodedTask.length();
+        int fieldCount = 0;
+        int fieldStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (encodedTask.charAt(i) != '|') {
+                continue;
+            }
+            boolean isSeparator = i > 0 && i + 1 < length
+                    && encodedTask.charAt(i - 1) == ' ' && encodedTask.charAt(i + 1) == ' ';
+            if (!isSeparator || fieldCount == MAX_FIELD_COUNT - 1 || i - 1 <= fieldStart) {
+                return -1;
+            }
+            fieldStarts[fieldCount] = fieldStart;
+            fieldEnds[fieldCount] = i - 1;
+            fieldCount++;
+            fieldStart = i + 2;
+        }
+        if (fieldStart >= length) {
+            return -1;
+        }
+        fieldStarts[fieldCount] = fieldStart;
+        fieldEnds[fieldCount] = length;
+        return fieldCount + 1;
+    }
+
+    /**
+     * Retrieves the single character making up a one-character field.
+     *
+     * @param encodedTask The encoded task string.
+     * @param fieldStarts The start index of each field.
+     * @param fieldEnds   The end index (exclusive) of each field.
+     * @param field       The field to read.
+     * @return The character, or {@code 0} if the field is not exactly one character long.
+     */
+    private static char singleCharField(String encodedTask, int[] fieldStarts, int[] fieldEnds, int field) {
+        return fieldEnds[field] - fieldStarts[field] == 1 ? encodedTask.charAt(fieldStarts[field]) : 0;
+    }
+
+    /**
+     * Parses a date-time field, reading the canonical {@code yyyy-MM-dd HH:mm} form directly from the characters.
+     * Any other form falls back to {@link TimeParser#parseDateTime(String)}.
+     *
+     * @param encodedTask The encoded task string.
+     * @param start       The start index of the field.
+     * @param end         The end index (exclusive) of the field.
+     * @return The parsed {@code LocalDateTime}.
+     * @throws TaskFormatException If the field is not a valid date-time.
      */
-    private static Task createDeadlineTask(Matcher matcher, String description, boolean isDone, TaskPriority priority)
-            throws FileContentException, TaskFormatException {
-        String by = matcher.group("by");
-        if (by == null) {
-            throw new FileContentException(Messages.MESSAGE_INVALID_DEADLINE_ENCODED);
+    private static LocalDateTime parseDateTime(String encodedTask, int start, int end) throws TaskFormatException {
+        if (end - start == ENCODED_DATE_TIME_LENGTH
+                && encodedTask.charAt(start + 4) == '-' && encodedTask.charAt(start + 7) == '-'
+                && encodedTask.charAt(start + 10) == ' ' && encodedTask.charAt(start + 13) == ':') {
+            int year = parseDigits(encodedTask, start, 4);
+            int month = parseDigits(encodedTask, start + 5, 2);
+            int day = parseDigits(encodedTask, start + 8, 2);
+            int hour = parseDigits(encodedTask, start + 11, 2);
+            int minute = parseDigits(encodedTask, start + 14, 2);
+            if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0) {
+                try {
+                    return LocalDateTime.of(year, month, day, hour, minute);
+                } catch (DateTimeException e) {
+                    // Out-of-range values are reported by TimeParser below with its usual message
+                }
+            }
         }
-        LocalDateTime dateTime = TimeParser.parseDateTime(by);
-        return new Deadline(description, dateTime, isDone, priority);
+        return TimeParser.parseDateTime(encodedTask.substring(start, end));
     }
 
     /**
-     * Creates an Event task from the provided matcher data.
+     * Parses a fixed number of decimal digits.
      *
-     * @param matcher     The matcher containing the captured task data.
-     * @param description The description of the event task.
-     * @param isDone      The completion status of the task.
-     * @param priority    The priority of the task.
-     * @return An {@code Event} task object with the specified attributes.
-     * @throws FileContentException If either "from" or "to" field is missing.
-     * @throws TaskFormatException  If an error occurs in date-time parsing.
+     * @param text   The text to read from.
+     * @param start  The index of the first digit.
+     * @param digits The number of digits to read.
+     * @return The parsed value, or {@code -1} if any character is not a digit.
      */
-    private static Task createEventTask(Matcher matcher, String description, boolean isDone, TaskPriority priority)
-            throws FileContentException, TaskFormatException {
-        String from = matcher.group("from");
-        String to = matcher.group("to");
-        if (from == null || to == null) {
-            throw new FileContentException(Messages.MESSAGE_INVALID_EVENT_ENCODED);
+    private static int parseDigits(String text, int start, int digits) {
+        int value = 0;
+        for (int i = start; i < start + digits; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
         }
-        LocalDateTime fromDateTime = TimeParser.parseDateTime(from);
-        LocalDateTime toDateTime = TimeParser.parseDateTime(to);
-        return new Event(description, fromDateTime, toDateTime, isDone, priority);
+        return value;
     }
 
     /**
-     * Decodes a {@code Task} object from the provided matcher data.
+     * Opens a description stored out of line through the blob reference written in place of it, so that it is read
+     * when the task first needs it.
      *
-     * @param matcher The matcher containing captured task data.
-     * @return The decoded {@code Task} object.
-     * @throws FileContentException If required fields for the task are missing or invalid.
-     * @throws TaskFormatException  If an error occurs in date-time parsing.
+     * @param encodedReference The description field of the encoded task.
+     * @param blobStore        The store holding the description, or {@code null} if none is available.
+     * @return The source of the description.
+     * @throws FileContentException If no store is available or the reference is malformed or out of bounds.
      */
-    private static Task createTaskFromMatcher(Matcher matcher) throws FileContentException, TaskFormatException {
-        TaskType taskType = TaskType.fromCode(matcher.group("taskType"));
-        String description = matcher.group("taskDescription");
-        TaskPriority priority = TaskPriority.fromCode(matcher.group("taskPriority"));
-        boolean isDone = "1".equals(matcher.group("taskStatus"));
+    private static DescriptionSource openDescription(String encodedReference, BlobStore blobStore)
+            throws FileContentException {
+        if (blobStore == null) {
+            throw new FileContentException(Messages.MESSAGE_INVALID_BLOB_REFERENCE,
+                    String.format("Reference='%s'", encodedReference), Messages.MESSAGE_INVALID_BLOB_REFERENCE_HELP);
+        }
+        return blobStore.openDescription(encodedReference);
+    }
 
-        return switch (taskType) {
-            case TODO -> new Todo(description, isDone, priority);
-            case DEADLINE -> createDeadlineTask(matcher, description, isDone, priority);
-            case EVENT -> createEventTask(matcher, description, isDone, priority);
-            default -> throw new AssertionError(taskType);
-        };
+    /**
+     * Creates the exception reported when an encoded task does not follow the task format.
+     *
+     * @param encodedTask The encoded task string.
+     * @return A {@code FileContentException} describing the invalid format.
+     */
+    private static FileContentException invalidFormat(String encodedTask) {
+        return new FileContentException(
+                Messages.MESSAGE_INVALID_TASK_ENCODED_FORMAT, String.format("EncodedTask='%s'", encodedTask)
+        );
     }
 
     /**
@@ -100,18 +175,94 @@ public class TaskDecoder {
      * @throws FileContentException If the encoded task has an invalid format.
      */
     public static Task decodeTask(String encodedTask) throws FileContentException {
+        return decodeTask(encodedTask, null);
+    }
+
+    /**
+     * Decodes a line read from a task file. In a checksummed file, a valid checksum suffix is dropped before
+     * decoding and a mismatched one is rejected; a line without a suffix is decoded as is.
+     *
+     * @param line          The line, without its line terminator.
+     * @param isChecksummed {@code true} if the lines of the file are written with a checksum suffix.
+     * @param blobStore     The store holding the long descriptions of the task file, or {@code null} if it has none.
+     * @return A {@code Task} representing the decoded task.
+     * @throws FileContentException If the line does not match its checksum or is not a valid encoded task.
+     */
+    public static Task decodeLine(String line, boolean isChecksummed, BlobStore blobStore)
+            throws FileContentException {
+        if (!isChecksummed) {
+            return decodeTask(line, blobStore);
+        }
+        return switch (RecordChecksum.check(line)) {
+            case VALID -> decodeTask(line.substring(0, line.length() - RecordChecksum.SUFFIX_LENGTH), blobStore);
+            case ABSENT -> decodeTask(line, blobStore);
+            case MISMATCH -> throw new FileContentException(Messages.MESSAGE_CHECKSUM_MISMATCH,
+                    String.format("EncodedTask='%s'", line), Messages.MESSAGE_VERIFY_BAD_RECORDS_HELP);
+        };
+    }
+
+    /**
+     * Decodes a single encoded task string into a {@code Task} object, reading a description stored out of line
+     * from the given store.
+     *
+     * @param encodedTask The encoded task string.
+     * @param blobStore   The store holding the long descriptions of the task file, or {@code null} if it has none.
+     * @return A {@code Task} representing the decoded task.
+     * @throws FileContentException If the encoded task has an invalid format or an invalid blob reference.
+     */
+    public static Task decodeTask(String encodedTask, BlobStore blobStore) throws FileContentException {
         assert encodedTask != null : "Precondition failed: 'encodedTask' cannot be null";
-        final Matcher matcher = TASK_PATTERN.matcher(encodedTask);
-        if (!matcher.matches()) {
-            throw new FileContentException(
-                    Messages.MESSAGE_INVALID_TASK_ENCODED_FORMAT, String.format("EncodedTask='%s'", encodedTask)
-            );
+        int[] fieldStarts = new int[MAX_FIELD_COUNT];
+        int[] fieldEnds = new int[MAX_FIELD_COUNT];
+        int fieldCount = locateFields(encodedTask, fieldStarts, fieldEnds);
+        if (fieldCount < MIN_FIELD_COUNT) {
+            throw invalidFormat(encodedTask);
         }
+
+        char encodedType = singleCharField(encodedTask, fieldStarts, fieldEnds, 0);
+        boolean isOutOfLine = encodedType == 't' || encodedType == 'd' || encodedType == 'e';
+        char taskType = isOutOfLine ? Character.toUpperCase(encodedType) : encodedType;
+        TaskPriority priority = switch (singleCharField(encodedTask, fieldStarts, fieldEnds, 1)) {
+            case 'L' -> TaskPriority.LOW;
+            case 'M' -> TaskPriority.MEDIUM;
+            case 'H' -> TaskPriority.HIGH;
+            default -> null;
+        };
+        char taskStatus = singleCharField(encodedTask, fieldStarts, fieldEnds, 2);
+        if (priority == null || (taskStatus != '0' && taskStatus != '1')) {
+            throw invalidFormat(encodedTask);
+        }
+        boolean isDone = taskStatus == '1';
+        String description = encodedTask.substring(fieldStarts[DESCRIPTION_FIELD], fieldEnds[DESCRIPTION_FIELD]);
+        DescriptionSource descriptionSource = isOutOfLine ? openDescription(description, blobStore) : null;
+
         try {
-            return createTaskFromMatcher(matcher);
-        } catch (FileContentException e) {
-            e.setDetail(String.format("EncodedTask='%s'", encodedTask));
-            throw e;
+            return switch (taskType) {
+                case 'T' -> (descriptionSource == null) ? new Todo(description, isDone, priority)
+                        : new Todo(descriptionSource, isDone, priority);
+                case 'D' -> {
+                    // A deadline's "by" is the 5th field, optionally followed by an ignored "from | to" pair
+                    if (fieldCount != 5 && fieldCount != 7) {
+                        throw new FileContentException(Messages.MESSAGE_INVALID_DEADLINE_ENCODED,
+                                String.format("EncodedTask='%s'", encodedTask));
+                    }
+                    LocalDateTime by = parseDateTime(encodedTask, fieldStarts[4], fieldEnds[4]);
+                    yield (descriptionSource == null) ? new Deadline(description, by, isDone, priority)
+                            : new Deadline(descriptionSource, by, isDone, priority);
+                }
+                case 'E' -> {
+                    // An event's "from | to" are the last two fields, optionally preceded by an ignored "by"
+                    if (fieldCount != 6 && fieldCount != 7) {
+                        throw new FileContentException(Messages.MESSAGE_INVALID_EVENT_ENCODED,
+                                String.format("EncodedTask='%s'", encodedTask));
+                    }
+                    LocalDateTime from = parseDateTime(encodedTask, fieldStarts[fieldCount - 2], fieldEnds[fieldCount - 2]);
+                    LocalDateTime to = parseDateTime(encodedTask, fieldStarts[fieldCount - 1], fieldEnds[fieldCount - 1]);
+                    yield (descriptionSource == null) ? new Event(description, from, to, isDone, priority)
+                            : new Event(descriptionSource, from, to, isDone, priority);
+                }
+                default -> throw invalidFormat(encodedTask);
+            };
         } catch (TaskFormatException e) {
             throw new FileContentException(
                     e.getMessage(), String.format("EncodedTask='%s'", encodedTask), e.getHelp()
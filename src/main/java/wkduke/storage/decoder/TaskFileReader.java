@@ -0,0 +1,347 @@
+package wkduke.storage.decoder;
+
+import wkduke.exception.storage.FileContentException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streams the lines of a task file through a memory mapping, without materialising the whole file.
+ * Lines are split on {@code \n}, {@code \r\n} or {@code \r}, matching {@link java.nio.file.Files#readAllLines(Path)}.
+ */
+public class TaskFileReader {
+    // Mapping in windows keeps files larger than 2GB readable, since a single mapping is limited to Integer.MAX_VALUE
+    private static final long MAPPING_WINDOW_SIZE = 256L * 1024 * 1024;
+    private static final int INITIAL_LINE_BUFFER_SIZE = 256;
+
+    /**
+     * Handles a single line read from a task file.
+     */
+    @FunctionalInterface
+    public interface LineHandler {
+        /**
+         * Handles a single line.
+         *
+         * @param line The line, without its line terminator.
+         * @throws FileContentException If the line content is invalid.
+         */
+        void handle(String line) throws FileContentException;
+    }
+
+    /**
+     * Handles the raw bytes of a single line read from a task file, before they are decoded as text.
+     */
+    @FunctionalInterface
+    public interface RawLineHandler {
+        /**
+         * Handles a single line. The buffer is reused for the next line, so it must not be kept.
+         *
+         * @param line       The buffer holding the line, without its line terminator.
+         * @param length     The number of bytes of the buffer that belong to the line.
+         * @param lineOffset The offset of the first byte of the line in the file.
+         * @throws FileContentException If the line content is invalid.
+         */
+        void handle(byte[] line, int length, long lineOffset) throws FileContentException;
+    }
+
+    /**
+     * Reads every line of the given file in order and passes it to the handler.
+     * Only the current line is held on the heap; the file itself is accessed through the page cache.
+     *
+     * @param filePath The file to read.
+     * @param handler  The handler invoked for each line.
+     * @throws IOException          If the file cannot be read.
+     * @throws FileContentException If the handler rejects a line.
+     */
+    public static void forEachLine(Path filePath, LineHandler handler) throws IOException, FileContentException {
+        forEachLine(filePath, 0, Long.MAX_VALUE, handler);
+    }
+
+    /**
+     * Reads every line in a byte range of the given file in order and passes it to the handler.
+     * The range must start at the beginning of a line, e.g. at a boundary returned by {@link #splitLines(Path, int)}.
+     *
+     * @param filePath The file to read.
+     * @param start    The offset of the first byte to read.
+     * @param end      The offset just past the last byte to read, clamped to the file size.
+     * @param handler  The handler invoked for each line.
+     * @throws IOException          If the file cannot be read.
+     * @throws FileContentException If the handler rejects a line.
+     */
+    public static void forEachLine(Path filePath, long start, long end, LineHandler handler)
+            throws IOException, FileContentException {
+        assert handler != null : "Precondition failed: 'handler' cannot be null";
+        forEachRawLine(filePath, start, end,
+                (line, length, lineOffset) -> handler.handle(new String(line, 0, length, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Reads every line of the given file in order and passes its raw bytes and offset to the handler.
+     * No strings are created, so checks over the bytes of a line stay cheap.
+     *
+     * @param filePath The file to read.
+     * @param handler  The handler invoked for each line.
+     * @throws IOException          If the file cannot be read.
+     * @throws FileContentException If the handler rejects a line.
+     */
+    public static void forEachRawLine(Path filePath, RawLineHandler handler) throws IOException, FileContentException {
+        forEachRawLine(filePath, 0, Long.MAX_VALUE, handler);
+    }
+
+    /**
+     * Reads every line in a byte range of the given file in order and passes its raw bytes and offset to the
+     * handler. The range must start at the beginning of a line.
+     *
+     * @param filePath The file to read.
+     * @param start    The offset of the first byte to read.
+     * @param end      The offset just past the last byte to read, clamped to the file size.
+     * @param handler  The handler invoked for each line.
+     * @throws IOException          If the file cannot be read.
+     * @throws FileContentException If the handler rejects a line.
+     */
+    public static void forEachRawLine(Path filePath, long start, long end, RawLineHandler handler)
+            throws IOException, FileContentException {
+        assert filePath != null : "Precondition failed: 'filePath' cannot be null";
+        assert handler != null : "Precondition failed: 'handler' cannot be null";
+        assert start >= 0 && start <= end : "Precondition failed: 'start' must be within [0, end]";
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long rangeEnd = Math.min(end, channel.size());
+            byte[] lineBuffer = new byte[INITIAL_LINE_BUFFER_SIZE];
+            int lineLength = 0;
+            long lineOffset = start;
+            boolean isAfterCarriageReturn = false;
+
+            for (long windowStart = start; windowStart < rangeEnd; windowStart += MAPPING_WINDOW_SIZE) {
+                int windowSize = (int) Math.min(MAPPING_WINDOW_SIZE, rangeEnd - windowStart);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+                for (int i = 0; i < windowSize; i++) {
+                    byte b = window.get(i);
+                    if (isAfterCarriageReturn) {
+                        isAfterCarriageReturn = false;
+                        if (b == '\n') {
+                            lineOffset++;
+                            continue; // Second half of a "\r\n" terminator
+                        }
+                    }
+                    if (b == '\n' || b == '\r') {
+                        handler.handle(lineBuffer, lineLength, lineOffset);
+                        lineOffset = windowStart + i + 1;
+                        lineLength = 0;
+                        isAfterCarriageReturn = (b == '\r');
+                        continue;
+                    }
+                    if (lineLength == lineBuffer.length) {
+                        lineBuffer = Arrays.copyOf(lineBuffer, lineBuffer.length * 2);
+                    }
+                    lineBuffer[lineLength++] = b;
+                }
+            }
+            if (lineLength > 0) {
+                handler.handle(lineBuffer, lineLength, lineOffset);
+            }
+        }
+    }
+
+    /**
+     * Reads the line starting at the given offset, without its line terminator.
+     * Only positional reads are used, so the channel position is left unchanged.
+     *
+     * @param channel   The channel of the task file.
+     * @param lineStart The offset of the line.
+     * @return The line.
+     * @throws IOException If the file cannot be read.
+     */
+    public static String readLine(FileChannel channel, long lineStart) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(INITIAL_LINE_BUFFER_SIZE);
+        int scanned = 0;
+        while (true) {
+            int read = channel.read(buffer, lineStart + buffer.position());
+            int end = buffer.position();
+            for (int i = scanned; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r') {
+                    return new String(buffer.array(), 0, i, StandardCharsets.UTF_8);
+                }
+            }
+            if (read < 0) {
+                return new String(buffer.array(), 0, end, StandardCharsets.UTF_8);
+            }
+            scanned = end;
+            if (!buffer.hasRemaining()) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+        }
+    }
+
+    /**
+     * Retrieves the offset of the first byte of every line, using the same line splitting as
+     * {@link #forEachLine(Path, LineHandler)}.
+     *
+     * @param filePath The file to read.
+     * @return The ascending offsets of the lines, one per line.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long[] lineStarts(Path filePath) throws IOException {
+        return lineStarts(filePath, 0);
+    }
+
+    /**
+     * Retrieves the offset of the first byte of every line from the given offset, e.g. past a header line.
+     *
+     * @param filePath The file to read.
+     * @param start    The offset of the first line, at the beginning of a line.
+     * @return The ascending offsets of the lines from the offset, one per line.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long[] lineStarts(Path filePath, long start) throws IOException {
+        assert start >= 0 : "Precondition failed: 'start' cannot be negative";
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long[] lineStarts = new long[INITIAL_LINE_BUFFER_SIZE];
+            int lineCount = 0;
+            boolean isLineStart = true;
+            boolean isAfterCarriageReturn = false;
+
+            for (long windowStart = start; windowStart < fileSize; windowStart += MAPPING_WINDOW_SIZE) {
+                int windowSize = (int) Math.min(MAPPING_WINDOW_SIZE, fileSize - windowStart);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+                for (int i = 0; i < windowSize; i++) {
+                    byte b = window.get(i);
+                    if (isAfterCarriageReturn) {
+                        isAfterCarriageReturn = false;
+                        if (b == '\n') {
+                            continue;
+                        }
+                    }
+                    if (isLineStart) {
+                        if (lineCount == lineStarts.length) {
+                            lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+                        }
+                        lineStarts[lineCount++] = windowStart + i;
+                        isLineStart = false;
+                    }
+                    if (b == '\n' || b == '\r') {
+                        isLineStart = true;
+                        isAfterCarriageReturn = (b == '\r');
+                    }
+                }
+            }
+            return Arrays.copyOf(lineStarts, lineCount);
+        }
+    }
+
+    /**
+     * Splits the given file into roughly equal byte ranges that each hold whole lines.
+     * Every boundary sits just past a line terminator, so a {@code "\r\n"} pair is never split.
+     *
+     * @param filePath   The file to split.
+     * @param chunkCount The desired number of ranges. Fewer are returned if the file has fewer lines.
+     * @return The ascending range boundaries, starting with {@code 0} and ending with the file size.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long[] splitLines(Path filePath, int chunkCount) throws IOException {
+        return splitLines(filePath, 0, chunkCount);
+    }
+
+    /**
+     * Splits the given file from the given offset, e.g. past a header line, like {@link #splitLines(Path, int)}.
+     *
+     * @param filePath   The file to split.
+     * @param start      The offset of the first range, at the beginning of a line.
+     * @param chunkCount The desired number of ranges. Fewer are returned if the file has fewer lines.
+     * @return The ascending range boundaries, starting with the offset and ending with the file size.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long[] splitLines(Path filePath, long start, int chunkCount) throws IOException {
+        assert chunkCount > 0 : "Precondition failed: 'chunkCount' must be positive";
+        assert start >= 0 : "Precondition failed: 'start' cannot be negative";
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = Math.max(channel.size(), start);
+            long[] boundaries = new long[chunkCount + 1];
+            boundaries[0] = start;
+            int boundaryCount = 1;
+            ByteBuffer buffer = ByteBuffer.allocate(INITIAL_LINE_BUFFER_SIZE);
+            for (int chunk = 1; chunk < chunkCount; chunk++) {
+                long target = Math.max(start + (fileSize - start) * chunk / chunkCount,
+                        boundaries[boundaryCount - 1]);
+                long boundary = findLineStart(channel, target, fileSize, buffer);
+                if (boundary >= fileSize) {
+                    break;
+                }
+                if (boundary > boundaries[boundaryCount - 1]) {
+                    boundaries[boundaryCount++] = boundary;
+                }
+            }
+            boundaries[boundaryCount++] = fileSize;
+            return Arrays.copyOf(boundaries, boundaryCount);
+        }
+    }
+
+    /**
+     * Finds the start of the first line that begins after the given offset, e.g. the line after a header line.
+     *
+     * @param channel The channel of the file.
+     * @param offset  The offset to search from.
+     * @return The offset just past the next line terminator, or the file size if there is none.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long findNextLineStart(FileChannel channel, long offset) throws IOException {
+        return findLineStart(channel, offset, channel.size(), ByteBuffer.allocate(INITIAL_LINE_BUFFER_SIZE));
+    }
+
+    /**
+     * Finds the start of the first line that begins after the given offset.
+     *
+     * @param channel  The channel of the file.
+     * @param offset   The offset to search from.
+     * @param fileSize The size of the file.
+     * @param buffer   A scratch buffer for reading.
+     * @return The offset just past the next line terminator, or {@code fileSize} if there is none.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long findLineStart(FileChannel channel, long offset, long fileSize, ByteBuffer buffer)
+            throws IOException {
+        long position = offset;
+        while (position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    return position + i + 1;
+                }
+                if (b == '\r') {
+                    long next = position + i + 1;
+                    boolean isCrLf = next < fileSize
+                            && (i + 1 < read ? buffer.get(i + 1) : readByte(channel, next)) == '\n';
+                    return isCrLf ? next + 1 : next;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Reads a single byte of the file.
+     *
+     * @param channel  The channel of the file.
+     * @param position The offset of the byte.
+     * @return The byte read.
+     * @throws IOException If the file cannot be read.
+     */
+    private static byte readByte(FileChannel channel, long position) throws IOException {
+        ByteBuffer single = ByteBuffer.allocate(1);
+        channel.read(single, position);
+        return single.get(0);
+    }
+}
@@ -1,11 +1,22 @@
 package wkduke.storage.decoder;
 
 import wkduke.exception.storage.FileContentException;
+import wkduke.storage.blob.BlobStore;
+import wkduke.storage.checksum.RecordChecksum;
+import wkduke.storage.encoder.TaskEncoder;
+import wkduke.storage.format.FormatHeader;
 import wkduke.task.Task;
 import wkduke.task.TaskList;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import static wkduke.common.Messages.MESSAGE_DUPLICATE_TASK_IN_FILE;
 import static wkduke.common.Messages.MESSAGE_DUPLICATE_TASK_IN_FILE_HELP;
@@ -13,9 +24,84 @@ import static wkduke.common.Messages.MESSAGE_DUPLICATE_TASK_IN_FILE_HELP;
 
 /**
  * Decodes a list of encoded task strings into a {@code TaskList} of {@code Task} objects.
+ *
+ * <p>Task files above a size threshold are split into line-aligned chunks that are decoded in parallel on the
+ * common {@link ForkJoinPool}. The chunks are merged in file order, so the result and the reported errors are the
+ * same as when decoding sequentially.</p>
+ *
+ * <p>When given a quarantine list, bad lines are collected in it instead of failing the decode: lines whose
+ * {@link RecordChecksum} does not match, lines that are not valid encoded tasks, and duplicates.</p>
  */
 //Solution below inspired by https://github.com/se-edu/addressbook-level2/blob/master/src/seedu/addressbook/storage/AddressBookDecoder.java
 public class TaskListDecoder {
+    private static final long MIN_CHUNK_SIZE = 128 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The outcome of decoding one chunk of a task file: the tasks decoded before the first invalid line, if any.
+     *
+     * @param tasks The tasks decoded from the chunk, in order.
+     * @param error The error raised by the first invalid line, or {@code null} if the whole chunk was decoded.
+     */
+    private record ChunkResult(List<Task> tasks, FileContentException error) {
+    }
+
+    /**
+     * Decodes the lines in one byte range of a task file.
+     */
+    private static class DecodeChunkTask extends RecursiveTask<ChunkResult> {
+        private final Path filePath;
+        private final long start;
+        private final long end;
+        private final List<String> quarantine;
+        private final boolean isChecksummed;
+        private final BlobStore blobStore;
+
+        /**
+         * Constructs a {@code DecodeChunkTask} for the lines in {@code [start, end)}.
+         *
+         * @param filePath   The task file to decode.
+         * @param start      The offset of the first line of the chunk.
+         * @param end        The offset just past the last line of the chunk.
+         * @param quarantine    The list to collect the bad lines of the chunk in, or {@code null} to stop at the
+         *                      first.
+         * @param isChecksummed {@code true} if the lines are written with a checksum suffix.
+         * @param blobStore     The blob store holding the out-of-line descriptions, or {@code null} if there is none.
+         */
+        DecodeChunkTask(Path filePath, long start, long end, List<String> quarantine, boolean isChecksummed,
+                        BlobStore blobStore) {
+            this.filePath = filePath;
+            this.start = start;
+            this.end = end;
+            this.quarantine = quarantine;
+            this.isChecksummed = isChecksummed;
+            this.blobStore = blobStore;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            List<Task> tasks = new ArrayList<>();
+            try {
+                if (quarantine == null) {
+                    TaskFileReader.forEachLine(filePath, start, end,
+                            encodedTask -> tasks.add(TaskDecoder.decodeLine(encodedTask, isChecksummed, blobStore)));
+                } else {
+                    TaskFileReader.forEachRawLine(filePath, start, end, (line, length, lineOffset) -> {
+                        Task task = decodeOrQuarantine(line, length, quarantine, blobStore);
+                        if (task != null) {
+                            tasks.add(task);
+                        }
+                    });
+                }
+                return new ChunkResult(tasks, null);
+            } catch (FileContentException e) {
+                return new ChunkResult(tasks, e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
     /**
      * Decodes a list of encoded task strings into a {@code TaskList}.
      *
@@ -24,15 +110,253 @@ public class TaskListDecoder {
      * @throws FileContentException If any encoded task has an invalid format.
      */
     public static TaskList decodeTaskList(List<String> encodedTasks) throws FileContentException {
-        List<Task> tasks = new ArrayList<>();
+        TaskList taskList = new TaskList();
         for (String encodedTask : encodedTasks) {
-            Task task = TaskDecoder.decodeTask(encodedTask);
-            if (tasks.contains(task)) {
-                throw new FileContentException(MESSAGE_DUPLICATE_TASK_IN_FILE, String.format("EncodedTask='%s'", encodedTask),
-                        MESSAGE_DUPLICATE_TASK_IN_FILE_HELP);
+            addDecodedTask(taskList, encodedTask, false, null);
+        }
+        return taskList;
+    }
+
+    /**
+     * Decodes a task file into a {@code TaskList}, streaming it line by line.
+     * Unlike {@link #decodeTaskList(List)}, the encoded lines are never collected in memory.
+     *
+     * @param filePath The task file to decode.
+     * @return A {@code TaskList} containing the decoded tasks.
+     * @throws FileContentException If any encoded task has an invalid format.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static TaskList decodeTaskList(Path filePath) throws FileContentException, IOException {
+        return decodeTaskList(filePath, (BlobStore) null);
+    }
+
+    /**
+     * Decodes a task file into a {@code TaskList} like {@link #decodeTaskList(Path)}, resolving the descriptions
+     * stored out of line in the given blob store.
+     *
+     * @param filePath  The task file to decode.
+     * @param blobStore The blob store of the task file, or {@code null} if it has none.
+     * @return A {@code TaskList} containing the decoded tasks.
+     * @throws FileContentException If any encoded task has an invalid format.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static TaskList decodeTaskList(Path filePath, BlobStore blobStore) throws FileContentException, IOException {
+        return decodeTaskList(filePath, false, blobStore);
+    }
+
+    /**
+     * Decodes a task file line by line, checking the checksum suffixes of a checksummed file.
+     *
+     * @param filePath      The task file to decode.
+     * @param isChecksummed {@code true} if the lines are written with a checksum suffix.
+     * @param blobStore     The blob store of the task file, or {@code null} if it has none.
+     * @return A {@code TaskList} containing the decoded tasks.
+     * @throws FileContentException If any line does not match its checksum or is an invalid encoded task.
+     * @throws IOException          If the file cannot be read.
+     */
+    private static TaskList decodeTaskList(Path filePath, boolean isChecksummed, BlobStore blobStore)
+            throws FileContentException, IOException {
+        TaskList taskList = new TaskList();
+        TaskFileReader.forEachLine(filePath, FormatHeader.findRecordsStart(filePath), Long.MAX_VALUE,
+                encodedTask -> addDecodedTask(taskList, encodedTask, isChecksummed, blobStore));
+        return taskList;
+    }
+
+    /**
+     * Decodes a task file into a {@code TaskList}, decoding chunks of the file in parallel if it is larger than
+     * the given threshold.
+     *
+     * @param filePath          The task file to decode.
+     * @param parallelThreshold The file size, in bytes, above which the file is decoded in parallel.
+     * @return A {@code TaskList} containing the decoded tasks, in file order.
+     * @throws FileContentException If any encoded task has an invalid format.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static TaskList decodeTaskList(Path filePath, long parallelThreshold)
+            throws FileContentException, IOException {
+        return decodeTaskList(filePath, parallelThreshold, null);
+    }
+
+    /**
+     * Decodes a task file into a {@code TaskList} like {@link #decodeTaskList(Path, long)}, but collects bad lines
+     * in the given quarantine list instead of failing if one is given.
+     *
+     * @param filePath          The task file to decode.
+     * @param parallelThreshold The file size, in bytes, above which the file is decoded in parallel.
+     * @param quarantine        The list to append the bad lines to, or {@code null} to fail on the first one.
+     * @return A {@code TaskList} containing the decoded tasks that are not quarantined, in file order.
+     * @throws FileContentException If any encoded task is invalid and no quarantine list is given.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static TaskList decodeTaskList(Path filePath, long parallelThreshold, List<String> quarantine)
+            throws FileContentException, IOException {
+        return decodeTaskList(filePath, parallelThreshold, quarantine, quarantine != null, null);
+    }
+
+    /**
+     * Decodes a task file into a {@code TaskList} like {@link #decodeTaskList(Path, long, List)}, resolving the
+     * descriptions stored out of line in the given blob store.
+     *
+     * @param filePath          The task file to decode.
+     * @param parallelThreshold The file size, in bytes, above which the file is decoded in parallel.
+     * @param quarantine        The list to append the bad lines to, or {@code null} to fail on the first one.
+     * @param isChecksummed     {@code true} if the lines are written with a checksum suffix. Must be set if a
+     *                          quarantine list is given.
+     * @param blobStore         The blob store of the task file, or {@code null} if it has none.
+     * @return A {@code TaskList} containing the decoded tasks that are not quarantined, in file order.
+     * @throws FileContentException If any encoded task is invalid and no quarantine list is given.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static TaskList decodeTaskList(Path filePath, long parallelThreshold, List<String> quarantine,
+                                          boolean isChecksummed, BlobStore blobStore)
+            throws FileContentException, IOException {
+        assert quarantine == null || isChecksummed : "Precondition failed: only checksummed lines are quarantined";
+        long fileSize = Files.size(filePath);
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if ((fileSize <= parallelThreshold || parallelism < 2) && quarantine == null) {
+            return decodeTaskList(filePath, isChecksummed, blobStore);
+        }
+        if (fileSize <= parallelThreshold || parallelism < 2) {
+            TaskList taskList = new TaskList();
+            long recordsStart = FormatHeader.findRecordsStart(filePath);
+            TaskFileReader.forEachRawLine(filePath, recordsStart, Long.MAX_VALUE, (line, length, lineOffset) -> {
+                Task task = decodeOrQuarantine(line, length, quarantine, blobStore);
+                if (task != null) {
+                    addOrQuarantine(taskList, task, quarantine);
+                }
+            });
+            return taskList;
+        }
+        int chunkCount = (int) Math.max(1, Math.min((long) parallelism * CHUNKS_PER_THREAD, fileSize / MIN_CHUNK_SIZE));
+        long[] boundaries = TaskFileReader.splitLines(filePath, FormatHeader.findRecordsStart(filePath), chunkCount);
+        List<DecodeChunkTask> chunkTasks = new ArrayList<>();
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            DecodeChunkTask chunkTask = new DecodeChunkTask(filePath, boundaries[i], boundaries[i + 1],
+                    quarantine == null ? null : new ArrayList<>(), isChecksummed, blobStore);
+            chunkTask.fork(); // Forking from outside the pool submits the chunk to the common pool
+            chunkTasks.add(chunkTask);
+        }
+
+        // Merging in file order reports the same first error, invalid line or duplicate, as a sequential decode
+        TaskList taskList = new TaskList();
+        try {
+            for (DecodeChunkTask chunkTask : chunkTasks) {
+                ChunkResult result = chunkTask.join();
+                if (quarantine != null) {
+                    quarantine.addAll(chunkTask.quarantine);
+                    result.tasks().forEach(task -> addOrQuarantine(taskList, task, quarantine));
+                    continue;
+                }
+                for (Task task : result.tasks()) {
+                    if (taskList.contains(task)) {
+                        throw duplicateTaskAt(filePath, taskList.size());
+                    }
+                    taskList.addTask(task);
+                }
+                if (result.error() != null) {
+                    throw result.error();
+                }
             }
-            tasks.add(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            chunkTasks.forEach(chunkTask -> chunkTask.cancel(false));
+        }
+        return taskList;
+    }
+
+    /**
+     * Creates the exception reported for a duplicate task, quoting its line as the sequential decode does.
+     * The line is only looked up on this error path, so chunks do not need to keep their encoded lines.
+     *
+     * @param filePath  The task file being decoded.
+     * @param lineIndex The 0-based index of the line holding the duplicate task.
+     * @return A {@code FileContentException} describing the duplicate.
+     * @throws IOException If the file cannot be read.
+     */
+    private static FileContentException duplicateTaskAt(Path filePath, int lineIndex) throws IOException {
+        String[] encodedTask = new String[1];
+        int[] currentIndex = {0};
+        try {
+            TaskFileReader.forEachLine(filePath, FormatHeader.findRecordsStart(filePath), Long.MAX_VALUE, line -> {
+                if (currentIndex[0]++ == lineIndex) {
+                    encodedTask[0] = line;
+                }
+            });
+        } catch (FileContentException e) {
+            throw new AssertionError("The line handler never rejects a line", e);
+        }
+        return new FileContentException(MESSAGE_DUPLICATE_TASK_IN_FILE,
+                String.format("EncodedTask='%s'", encodedTask[0]), MESSAGE_DUPLICATE_TASK_IN_FILE_HELP);
+    }
+
+    /**
+     * Decodes a raw line, checking its checksum suffix if it has one, or adds it to the quarantine list if it
+     * fails its checksum or is not a valid encoded task.
+     *
+     * @param line       The buffer holding the line, without its line terminator.
+     * @param length     The number of bytes of the buffer that belong to the line.
+     * @param quarantine The list to append the line to if it is bad.
+     * @param blobStore  The blob store holding the out-of-line descriptions, or {@code null} if there is none.
+     * @return The decoded task, or {@code null} if the line was quarantined.
+     */
+    static Task decodeOrQuarantine(byte[] line, int length, List<String> quarantine, BlobStore blobStore) {
+        RecordChecksum.Status status = RecordChecksum.check(line, length);
+        if (status != RecordChecksum.Status.MISMATCH) {
+            // The checksum is already checked here, so the suffix is dropped before decoding
+            int contentLength = status == RecordChecksum.Status.VALID ? length - RecordChecksum.SUFFIX_LENGTH : length;
+            try {
+                return TaskDecoder.decodeTask(new String(line, 0, contentLength, StandardCharsets.UTF_8), blobStore);
+            } catch (FileContentException e) {
+                // Falls through to quarantine the line
+            }
+        }
+        quarantine.add(new String(line, 0, length, StandardCharsets.UTF_8));
+        return null;
+    }
+
+    /**
+     * Appends a decoded task to the tasks decoded so far, or adds it to the quarantine list if it is a duplicate.
+     *
+     * @param taskList   The tasks decoded so far.
+     * @param task       The decoded task.
+     * @param quarantine The list to append the encoded task to if it is a duplicate.
+     */
+    private static void addOrQuarantine(TaskList taskList, Task task, List<String> quarantine) {
+        if (taskList.contains(task)) {
+            quarantine.add(TaskEncoder.encodeTask(task));
+            return;
+        }
+        taskList.addTask(task);
+    }
+
+    /**
+     * Decodes a single encoded task and appends it to the tasks decoded so far.
+     *
+     * @param taskList      The tasks decoded so far.
+     * @param encodedTask   The encoded task string.
+     * @param isChecksummed {@code true} if the encoded task may end with a checksum suffix.
+     * @param blobStore     The blob store holding the out-of-line descriptions, or {@code null} if there is none.
+     * @throws FileContentException If the encoded task is invalid or duplicates an earlier task.
+     */
+    private static void addDecodedTask(TaskList taskList, String encodedTask, boolean isChecksummed,
+                                       BlobStore blobStore) throws FileContentException {
+        addTask(taskList, TaskDecoder.decodeLine(encodedTask, isChecksummed, blobStore),
+                String.format("EncodedTask='%s'", encodedTask));
+    }
+
+    /**
+     * Appends a decoded task to the tasks decoded so far, rejecting duplicates.
+     *
+     * @param taskList The tasks decoded so far.
+     * @param task     The decoded task.
+     * @param detail   The detail identifying the task in the file, reported if it is a duplicate.
+     * @throws FileContentException If the task duplicates an earlier task.
+     */
+    static void addTask(TaskList taskList, Task task, String detail) throws FileContentException {
+        if (taskList.contains(task)) {
+            throw new FileContentException(MESSAGE_DUPLICATE_TASK_IN_FILE, detail, MESSAGE_DUPLICATE_TASK_IN_FILE_HELP);
         }
-        return new TaskList(tasks);
+        taskList.addTask(task);
     }
 }
@@ -0,0 +1,135 @@
+package wkduke.storage.encoder;
+
+import wkduke.storage.binary.BinaryFormat;
+import wkduke.storage.index.ContentFingerprint;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.Todo;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Encodes a {@code TaskList} into the compact binary task file format described by {@link BinaryFormat}.
+ */
+public class BinaryTaskListEncoder {
+    /**
+     * Encodes the flags byte that starts the record of a task, packing its type, priority and status.
+     * The byte can overwrite the first byte of the task's record in place.
+     *
+     * @param task The task to encode.
+     * @return The flags byte.
+     */
+    public static byte encodeFlags(Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        int type;
+        if (task instanceof Todo) {
+            type = BinaryFormat.TYPE_TODO;
+        } else if (task instanceof Deadline) {
+            type = BinaryFormat.TYPE_DEADLINE;
+        } else if (task instanceof Event) {
+            type = BinaryFormat.TYPE_EVENT;
+        } else {
+            throw new IllegalArgumentException("Unknown task type");
+        }
+        int flags = type | task.getPriority().ordinal() << BinaryFormat.PRIORITY_SHIFT;
+        if (task.isDone()) {
+            flags |= BinaryFormat.DONE_FLAG;
+        }
+        return (byte) flags;
+    }
+
+    /**
+     * Encodes a single {@code Task} as one binary record.
+     *
+     * @param task The task to encode.
+     * @param out  The stream to write the record to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void encodeTask(Task task, OutputStream out) throws IOException {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        out.write(encodeFlags(task));
+
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        BinaryFormat.writeVarLong(out, description.length);
+        out.write(description);
+
+        if (task instanceof Deadline deadline) {
+            BinaryFormat.writeSignedVarLong(out, BinaryFormat.toEpochMinute(deadline.getBy()));
+        } else if (task instanceof Event event) {
+            long from = BinaryFormat.toEpochMinute(event.getFrom());
+            BinaryFormat.writeSignedVarLong(out, from);
+            BinaryFormat.writeSignedVarLong(out, BinaryFormat.toEpochMinute(event.getTo()) - from);
+        }
+    }
+
+    /**
+     * Writes the file header followed by one record per task.
+     *
+     * @param taskList The {@code TaskList} containing tasks to encode.
+     * @param out      The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void writeTaskList(TaskList taskList, OutputStream out) throws IOException {
+        out.write(BinaryFormat.MAGIC);
+        out.write(BinaryFormat.VERSION);
+        for (Task task : taskList.getTasks()) {
+            encodeTask(task, out);
+        }
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} straight into a file.
+     *
+     * @param taskList The {@code TaskList} containing tasks to encode.
+     * @param filePath The file to overwrite.
+     * @return The offsets of the records written, one per task, and the fingerprint of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static RecordLayout writeTaskList(TaskList taskList, Path filePath) throws IOException {
+        long[] recordStarts = new long[taskList.size()];
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        long fingerprint;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(filePath))) {
+            out.write(BinaryFormat.MAGIC);
+            out.write(BinaryFormat.VERSION);
+            fingerprint = ContentFingerprint.of(BinaryFormat.MAGIC, 0)
+                    + ContentFingerprint.of(new byte[]{(byte) BinaryFormat.VERSION}, BinaryFormat.MAGIC.length);
+            long recordStart = BinaryFormat.MAGIC.length + 1;
+            int recordCount = 0;
+            for (Task task : taskList.getTasks()) {
+                record.reset();
+                encodeTask(task, record);
+                recordStarts[recordCount++] = recordStart;
+                record.writeTo(out);
+                fingerprint += ContentFingerprint.of(record.toByteArray(), recordStart);
+                recordStart += record.size();
+            }
+        }
+        return new RecordLayout(recordStarts, fingerprint);
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} into an in-memory file image.
+     *
+     * @param taskList The {@code TaskList} containing tasks to encode.
+     * @return The encoded file content.
+     */
+    public static byte[] encodeTaskList(TaskList taskList) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeTaskList(taskList, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("ByteArrayOutputStream does not throw", e);
+        }
+        return out.toByteArray();
+    }
+}
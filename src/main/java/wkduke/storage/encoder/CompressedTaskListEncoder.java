@@ -0,0 +1,85 @@
+package wkduke.storage.encoder;
+
+import wkduke.storage.compressed.BlockGzipFormat;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes a {@code TaskList} into the compressed task file format described by {@link BlockGzipFormat}.
+ * Lines are encoded as in the text format, reusing the lines cached on the tasks, and compressed one block at a
+ * time, so only one block is buffered.
+ */
+public class CompressedTaskListEncoder {
+    /**
+     * Writes one compressed block per {@link BlockGzipFormat#BLOCK_SIZE} bytes of encoded lines.
+     * A block always ends at a line terminator, so that it can be decoded on its own.
+     *
+     * @param taskList The {@code TaskList} containing tasks to encode.
+     * @param out      The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public static void writeTaskList(TaskList taskList, OutputStream out) throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            byte[] block = new byte[BlockGzipFormat.BLOCK_SIZE];
+            int blockLength = 0;
+            for (Task task : taskList.getTasks()) {
+                byte[] line = TaskEncoder.encodeLine(task);
+                int lineLength = line.length;
+                if (blockLength > 0 && blockLength + lineLength > BlockGzipFormat.BLOCK_SIZE) {
+                    BlockGzipFormat.writeBlock(out, block, blockLength, deflater);
+                    blockLength = 0;
+                }
+                if (lineLength > block.length) {
+                    block = Arrays.copyOf(block, lineLength); // A single line longer than a block gets its own
+                }
+                System.arraycopy(line, 0, block, blockLength, lineLength);
+                blockLength += lineLength;
+            }
+            if (blockLength > 0) {
+                BlockGzipFormat.writeBlock(out, block, blockLength, deflater);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} straight into a file.
+     *
+     * @param taskList The {@code TaskList} containing tasks to encode.
+     * @param filePath The file to overwrite.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeTaskList(TaskList taskList, Path filePath) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(filePath))) {
+            writeTaskList(taskList, out);
+        }
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} into an in-memory file image.
+     *
+     * @param taskList The {@code TaskList} containing tasks to encode.
+     * @return The encoded file content.
+     */
+    public static byte[] encodeTaskList(TaskList taskList) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeTaskList(taskList, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("ByteArrayOutputStream does not throw", e);
+        }
+        return out.toByteArray();
+    }
+}
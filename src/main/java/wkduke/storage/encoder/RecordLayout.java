@@ -0,0 +1,13 @@
+package wkduke.storage.encoder;
+
+import wkduke.storage.index.ContentFingerprint;
+
+/**
+ * Describes a task file as it was just written, so that its offsets and date index can be kept without reading it
+ * again.
+ *
+ * @param recordStarts The ascending offsets of the records written, one per task.
+ * @param fingerprint  The {@link ContentFingerprint} of the whole file.
+ */
+public record RecordLayout(long[] recordStarts, long fingerprint) {
+}
@@ -1,76 +1,239 @@
 package wkduke.storage.encoder;
 
 import wkduke.parser.TimeParser;
+import wkduke.storage.blob.BlobReference;
+import wkduke.storage.blob.BlobStore;
+import wkduke.storage.checksum.RecordChecksum;
 import wkduke.task.Deadline;
 import wkduke.task.Event;
 import wkduke.task.Task;
 import wkduke.task.Todo;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
 /**
  * Encodes different types of {@code Task} objects into their string representations for file storage.
  * Supports encoding {@code Todo}, {@code Deadline}, and {@code Event} task types.
+ *
+ * <p>Fields are appended straight into a caller-supplied {@code StringBuilder}, so a whole list can be
+ * encoded through one reusable buffer.</p>
  */
 public class TaskEncoder {
     /**
-     * Encodes a {@code Deadline} task.
+     * The offset of the priority field within an encoded task; the status field follows it.
+     * The type code before it is always a single character.
+     */
+    public static final int STATUS_FIELDS_OFFSET = "T | ".length();
+    private static final String FIELD_SEPARATOR = " | ";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int MAX_PADDED_YEAR = 9999;
+
+    /**
+     * Appends the fields shared by every task type: type, priority, status and description.
+     * A description stored in the given blob store is written as its reference, with a lowercase type code.
      *
-     * @param deadline The {@code Deadline} task to encode.
-     * @return The encoded string representation of the task.
+     * @param task      The task to encode.
+     * @param typeCode  The code of the task type.
+     * @param blobStore The blob store of the task file being written, or {@code null} if it has none.
+     * @param buffer    The buffer to append to.
      */
-    private static String encodeDeadlineTask(Deadline deadline) {
-        return String.format("D | %s | %s | %s | %s",
-                deadline.getPriority(),
-                deadline.isDone() ? "1" : "0",
-                deadline.getDescription(),
-                deadline.getBy().format(TimeParser.ENCODING_FORMATTER)
-        );
+    private static void appendCommonFields(Task task, char typeCode, BlobStore blobStore, StringBuilder buffer) {
+        BlobReference reference = findReference(task, blobStore);
+        buffer.append(reference == null ? typeCode : Character.toLowerCase(typeCode))
+                .append(FIELD_SEPARATOR).append(task.getPriority())
+                .append(FIELD_SEPARATOR).append(task.isDone() ? '1' : '0')
+                .append(FIELD_SEPARATOR);
+        if (reference == null) {
+            buffer.append(task.getDescription());
+        } else {
+            reference.appendTo(buffer);
+        }
     }
 
     /**
-     * Encodes an {@code Event} task.
+     * Retrieves the reference to the description of a task if it is stored in the given blob store.
      *
-     * @param event The {@code Event} task to encode.
-     * @return The encoded string representation of the task.
+     * @param task      The task.
+     * @param blobStore The blob store of the task file being written, or {@code null} if it has none.
+     * @return The reference, or {@code null} if the description has to be written inline.
      */
-    private static String encodeEventTask(Event event) {
-        return String.format("E | %s | %s | %s | %s | %s",
-                event.getPriority(),
-                event.isDone() ? "1" : "0",
-                event.getDescription(),
-                event.getFrom().format(TimeParser.ENCODING_FORMATTER),
-                event.getTo().format(TimeParser.ENCODING_FORMATTER)
-        );
+    private static BlobReference findReference(Task task, BlobStore blobStore) {
+        return (blobStore == null) ? null : blobStore.findReference(task);
     }
 
     /**
-     * Encodes a single {@code Task} into a string based on its type.
+     * Encodes the priority and status fields of a task, e.g. {@code "H | 1"}.
+     * These bytes can overwrite the same fields of the task's encoded line in place,
+     * at {@link #STATUS_FIELDS_OFFSET}, since their length never changes.
      *
      * @param task The task to encode.
-     * @return The encoded string representation of the task.
+     * @return The ASCII bytes of the priority and status fields.
      */
-    public static String encodeTask(Task task) {
+    public static byte[] encodeStatusFields(Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        String statusFields = task.getPriority() + FIELD_SEPARATOR + (task.isDone() ? '1' : '0');
+        return statusFields.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Appends a date-time field in the {@code yyyy-MM-dd HH:mm} encoding format.
+     *
+     * @param dateTime The date-time to encode.
+     * @param buffer   The buffer to append to.
+     */
+    private static void appendDateTime(LocalDateTime dateTime, StringBuilder buffer) {
+        buffer.append(FIELD_SEPARATOR);
+        int year = dateTime.getYear();
+        if (year < 1 || year > MAX_PADDED_YEAR) {
+            // Years outside 0001-9999 are printed as year-of-era by the "yyyy" pattern, so defer to the formatter
+            TimeParser.ENCODING_FORMATTER.formatTo(dateTime, buffer);
+            return;
+        }
+        appendPadded(year, 4, buffer);
+        buffer.append('-');
+        appendPadded(dateTime.getMonthValue(), 2, buffer);
+        buffer.append('-');
+        appendPadded(dateTime.getDayOfMonth(), 2, buffer);
+        buffer.append(' ');
+        appendPadded(dateTime.getHour(), 2, buffer);
+        buffer.append(':');
+        appendPadded(dateTime.getMinute(), 2, buffer);
+    }
+
+    /**
+     * Appends a non-negative number left-padded with zeros.
+     *
+     * @param value  The number to append.
+     * @param width  The minimum number of digits.
+     * @param buffer The buffer to append to.
+     */
+    private static void appendPadded(int value, int width, StringBuilder buffer) {
+        for (int limit = 10, digits = 1; digits < width; limit *= 10, digits++) {
+            if (value < limit) {
+                buffer.append('0');
+            }
+        }
+        buffer.append(value);
+    }
+
+    /**
+     * Appends the encoded form of a single {@code Task}, without a line terminator.
+     *
+     * @param task   The task to encode.
+     * @param buffer The buffer to append to.
+     */
+    public static void encodeTask(Task task, StringBuilder buffer) {
+        encodeTask(task, null, buffer);
+    }
+
+    /**
+     * Appends the encoded form of a single {@code Task}, without a line terminator, referring to its description
+     * if it is stored in the given blob store.
+     *
+     * @param task      The task to encode.
+     * @param blobStore The blob store of the task file being written, or {@code null} to write every description
+     *                  inline.
+     * @param buffer    The buffer to append to.
+     */
+    public static void encodeTask(Task task, BlobStore blobStore, StringBuilder buffer) {
         assert task != null : "Precondition failed: 'task' cannot be null";
+        assert buffer != null : "Precondition failed: 'buffer' cannot be null";
         if (task instanceof Todo) {
-            return encodeTodoTask((Todo) task);
-        } else if (task instanceof Deadline) {
-            return encodeDeadlineTask((Deadline) task);
-        } else if (task instanceof Event) {
-            return encodeEventTask((Event) task);
+            appendCommonFields(task, 'T', blobStore, buffer);
+        } else if (task instanceof Deadline deadline) {
+            appendCommonFields(deadline, 'D', blobStore, buffer);
+            appendDateTime(deadline.getBy(), buffer);
+        } else if (task instanceof Event event) {
+            appendCommonFields(event, 'E', blobStore, buffer);
+            appendDateTime(event.getFrom(), buffer);
+            appendDateTime(event.getTo(), buffer);
+        } else {
+            throw new IllegalArgumentException("Unknown task type");
+        }
+    }
+
+    /**
+     * Encodes a single {@code Task} into the UTF-8 bytes of its line, including the line terminator.
+     * The bytes are cached on the task until its status or priority changes, so encoding an unchanged task again
+     * costs nothing. The returned array is shared and must not be modified.
+     *
+     * @param task The task to encode.
+     * @return The encoded line of the task.
+     */
+    public static byte[] encodeLine(Task task) {
+        return encodeLine(task, false);
+    }
+
+    /**
+     * Encodes a single {@code Task} into the UTF-8 bytes of its line, optionally ending with a
+     * {@link RecordChecksum} suffix, including the line terminator.
+     * The cached line is reused if it has the requested form, and replaced otherwise.
+     *
+     * @param task          The task to encode.
+     * @param isChecksummed {@code true} to append a checksum suffix to the line.
+     * @return The encoded line of the task.
+     */
+    public static byte[] encodeLine(Task task, boolean isChecksummed) {
+        return encodeLine(task, isChecksummed, null);
+    }
+
+    /**
+     * Encodes a single {@code Task} into the UTF-8 bytes of its line like {@link #encodeLine(Task, boolean)},
+     * referring to its description if it is stored in the given blob store.
+     * The cached line is reused if it has the requested form, and replaced otherwise.
+     *
+     * @param task          The task to encode.
+     * @param isChecksummed {@code true} to append a checksum suffix to the line.
+     * @param blobStore     The blob store of the task file being written, or {@code null} to write every
+     *                      description inline.
+     * @return The encoded line of the task.
+     */
+    public static byte[] encodeLine(Task task, boolean isChecksummed, BlobStore blobStore) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        byte[] line = task.getCachedEncoding();
+        if (line == null || isChecksummed(line) != isChecksummed
+                || isOutOfLine(line) != (findReference(task, blobStore) != null)) {
+            StringBuilder buffer = new StringBuilder();
+            encodeTask(task, blobStore, buffer);
+            if (isChecksummed) {
+                RecordChecksum.appendChecksum(buffer);
+            }
+            line = buffer.append(LINE_SEPARATOR).toString().getBytes(StandardCharsets.UTF_8);
+            task.setCachedEncoding(line);
         }
-        throw new IllegalArgumentException("Unknown task type");
+        return line;
+    }
+
+    /**
+     * Checks whether an encoded line refers to a description stored out of line, marked by a lowercase type code.
+     *
+     * @param line The encoded line.
+     * @return {@code true} if the description is a blob reference; {@code false} if it is inline.
+     */
+    private static boolean isOutOfLine(byte[] line) {
+        return line[0] >= 'a' && line[0] <= 'z';
     }
 
     /**
-     * Encodes a {@code Todo} task.
+     * Checks whether an encoded line, including its line terminator, ends with a valid checksum suffix.
      *
-     * @param todo The {@code Todo} task to encode.
+     * @param line The encoded line.
+     * @return {@code true} if the line is checksummed; {@code false} otherwise.
+     */
+    private static boolean isChecksummed(byte[] line) {
+        return RecordChecksum.check(line, line.length - LINE_SEPARATOR.length()) == RecordChecksum.Status.VALID;
+    }
+
+    /**
+     * Encodes a single {@code Task} into a string based on its type.
+     *
+     * @param task The task to encode.
      * @return The encoded string representation of the task.
      */
-    private static String encodeTodoTask(Todo todo) {
-        return String.format("T | %s | %s | %s",
-                todo.getPriority(),
-                todo.isDone() ? "1" : "0",
-                todo.getDescription()
-        );
+    public static String encodeTask(Task task) {
+        StringBuilder buffer = new StringBuilder();
+        encodeTask(task, buffer);
+        return buffer.toString();
     }
 }
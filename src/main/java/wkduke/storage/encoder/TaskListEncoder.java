@@ -1,8 +1,17 @@
 package wkduke.storage.encoder;
 
+import wkduke.storage.blob.BlobStore;
+import wkduke.storage.format.FormatHeader;
+import wkduke.storage.index.ContentFingerprint;
 import wkduke.task.Task;
 import wkduke.task.TaskList;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,9 +19,18 @@ import java.util.List;
 /**
  * Encodes a {@code TaskList} into a format suitable for file storage.
  * Each task in the list is converted to a string representation.
+ *
+ * <p>Files are written from the encoded lines cached on each task by {@link TaskEncoder#encodeLine(Task)}, with
+ * gathering writes of those buffers, so saving a large list re-encodes only the tasks changed since the last
+ * save.</p>
+ *
+ * <p>A file of a format version above {@link FormatHeader#LEGACY_VERSION} starts with its {@link FormatHeader} line,
+ * which the offsets and fingerprint returned by the writers count.</p>
  */
 //Solution below inspired by https://github.com/se-edu/addressbook-level2/blob/master/src/seedu/addressbook/storage/AddressBookEncoder.java
 public class TaskListEncoder {
+    private static final int GATHER_BATCH_SIZE = 1024;
+
     /**
      * Encodes the tasks in the given {@code TaskList} into a list of strings.
      *
@@ -27,4 +45,157 @@ public class TaskListEncoder {
         }
         return encodedTasks;
     }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} into their lines, reusing the lines cached on the tasks.
+     * The result stays valid when the tasks change afterwards, since a change replaces a task's cached line
+     * rather than modifying it.
+     *
+     * @param taskList The {@code TaskList} containing tasks to encode.
+     * @return The encoded line of each task, including its line terminator.
+     */
+    public static List<byte[]> encodeLines(TaskList taskList) {
+        return encodeLines(taskList, false);
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} into their lines like {@link #encodeLines(TaskList)},
+     * optionally ending every line with a checksum suffix.
+     *
+     * @param taskList      The {@code TaskList} containing tasks to encode.
+     * @param isChecksummed {@code true} to append a checksum suffix to every line.
+     * @return The encoded line of each task, including its line terminator.
+     */
+    public static List<byte[]> encodeLines(TaskList taskList, boolean isChecksummed) {
+        return encodeLines(taskList, isChecksummed, null);
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} into their lines like {@link #encodeLines(TaskList, boolean)},
+     * referring to the descriptions stored in the given blob store.
+     *
+     * @param taskList      The {@code TaskList} containing tasks to encode.
+     * @param isChecksummed {@code true} to append a checksum suffix to every line.
+     * @param blobStore     The blob store of the task file being written, or {@code null} to write every
+     *                      description inline.
+     * @return The encoded line of each task, including its line terminator.
+     */
+    public static List<byte[]> encodeLines(TaskList taskList, boolean isChecksummed, BlobStore blobStore) {
+        List<byte[]> lines = new ArrayList<>(taskList.size());
+        for (Task task : taskList.getTasks()) {
+            lines.add(TaskEncoder.encodeLine(task, isChecksummed, blobStore));
+        }
+        return lines;
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} straight into a file, one task per line.
+     * The output is byte-for-byte identical to writing {@link #encodeTaskList(TaskList)} with
+     * {@link Files#write(Path, Iterable, java.nio.file.OpenOption...)}, but no intermediate strings are built.
+     *
+     * @param taskList The {@code TaskList} containing tasks to encode.
+     * @param filePath The file to overwrite.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeTaskList(TaskList taskList, Path filePath) throws IOException {
+        writeTaskList(taskList, filePath, false);
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} straight into a file, one task per line,
+     * optionally ending every line with a checksum suffix.
+     *
+     * @param taskList      The {@code TaskList} containing tasks to encode.
+     * @param filePath      The file to overwrite.
+     * @param isChecksummed {@code true} to append a checksum suffix to every line.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeTaskList(TaskList taskList, Path filePath, boolean isChecksummed) throws IOException {
+        writeTaskList(taskList, filePath, isChecksummed, null);
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} straight into a file, one task per line, referring to the
+     * descriptions stored in the given blob store.
+     *
+     * @param taskList      The {@code TaskList} containing tasks to encode.
+     * @param filePath      The file to overwrite.
+     * @param isChecksummed {@code true} to append a checksum suffix to every line.
+     * @param blobStore     The blob store of the file, or {@code null} to write every description inline.
+     * @return The offsets of the lines written, one per task, and the fingerprint of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static RecordLayout writeTaskList(TaskList taskList, Path filePath, boolean isChecksummed,
+                                             BlobStore blobStore) throws IOException {
+        return writeTaskList(taskList, filePath, isChecksummed, blobStore, FormatHeader.CURRENT_VERSION);
+    }
+
+    /**
+     * Encodes the tasks in the given {@code TaskList} straight into a file of the given format version, one task
+     * per line after the header of the version.
+     *
+     * @param taskList      The {@code TaskList} containing tasks to encode.
+     * @param filePath      The file to overwrite.
+     * @param isChecksummed {@code true} to append a checksum suffix to every line.
+     * @param blobStore     The blob store of the file, or {@code null} to write every description inline.
+     * @param formatVersion The format version of the file.
+     * @return The offsets of the lines written, one per task, and the fingerprint of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static RecordLayout writeTaskList(TaskList taskList, Path filePath, boolean isChecksummed,
+                                             BlobStore blobStore, int formatVersion) throws IOException {
+        return writeLines(encodeLines(taskList, isChecksummed, blobStore), filePath, formatVersion);
+    }
+
+    /**
+     * Writes encoded lines to a file of the current format version with gathering writes, a batch of lines per
+     * system call.
+     *
+     * @param lines    The encoded lines, each including its line terminator.
+     * @param filePath The file to overwrite.
+     * @return The offsets of the lines written and the fingerprint of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static RecordLayout writeLines(List<byte[]> lines, Path filePath) throws IOException {
+        return writeLines(lines, filePath, FormatHeader.CURRENT_VERSION);
+    }
+
+    /**
+     * Writes encoded lines to a file of the given format version, after the header of the version.
+     *
+     * @param lines         The encoded lines, each including its line terminator.
+     * @param filePath      The file to overwrite.
+     * @param formatVersion The format version of the file.
+     * @return The offsets of the lines written and the fingerprint of the file, both counting the header.
+     * @throws IOException If the file cannot be written.
+     */
+    public static RecordLayout writeLines(List<byte[]> lines, Path filePath, int formatVersion) throws IOException {
+        byte[] header = FormatHeader.encodeLine(formatVersion);
+        long[] lineStarts = new long[lines.size()];
+        long lineStart = header.length;
+        long fingerprint = ContentFingerprint.of(header, 0);
+        for (int i = 0; i < lineStarts.length; i++) {
+            lineStarts[i] = lineStart;
+            fingerprint += ContentFingerprint.of(lines.get(i), lineStart);
+            lineStart += lines.get(i).length;
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            while (headerBuffer.hasRemaining()) {
+                channel.write(headerBuffer);
+            }
+            ByteBuffer[] batch = new ByteBuffer[GATHER_BATCH_SIZE];
+            for (int batchStart = 0; batchStart < lines.size(); batchStart += GATHER_BATCH_SIZE) {
+                int batchSize = Math.min(GATHER_BATCH_SIZE, lines.size() - batchStart);
+                for (int i = 0; i < batchSize; i++) {
+                    batch[i] = ByteBuffer.wrap(lines.get(batchStart + i));
+                }
+                while (batch[batchSize - 1].hasRemaining()) {
+                    channel.write(batch, 0, batchSize);
+                }
+            }
+        }
+        return new RecordLayout(lineStarts, fingerprint);
+    }
 }
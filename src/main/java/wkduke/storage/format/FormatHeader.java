@@ -0,0 +1,128 @@
+package wkduke.storage.format;
+
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.decoder.TaskFileReader;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Describes the version header of the text task file format.
+ *
+ * <p>A text task file may start with a header line {@code #wkduke-format <version>} naming the version of the
+ * format its records are written in. A file without a header is in version 1, the format read by
+ * {@link wkduke.storage.decoder.TaskDecoder}, so every file written before versions were introduced is valid as it
+ * is. Version 1 is therefore never written with a header; later versions always are, so that a WKDuke that only
+ * knows version 1 rejects such a file as invalid instead of misreading it. Readers of the records start at
+ * {@link #findRecordsStart(Path)}, so the header is never taken for a record and record offsets count it.</p>
+ */
+public class FormatHeader {
+    public static final String HEADER_PREFIX = "#wkduke-format ";
+    public static final int LEGACY_VERSION = 1;
+    public static final int CURRENT_VERSION = 1;
+    private static final int MAX_VERSION_DIGITS = 9;
+
+    /**
+     * Encodes the header line of a version, without a line terminator.
+     *
+     * @param version The format version, above {@link #LEGACY_VERSION}.
+     * @return The header line.
+     */
+    public static String encode(int version) {
+        assert version > LEGACY_VERSION : "Precondition failed: version 1 is written without a header";
+        return HEADER_PREFIX + version;
+    }
+
+    /**
+     * Checks whether a line is a header line rather than a record.
+     * Records start with their task type, so a line starting with {@code '#'} can only be a header.
+     *
+     * @param line The line, without its line terminator.
+     * @return {@code true} if the line is a header line; {@code false} otherwise.
+     */
+    public static boolean isHeader(String line) {
+        return line.startsWith("#");
+    }
+
+    /**
+     * Reads the format version of a text task file from its first line, without reading the rest of the file.
+     *
+     * @param filePath The task file.
+     * @return The version named by the header, or {@link #LEGACY_VERSION} if the file has no header.
+     * @throws FileContentException If the first line is a malformed header or names version 1.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static int readVersion(Path filePath) throws FileContentException, IOException {
+        assert filePath != null : "Precondition failed: 'filePath' cannot be null";
+        String firstLine;
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            firstLine = channel.size() == 0 ? "" : TaskFileReader.readLine(channel, 0);
+        }
+        return isHeader(firstLine) ? decodeVersion(firstLine) : LEGACY_VERSION;
+    }
+
+    /**
+     * Encodes the header line of a version with its line terminator, as written at the start of a task file.
+     *
+     * @param version The format version.
+     * @return The bytes of the header line, or no bytes for {@link #LEGACY_VERSION}, which has no header.
+     */
+    public static byte[] encodeLine(int version) {
+        if (version == LEGACY_VERSION) {
+            return new byte[0];
+        }
+        return (encode(version) + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the offset of the first record of a text task file, just past its header line if it has one.
+     *
+     * @param filePath The task file.
+     * @return The offset of the first record, {@code 0} if the file has no header.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long findRecordsStart(Path filePath) throws IOException {
+        assert filePath != null : "Precondition failed: 'filePath' cannot be null";
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            if (channel.size() == 0 || !isHeader(TaskFileReader.readLine(channel, 0))) {
+                return 0;
+            }
+            return TaskFileReader.findNextLineStart(channel, 0);
+        }
+    }
+
+    /**
+     * Decodes the version named by a header line.
+     *
+     * @param header The header line.
+     * @return The version, above {@link #LEGACY_VERSION}.
+     * @throws FileContentException If the header is malformed or names version 1.
+     */
+    public static int decodeVersion(String header) throws FileContentException {
+        String encodedVersion = header.startsWith(HEADER_PREFIX) ? header.substring(HEADER_PREFIX.length()) : "";
+        if (encodedVersion.isEmpty() || encodedVersion.length() > MAX_VERSION_DIGITS
+                || !encodedVersion.chars().allMatch(Character::isDigit)) {
+            throw invalidHeader(header);
+        }
+        int version = Integer.parseInt(encodedVersion);
+        if (version <= LEGACY_VERSION) {
+            throw invalidHeader(header);
+        }
+        return version;
+    }
+
+    /**
+     * Creates the exception reported when the first line of a task file is not a valid header.
+     *
+     * @param header The offending line.
+     * @return A {@code FileContentException} describing the invalid header.
+     */
+    private static FileContentException invalidHeader(String header) {
+        return new FileContentException(Messages.MESSAGE_INVALID_FORMAT_HEADER,
+                String.format("Header='%s'", header), Messages.MESSAGE_INVALID_FORMAT_HEADER_HELP);
+    }
+}
@@ -0,0 +1,176 @@
+package wkduke.storage.format;
+
+import wkduke.common.Messages;
+import wkduke.common.Utils;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.checksum.RecordChecksum;
+import wkduke.storage.decoder.TaskFileReader;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Upgrades a text task file written in an older format version to the latest version, one record at a time.
+ *
+ * <p>Every record is read, passed through the {@link RecordMigration} of each version it is behind, and written to
+ * a new file next to the task file, which is then moved over it. Only the current record is held on the heap, so a
+ * file of any size is upgraded in constant memory, and a file already in the latest version is left untouched after
+ * reading its first line. A record with a valid checksum suffix gets the checksum of its upgraded content, while
+ * blank lines and records with a mismatched checksum are copied as they are, to be reported when the file is
+ * loaded.</p>
+ */
+public class FormatMigrator {
+    // The migration at index i upgrades records from version i + 1 to version i + 2
+    private static final List<RecordMigration> MIGRATIONS = List.of();
+    private static final String MIGRATING_FILE_SUFFIX = ".migrating";
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private final List<RecordMigration> migrations;
+
+    /**
+     * Constructs a {@code FormatMigrator} that upgrades files to {@link FormatHeader#CURRENT_VERSION}.
+     */
+    public FormatMigrator() {
+        this(MIGRATIONS);
+        assert getTargetVersion() == FormatHeader.CURRENT_VERSION : "Every version needs a migration from the last";
+    }
+
+    /**
+     * Constructs a {@code FormatMigrator} with the given chain of migrations.
+     *
+     * @param migrations The migrations, where the one at index {@code i} upgrades records from version {@code i + 1}
+     *                   to version {@code i + 2}.
+     */
+    public FormatMigrator(List<RecordMigration> migrations) {
+        assert migrations != null : "Precondition failed: 'migrations' cannot be null";
+        this.migrations = List.copyOf(migrations);
+    }
+
+    /**
+     * Retrieves the version that files are upgraded to.
+     *
+     * @return The latest version reached by the migrations.
+     */
+    public int getTargetVersion() {
+        return FormatHeader.LEGACY_VERSION + migrations.size();
+    }
+
+    /**
+     * Checks whether a task file is in an older version than the target version.
+     *
+     * @param filePath The task file.
+     * @return {@code true} if the file needs upgrading; {@code false} if it is in the target version.
+     * @throws FileContentException If the header is malformed or names a version newer than the target version.
+     * @throws IOException          If the file cannot be read.
+     */
+    public boolean isMigrationNeeded(Path filePath) throws FileContentException, IOException {
+        return readSupportedVersion(filePath) < getTargetVersion();
+    }
+
+    /**
+     * Reads the version of a task file, rejecting versions newer than the target version.
+     *
+     * @param filePath The task file.
+     * @return The version of the file.
+     * @throws FileContentException If the header is malformed or names a version newer than the target version.
+     * @throws IOException          If the file cannot be read.
+     */
+    private int readSupportedVersion(Path filePath) throws FileContentException, IOException {
+        int version = FormatHeader.readVersion(filePath);
+        if (version > getTargetVersion()) {
+            throw new FileContentException(
+                    String.format(Messages.MESSAGE_UNSUPPORTED_FORMAT_VERSION, version, getTargetVersion()),
+                    String.format("FilePath='%s'", filePath),
+                    Messages.MESSAGE_UNSUPPORTED_FORMAT_VERSION_HELP
+            );
+        }
+        return version;
+    }
+
+    /**
+     * Upgrades a task file to the target version, unless it is in the target version already.
+     * The upgraded file replaces the task file with an atomic move, so an interrupted upgrade leaves the file in its
+     * older version, to be upgraded again.
+     *
+     * @param filePath The task file.
+     * @return {@code true} if the file was upgraded; {@code false} if it was in the target version already.
+     * @throws FileContentException If the header is malformed or names a newer version, or a migration rejects a
+     *                              record.
+     * @throws IOException          If the file cannot be read or the upgraded file cannot be written.
+     */
+    public boolean migrate(Path filePath) throws FileContentException, IOException {
+        int version = readSupportedVersion(filePath);
+        if (version == getTargetVersion()) {
+            return false;
+        }
+        Path temporaryPath = Path.of(filePath + MIGRATING_FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            writeLine(out, FormatHeader.encode(getTargetVersion()));
+            boolean[] isHeaderLine = {version > FormatHeader.LEGACY_VERSION};
+            TaskFileReader.forEachLine(filePath, line -> {
+                if (isHeaderLine[0]) {
+                    isHeaderLine[0] = false;
+                    return;
+                }
+                writeLine(out, migrateLine(line, version));
+            });
+            out.flush();
+            // The upgraded file must be durable before it replaces the only copy of the tasks
+            channel.force(false);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Utils.moveAtomically(temporaryPath, filePath);
+        return true;
+    }
+
+    /**
+     * Upgrades a single line from the given version to the target version.
+     *
+     * @param line    The line, without its line terminator.
+     * @param version The version the line is written in.
+     * @return The upgraded line.
+     * @throws FileContentException If a migration rejects the record.
+     */
+    private String migrateLine(String line, int version) throws FileContentException {
+        RecordChecksum.Status checksumStatus = RecordChecksum.check(line);
+        if (line.isBlank() || checksumStatus == RecordChecksum.Status.MISMATCH) {
+            return line;
+        }
+        String record = RecordChecksum.stripValidChecksum(line);
+        for (int i = version - FormatHeader.LEGACY_VERSION; i < migrations.size(); i++) {
+            record = migrations.get(i).migrate(record);
+        }
+        if (checksumStatus == RecordChecksum.Status.ABSENT) {
+            return record;
+        }
+        StringBuilder checksummedRecord = new StringBuilder(record);
+        RecordChecksum.appendChecksum(checksummedRecord);
+        return checksummedRecord.toString();
+    }
+
+    /**
+     * Writes a line and its line terminator.
+     *
+     * @param out  The stream to write to.
+     * @param line The line, without its line terminator.
+     * @throws UncheckedIOException If the line cannot be written, so that it can be thrown from a line handler.
+     */
+    private static void writeLine(OutputStream out, String line) {
+        try {
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.write(LINE_SEPARATOR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
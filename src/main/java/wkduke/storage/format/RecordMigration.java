@@ -0,0 +1,18 @@
+package wkduke.storage.format;
+
+import wkduke.exception.storage.FileContentException;
+
+/**
+ * Upgrades a single record of a text task file from one format version to the next.
+ */
+@FunctionalInterface
+public interface RecordMigration {
+    /**
+     * Upgrades a record.
+     *
+     * @param record The record in the older version, without its checksum suffix or line terminator.
+     * @return The record in the next version.
+     * @throws FileContentException If the record is not valid in the older version.
+     */
+    String migrate(String record) throws FileContentException;
+}
@@ -0,0 +1,521 @@
+package wkduke.storage.history;
+
+import wkduke.common.Messages;
+import wkduke.common.Utils;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.decoder.TaskDecoder;
+import wkduke.storage.decoder.TaskFileReader;
+import wkduke.storage.encoder.TaskEncoder;
+import wkduke.storage.journal.Journal;
+import wkduke.storage.journal.JournalEntry;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manages the timestamped history of every mutation of a task list, next to the task file as
+ * {@code tasks.txt.history}, so that the task list can be reconstructed as it was at any past moment.
+ *
+ * <p>The history holds {@link JournalEntry} lines prefixed by the time they were committed and their sequence
+ * number, e.g. {@code "@ 2024-11-01T10:15:30.123 42 + 2 T | L | 0 | Read book"}, and checkpoints of the whole task
+ * list, written as a {@code "= <time> <sequence> <count>"} line followed by the encoded tasks. A checkpoint is written
+ * when the history starts and the loaded list is not the list its last sequence number leads to, after a mutation of
+ * the whole list such as sorting, and once {@code checkpointInterval} sequence numbers have passed since the last
+ * one. The time, offset and sequence number of every checkpoint is also appended to {@code tasks.txt.history.idx},
+ * so a past task list is reconstructed from the last checkpoint before it plus at most one interval of entries,
+ * rather than by replaying the history from the beginning. The index is rebuilt from the history if it is lost. A
+ * line torn by an interrupted append is cut off before the next append.</p>
+ *
+ * <p>With a retention, the history before the last checkpoint older than the retention is dropped when the history
+ * starts, so the history reaches back at least that many days without growing without bound.</p>
+ */
+public class TaskHistory {
+    public static final String HISTORY_FILE_SUFFIX = ".history";
+    private static final String INDEX_FILE_SUFFIX = ".history.idx";
+    private static final String ENTRY_PREFIX = "@ ";
+    private static final String CHECKPOINT_PREFIX = "= ";
+    private static final String TEMPORARY_FILE_SUFFIX = ".tmp";
+    private final Path historyPath;
+    private final Path indexPath;
+    private final int checkpointInterval;
+    private final long retentionDays;
+    private final List<LocalDateTime> checkpointTimes = new ArrayList<>();
+    private final List<Long> checkpointOffsets = new ArrayList<>();
+    private final List<Long> checkpointSequences = new ArrayList<>();
+    private boolean isOpen = false;
+    private long sequence;
+    private LocalDateTime lastTime = LocalDateTime.MIN;
+
+    /**
+     * Constructs a {@code TaskHistory} for the given task file. The history file is only created once the first
+     * checkpoint is written.
+     *
+     * @param dataFilePath       The task file whose mutations are recorded.
+     * @param checkpointInterval The number of entries after which a checkpoint is written. Must be positive.
+     * @param retentionDays      The number of days the history reaches back at least, or {@code 0} to keep the whole
+     *                           history. Must not be negative.
+     */
+    public TaskHistory(Path dataFilePath, int checkpointInterval, long retentionDays) {
+        assert dataFilePath != null : "Precondition failed: 'dataFilePath' cannot be null";
+        assert checkpointInterval > 0 : "Precondition failed: 'checkpointInterval' must be positive";
+        assert retentionDays >= 0 : "Precondition failed: 'retentionDays' cannot be negative";
+        historyPath = Path.of(dataFilePath + HISTORY_FILE_SUFFIX);
+        indexPath = Path.of(dataFilePath + INDEX_FILE_SUFFIX);
+        this.checkpointInterval = checkpointInterval;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Retrieves the path of the history file.
+     *
+     * @return The path of the history file.
+     */
+    public Path getHistoryPath() {
+        return historyPath;
+    }
+
+    /**
+     * Drops the history beyond the retention, and writes a checkpoint of the loaded task list if the history has
+     * none yet, or the list its last sequence number leads to is not the loaded list, e.g. because the task file was
+     * changed by an editor or a mutation never reached it. Loading the same list again, however often the task file
+     * was rewritten in between, records nothing.
+     *
+     * @param taskList The loaded {@code TaskList}.
+     * @throws FileContentException If the history is corrupt.
+     * @throws IOException          If the history cannot be read or written.
+     */
+    public synchronized void start(TaskList taskList) throws FileContentException, IOException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        open();
+        dropExpiredHistory();
+        if (checkpointTimes.isEmpty()
+                || !replay(checkpointTimes.size() - 1, LocalDateTime.MAX).getTasks().equals(taskList.getTasks())) {
+            checkpoint(taskList);
+        }
+    }
+
+    /**
+     * Records committed entries with the current time and the next sequence numbers, followed by a checkpoint once
+     * the checkpoint interval has passed since the last one.
+     *
+     * @param taskList The {@code TaskList} after the mutation described by the entries.
+     * @param entries  The entries describing the mutation, in the order they were applied.
+     * @throws FileContentException If the history index is corrupt.
+     * @throws IOException          If the history cannot be written.
+     */
+    public synchronized void record(TaskList taskList, List<JournalEntry> entries)
+            throws FileContentException, IOException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        assert entries != null : "Precondition failed: 'entries' cannot be null";
+        open();
+        if (checkpointTimes.isEmpty()) {
+            checkpoint(taskList);
+            return;
+        }
+        String time = nextTime().toString();
+        StringBuilder buffer = new StringBuilder();
+        for (JournalEntry entry : entries) {
+            buffer.append(ENTRY_PREFIX).append(time).append(' ').append(sequence + 1).append(' ')
+                    .append(entry.encode()).append(System.lineSeparator());
+            sequence++;
+        }
+        Files.writeString(historyPath, buffer, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        if (sequence - checkpointSequences.get(checkpointSequences.size() - 1) >= checkpointInterval) {
+            checkpoint(taskList);
+        }
+    }
+
+    /**
+     * Records a checkpoint of the whole task list with the current time and the next sequence number.
+     *
+     * @param taskList The {@code TaskList} to record.
+     * @throws FileContentException If the history index is corrupt.
+     * @throws IOException          If the history cannot be written.
+     */
+    public synchronized void checkpoint(TaskList taskList) throws FileContentException, IOException {
+        assert taskList != null : "Precondition failed: 'taskList' cannot be null";
+        open();
+        LocalDateTime time = nextTime();
+        long checkpointSequence = sequence + 1;
+        StringBuilder buffer = new StringBuilder();
+        buffer.append(CHECKPOINT_PREFIX).append(time).append(' ').append(checkpointSequence).append(' ')
+                .append(taskList.size()).append(System.lineSeparator());
+        for (Task task : taskList.getTasks()) {
+            TaskEncoder.encodeTask(task, buffer);
+            buffer.append(System.lineSeparator());
+        }
+        long offset = Files.exists(historyPath) ? Files.size(historyPath) : 0;
+        Files.writeString(historyPath, buffer, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        // The index is only written once the checkpoint is complete, so it never points at a torn checkpoint
+        Files.writeString(indexPath, encodeIndexLine(time, offset, checkpointSequence), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        checkpointTimes.add(time);
+        checkpointOffsets.add(offset);
+        checkpointSequences.add(checkpointSequence);
+        sequence = checkpointSequence;
+    }
+
+    /**
+     * Reconstructs the task list as it was at the given time, from the last checkpoint at or before it and the
+     * entries recorded after that checkpoint up to the time.
+     *
+     * @param asOf The time to reconstruct the task list at.
+     * @return The task list as it was, or {@code null} if the history does not reach back to the given time.
+     * @throws FileContentException If the history is corrupt.
+     * @throws IOException          If the history cannot be read.
+     */
+    public synchronized TaskList reconstruct(LocalDateTime asOf) throws FileContentException, IOException {
+        assert asOf != null : "Precondition failed: 'asOf' cannot be null";
+        open();
+        int checkpoint = findLastCheckpointAtOrBefore(asOf);
+        return checkpoint < 0 ? null : replay(checkpoint, asOf);
+    }
+
+    /**
+     * Reconstructs the task list from a checkpoint and the entries recorded after it up to the given time.
+     *
+     * @param checkpoint The position of the checkpoint.
+     * @param asOf       The time to reconstruct the task list at, not before the checkpoint.
+     * @return The task list as it was.
+     * @throws FileContentException If the history is corrupt.
+     * @throws IOException          If the history cannot be read.
+     */
+    private TaskList replay(int checkpoint, LocalDateTime asOf) throws FileContentException, IOException {
+        long start = checkpointOffsets.get(checkpoint);
+        long end = checkpoint + 1 < checkpointOffsets.size() ? checkpointOffsets.get(checkpoint + 1) : Long.MAX_VALUE;
+        TaskList taskList = new TaskList(new ArrayList<>());
+        int[] remainingTaskCount = {-1};
+        boolean[] isPastAsOf = {false};
+        TaskFileReader.forEachLine(historyPath, start, end, line -> {
+            if (remainingTaskCount[0] > 0) {
+                taskList.addTask(TaskDecoder.decodeTask(line));
+                remainingTaskCount[0]--;
+            } else if (remainingTaskCount[0] < 0) {
+                remainingTaskCount[0] = parseCheckpointTaskCount(line);
+            } else if (!isPastAsOf[0]) {
+                // Entries are recorded in time order, so the first entry after the time ends the replay
+                isPastAsOf[0] = parseEntryTime(line).isAfter(asOf);
+                if (!isPastAsOf[0]) {
+                    Journal.apply(taskList, JournalEntry.decode(line.substring(findEntryStart(line))));
+                }
+            }
+        });
+        return taskList;
+    }
+
+    /**
+     * Finds the last checkpoint at or before the given time by binary search over the checkpoint times.
+     *
+     * @param asOf The time to search for.
+     * @return The position of the checkpoint, or {@code -1} if every checkpoint is after the time.
+     */
+    private int findLastCheckpointAtOrBefore(LocalDateTime asOf) {
+        int low = 0;
+        int high = checkpointTimes.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (checkpointTimes.get(middle).isAfter(asOf)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Retrieves the current time for a new line of the history, never earlier than the last recorded time, so the
+     * history stays in time order even if the clock is set back.
+     *
+     * @return The time to record.
+     */
+    private LocalDateTime nextTime() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        lastTime = now.isAfter(lastTime) ? now : lastTime;
+        return lastTime;
+    }
+
+    /**
+     * Reads the checkpoint index and the entries after the last checkpoint, the first time the history is used.
+     * A line torn by an interrupted append is cut off the history and the index, and a lost index is rebuilt from
+     * the history.
+     *
+     * @throws FileContentException If the history is corrupt.
+     * @throws IOException          If the history cannot be read or repaired.
+     */
+    private void open() throws FileContentException, IOException {
+        if (isOpen) {
+            return;
+        }
+        cutOffTornLine(historyPath);
+        cutOffTornLine(indexPath);
+        long historySize = Files.exists(historyPath) ? Files.size(historyPath) : 0;
+        if (Files.exists(indexPath)) {
+            TaskFileReader.forEachLine(indexPath, line -> {
+                String[] fields = line.split(" ");
+                if (fields.length != 3) {
+                    throw invalidLine(line);
+                }
+                try {
+                    LocalDateTime time = LocalDateTime.parse(fields[0]);
+                    long offset = Long.parseLong(fields[1]);
+                    long checkpointSequence = Long.parseLong(fields[2]);
+                    // A checkpoint beyond the end of the history was lost with it
+                    if (offset < historySize) {
+                        checkpointTimes.add(time);
+                        checkpointOffsets.add(offset);
+                        checkpointSequences.add(checkpointSequence);
+                    }
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    throw invalidLine(line);
+                }
+            });
+        } else if (historySize > 0) {
+            rebuildIndex();
+        }
+        if (!checkpointTimes.isEmpty()) {
+            lastTime = checkpointTimes.get(checkpointTimes.size() - 1);
+            sequence = checkpointSequences.get(checkpointSequences.size() - 1);
+            TaskFileReader.forEachLine(historyPath, checkpointOffsets.get(checkpointOffsets.size() - 1),
+                    Long.MAX_VALUE, line -> {
+                        if (line.startsWith(ENTRY_PREFIX)) {
+                            LocalDateTime time = parseEntryTime(line);
+                            lastTime = time.isAfter(lastTime) ? time : lastTime;
+                            sequence = Math.max(sequence, parseSequence(line));
+                        }
+                    });
+        }
+        isOpen = true;
+    }
+
+    /**
+     * Rebuilds the checkpoint index from the checkpoint lines of the history, e.g. after the index was deleted while
+     * the history was cut down. A checkpoint is only indexed if all of its tasks follow it.
+     *
+     * @throws FileContentException If the history is corrupt.
+     * @throws IOException          If the history cannot be read or the index cannot be written.
+     */
+    private void rebuildIndex() throws FileContentException, IOException {
+        int[] remainingTaskCount = {0};
+        TaskFileReader.forEachRawLine(historyPath, 0, Long.MAX_VALUE, (bytes, length, lineOffset) -> {
+            if (remainingTaskCount[0] > 0) {
+                remainingTaskCount[0]--;
+            } else if (length > 0 && bytes[0] == CHECKPOINT_PREFIX.charAt(0)) {
+                String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                remainingTaskCount[0] = parseCheckpointTaskCount(line);
+                checkpointTimes.add(parseCheckpointTime(line));
+                checkpointOffsets.add(lineOffset);
+                checkpointSequences.add(parseSequence(line));
+            }
+        });
+        if (remainingTaskCount[0] > 0) {
+            // The last checkpoint was torn before all of its tasks were appended
+            checkpointTimes.remove(checkpointTimes.size() - 1);
+            checkpointOffsets.remove(checkpointOffsets.size() - 1);
+            checkpointSequences.remove(checkpointSequences.size() - 1);
+        }
+        writeIndex();
+    }
+
+    /**
+     * Drops the history before the last checkpoint older than the retention, so queries back to the retention can
+     * still be answered. The index is deleted before the history is replaced, so an interruption in between leaves a
+     * history whose index is rebuilt rather than an index pointing into the wrong history.
+     *
+     * @throws IOException If the history cannot be rewritten.
+     */
+    private void dropExpiredHistory() throws IOException {
+        if (retentionDays == 0) {
+            return;
+        }
+        int firstRetained = findLastCheckpointAtOrBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (firstRetained <= 0) {
+            return;
+        }
+        long droppedSize = checkpointOffsets.get(firstRetained);
+        Path temporaryPath = Path.of(historyPath + TEMPORARY_FILE_SUFFIX);
+        try (FileChannel source = FileChannel.open(historyPath, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long size = source.size();
+            long position = droppedSize;
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+            target.force(false);
+        }
+        Files.deleteIfExists(indexPath);
+        Utils.moveAtomically(temporaryPath, historyPath);
+        checkpointTimes.subList(0, firstRetained).clear();
+        checkpointOffsets.subList(0, firstRetained).clear();
+        checkpointSequences.subList(0, firstRetained).clear();
+        checkpointOffsets.replaceAll(offset -> offset - droppedSize);
+        writeIndex();
+    }
+
+    /**
+     * Writes the whole checkpoint index from the checkpoints in memory, replacing the index file atomically.
+     *
+     * @throws IOException If the index cannot be written.
+     */
+    private void writeIndex() throws IOException {
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < checkpointTimes.size(); i++) {
+            buffer.append(encodeIndexLine(checkpointTimes.get(i), checkpointOffsets.get(i),
+                    checkpointSequences.get(i)));
+        }
+        Path temporaryPath = Path.of(indexPath + TEMPORARY_FILE_SUFFIX);
+        Files.writeString(temporaryPath, buffer, StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.WRITE)) {
+            channel.force(false);
+        }
+        Utils.moveAtomically(temporaryPath, indexPath);
+    }
+
+    /**
+     * Encodes a line of the checkpoint index.
+     *
+     * @param time               The time of the checkpoint.
+     * @param offset             The offset of the checkpoint in the history.
+     * @param checkpointSequence The sequence number of the checkpoint.
+     * @return The line, with its line terminator.
+     */
+    private static String encodeIndexLine(LocalDateTime time, long offset, long checkpointSequence) {
+        return time + " " + offset + " " + checkpointSequence + System.lineSeparator();
+    }
+
+    /**
+     * Cuts a torn line without a line terminator off the end of a file.
+     *
+     * @param path The file to repair.
+     * @throws IOException If the file cannot be read or truncated.
+     */
+    private static void cutOffTornLine(Path path) throws IOException {
+        if (Files.notExists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long completeLength = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            while (completeLength > 0) {
+                buffer.clear();
+                channel.read(buffer, completeLength - 1);
+                if (buffer.get(0) == '\n') {
+                    break;
+                }
+                completeLength--;
+            }
+            channel.truncate(completeLength);
+        }
+    }
+
+    /**
+     * Parses the number of tasks that follow a checkpoint line.
+     *
+     * @param line The checkpoint line.
+     * @return The number of tasks of the checkpoint.
+     * @throws FileContentException If the line is not a valid checkpoint line.
+     */
+    private static int parseCheckpointTaskCount(String line) throws FileContentException {
+        String[] fields = line.split(" ");
+        if (!line.startsWith(CHECKPOINT_PREFIX) || fields.length != 4) {
+            throw invalidLine(line);
+        }
+        try {
+            LocalDateTime.parse(fields[1]);
+            Long.parseLong(fields[2]);
+            return Integer.parseInt(fields[3]);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw invalidLine(line);
+        }
+    }
+
+    /**
+     * Parses the time of a checkpoint line.
+     *
+     * @param line The checkpoint line, already validated by {@link #parseCheckpointTaskCount(String)}.
+     * @return The time the checkpoint was recorded.
+     */
+    private static LocalDateTime parseCheckpointTime(String line) {
+        return LocalDateTime.parse(line.split(" ")[1]);
+    }
+
+    /**
+     * Parses the time of an entry line.
+     *
+     * @param line The entry line.
+     * @return The time the entry was recorded.
+     * @throws FileContentException If the line is not a valid entry line.
+     */
+    private static LocalDateTime parseEntryTime(String line) throws FileContentException {
+        int timeEnd = line.indexOf(' ', ENTRY_PREFIX.length());
+        if (!line.startsWith(ENTRY_PREFIX) || timeEnd < 0) {
+            throw invalidLine(line);
+        }
+        try {
+            return LocalDateTime.parse(line.substring(ENTRY_PREFIX.length(), timeEnd));
+        } catch (DateTimeParseException e) {
+            throw invalidLine(line);
+        }
+    }
+
+    /**
+     * Parses the sequence number of an entry or checkpoint line, which follows its time.
+     *
+     * @param line The entry or checkpoint line.
+     * @return The sequence number of the line.
+     * @throws FileContentException If the line has no valid sequence number.
+     */
+    private static long parseSequence(String line) throws FileContentException {
+        int sequenceStart = line.indexOf(' ', CHECKPOINT_PREFIX.length()) + 1;
+        int sequenceEnd = line.indexOf(' ', sequenceStart);
+        if (sequenceStart == 0 || sequenceEnd < 0) {
+            throw invalidLine(line);
+        }
+        try {
+            return Long.parseLong(line.substring(sequenceStart, sequenceEnd));
+        } catch (NumberFormatException e) {
+            throw invalidLine(line);
+        }
+    }
+
+    /**
+     * Finds where the encoded journal entry of an entry line starts, after its time and sequence number.
+     *
+     * @param line The entry line.
+     * @return The index of the first character of the encoded entry.
+     * @throws FileContentException If the line has no encoded entry.
+     */
+    private static int findEntryStart(String line) throws FileContentException {
+        int sequenceStart = line.indexOf(' ', ENTRY_PREFIX.length()) + 1;
+        int entryStart = line.indexOf(' ', sequenceStart) + 1;
+        if (sequenceStart == 0 || entryStart == 0) {
+            throw invalidLine(line);
+        }
+        return entryStart;
+    }
+
+    /**
+     * Creates the exception reported when a line of the history or its index cannot be parsed.
+     *
+     * @param line The offending line.
+     * @return A {@code FileContentException} describing the line.
+     */
+    private static FileContentException invalidLine(String line) {
+        return new FileContentException(Messages.MESSAGE_INVALID_HISTORY_LINE, String.format("Line='%s'", line),
+                Messages.MESSAGE_INVALID_HISTORY_LINE_HELP);
+    }
+}
@@ -0,0 +1,84 @@
+package wkduke.storage.index;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Computes a 64-bit fingerprint of a file's content, so that a change that keeps the file's size and modification
+ * time is still noticed.
+ *
+ * <p>The fingerprint is the sum of a mixed hash of every byte together with its position. Since the sum does not
+ * depend on the order of its terms, a writer can keep the fingerprint up to date without reading the file again:
+ * appended bytes add their terms, and bytes overwritten in place subtract the terms of the old bytes and add those
+ * of the new ones.</p>
+ */
+public final class ContentFingerprint {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private ContentFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint terms of bytes stored at the given position of a file.
+     *
+     * @param bytes    The bytes.
+     * @param position The offset of the first byte in the file.
+     * @return The sum of the terms of the bytes.
+     */
+    public static long of(byte[] bytes, long position) {
+        return of(bytes, 0, bytes.length, position);
+    }
+
+    /**
+     * Computes the fingerprint terms of part of an array stored at the given position of a file.
+     *
+     * @param bytes    The array holding the bytes.
+     * @param start    The index of the first byte in the array.
+     * @param length   The number of bytes.
+     * @param position The offset of the first byte in the file.
+     * @return The sum of the terms of the bytes.
+     */
+    public static long of(byte[] bytes, int start, int length, long position) {
+        long fingerprint = 0;
+        for (int i = 0; i < length; i++) {
+            fingerprint += mix(((position + i) << 8) | (bytes[start + i] & 0xff));
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Computes the fingerprint of a whole file.
+     *
+     * @param path The file to read.
+     * @return The fingerprint of its content.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long of(Path path) throws IOException {
+        long fingerprint = 0;
+        long position = 0;
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(path)) {
+            int length;
+            while ((length = in.read(buffer)) >= 0) {
+                fingerprint += of(buffer, 0, length, position);
+                position += length;
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Scrambles a value with the SplitMix64 finalizer, so that nearby inputs give unrelated terms.
+     *
+     * @param value The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,844 @@
+package wkduke.storage.index;
+
+import wkduke.common.Messages;
+import wkduke.common.Utils;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.binary.BinaryFormat;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Manages the on-disk B+tree that maps the dates of the time aware tasks in a task file to their record offsets,
+ * so that date queries read only the matching records instead of the whole file.
+ *
+ * <p>The index sits next to the task file as {@code tasks.txt.idx} and is made of fixed-size pages:</p>
+ * <pre>
+ *     page 0      header: magic "WKDI", version, root page, page count, entry count, the size, modification
+ *                 time and {@link ContentFingerprint} of the task file it describes, whether that state was
+ *                 verified, and the longest span of each span bucket
+ *     leaf        type 0, entry count, next leaf page, then (key, record offset) pairs
+ *     internal    type 1, separator count, first child page, then (key, record offset, child page)
+ * </pre>
+ * <p>Deadlines are dated by their due date and events by their start. Tasks are grouped into buckets by how long
+ * they run, from instant deadlines up to events lasting more than a year, and a key is the bucket followed by the
+ * epoch minute. A query scans each bucket from the range start less the longest span in that bucket, so that
+ * events that started earlier and are still running are found, while one long event only widens the scan of its
+ * own bucket. Entries are ordered by key and then by offset, and leaves are chained for range scans.</p>
+ *
+ * <p>Appending a task inserts its entry, splitting pages as needed, while a rewritten task file moves every
+ * record, so the index is then bulk-loaded again from scratch. The index is only trusted while the recorded size
+ * and modification time match the task file. A file can be rewritten with the same size within the resolution of
+ * its modification time, so until the recorded time is older than {@link #RACY_WINDOW} at the time of a check,
+ * the content fingerprint is compared too; once it is, any later change gets a later modification time, and the
+ * header is marked verified to skip reading the file.</p>
+ */
+public class DateIndex {
+    public static final String INDEX_FILE_SUFFIX = ".idx";
+    static final int PAGE_SIZE = 4096;
+    private static final byte[] MAGIC = {'W', 'K', 'D', 'I'};
+    private static final byte VERSION = 2;
+    private static final int HEADER_ROOT_PAGE_OFFSET = 8;
+    private static final int HEADER_PAGE_COUNT_OFFSET = 12;
+    private static final int HEADER_ENTRY_COUNT_OFFSET = 16;
+    private static final int HEADER_DATA_FILE_SIZE_OFFSET = 24;
+    private static final int HEADER_DATA_FILE_MODIFIED_OFFSET = 32;
+    private static final int HEADER_DATA_FILE_FINGERPRINT_OFFSET = 40;
+    private static final int HEADER_VERIFIED_OFFSET = 48;
+    private static final int HEADER_MAX_SPANS_OFFSET = 56;
+    /**
+     * The longest span, in minutes, of each bucket but the last, which holds every longer event.
+     */
+    private static final long[] SPAN_BUCKET_LIMITS = {0, 60, 24 * 60, 7 * 24 * 60, 31 * 24 * 60, 366 * 24 * 60};
+    private static final int SPAN_BUCKET_COUNT = SPAN_BUCKET_LIMITS.length + 1;
+    private static final int HEADER_LENGTH = HEADER_MAX_SPANS_OFFSET + SPAN_BUCKET_COUNT * Long.BYTES;
+    private static final int BUCKET_SHIFT = 52;
+    private static final long EPOCH_MINUTE_BIAS = 1L << (BUCKET_SHIFT - 1);
+    private static final long EMPTY_BUCKET = -1;
+    /**
+     * How much older than a check the recorded modification time must be for the check to be conclusive, covering
+     * the coarsest modification time resolution of common file systems.
+     */
+    static final Duration RACY_WINDOW = Duration.ofSeconds(2);
+    private static final byte LEAF_TYPE = 0;
+    private static final byte INTERNAL_TYPE = 1;
+    private static final int NODE_HEADER_LENGTH = 8;
+    private static final int LEAF_ENTRY_LENGTH = 16;
+    private static final int INTERNAL_ENTRY_LENGTH = 20;
+    static final int LEAF_CAPACITY = (PAGE_SIZE - NODE_HEADER_LENGTH) / LEAF_ENTRY_LENGTH;
+    static final int INTERNAL_CAPACITY = (PAGE_SIZE - NODE_HEADER_LENGTH) / INTERNAL_ENTRY_LENGTH;
+    private static final int NO_PAGE = -1;
+    private final Path dataFilePath;
+    private final Path indexPath;
+
+    /**
+     * The header page of the index.
+     *
+     * @param rootPage            The page of the root node.
+     * @param pageCount           The number of pages in the file, including the header page.
+     * @param entryCount          The number of indexed tasks.
+     * @param maxSpans            The longest span, in minutes from its date to its end, of each span bucket, or
+     *                            {@code -1} for an empty bucket.
+     * @param dataFileSize        The size of the task file when the index was last brought up to date.
+     * @param dataFileModified    The modification time, in nanoseconds, of the task file at that point.
+     * @param dataFileFingerprint The content fingerprint of the task file at that point.
+     * @param isVerified          {@code true} if the modification time was already older than the racy window when
+     *                            the state was recorded or checked, so that size and time alone are conclusive.
+     */
+    private record Header(int rootPage, int pageCount, long entryCount, long[] maxSpans, long dataFileSize,
+                          long dataFileModified, long dataFileFingerprint, boolean isVerified) {
+    }
+
+    /**
+     * One page of the B+tree, either a leaf of entries or an internal node of separators and child pages.
+     * The arrays have room for one entry past the capacity, so that a node can overflow before it is split.
+     */
+    private static class Node {
+        private final int page;
+        private final boolean isLeaf;
+        private final long[] keys;
+        private final long[] offsets;
+        private final int[] children;
+        private int count;
+        private int link;
+
+        /**
+         * Constructs an empty {@code Node}.
+         *
+         * @param page   The page the node is stored in.
+         * @param isLeaf {@code true} for a leaf; {@code false} for an internal node.
+         */
+        Node(int page, boolean isLeaf) {
+            this.page = page;
+            this.isLeaf = isLeaf;
+            int capacity = (isLeaf ? LEAF_CAPACITY : INTERNAL_CAPACITY) + 1;
+            keys = new long[capacity];
+            offsets = new long[capacity];
+            children = isLeaf ? null : new int[capacity];
+            link = NO_PAGE;
+        }
+
+        /**
+         * Retrieves the child page at the given position of an internal node.
+         * The first child is kept in the link, and child {@code i} holds the entries from separator {@code i - 1}.
+         *
+         * @param index The 0-based position of the child, up to the separator count.
+         * @return The page of the child.
+         */
+        int childAt(int index) {
+            return index == 0 ? link : children[index - 1];
+        }
+    }
+
+    /**
+     * Constructs a {@code DateIndex} for the given task file, without reading anything yet.
+     *
+     * @param dataFilePath The task file the index describes.
+     */
+    public DateIndex(Path dataFilePath) {
+        assert dataFilePath != null : "Precondition failed: 'dataFilePath' cannot be null";
+        this.dataFilePath = dataFilePath;
+        indexPath = Path.of(dataFilePath + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Retrieves the key a task is indexed under.
+     *
+     * @param task The task to index.
+     * @return The key of a deadline's due date or an event's start in the span bucket of the task, or {@code null}
+     * for other tasks.
+     */
+    private static Long keyOf(Task task) {
+        if (task instanceof Deadline deadline) {
+            return keyOf(bucketOf(0), deadline.getBy());
+        }
+        if (task instanceof Event event) {
+            return keyOf(bucketOf(spanOf(task)), event.getFrom());
+        }
+        return null;
+    }
+
+    /**
+     * Combines a span bucket and a date into a key, so that each bucket is a contiguous range of keys ordered by
+     * date.
+     *
+     * @param bucket   The span bucket.
+     * @param dateTime The date.
+     * @return The key.
+     */
+    private static long keyOf(int bucket, LocalDateTime dateTime) {
+        return keyOf(bucket, BinaryFormat.toEpochMinute(dateTime));
+    }
+
+    /**
+     * Combines a span bucket and an epoch minute into a key like {@link #keyOf(int, LocalDateTime)}.
+     *
+     * @param bucket      The span bucket.
+     * @param epochMinute The epoch minute, clamped to the range a bucket can hold.
+     * @return The key.
+     */
+    private static long keyOf(int bucket, long epochMinute) {
+        long biasedMinute = Math.max(0, Math.min(2 * EPOCH_MINUTE_BIAS - 1, epochMinute + EPOCH_MINUTE_BIAS));
+        return ((long) bucket << BUCKET_SHIFT) | biasedMinute;
+    }
+
+    /**
+     * Retrieves the span bucket of a task.
+     *
+     * @param span The minutes the task runs past its date.
+     * @return The first bucket whose limit is not below the span.
+     */
+    private static int bucketOf(long span) {
+        int bucket = 0;
+        while (bucket < SPAN_BUCKET_LIMITS.length && span > SPAN_BUCKET_LIMITS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * Retrieves how long a task runs past its key.
+     *
+     * @param task The task to measure.
+     * @return The minutes from an event's start to its end, or {@code 0} for other tasks and events ending before
+     * they start.
+     */
+    private static long spanOf(Task task) {
+        if (task instanceof Event event) {
+            return Math.max(0, BinaryFormat.toEpochMinute(event.getTo()) - BinaryFormat.toEpochMinute(event.getFrom()));
+        }
+        return 0;
+    }
+
+    /**
+     * Compares two entries by key and then by record offset.
+     *
+     * @param key         The key of the first entry.
+     * @param offset      The record offset of the first entry.
+     * @param otherKey    The key of the second entry.
+     * @param otherOffset The record offset of the second entry.
+     * @return A negative number, zero or a positive number as the first entry is before, equal to or after the
+     * second.
+     */
+    private static int compare(long key, long offset, long otherKey, long otherOffset) {
+        int result = Long.compare(key, otherKey);
+        return result != 0 ? result : Long.compare(offset, otherOffset);
+    }
+
+    /**
+     * Retrieves the path of the index file.
+     *
+     * @return The path of the index file next to the task file.
+     */
+    public Path getIndexPath() {
+        return indexPath;
+    }
+
+    /**
+     * Checks whether the index exists and still describes the task file as it is now.
+     *
+     * @return {@code true} if the index can be queried; {@code false} if it is missing, invalid or stale.
+     * @throws IOException If either file cannot be read.
+     */
+    public boolean isCurrent() throws IOException {
+        if (!Files.exists(indexPath) || !Files.exists(dataFilePath)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Header header = readHeader(channel);
+            if (header == null || header.dataFileSize() != Files.size(dataFilePath)
+                    || header.dataFileModified() != modifiedNanos()) {
+                return false;
+            }
+            if (header.isVerified()) {
+                return true;
+            }
+            long checkedAt = nowNanos();
+            if (ContentFingerprint.of(dataFilePath) != header.dataFileFingerprint()) {
+                return false;
+            }
+            if (isOutsideRacyWindow(header.dataFileModified(), checkedAt)) {
+                writeHeader(channel, new Header(header.rootPage(), header.pageCount(), header.entryCount(),
+                        header.maxSpans(), header.dataFileSize(), header.dataFileModified(),
+                        header.dataFileFingerprint(), true));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the index with one bulk-loaded from the given tasks, packing the leaves full.
+     * Call this after the task file has been written, so that the index is stamped with its final state.
+     *
+     * @param tasks               The tasks in the task file, in file order.
+     * @param recordOffsets       The offset of the record of each task in the task file.
+     * @param dataFileFingerprint The content fingerprint of the task file.
+     * @throws IOException If the index cannot be written.
+     */
+    public void rebuild(List<Task> tasks, long[] recordOffsets, long dataFileFingerprint) throws IOException {
+        assert tasks != null : "Precondition failed: 'tasks' cannot be null";
+        assert recordOffsets != null && recordOffsets.length == tasks.size()
+                : "Precondition failed: 'recordOffsets' must hold one offset per task";
+        long[] keys = new long[tasks.size()];
+        List<Integer> order = new ArrayList<>();
+        long[] maxSpans = new long[SPAN_BUCKET_COUNT];
+        Arrays.fill(maxSpans, EMPTY_BUCKET);
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            Long key = keyOf(task);
+            if (key != null) {
+                keys[i] = key;
+                order.add(i);
+                int bucket = bucketOf(spanOf(task));
+                maxSpans[bucket] = Math.max(maxSpans[bucket], spanOf(task));
+            }
+        }
+        // The offsets ascend in file order, so a stable sort by key orders equal keys by offset
+        order.sort((first, second) -> Long.compare(keys[first], keys[second]));
+
+        Path temporaryPath = Path.of(indexPath + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int levelSize = Math.max(1, (order.size() + LEAF_CAPACITY - 1) / LEAF_CAPACITY);
+            long[] levelKeys = new long[levelSize];
+            long[] levelOffsets = new long[levelSize];
+            int[] levelPages = new int[levelSize];
+            int pageCount = 1;
+            for (int leafIndex = 0; leafIndex < levelSize; leafIndex++) {
+                Node leaf = new Node(pageCount + leafIndex, true);
+                int start = leafIndex * LEAF_CAPACITY;
+                leaf.count = Math.min(LEAF_CAPACITY, order.size() - start);
+                for (int i = 0; i < leaf.count; i++) {
+                    int taskIndex = order.get(start + i);
+                    leaf.keys[i] = keys[taskIndex];
+                    leaf.offsets[i] = recordOffsets[taskIndex];
+                }
+                leaf.link = leafIndex + 1 < levelSize ? leaf.page + 1 : NO_PAGE;
+                writeNode(channel, leaf);
+                levelKeys[leafIndex] = leaf.keys[0];
+                levelOffsets[leafIndex] = leaf.offsets[0];
+                levelPages[leafIndex] = leaf.page;
+            }
+            pageCount += levelSize;
+
+            while (levelSize > 1) {
+                int nodeCount = (levelSize + INTERNAL_CAPACITY) / (INTERNAL_CAPACITY + 1);
+                for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++) {
+                    int start = nodeIndex * (INTERNAL_CAPACITY + 1);
+                    int end = Math.min(levelSize, start + INTERNAL_CAPACITY + 1);
+                    Node node = new Node(pageCount + nodeIndex, false);
+                    node.link = levelPages[start];
+                    node.count = end - start - 1;
+                    for (int i = 0; i < node.count; i++) {
+                        node.keys[i] = levelKeys[start + 1 + i];
+                        node.offsets[i] = levelOffsets[start + 1 + i];
+                        node.children[i] = levelPages[start + 1 + i];
+                    }
+                    writeNode(channel, node);
+                    // The first entry of a subtree stays its first entry one level up
+                    levelKeys[nodeIndex] = levelKeys[start];
+                    levelOffsets[nodeIndex] = levelOffsets[start];
+                    levelPages[nodeIndex] = node.page;
+                }
+                pageCount += nodeCount;
+                levelSize = nodeCount;
+            }
+            writeHeader(channel, stamp(levelPages[0], pageCount, order.size(), maxSpans, dataFileFingerprint));
+        }
+        Utils.moveAtomically(temporaryPath, indexPath);
+    }
+
+    /**
+     * Inserts the entry of a task that was just appended to the task file, and stamps the index with the new
+     * state of the task file. Tasks without a date only update the stamp.
+     *
+     * @param task                The appended task.
+     * @param recordOffset        The offset of the record of the task in the task file.
+     * @param appendedFingerprint The content fingerprint terms of the bytes appended to the task file.
+     * @throws FileContentException If the index is invalid.
+     * @throws IOException          If the index cannot be read or written.
+     */
+    public void insert(Task task, long recordOffset, long appendedFingerprint) throws FileContentException,
+            IOException {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Header header = readValidHeader(channel);
+            long dataFileFingerprint = header.dataFileFingerprint() + appendedFingerprint;
+            Long key = keyOf(task);
+            if (key == null) {
+                writeHeader(channel, stamp(header.rootPage(), header.pageCount(), header.entryCount(),
+                        header.maxSpans(), dataFileFingerprint));
+                return;
+            }
+
+            Deque<Node> path = new ArrayDeque<>();
+            Deque<Integer> childIndices = new ArrayDeque<>();
+            Node node = readNode(channel, header.rootPage(), header);
+            while (!node.isLeaf) {
+                int childIndex = upperBound(node, key, recordOffset);
+                path.push(node);
+                childIndices.push(childIndex);
+                node = readNode(channel, node.childAt(childIndex), header);
+            }
+            int position = lowerBound(node, key, recordOffset);
+            shiftRight(node, position);
+            node.keys[position] = key;
+            node.offsets[position] = recordOffset;
+            node.count++;
+
+            int pageCount = header.pageCount();
+            int rootPage = header.rootPage();
+            if (node.count <= LEAF_CAPACITY) {
+                writeNode(channel, node);
+            } else {
+                Node right = new Node(pageCount++, true);
+                int middle = node.count / 2;
+                moveTail(node, middle, right, 0);
+                right.link = node.link;
+                node.link = right.page;
+                writeNode(channel, node);
+                writeNode(channel, right);
+
+                long separatorKey = right.keys[0];
+                long separatorOffset = right.offsets[0];
+                int leftPage = node.page;
+                int rightPage = right.page;
+                while (true) {
+                    if (path.isEmpty()) {
+                        Node root = new Node(pageCount++, false);
+                        root.link = leftPage;
+                        root.keys[0] = separatorKey;
+                        root.offsets[0] = separatorOffset;
+                        root.children[0] = rightPage;
+                        root.count = 1;
+                        writeNode(channel, root);
+                        rootPage = root.page;
+                        break;
+                    }
+                    Node parent = path.pop();
+                    int separatorIndex = childIndices.pop();
+                    shiftRight(parent, separatorIndex);
+                    parent.keys[separatorIndex] = separatorKey;
+                    parent.offsets[separatorIndex] = separatorOffset;
+                    parent.children[separatorIndex] = rightPage;
+                    parent.count++;
+                    if (parent.count <= INTERNAL_CAPACITY) {
+                        writeNode(channel, parent);
+                        break;
+                    }
+                    // The middle separator moves up, and its child becomes the first child of the new node
+                    Node parentRight = new Node(pageCount++, false);
+                    int parentMiddle = parent.count / 2;
+                    separatorKey = parent.keys[parentMiddle];
+                    separatorOffset = parent.offsets[parentMiddle];
+                    parentRight.link = parent.children[parentMiddle];
+                    moveTail(parent, parentMiddle + 1, parentRight, 0);
+                    parent.count = parentMiddle;
+                    writeNode(channel, parent);
+                    writeNode(channel, parentRight);
+                    leftPage = parent.page;
+                    rightPage = parentRight.page;
+                }
+            }
+            long[] maxSpans = header.maxSpans().clone();
+            int bucket = bucketOf(spanOf(task));
+            maxSpans[bucket] = Math.max(maxSpans[bucket], spanOf(task));
+            writeHeader(channel, stamp(rootPage, pageCount, header.entryCount() + 1, maxSpans, dataFileFingerprint));
+        }
+    }
+
+    /**
+     * Stamps the index with the current state of the task file, after a change that moved no record and changed
+     * no date, such as marking a task as done in place.
+     *
+     * @param fingerprintChange The change in the content fingerprint of the task file made by the overwritten
+     *                          bytes.
+     * @throws FileContentException If the index is invalid.
+     * @throws IOException          If the index cannot be read or written.
+     */
+    public void markCurrent(long fingerprintChange) throws FileContentException, IOException {
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Header header = readValidHeader(channel);
+            writeHeader(channel, stamp(header.rootPage(), header.pageCount(), header.entryCount(), header.maxSpans(),
+                    header.dataFileFingerprint() + fingerprintChange));
+        }
+    }
+
+    /**
+     * Finds the records of the tasks that may fall within a date-time range.
+     * The range is widened by the longest span of each bucket, so every event overlapping the range is included,
+     * along with some tasks that do not; callers still need to check each decoded task.
+     *
+     * @param from The start of the range.
+     * @param to   The end of the range, inclusive.
+     * @return The ascending offsets of the candidate records.
+     * @throws FileContentException If the index is invalid.
+     * @throws IOException          If the index cannot be read.
+     */
+    public long[] findRecordOffsets(LocalDateTime from, LocalDateTime to) throws FileContentException, IOException {
+        assert from != null && to != null : "Precondition failed: 'from' and 'to' cannot be null";
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            Header header = readValidHeader(channel);
+            LongStream.Builder offsets = LongStream.builder();
+            long fromMinute = BinaryFormat.toEpochMinute(from);
+            for (int bucket = 0; bucket < SPAN_BUCKET_COUNT; bucket++) {
+                if (header.maxSpans()[bucket] != EMPTY_BUCKET) {
+                    scan(channel, header, keyOf(bucket, fromMinute - header.maxSpans()[bucket]), keyOf(bucket, to),
+                            offsets);
+                }
+            }
+            return offsets.build().sorted().toArray();
+        }
+    }
+
+    /**
+     * Collects the record offsets of the entries within a key range.
+     *
+     * @param channel The channel of the index file.
+     * @param header  The header of the index.
+     * @param lowKey  The first key of the range.
+     * @param highKey The last key of the range, inclusive.
+     * @param offsets The builder to add the offsets to.
+     * @throws FileContentException If a page is invalid.
+     * @throws IOException          If the index cannot be read.
+     */
+    private void scan(FileChannel channel, Header header, long lowKey, long highKey, LongStream.Builder offsets)
+            throws FileContentException, IOException {
+        Node node = readNode(channel, header.rootPage(), header);
+        while (!node.isLeaf) {
+            node = readNode(channel, node.childAt(upperBound(node, lowKey, Long.MIN_VALUE)), header);
+        }
+        int position = lowerBound(node, lowKey, Long.MIN_VALUE);
+        while (true) {
+            for (int i = position; i < node.count; i++) {
+                if (node.keys[i] > highKey) {
+                    return;
+                }
+                offsets.add(node.offsets[i]);
+            }
+            if (node.link == NO_PAGE) {
+                return;
+            }
+            node = readNode(channel, node.link, header);
+            position = 0;
+        }
+    }
+
+    /**
+     * Finds the position of the first entry of a leaf at or after the given entry.
+     *
+     * @param node   The leaf to search.
+     * @param key    The key of the entry.
+     * @param offset The record offset of the entry.
+     * @return The position, up to the entry count of the node.
+     */
+    private static int lowerBound(Node node, long key, long offset) {
+        int low = 0;
+        int high = node.count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(node.keys[middle], node.offsets[middle], key, offset) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the child of an internal node whose subtree holds the given entry.
+     *
+     * @param node   The internal node to search.
+     * @param key    The key of the entry.
+     * @param offset The record offset of the entry.
+     * @return The number of separators at or before the entry, which is the position of the child.
+     */
+    private static int upperBound(Node node, long key, long offset) {
+        int low = 0;
+        int high = node.count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(node.keys[middle], node.offsets[middle], key, offset) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Opens a gap in the entries of a node at the given position.
+     *
+     * @param node     The node to shift.
+     * @param position The position of the gap.
+     */
+    private static void shiftRight(Node node, int position) {
+        int length = node.count - position;
+        System.arraycopy(node.keys, position, node.keys, position + 1, length);
+        System.arraycopy(node.offsets, position, node.offsets, position + 1, length);
+        if (!node.isLeaf) {
+            System.arraycopy(node.children, position, node.children, position + 1, length);
+        }
+    }
+
+    /**
+     * Moves the entries of a node from the given position onwards into another node, truncating the source.
+     *
+     * @param source The node to move the entries out of.
+     * @param from   The position of the first entry to move.
+     * @param target The node to move the entries into.
+     * @param to     The position in the target to move the first entry to.
+     */
+    private static void moveTail(Node source, int from, Node target, int to) {
+        int length = source.count - from;
+        System.arraycopy(source.keys, from, target.keys, to, length);
+        System.arraycopy(source.offsets, from, target.offsets, to, length);
+        if (!source.isLeaf) {
+            System.arraycopy(source.children, from, target.children, to, length);
+        }
+        target.count = to + length;
+        source.count = from;
+    }
+
+    /**
+     * Creates a header stamped with the current size and modification time of the task file, verified only if that
+     * time is already older than the racy window.
+     *
+     * @param rootPage            The page of the root node.
+     * @param pageCount           The number of pages in the file, including the header page.
+     * @param entryCount          The number of indexed tasks.
+     * @param maxSpans            The longest span of each span bucket.
+     * @param dataFileFingerprint The content fingerprint of the task file as it is now.
+     * @return The stamped header.
+     * @throws IOException If the task file cannot be read.
+     */
+    private Header stamp(int rootPage, int pageCount, long entryCount, long[] maxSpans, long dataFileFingerprint)
+            throws IOException {
+        long modified = modifiedNanos();
+        return new Header(rootPage, pageCount, entryCount, maxSpans, Files.size(dataFilePath), modified,
+                dataFileFingerprint, isOutsideRacyWindow(modified, nowNanos()));
+    }
+
+    /**
+     * Retrieves the modification time of the task file at the finest resolution the file system keeps.
+     *
+     * @return The modification time in nanoseconds since the epoch.
+     * @throws IOException If the task file cannot be read.
+     */
+    private long modifiedNanos() throws IOException {
+        return Files.getLastModifiedTime(dataFilePath).to(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Retrieves the current time on the same scale as {@link #modifiedNanos()}.
+     *
+     * @return The current time in nanoseconds since the epoch.
+     */
+    private static long nowNanos() {
+        Instant now = Instant.now();
+        return TimeUnit.SECONDS.toNanos(now.getEpochSecond()) + now.getNano();
+    }
+
+    /**
+     * Checks whether a modification time was already older than the racy window at the given time, so that any
+     * change made after that time gets a different modification time.
+     *
+     * @param modified  The modification time in nanoseconds.
+     * @param checkedAt The time of the check in nanoseconds.
+     * @return {@code true} if the modification time is conclusive; {@code false} otherwise.
+     */
+    private static boolean isOutsideRacyWindow(long modified, long checkedAt) {
+        return checkedAt - modified >= RACY_WINDOW.toNanos();
+    }
+
+    /**
+     * Reads the header page.
+     *
+     * @param channel The channel of the index file.
+     * @return The header, or {@code null} if the file does not start with a valid header.
+     * @throws IOException If the index cannot be read.
+     */
+    private static Header readHeader(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+        if (!readFully(channel, buffer, 0)
+                || !Arrays.equals(buffer.array(), 0, MAGIC.length, MAGIC, 0, MAGIC.length)
+                || buffer.get(MAGIC.length) != VERSION) {
+            return null;
+        }
+        long[] maxSpans = new long[SPAN_BUCKET_COUNT];
+        boolean isValid = true;
+        for (int bucket = 0; bucket < SPAN_BUCKET_COUNT; bucket++) {
+            maxSpans[bucket] = buffer.getLong(HEADER_MAX_SPANS_OFFSET + bucket * Long.BYTES);
+            isValid &= maxSpans[bucket] >= EMPTY_BUCKET;
+        }
+        Header header = new Header(buffer.getInt(HEADER_ROOT_PAGE_OFFSET), buffer.getInt(HEADER_PAGE_COUNT_OFFSET),
+                buffer.getLong(HEADER_ENTRY_COUNT_OFFSET), maxSpans, buffer.getLong(HEADER_DATA_FILE_SIZE_OFFSET),
+                buffer.getLong(HEADER_DATA_FILE_MODIFIED_OFFSET), buffer.getLong(HEADER_DATA_FILE_FINGERPRINT_OFFSET),
+                buffer.get(HEADER_VERIFIED_OFFSET) != 0);
+        isValid &= header.rootPage() > 0 && header.rootPage() < header.pageCount()
+                && (long) header.pageCount() * PAGE_SIZE <= channel.size();
+        return isValid ? header : null;
+    }
+
+    /**
+     * Reads the header page, rejecting an invalid one.
+     *
+     * @param channel The channel of the index file.
+     * @return The header.
+     * @throws FileContentException If the file does not start with a valid header.
+     * @throws IOException          If the index cannot be read.
+     */
+    private Header readValidHeader(FileChannel channel) throws FileContentException, IOException {
+        Header header = readHeader(channel);
+        if (header == null) {
+            throw invalidIndex(0);
+        }
+        return header;
+    }
+
+    /**
+     * Writes the header page.
+     *
+     * @param channel The channel of the index file.
+     * @param header  The header to write.
+     * @throws IOException If the index cannot be written.
+     */
+    private static void writeHeader(FileChannel channel, Header header) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        buffer.put(MAGIC).put(VERSION);
+        buffer.putInt(HEADER_ROOT_PAGE_OFFSET, header.rootPage())
+                .putInt(HEADER_PAGE_COUNT_OFFSET, header.pageCount())
+                .putLong(HEADER_ENTRY_COUNT_OFFSET, header.entryCount())
+                .putLong(HEADER_DATA_FILE_SIZE_OFFSET, header.dataFileSize())
+                .putLong(HEADER_DATA_FILE_MODIFIED_OFFSET, header.dataFileModified())
+                .putLong(HEADER_DATA_FILE_FINGERPRINT_OFFSET, header.dataFileFingerprint())
+                .put(HEADER_VERIFIED_OFFSET, (byte) (header.isVerified() ? 1 : 0));
+        for (int bucket = 0; bucket < SPAN_BUCKET_COUNT; bucket++) {
+            buffer.putLong(HEADER_MAX_SPANS_OFFSET + bucket * Long.BYTES, header.maxSpans()[bucket]);
+        }
+        writePage(channel, buffer.clear(), 0);
+    }
+
+    /**
+     * Reads and validates the node stored in a page.
+     *
+     * @param channel The channel of the index file.
+     * @param page    The page to read.
+     * @param header  The header of the index, bounding the pages.
+     * @return The node.
+     * @throws FileContentException If the page is out of range or does not hold a valid node.
+     * @throws IOException          If the index cannot be read.
+     */
+    private Node readNode(FileChannel channel, int page, Header header) throws FileContentException, IOException {
+        if (page <= 0 || page >= header.pageCount()) {
+            throw invalidIndex(page);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        if (!readFully(channel, buffer, (long) page * PAGE_SIZE)) {
+            throw invalidIndex(page);
+        }
+        byte type = buffer.get(0);
+        int count = Short.toUnsignedInt(buffer.getShort(2));
+        boolean isLeaf = type == LEAF_TYPE;
+        if ((!isLeaf && type != INTERNAL_TYPE) || count > (isLeaf ? LEAF_CAPACITY : INTERNAL_CAPACITY)) {
+            throw invalidIndex(page);
+        }
+        Node node = new Node(page, isLeaf);
+        node.count = count;
+        node.link = buffer.getInt(4);
+        buffer.position(NODE_HEADER_LENGTH);
+        for (int i = 0; i < count; i++) {
+            node.keys[i] = buffer.getLong();
+            node.offsets[i] = buffer.getLong();
+            if (!isLeaf) {
+                node.children[i] = buffer.getInt();
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Writes a node into its page.
+     *
+     * @param channel The channel of the index file.
+     * @param node    The node to write. Its entry count must be within the capacity.
+     * @throws IOException If the index cannot be written.
+     */
+    private static void writeNode(FileChannel channel, Node node) throws IOException {
+        assert node.count <= (node.isLeaf ? LEAF_CAPACITY : INTERNAL_CAPACITY)
+                : "Precondition failed: 'node' must be split before it is written";
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        buffer.put(node.isLeaf ? LEAF_TYPE : INTERNAL_TYPE).put((byte) 0).putShort((short) node.count)
+                .putInt(node.link);
+        for (int i = 0; i < node.count; i++) {
+            buffer.putLong(node.keys[i]).putLong(node.offsets[i]);
+            if (!node.isLeaf) {
+                buffer.putInt(node.children[i]);
+            }
+        }
+        writePage(channel, buffer.clear(), node.page);
+    }
+
+    /**
+     * Fills a buffer from the index file, starting at the given offset.
+     *
+     * @param channel  The channel of the index file.
+     * @param buffer   The buffer to fill.
+     * @param position The offset to read from.
+     * @return {@code true} if the buffer was filled; {@code false} if the file ended first.
+     * @throws IOException If the index cannot be read.
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a full page at its position in the index file.
+     *
+     * @param channel The channel of the index file.
+     * @param buffer  The page content, positioned at its start.
+     * @param page    The page to write.
+     * @throws IOException If the index cannot be written.
+     */
+    private static void writePage(FileChannel channel, ByteBuffer buffer, int page) throws IOException {
+        long position = (long) page * PAGE_SIZE;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Creates the exception reported for an invalid index page.
+     *
+     * @param page The page that could not be read.
+     * @return A {@code FileContentException} describing the page.
+     */
+    private FileContentException invalidIndex(int page) {
+        return new FileContentException(Messages.MESSAGE_INVALID_DATE_INDEX,
+                String.format("FilePath='%s', Page=%d", indexPath, page), Messages.MESSAGE_INVALID_DATE_INDEX_HELP);
+    }
+}
@@ -0,0 +1,397 @@
+package wkduke.storage.journal;
+
+import wkduke.common.Messages;
+import wkduke.common.Utils;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.decoder.TaskDecoder;
+import wkduke.storage.decoder.TaskFileReader;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manages the append-only journal that sits next to a task snapshot file.
+ *
+ * <p>Compaction is crash-safe and uses three sibling files of the snapshot {@code tasks.txt}:</p>
+ * <ul>
+ *     <li>{@code tasks.txt.journal} - entries appended since the last compaction started,</li>
+ *     <li>{@code tasks.txt.journal.compacting} - entries being folded by a running compaction,</li>
+ *     <li>{@code tasks.txt.compacted} - the finished snapshot of a compaction not yet published.</li>
+ * </ul>
+ * <p>While {@code .compacted} exists it supersedes both the snapshot and {@code .compacting}.</p>
+ *
+ * <p>Appends are forced to disk before they are acknowledged, so after a crash only the last entry can be torn.
+ * A last line without its terminator, or one that cannot be decoded, was therefore never acknowledged: replaying
+ * skips it, and the next append cuts it off first.</p>
+ *
+ * <p>A journal shared by several processes is guarded by a {@link JournalLock} on {@code tasks.txt.lock}. Each
+ * process remembers the {@link JournalPosition} it has read up to and tails the entries appended after it.</p>
+ */
+public class Journal {
+    public static final String JOURNAL_SUFFIX = ".journal";
+    private static final String COMPACTING_SUFFIX = ".journal.compacting";
+    private static final String COMPACTED_SUFFIX = ".compacted";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final int TAIL_SCAN_LENGTH = 4096;
+    private final Path journalPath;
+    private final Path compactingPath;
+    private final Path compactedPath;
+    private final Path lockPath;
+
+    /**
+     * Constructs a {@code Journal} for the given snapshot file.
+     *
+     * @param snapshotPath The path of the snapshot file the journal belongs to.
+     */
+    public Journal(Path snapshotPath) {
+        assert snapshotPath != null : "Precondition failed: 'snapshotPath' cannot be null";
+        journalPath = Path.of(snapshotPath + JOURNAL_SUFFIX);
+        compactingPath = Path.of(snapshotPath + COMPACTING_SUFFIX);
+        compactedPath = Path.of(snapshotPath + COMPACTED_SUFFIX);
+        lockPath = Path.of(snapshotPath + LOCK_SUFFIX);
+    }
+
+    /**
+     * Applies a single journal entry to the task list.
+     * Deletions and updates are verified against the task found at the recorded index.
+     *
+     * @param taskList The task list to apply the entry to.
+     * @param entry    The journal entry to apply.
+     * @throws FileContentException If the entry is malformed or does not match the task list.
+     */
+    public static void apply(TaskList taskList, JournalEntry entry) throws FileContentException {
+        Task task = TaskDecoder.decodeTask(entry.encodedTask());
+        int index = entry.index();
+        boolean isIndexValid = entry.operation() == JournalOperation.ADD
+                ? index == taskList.size()
+                : index >= 0 && index < taskList.size();
+        if (!isIndexValid) {
+            throw mismatch(entry);
+        }
+
+        switch (entry.operation()) {
+            case ADD -> taskList.addTask(task);
+            case DELETE -> {
+                Task existing = taskList.getTask(index);
+                if (!existing.equals(task)) {
+                    throw mismatch(entry);
+                }
+                taskList.deleteTask(existing);
+            }
+            case UPDATE -> {
+                Task existing = taskList.getTask(index);
+                if (task.isDone()) {
+                    existing.markAsDone();
+                } else {
+                    existing.markAsUndone();
+                }
+                existing.setPriority(task.getPriority());
+                if (!existing.equals(task)) {
+                    throw mismatch(entry);
+                }
+            }
+            default -> throw new AssertionError(entry.operation());
+        }
+    }
+
+    /**
+     * Creates the exception reported when a journal entry does not fit the task list it is replayed onto.
+     *
+     * @param entry The offending journal entry.
+     * @return A {@code FileContentException} describing the mismatch.
+     */
+    private static FileContentException mismatch(JournalEntry entry) {
+        return new FileContentException(Messages.MESSAGE_JOURNAL_ENTRY_MISMATCH,
+                String.format("JournalEntry='%s'", entry.encode()), Messages.MESSAGE_JOURNAL_ENTRY_MISMATCH_HELP);
+    }
+
+    /**
+     * Retrieves the path where a compaction writes its finished snapshot.
+     *
+     * @return The {@code Path} of the compacted snapshot.
+     */
+    public Path getCompactedPath() {
+        return compactedPath;
+    }
+
+    /**
+     * Retrieves the journal files that {@link #replay(TaskList)} reads, in the order it reads them.
+     *
+     * @return The paths of the existing journal files holding entries not folded into the snapshot.
+     */
+    public List<Path> getEntryPaths() {
+        List<Path> entryPaths = new ArrayList<>();
+        if (Files.notExists(compactedPath) && Files.exists(compactingPath)) {
+            entryPaths.add(compactingPath);
+        }
+        if (Files.exists(journalPath)) {
+            entryPaths.add(journalPath);
+        }
+        return entryPaths;
+    }
+
+    /**
+     * Retrieves the size of the active journal.
+     *
+     * @return The size of the active journal in bytes, or {@code 0} if it does not exist.
+     * @throws IOException If the size cannot be determined.
+     */
+    public long size() throws IOException {
+        return Files.exists(journalPath) ? Files.size(journalPath) : 0;
+    }
+
+    /**
+     * Appends the given entries to the active journal and forces them to disk. A torn last line left by a crash is
+     * cut off first, so that the entries do not run on from it.
+     *
+     * @param entries The entries to append, in the order they were applied.
+     * @throws IOException If the journal cannot be written.
+     */
+    public void append(List<JournalEntry> entries) throws IOException {
+        StringBuilder encodedEntries = new StringBuilder();
+        for (JournalEntry entry : entries) {
+            encodedEntries.append(entry.encode()).append(System.lineSeparator());
+        }
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long end = findCompleteEnd(channel);
+            if (end < channel.size()) {
+                channel.truncate(end);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(encodedEntries.toString().getBytes(StandardCharsets.UTF_8));
+            long position = end;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Finds the end of the last line of a journal file that has its line terminator.
+     *
+     * @param channel The channel of the journal file.
+     * @return The offset just past the last {@code '\n'}, or {@code 0} if there is none.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long findCompleteEnd(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TAIL_SCAN_LENGTH);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - TAIL_SCAN_LENGTH);
+            buffer.clear().limit((int) (end - start));
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+                // Keep reading until the range is filled
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    /**
+     * Cuts the active journal back to the given size, dropping entries appended after it.
+     *
+     * @param size The size in bytes to cut the journal back to.
+     * @throws IOException If the journal cannot be truncated.
+     */
+    public void truncate(long size) throws IOException {
+        if (size() <= size) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    /**
+     * Resolves the snapshot to load, preferring a finished but unpublished compaction.
+     *
+     * @param snapshotPath The path of the snapshot file.
+     * @return The path of the snapshot that reflects the start of the journal.
+     */
+    public Path resolveSnapshotPath(Path snapshotPath) {
+        return Files.exists(compactedPath) ? compactedPath : snapshotPath;
+    }
+
+    /**
+     * Replays the journal onto a task list freshly loaded from {@link #resolveSnapshotPath(Path)}.
+     *
+     * @param taskList The task list to replay onto.
+     * @throws FileContentException If an entry is malformed or does not match the task list.
+     * @throws IOException          If a journal file cannot be read.
+     */
+    public void replay(TaskList taskList) throws FileContentException, IOException {
+        if (Files.notExists(compactedPath)) {
+            replayFile(taskList, compactingPath);
+        }
+        replayFile(taskList, journalPath);
+    }
+
+    /**
+     * Replays every entry of a single journal file, in order.
+     *
+     * @param taskList The task list to replay onto.
+     * @param path     The journal file to replay. Missing files are ignored.
+     * @throws FileContentException If an entry is malformed or does not match the task list.
+     * @throws IOException          If the journal file cannot be read.
+     */
+    private void replayFile(TaskList taskList, Path path) throws FileContentException, IOException {
+        if (Files.notExists(path)) {
+            return;
+        }
+        replayEntries(taskList, path, 0);
+    }
+
+    /**
+     * Applies the entries of a journal file from the given offset, in order. A last line without its terminator is
+     * not read, and a last line that cannot be decoded is skipped, since neither was ever acknowledged.
+     *
+     * @param taskList The task list to apply the entries to.
+     * @param path     The journal file to read.
+     * @param offset   The offset of the first entry to apply.
+     * @throws FileContentException If an earlier entry is malformed, or an entry does not match the task list.
+     * @throws IOException          If the journal file cannot be read.
+     */
+    private static void replayEntries(TaskList taskList, Path path, long offset)
+            throws FileContentException, IOException {
+        long end;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            end = findCompleteEnd(channel);
+        }
+        String[] lastEntry = {null};
+        TaskFileReader.forEachLine(path, offset, end, encodedEntry -> {
+            if (encodedEntry.isBlank()) {
+                return;
+            }
+            if (lastEntry[0] != null) {
+                apply(taskList, JournalEntry.decode(lastEntry[0]));
+            }
+            lastEntry[0] = encodedEntry;
+        });
+        if (lastEntry[0] == null) {
+            return;
+        }
+        JournalEntry entry;
+        try {
+            entry = JournalEntry.decode(lastEntry[0]);
+            TaskDecoder.decodeTask(entry.encodedTask());
+        } catch (FileContentException e) {
+            return; // A torn last entry was never acknowledged
+        }
+        apply(taskList, entry);
+    }
+
+    /**
+     * Locks the journal against the other processes sharing it, blocking until the lock is acquired.
+     *
+     * @param isShared {@code true} to only read the journal; {@code false} to write it or replace the snapshot.
+     * @return The acquired lock, to be closed afterwards.
+     * @throws IOException If the lock file cannot be locked.
+     */
+    public JournalLock lock(boolean isShared) throws IOException {
+        return JournalLock.acquire(lockPath, isShared);
+    }
+
+    /**
+     * Retrieves the current end of the snapshot and journal. It takes the {@link #lock(boolean)} that is held, so
+     * that no other process is midway through writing them.
+     *
+     * @param lock The lock held on the journal.
+     * @return The position just past the last journal entry.
+     * @throws IOException If the generation or the size of the journal cannot be read.
+     */
+    public JournalPosition position(JournalLock lock) throws IOException {
+        long generation = lock.readGeneration();
+        return new JournalPosition(generation, Files.exists(journalPath) ? Files.size(journalPath) : 0);
+    }
+
+    /**
+     * Applies the entries appended to the active journal since the given offset to the task list.
+     * It should be called while holding the {@link #lock(boolean)}, on a task list that reflects every entry
+     * before the offset.
+     *
+     * @param taskList The task list to apply the entries to.
+     * @param offset   The offset of the first entry to apply.
+     * @throws FileContentException If an entry is malformed or does not match the task list.
+     * @throws IOException          If the journal cannot be read.
+     */
+    public void tail(TaskList taskList, long offset) throws FileContentException, IOException {
+        if (Files.notExists(journalPath)) {
+            return;
+        }
+        replayEntries(taskList, journalPath, offset);
+    }
+
+    /**
+     * Starts a compaction by moving the active journal aside.
+     * Entries appended afterwards go to a fresh journal and are not part of the compaction.
+     *
+     * @throws IOException If the journal cannot be moved.
+     */
+    public void beginCompaction() throws IOException {
+        if (Files.notExists(journalPath)) {
+            if (Files.notExists(compactingPath)) {
+                Files.createFile(compactingPath);
+            }
+            return;
+        }
+        if (Files.exists(compactingPath)) {
+            // An earlier compaction never finished, so its entries must be kept ahead of the active ones
+            try (FileChannel channel = FileChannel.open(compactingPath, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                channel.truncate(findCompleteEnd(channel));
+            }
+            Files.write(compactingPath, Files.readAllBytes(journalPath), StandardOpenOption.APPEND);
+            Files.delete(journalPath);
+            return;
+        }
+        Files.move(journalPath, compactingPath);
+    }
+
+    /**
+     * Checks whether any journal file exists next to the snapshot.
+     *
+     * @return {@code true} if there are entries or compaction files to fold into the snapshot; {@code false} otherwise.
+     */
+    public boolean exists() {
+        return Files.exists(journalPath) || isRecoveryNeeded();
+    }
+
+    /**
+     * Checks whether an earlier compaction was interrupted and still has to be folded into the snapshot.
+     *
+     * @return {@code true} if leftover compaction files exist; {@code false} otherwise.
+     */
+    public boolean isRecoveryNeeded() {
+        return Files.exists(compactingPath) || Files.exists(compactedPath);
+    }
+
+    /**
+     * Publishes a compaction whose snapshot has been fully written to {@link #getCompactedPath()}.
+     * This is also used on load to finish a compaction interrupted by a crash.
+     *
+     * @param snapshotPath The path of the snapshot file to replace.
+     * @throws IOException If the compacted snapshot cannot be published.
+     */
+    public void finishCompaction(Path snapshotPath) throws IOException {
+        if (Files.notExists(compactedPath)) {
+            return;
+        }
+        Files.deleteIfExists(compactingPath);
+        Utils.moveAtomically(compactedPath, snapshotPath);
+    }
+}
@@ -0,0 +1,58 @@
+package wkduke.storage.journal;
+
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a single mutation of the task list as recorded in a journal.
+ * An entry is encoded as {@code "<operation> <index> <encodedTask>"}, e.g. {@code "~ 2 T | L | 1 | Read book"}.
+ *
+ * @param operation   The kind of mutation.
+ * @param index       The 0-based index of the affected task at the time of the mutation.
+ * @param encodedTask The encoded task after the mutation (or the deleted task for {@link JournalOperation#DELETE}).
+ */
+public record JournalEntry(JournalOperation operation, int index, String encodedTask) {
+    private static final Pattern ENTRY_PATTERN = Pattern.compile(
+            "(?<operation>[+~-]) (?<index>\\d+) (?<encodedTask>.+)"
+    );
+
+    /**
+     * Decodes a single journal line into a {@code JournalEntry}.
+     *
+     * @param encodedEntry The encoded journal line.
+     * @return The decoded {@code JournalEntry}.
+     * @throws FileContentException If the line is not a valid journal entry.
+     */
+    public static JournalEntry decode(String encodedEntry) throws FileContentException {
+        assert encodedEntry != null : "Precondition failed: 'encodedEntry' cannot be null";
+        final Matcher matcher = ENTRY_PATTERN.matcher(encodedEntry);
+        if (!matcher.matches()) {
+            throw new FileContentException(
+                    Messages.MESSAGE_INVALID_JOURNAL_ENTRY, String.format("JournalEntry='%s'", encodedEntry)
+            );
+        }
+        try {
+            return new JournalEntry(
+                    JournalOperation.fromCode(matcher.group("operation")),
+                    Integer.parseInt(matcher.group("index")),
+                    matcher.group("encodedTask")
+            );
+        } catch (NumberFormatException e) {
+            throw new FileContentException(
+                    Messages.MESSAGE_INVALID_JOURNAL_ENTRY, String.format("JournalEntry='%s'", encodedEntry)
+            );
+        }
+    }
+
+    /**
+     * Encodes this entry into a single journal line.
+     *
+     * @return The encoded journal line.
+     */
+    public String encode() {
+        return operation + " " + index + " " + encodedTask;
+    }
+}
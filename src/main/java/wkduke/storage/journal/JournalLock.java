@@ -0,0 +1,107 @@
+package wkduke.storage.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the lock that serialises access to a journal shared by several processes.
+ *
+ * <p>The lock is a {@link FileLock} on a lock file next to the snapshot, which is never deleted, rather than on the
+ * journal itself, which a compaction replaces. A {@code FileLock} is held on behalf of the whole JVM and cannot be
+ * taken twice within it, so the threads of one JVM first take an in-process lock on the same file.</p>
+ *
+ * <p>The lock file also holds the generation of the journal: a counter that every compaction advances, since it
+ * replaces the journal and restarts its offsets. Unlike the identity of the journal file, which the file system may
+ * give to the next file created, a generation is never reused.</p>
+ */
+public class JournalLock implements AutoCloseable {
+    private static final Map<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+    private final ReentrantLock processLock;
+    private final FileChannel channel;
+    private final FileLock fileLock;
+
+    private JournalLock(ReentrantLock processLock, FileChannel channel, FileLock fileLock) {
+        this.processLock = processLock;
+        this.channel = channel;
+        this.fileLock = fileLock;
+    }
+
+    /**
+     * Blocks until the lock on the given lock file is acquired, creating the file if needed.
+     *
+     * @param lockPath The lock file.
+     * @param isShared {@code true} to let other processes read at the same time; {@code false} to exclude them.
+     * @return The acquired lock, to be closed once the journal has been read or written.
+     * @throws IOException If the lock file cannot be opened or locked.
+     */
+    static JournalLock acquire(Path lockPath, boolean isShared) throws IOException {
+        ReentrantLock processLock = PROCESS_LOCKS.computeIfAbsent(lockPath.toAbsolutePath().normalize(),
+                path -> new ReentrantLock());
+        assert !processLock.isHeldByCurrentThread() : "Precondition failed: the lock cannot be acquired twice";
+        processLock.lock();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new JournalLock(processLock, channel, channel.lock(0, Long.MAX_VALUE, isShared));
+        } catch (IOException | RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            processLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the generation of the journal, which is {@code 0} until the journal is first compacted.
+     *
+     * @return The generation of the journal.
+     * @throws IOException If the lock file cannot be read.
+     */
+    public long readGeneration() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                return 0; // The lock file is empty until the first compaction
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    /**
+     * Advances the generation of the journal, before a compaction replaces it. The generation is written first, so
+     * that a process that stops midway through the compaction still leaves the other processes to reload.
+     *
+     * @throws IOException If the lock file cannot be written.
+     */
+    public void advanceGeneration() throws IOException {
+        assert !fileLock.isShared() : "Precondition failed: the generation needs an exclusive lock";
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, readGeneration() + 1);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+    }
+
+    /**
+     * Releases the lock.
+     *
+     * @throws IOException If the lock file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            fileLock.release();
+            channel.close();
+        } finally {
+            processLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package wkduke.storage.journal;
+
+/**
+ * Enum representing the kinds of mutation recorded in a journal.
+ */
+public enum JournalOperation {
+    ADD("+"),
+    DELETE("-"),
+    UPDATE("~");
+
+    private final String code;
+
+    /**
+     * Constructs a {@code JournalOperation} with the specified code.
+     *
+     * @param code The code representing the operation in an encoded journal entry.
+     */
+    JournalOperation(String code) {
+        this.code = code;
+    }
+
+    /**
+     * Retrieves the {@code JournalOperation} corresponding to the given code.
+     *
+     * @param code The code representing the operation.
+     * @return The {@code JournalOperation} associated with the given code.
+     * @throws IllegalArgumentException If the code does not match any operation.
+     */
+    public static JournalOperation fromCode(String code) {
+        for (JournalOperation operation : JournalOperation.values()) {
+            if (operation.code.equals(code)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown journal operation: " + code);
+    }
+
+    /**
+     * Returns the code of the operation as used in an encoded journal entry.
+     *
+     * @return The operation code as a {@code String}.
+     */
+    @Override
+    public String toString() {
+        return code;
+    }
+}
@@ -0,0 +1,22 @@
+package wkduke.storage.journal;
+
+/**
+ * Marks how far a process has read the snapshot and journal of a task file that other processes also write to.
+ * The journal is identified by the generation kept in its {@link JournalLock}, so a compaction that replaced the
+ * snapshot and the journal is told apart from entries merely being appended to the journal.
+ *
+ * @param generation The generation of the journal.
+ * @param offset     The size of the journal in bytes, which is the offset of the next entry to read.
+ */
+public record JournalPosition(long generation, long offset) {
+    /**
+     * Checks whether this position can be reached from an earlier one by reading the entries appended since.
+     *
+     * @param earlier The earlier position.
+     * @return {@code true} if only entries were appended in between; {@code false} if the snapshot or the journal was
+     * replaced.
+     */
+    public boolean follows(JournalPosition earlier) {
+        return earlier != null && generation == earlier.generation() && offset >= earlier.offset();
+    }
+}
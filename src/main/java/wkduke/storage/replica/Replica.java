@@ -0,0 +1,193 @@
+package wkduke.storage.replica;
+
+import wkduke.common.Utils;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.journal.Journal;
+import wkduke.storage.journal.JournalEntry;
+import wkduke.task.TaskList;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Manages a follower copy of a task file, kept current by applying the entries of the {@link ReplicationLog} of
+ * the task file.
+ *
+ * <p>The replica is a snapshot with a {@link Journal} of its own, so entries are applied by appending them to its
+ * journal, and {@code WKDuke} can load the replica like any journaled task file if the original is lost. The offset
+ * of the log that the replica has applied up to is kept in {@code <replica>.offset}, together with the size its
+ * journal had at that point, so that entries appended by an interrupted shipment are cut off before the next one.
+ * Snapshots are installed through the compaction steps of the journal, and the offset file is removed while they
+ * are, so a replica is never left with an offset that does not match its content.</p>
+ *
+ * <p>Entries are positional, so an entry the replica never received would make every later one misapply. The tasks
+ * of the replica are therefore kept in memory once read, and every entry is replayed onto them before it is
+ * appended, exactly as a load of the replica would replay it. An entry that does not fit is rejected, and the
+ * replica has to be sent a snapshot instead, so it always stays loadable.</p>
+ */
+public class Replica {
+    private static final String OFFSET_FILE_SUFFIX = ".offset";
+    private final Path replicaPath;
+    private final Journal journal;
+    private final Path offsetPath;
+    private TaskList content;
+
+    /**
+     * Writes the content of a snapshot to the given path.
+     */
+    @FunctionalInterface
+    public interface SnapshotWriter {
+        /**
+         * Writes the snapshot.
+         *
+         * @param path The file to write the snapshot to.
+         * @throws IOException If the snapshot cannot be written.
+         */
+        void write(Path path) throws IOException;
+    }
+
+    /**
+     * Reads the content of a snapshot from the given path.
+     */
+    @FunctionalInterface
+    public interface SnapshotReader {
+        /**
+         * Reads the snapshot.
+         *
+         * @param path The snapshot file to read.
+         * @return The tasks of the snapshot.
+         * @throws FileContentException If the snapshot is improperly formatted.
+         * @throws IOException          If the snapshot cannot be read.
+         */
+        TaskList read(Path path) throws FileContentException, IOException;
+    }
+
+    /**
+     * Constructs a {@code Replica} at the given path. The replica is only created once a snapshot is installed.
+     *
+     * @param replicaPath The path of the replica file, in the same format as the task file.
+     */
+    public Replica(Path replicaPath) {
+        assert replicaPath != null : "Precondition failed: 'replicaPath' cannot be null";
+        this.replicaPath = replicaPath;
+        this.journal = new Journal(replicaPath);
+        this.offsetPath = Path.of(replicaPath + OFFSET_FILE_SUFFIX);
+    }
+
+    /**
+     * Retrieves the path of the replica file.
+     *
+     * @return The path of the replica file.
+     */
+    public Path getReplicaPath() {
+        return replicaPath;
+    }
+
+    /**
+     * Retrieves the offset of the replication log that the replica has applied up to.
+     *
+     * @return The applied offset, or {@code -1} if the replica has no snapshot yet or is being replaced.
+     * @throws IOException If the offset file cannot be read.
+     */
+    public long getAppliedOffset() throws IOException {
+        long[] state = readState();
+        return state == null ? -1 : state[0];
+    }
+
+    /**
+     * Retrieves the size of the journal of the replica.
+     *
+     * @return The size of the journal in bytes.
+     * @throws IOException If the size cannot be determined.
+     */
+    public long getJournalSize() throws IOException {
+        return journal.size();
+    }
+
+    /**
+     * Appends entries of the replication log to the journal of the replica, after checking that they fit its tasks.
+     * The replica must have a snapshot.
+     *
+     * @param entries        The entries from the applied offset of the replica up to the given offset, in order.
+     * @param offset         The offset of the replication log just past the entries.
+     * @param snapshotReader Reads the snapshot of the replica, if its tasks are not in memory yet.
+     * @throws FileContentException If an entry does not fit the tasks of the replica, in which case nothing is
+     *                              appended.
+     * @throws IOException          If the replica cannot be read or written.
+     */
+    public void apply(List<JournalEntry> entries, long offset, SnapshotReader snapshotReader)
+            throws FileContentException, IOException {
+        assert snapshotReader != null : "Precondition failed: 'snapshotReader' cannot be null";
+        long[] state = readState();
+        assert state != null : "Precondition failed: the replica must have a snapshot";
+        journal.truncate(state[1]);
+        try {
+            if (content == null) {
+                content = snapshotReader.read(replicaPath);
+                journal.replay(content);
+            }
+            for (JournalEntry entry : entries) {
+                Journal.apply(content, entry);
+            }
+            journal.append(entries);
+        } catch (FileContentException | IOException e) {
+            content = null; // The tasks may have been partly changed, so they are read again next time
+            throw e;
+        }
+        writeState(offset, journal.size());
+    }
+
+    /**
+     * Replaces the replica with a snapshot of the task list, discarding its journal.
+     *
+     * @param snapshotWriter Writes the snapshot content to the given path.
+     * @param offset         The offset of the replication log that the snapshot reflects.
+     * @throws IOException If the replica cannot be written.
+     */
+    public void install(SnapshotWriter snapshotWriter, long offset) throws IOException {
+        assert snapshotWriter != null : "Precondition failed: 'snapshotWriter' cannot be null";
+        content = null;
+        Files.deleteIfExists(offsetPath);
+        journal.beginCompaction();
+        Path compactedPath = journal.getCompactedPath();
+        Path temporaryPath = Path.of(compactedPath + ".tmp");
+        snapshotWriter.write(temporaryPath);
+        Utils.moveAtomically(temporaryPath, compactedPath);
+        journal.finishCompaction(replicaPath);
+        writeState(offset, 0);
+    }
+
+    /**
+     * Reads the applied offset and the journal size recorded in the offset file.
+     *
+     * @return The applied offset and the journal size, or {@code null} if the offset file is missing or invalid.
+     * @throws IOException If the offset file cannot be read.
+     */
+    private long[] readState() throws IOException {
+        if (Files.notExists(offsetPath)) {
+            return null;
+        }
+        String[] fields = Files.readString(offsetPath, StandardCharsets.UTF_8).trim().split(" ");
+        try {
+            return fields.length == 2 ? new long[]{Long.parseLong(fields[0]), Long.parseLong(fields[1])} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records the applied offset and the journal size in the offset file, replacing it atomically.
+     *
+     * @param offset      The applied offset.
+     * @param journalSize The size of the journal of the replica.
+     * @throws IOException If the offset file cannot be written.
+     */
+    private void writeState(long offset, long journalSize) throws IOException {
+        Path temporaryPath = Path.of(offsetPath + ".tmp");
+        Files.writeString(temporaryPath, offset + " " + journalSize, StandardCharsets.UTF_8);
+        Utils.moveAtomically(temporaryPath, offsetPath);
+    }
+}
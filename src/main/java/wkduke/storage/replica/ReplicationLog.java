@@ -0,0 +1,180 @@
+package wkduke.storage.replica;
+
+import wkduke.common.Utils;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.decoder.TaskFileReader;
+import wkduke.storage.journal.JournalEntry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manages the log of committed mutations that is shipped to a {@link Replica}, next to the task file as
+ * {@code tasks.txt.replog}.
+ *
+ * <p>The log holds {@link JournalEntry} lines after a header line {@code #<base>}, and every entry is addressed by a
+ * byte offset that keeps growing for the lifetime of the task file: the offset of the first entry is the base, and
+ * the offset just past the last entry is the end. Entries that every replica has applied are dropped by starting
+ * the log over from its end, and a mutation that entries cannot describe, such as sorting, starts it over one byte
+ * past its end, so that a replica at an older offset has to be sent a snapshot instead.</p>
+ */
+public class ReplicationLog {
+    public static final String LOG_FILE_SUFFIX = ".replog";
+    private static final String HEADER_PREFIX = "#";
+    private final Path logPath;
+    private long base = -1;
+    private long headerLength;
+
+    /**
+     * Constructs a {@code ReplicationLog} for the given task file. The log file is only created once entries are
+     * appended.
+     *
+     * @param dataFilePath The task file whose mutations are logged.
+     */
+    public ReplicationLog(Path dataFilePath) {
+        assert dataFilePath != null : "Precondition failed: 'dataFilePath' cannot be null";
+        logPath = Path.of(dataFilePath + LOG_FILE_SUFFIX);
+    }
+
+    /**
+     * Appends committed entries to the end of the log.
+     *
+     * @param entries The entries to append, in the order they were applied.
+     * @throws IOException If the log cannot be written.
+     */
+    public synchronized void append(List<JournalEntry> entries) throws IOException {
+        assert entries != null : "Precondition failed: 'entries' cannot be null";
+        if (Files.notExists(logPath)) {
+            startOver(0);
+        }
+        List<String> encodedEntries = new ArrayList<>();
+        for (JournalEntry entry : entries) {
+            encodedEntries.add(entry.encode());
+        }
+        Files.write(logPath, encodedEntries, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Retrieves the offset of the first entry in the log.
+     *
+     * @return The base offset of the log.
+     * @throws IOException If the log cannot be read.
+     */
+    public synchronized long getBase() throws IOException {
+        readHeader();
+        return base;
+    }
+
+    /**
+     * Retrieves the offset just past the last entry in the log.
+     *
+     * @return The end offset of the log.
+     * @throws IOException If the log cannot be read.
+     */
+    public synchronized long getEnd() throws IOException {
+        readHeader();
+        return Files.exists(logPath) ? base + Files.size(logPath) - headerLength : base;
+    }
+
+    /**
+     * Reads the entries between two offsets of the log.
+     *
+     * @param from The offset of the first entry to read, at least the base.
+     * @param to   The offset just past the last entry to read, at most the end.
+     * @return The entries, in order.
+     * @throws FileContentException If an entry is malformed.
+     * @throws IOException          If the log cannot be read.
+     */
+    public synchronized List<JournalEntry> read(long from, long to) throws FileContentException, IOException {
+        assert from >= getBase() && from <= to && to <= getEnd()
+                : "Precondition failed: 'from' and 'to' must be offsets within the log";
+        List<JournalEntry> entries = new ArrayList<>();
+        if (from == to) {
+            return entries;
+        }
+        TaskFileReader.forEachLine(logPath, headerLength + from - base, headerLength + to - base, encodedEntry -> {
+            if (!encodedEntry.isBlank()) {
+                entries.add(JournalEntry.decode(encodedEntry));
+            }
+        });
+        return entries;
+    }
+
+    /**
+     * Drops every entry once a replica has applied the log up to its end, keeping the offsets of later entries
+     * growing from there. Nothing is dropped if entries were appended past the applied offset in the meantime.
+     *
+     * @param appliedOffset The offset the replica has applied the log up to.
+     * @throws IOException If the log cannot be written.
+     */
+    public synchronized void clear(long appliedOffset) throws IOException {
+        if (appliedOffset == getEnd()) {
+            startOver(appliedOffset);
+        }
+    }
+
+    /**
+     * Drops every entry and skips one offset, so that no replica can continue from the current end by applying
+     * entries alone.
+     *
+     * @throws IOException If the log cannot be written.
+     */
+    public synchronized void startSegment() throws IOException {
+        startOver(getEnd() + 1);
+    }
+
+    /**
+     * Replaces the log with an empty one starting at the given offset.
+     *
+     * @param newBase The offset of the first entry of the new log.
+     * @throws IOException If the log cannot be written.
+     */
+    private void startOver(long newBase) throws IOException {
+        byte[] header = (HEADER_PREFIX + newBase + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        Path temporaryPath = Path.of(logPath + ".tmp");
+        Files.write(temporaryPath, header);
+        Utils.moveAtomically(temporaryPath, logPath);
+        base = newBase;
+        headerLength = header.length;
+    }
+
+    /**
+     * Reads the base offset and the length of the header line from the log, once.
+     *
+     * @throws IOException If the log cannot be read.
+     */
+    private void readHeader() throws IOException {
+        if (base >= 0) {
+            return;
+        }
+        if (Files.notExists(logPath)) {
+            base = 0;
+            headerLength = 0;
+            return;
+        }
+        StringBuilder header = new StringBuilder();
+        int length = 0;
+        try (InputStream in = Files.newInputStream(logPath)) {
+            int b;
+            while ((b = in.read()) >= 0 && b != '\n') {
+                length++;
+                if (b != '\r') {
+                    header.append((char) b);
+                }
+            }
+            length += (b == '\n') ? 1 : 0;
+        }
+        try {
+            base = Long.parseLong(header.substring(HEADER_PREFIX.length()));
+            headerLength = length;
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IOException(String.format("Invalid replication log header: FilePath='%s'", logPath), e);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package wkduke.storage.shard;
+
+import wkduke.common.Messages;
+import wkduke.common.Utils;
+import wkduke.exception.storage.FileContentException;
+import wkduke.parser.TimeParser;
+import wkduke.storage.StorageFormat;
+import wkduke.storage.decoder.BinaryTaskListDecoder;
+import wkduke.storage.decoder.CompressedTaskListDecoder;
+import wkduke.storage.decoder.TaskListDecoder;
+import wkduke.storage.encoder.BinaryTaskListEncoder;
+import wkduke.storage.encoder.CompressedTaskListEncoder;
+import wkduke.storage.encoder.TaskListEncoder;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads and writes the files of a sharded task store: one task file per shard, in the storage format, and a
+ * text manifest with one line per shard of the form {@code name | taskCount | latestEnd}, followed by one line per
+ * {@link ShardRun} of the list of the form {@code > name | taskCount}, in list order. A manifest without runs, as
+ * written before the order was kept, describes the shards one after another.
+ * Every file is written to a temporary file and moved into place, and shards are written before the manifest.
+ */
+public class ShardDirectory {
+    public static final String MANIFEST_FILE_NAME = "manifest.txt";
+    private static final String SEPARATOR = " | ";
+    private static final String RUN_PREFIX = "> ";
+    private static final String NO_DATE_TIME = "-";
+    private final Path directory;
+    private final StorageFormat format;
+
+    /**
+     * Constructs a {@code ShardDirectory} for the given directory.
+     *
+     * @param directory The directory holding the shards and the manifest. It is created on the first write.
+     * @param format    The format of the shard files.
+     */
+    public ShardDirectory(Path directory, StorageFormat format) {
+        assert directory != null : "Precondition failed: 'directory' cannot be null";
+        assert format != null : "Precondition failed: 'format' cannot be null";
+        this.directory = directory;
+        this.format = format;
+    }
+
+    /**
+     * Retrieves the directory holding the shards.
+     *
+     * @return The shard directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Checks whether the manifest exists.
+     *
+     * @return {@code true} if the manifest exists; {@code false} otherwise.
+     */
+    public boolean hasManifest() {
+        return Files.exists(directory.resolve(MANIFEST_FILE_NAME));
+    }
+
+    /**
+     * Reads the manifest, checking that its runs add up to the sizes of its shards.
+     *
+     * @return The shards and the order described by the manifest.
+     * @throws FileContentException If a line of the manifest is invalid, or its runs do not match its shards.
+     * @throws IOException          If the manifest cannot be read.
+     */
+    public ShardManifest readManifest() throws FileContentException, IOException {
+        List<ShardInfo> shardInfos = new ArrayList<>();
+        List<ShardRun> order = new ArrayList<>();
+        for (String line : Files.readAllLines(directory.resolve(MANIFEST_FILE_NAME))) {
+            if (line.startsWith(RUN_PREFIX)) {
+                order.add(decodeShardRun(line));
+            } else {
+                shardInfos.add(decodeShardInfo(line));
+            }
+        }
+        if (!order.isEmpty()) {
+            checkOrder(shardInfos, order);
+        }
+        return new ShardManifest(shardInfos, order);
+    }
+
+    /**
+     * Overwrites the manifest with the given shards and order.
+     *
+     * @param manifest The shards and the order to describe.
+     * @throws IOException If the manifest cannot be written.
+     */
+    public void writeManifest(ShardManifest manifest) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (ShardInfo shardInfo : manifest.shardInfos()) {
+            String latestEnd = (shardInfo.latestEnd() == null)
+                    ? NO_DATE_TIME
+                    : shardInfo.latestEnd().format(TimeParser.ENCODING_FORMATTER);
+            lines.add(shardInfo.name() + SEPARATOR + shardInfo.taskCount() + SEPARATOR + latestEnd);
+        }
+        for (ShardRun run : manifest.order()) {
+            lines.add(RUN_PREFIX + run.name() + SEPARATOR + run.taskCount());
+        }
+        Files.createDirectories(directory);
+        Path temporaryPath = directory.resolve(MANIFEST_FILE_NAME + ".tmp");
+        Files.write(temporaryPath, lines);
+        Utils.moveAtomically(temporaryPath, directory.resolve(MANIFEST_FILE_NAME));
+    }
+
+    /**
+     * Rebuilds the manifest from the shard files in the directory, e.g. after it was deleted. The order of the list
+     * across the shards is lost, so the list becomes the shards one after another.
+     *
+     * @return The shards found, which are also written to the manifest if there are any.
+     * @throws FileContentException If a shard file is improperly formatted.
+     * @throws IOException          If a shard file cannot be read or the manifest cannot be written.
+     */
+    public ShardManifest rebuildManifest() throws FileContentException, IOException {
+        List<ShardInfo> shardInfos = new ArrayList<>();
+        if (Files.notExists(directory)) {
+            return ShardManifest.EMPTY;
+        }
+        try (DirectoryStream<Path> shardFiles = Files.newDirectoryStream(directory, "*" + format.getExtension())) {
+            for (Path shardFile : shardFiles) {
+                String fileName = shardFile.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - format.getExtension().length());
+                if (!isShardName(name)) {
+                    continue;
+                }
+                List<Task> tasks = readShard(name).getTasks();
+                shardInfos.add(new ShardInfo(name, tasks.size(), ShardedTaskList.latestEndOf(tasks)));
+            }
+        }
+        ShardManifest manifest = new ShardManifest(shardInfos, List.of());
+        if (!shardInfos.isEmpty()) {
+            writeManifest(manifest);
+        }
+        return manifest;
+    }
+
+    /**
+     * Reads and validates the tasks of a shard.
+     *
+     * @param name The name of the shard.
+     * @return A {@code TaskList} containing the tasks of the shard, or an empty one if the shard has no file.
+     * @throws FileContentException If the shard file is improperly formatted.
+     * @throws IOException          If the shard file cannot be read.
+     */
+    public TaskList readShard(String name) throws FileContentException, IOException {
+        Path shardPath = resolveShardPath(name);
+        if (Files.notExists(shardPath)) {
+            return new TaskList();
+        }
+        return switch (format) {
+            case TEXT -> TaskListDecoder.decodeTaskList(shardPath);
+            case BINARY -> BinaryTaskListDecoder.decodeTaskList(shardPath);
+            case COMPRESSED -> CompressedTaskListDecoder.decodeTaskList(shardPath);
+        };
+    }
+
+    /**
+     * Overwrites the file of a shard with the given tasks, or deletes it if there are none.
+     *
+     * @param name  The name of the shard.
+     * @param tasks The tasks of the shard, in order.
+     * @throws IOException If the shard file cannot be written.
+     */
+    public void writeShard(String name, List<Task> tasks) throws IOException {
+        Path shardPath = resolveShardPath(name);
+        if (tasks.isEmpty()) {
+            Files.deleteIfExists(shardPath);
+            return;
+        }
+        Files.createDirectories(directory);
+        Path temporaryPath = Path.of(shardPath + ".tmp");
+        TaskList taskList = new TaskList(tasks);
+        switch (format) {
+            case TEXT -> TaskListEncoder.writeTaskList(taskList, temporaryPath);
+            case BINARY -> BinaryTaskListEncoder.writeTaskList(taskList, temporaryPath);
+            case COMPRESSED -> CompressedTaskListEncoder.writeTaskList(taskList, temporaryPath);
+            default -> throw new AssertionError(format);
+        }
+        Utils.moveAtomically(temporaryPath, shardPath);
+    }
+
+    /**
+     * Deletes the file of every shard not in the given set, e.g. after the whole task list was replaced.
+     *
+     * @param names The names of the shards to keep.
+     * @throws IOException If a shard file cannot be deleted.
+     */
+    public void deleteShardsExcept(Set<String> names) throws IOException {
+        if (Files.notExists(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> shardFiles = Files.newDirectoryStream(directory, "*" + format.getExtension())) {
+            for (Path shardFile : shardFiles) {
+                String fileName = shardFile.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - format.getExtension().length());
+                if (isShardName(name) && !names.contains(name)) {
+                    Files.delete(shardFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves the file of a shard.
+     *
+     * @param name The name of the shard.
+     * @return The path of the shard file.
+     */
+    private Path resolveShardPath(String name) {
+        return directory.resolve(name + format.getExtension());
+    }
+
+    /**
+     * Checks whether the given name is a valid shard name.
+     *
+     * @param name The name to check.
+     * @return {@code true} if it names the todo shard or a month shard; {@code false} otherwise.
+     */
+    private static boolean isShardName(String name) {
+        if (name.equals(ShardedTaskList.TODO_SHARD_NAME)) {
+            return true;
+        }
+        try {
+            YearMonth.parse(name);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Decodes a line of the manifest.
+     *
+     * @param line The line to decode.
+     * @return The shard described by the line.
+     * @throws FileContentException If the line is invalid.
+     */
+    private static ShardInfo decodeShardInfo(String line) throws FileContentException {
+        String[] fields = line.split(" \\| ", -1);
+        try {
+            if (fields.length != 3 || !isShardName(fields[0])) {
+                throw new IllegalArgumentException(line);
+            }
+            int taskCount = Integer.parseInt(fields[1]);
+            if (taskCount < 0) {
+                throw new IllegalArgumentException(line);
+            }
+            LocalDateTime latestEnd = fields[2].equals(NO_DATE_TIME)
+                    ? null
+                    : LocalDateTime.parse(fields[2], TimeParser.ENCODING_FORMATTER);
+            return new ShardInfo(fields[0], taskCount, latestEnd);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new FileContentException(Messages.MESSAGE_INVALID_SHARD_MANIFEST,
+                    String.format("ManifestLine='%s'", line), Messages.MESSAGE_INVALID_SHARD_MANIFEST_HELP);
+        }
+    }
+
+    /**
+     * Decodes a run line of the manifest.
+     *
+     * @param line The line to decode, starting with the run prefix.
+     * @return The run described by the line.
+     * @throws FileContentException If the line is invalid.
+     */
+    private static ShardRun decodeShardRun(String line) throws FileContentException {
+        String[] fields = line.substring(RUN_PREFIX.length()).split(" \\| ", -1);
+        try {
+            if (fields.length != 2 || !isShardName(fields[0])) {
+                throw new IllegalArgumentException(line);
+            }
+            int taskCount = Integer.parseInt(fields[1]);
+            if (taskCount <= 0) {
+                throw new IllegalArgumentException(line);
+            }
+            return new ShardRun(fields[0], taskCount);
+        } catch (IllegalArgumentException e) {
+            throw new FileContentException(Messages.MESSAGE_INVALID_SHARD_MANIFEST,
+                    String.format("ManifestLine='%s'", line), Messages.MESSAGE_INVALID_SHARD_MANIFEST_HELP);
+        }
+    }
+
+    /**
+     * Checks that the runs of a manifest hold exactly the tasks of its shards.
+     *
+     * @param shardInfos The shards of the manifest.
+     * @param order      The runs of the manifest.
+     * @throws FileContentException If a shard holds more or fewer tasks than its runs.
+     */
+    private static void checkOrder(List<ShardInfo> shardInfos, List<ShardRun> order) throws FileContentException {
+        Map<String, Integer> runTaskCounts = new HashMap<>();
+        for (ShardRun run : order) {
+            runTaskCounts.merge(run.name(), run.taskCount(), Integer::sum);
+        }
+        for (ShardInfo shardInfo : shardInfos) {
+            Integer runTaskCount = runTaskCounts.remove(shardInfo.name());
+            if (runTaskCount == null ? shardInfo.taskCount() != 0 : runTaskCount != shardInfo.taskCount()) {
+                throw invalidOrder(shardInfo.name());
+            }
+        }
+        if (!runTaskCounts.isEmpty()) {
+            throw invalidOrder(runTaskCounts.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Creates the exception reported for runs that do not match the shards of the manifest.
+     *
+     * @param name The name of the shard whose runs do not match.
+     * @return A {@code FileContentException} describing the shard.
+     */
+    private static FileContentException invalidOrder(String name) {
+        return new FileContentException(Messages.MESSAGE_INVALID_SHARD_MANIFEST,
+                String.format("Shard='%s'", name), Messages.MESSAGE_INVALID_SHARD_MANIFEST_HELP);
+    }
+}
@@ -0,0 +1,14 @@
+package wkduke.storage.shard;
+
+import java.time.LocalDateTime;
+
+/**
+ * Describes one shard in the manifest of a sharded task store.
+ *
+ * @param name      The name of the shard: {@code todo}, or the month of its tasks such as {@code 2024-11}.
+ * @param taskCount The number of tasks in the shard.
+ * @param latestEnd The latest date-time any task in the shard occurs at, or {@code null} if it has no time aware
+ *                  tasks. It may be later than the actual latest task, but never earlier.
+ */
+public record ShardInfo(String name, int taskCount, LocalDateTime latestEnd) {
+}
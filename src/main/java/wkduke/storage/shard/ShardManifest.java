@@ -0,0 +1,15 @@
+package wkduke.storage.shard;
+
+import java.util.List;
+
+/**
+ * Describes the contents of a sharded task store: its shards, and the order of the task list across them.
+ *
+ * @param shardInfos The shards, in shard order.
+ * @param order      The runs of consecutive tasks of the list, in list order, or an empty list if the order is not
+ *                   known, e.g. for a manifest rebuilt from the shard files, in which case the list is the shards one
+ *                   after another.
+ */
+public record ShardManifest(List<ShardInfo> shardInfos, List<ShardRun> order) {
+    public static final ShardManifest EMPTY = new ShardManifest(List.of(), List.of());
+}
@@ -0,0 +1,11 @@
+package wkduke.storage.shard;
+
+/**
+ * Describes a run of consecutive tasks of a sharded task list that belong to the same shard, so that the manifest
+ * can record the order of the list across shards.
+ *
+ * @param name      The name of the shard holding the tasks.
+ * @param taskCount The number of consecutive tasks in the run.
+ */
+public record ShardRun(String name, int taskCount) {
+}
@@ -0,0 +1,486 @@
+package wkduke.storage.shard;
+
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.UncheckedFileContentException;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.SelfIndexedTasks;
+import wkduke.task.Task;
+import wkduke.task.TimeAware;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A list of tasks partitioned into shards, where each shard is read from its file on first access.
+ * Todos live in the {@code todo} shard and time aware tasks in the shard of the month of
+ * {@link TimeAware#getComparableDateTime()}.
+ *
+ * <p>The order of the list across the shards is kept as the shard of every position, recorded in the manifest as
+ * {@link ShardRun}s, and each shard holds its tasks in list order. Indexing into the list therefore only reads the
+ * shard holding the index, and tasks are added, moved and sorted like in any other list. Equal tasks always fall
+ * into the same shard, so {@link #indexOf(Object)} and {@link #contains(Object)} only read the shard of the task,
+ * and {@link #getTasksPossiblyOn(LocalDateTime)} only reads the shards that can hold a task occurring on a date.
+ * Sorting reads every shard.</p>
+ *
+ * <p>A shard that fails to load surfaces as an {@link UncheckedFileContentException} or
+ * {@link UncheckedIOException} from the access that reads it.</p>
+ */
+public class ShardedTaskList extends AbstractList<Task> implements SelfIndexedTasks {
+    public static final String TODO_SHARD_NAME = "todo";
+    private static final Comparator<String> SHARD_ORDER = Comparator
+            .comparing((String name) -> !name.equals(TODO_SHARD_NAME))
+            .thenComparing(Comparator.naturalOrder());
+    private final ShardDirectory shardDirectory;
+    private final TreeMap<String, Shard> shards = new TreeMap<>(SHARD_ORDER);
+    private final List<Shard> positions = new ArrayList<>();
+    private int[] localIndices;
+
+    /**
+     * One shard of the list, with its tasks once they are read.
+     */
+    private static class Shard {
+        private final String name;
+        private int taskCount;
+        private LocalDateTime latestEnd;
+        private List<Task> tasks;
+        private boolean isDirty;
+        private int positionCount;
+
+        /**
+         * Constructs a {@code Shard} from its manifest entry, without reading its tasks.
+         *
+         * @param shardInfo The manifest entry of the shard.
+         */
+        Shard(ShardInfo shardInfo) {
+            this.name = shardInfo.name();
+            this.taskCount = shardInfo.taskCount();
+            this.latestEnd = shardInfo.latestEnd();
+        }
+    }
+
+    /**
+     * Constructs a {@code ShardedTaskList} over the shards described by a manifest, without reading any of them.
+     * A manifest without an order describes the shards one after another.
+     *
+     * @param shardDirectory The directory holding the shards.
+     * @param manifest       The shards and the order described by the manifest, whose runs match its shards.
+     */
+    public ShardedTaskList(ShardDirectory shardDirectory, ShardManifest manifest) {
+        assert shardDirectory != null : "Precondition failed: 'shardDirectory' cannot be null";
+        assert manifest != null : "Precondition failed: 'manifest' cannot be null";
+        this.shardDirectory = shardDirectory;
+        for (ShardInfo shardInfo : manifest.shardInfos()) {
+            shards.put(shardInfo.name(), new Shard(shardInfo));
+        }
+        if (manifest.order().isEmpty()) {
+            for (Shard shard : shards.values()) {
+                positions.addAll(Collections.nCopies(shard.taskCount, shard));
+            }
+            return;
+        }
+        for (ShardRun run : manifest.order()) {
+            positions.addAll(Collections.nCopies(run.taskCount(), shards.get(run.name())));
+        }
+    }
+
+    /**
+     * Retrieves the name of the shard a task belongs to.
+     *
+     * @param task The task.
+     * @return {@code todo} for a task that is not time aware, or the month of the task such as {@code 2024-11}.
+     */
+    public static String shardNameOf(Task task) {
+        if (task instanceof TimeAware timeAwareTask) {
+            return YearMonth.from(timeAwareTask.getComparableDateTime()).toString();
+        }
+        return TODO_SHARD_NAME;
+    }
+
+    /**
+     * Retrieves the latest date-time any of the given tasks occurs at.
+     *
+     * @param tasks The tasks.
+     * @return The latest deadline or event end, or {@code null} if none of the tasks is time aware.
+     */
+    static LocalDateTime latestEndOf(List<Task> tasks) {
+        LocalDateTime latestEnd = null;
+        for (Task task : tasks) {
+            latestEnd = later(latestEnd, endOf(task));
+        }
+        return latestEnd;
+    }
+
+    /**
+     * Retrieves the date-time a task stops occurring at.
+     *
+     * @param task The task.
+     * @return The deadline or event end, or {@code null} if the task is not time aware.
+     */
+    private static LocalDateTime endOf(Task task) {
+        if (task instanceof Event event) {
+            return event.getTo();
+        }
+        if (task instanceof Deadline deadline) {
+            return deadline.getBy();
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the later of two date-times, either of which may be {@code null}.
+     *
+     * @param first  The first date-time.
+     * @param second The second date-time.
+     * @return The later date-time, or {@code null} if both are {@code null}.
+     */
+    private static LocalDateTime later(LocalDateTime first, LocalDateTime second) {
+        if (first == null || (second != null && second.isAfter(first))) {
+            return second;
+        }
+        return first;
+    }
+
+    /**
+     * Retrieves the number of shards whose tasks have been read, e.g. to check that a query stayed local.
+     *
+     * @return The number of loaded shards.
+     */
+    public int getLoadedShardCount() {
+        int loadedShardCount = 0;
+        for (Shard shard : shards.values()) {
+            if (shard.tasks != null) {
+                loadedShardCount++;
+            }
+        }
+        return loadedShardCount;
+    }
+
+    /**
+     * Reads every shard not read yet, reporting the first invalid one.
+     *
+     * @throws FileContentException If a shard is improperly formatted or does not match the manifest.
+     * @throws IOException          If a shard cannot be read.
+     */
+    public void loadAll() throws FileContentException, IOException {
+        for (Shard shard : shards.values()) {
+            load(shard);
+        }
+    }
+
+    /**
+     * Retrieves the tasks of every shard that may hold a task occurring on the date of the given date-time,
+     * reading only those shards. A task occurring on the date cannot start in a later month, nor sit in a shard
+     * whose latest end is before the date.
+     *
+     * @param dateTime The date-time whose date is queried.
+     * @return The candidate tasks, in list order. Callers still need to check each one.
+     */
+    public List<Task> getTasksPossiblyOn(LocalDateTime dateTime) {
+        String lastShardName = YearMonth.from(dateTime).toString();
+        Set<Shard> candidateShards = new HashSet<>();
+        for (Shard shard : shards.headMap(lastShardName, true).values()) {
+            if (shard.latestEnd == null || shard.latestEnd.toLocalDate().isBefore(dateTime.toLocalDate())) {
+                continue;
+            }
+            loadUnchecked(shard);
+            candidateShards.add(shard);
+        }
+        List<Task> candidateTasks = new ArrayList<>();
+        if (candidateShards.isEmpty()) {
+            return candidateTasks;
+        }
+        int[] indices = getLocalIndices();
+        for (int index = 0; index < positions.size(); index++) {
+            Shard shard = positions.get(index);
+            if (candidateShards.contains(shard)) {
+                candidateTasks.add(shard.tasks.get(indices[index]));
+            }
+        }
+        return candidateTasks;
+    }
+
+    /**
+     * Marks the shard of a task as changed, e.g. after the task was marked as done.
+     *
+     * @param task A task in this list.
+     */
+    public void markDirty(Task task) {
+        Shard shard = shards.get(shardNameOf(task));
+        assert shard != null : "Precondition failed: 'task' must be in the list";
+        shard.isDirty = true;
+    }
+
+    /**
+     * Marks every shard that has been read as changed. Shards that were never read cannot have changed.
+     */
+    public void markAllLoadedDirty() {
+        for (Shard shard : shards.values()) {
+            shard.isDirty |= shard.tasks != null;
+        }
+    }
+
+    /**
+     * Writes every changed shard and then the manifest. Shards left empty are deleted.
+     * Every change of the order also changes a shard, so the manifest is only written with a shard.
+     *
+     * @throws IOException If a shard or the manifest cannot be written.
+     */
+    public void writeDirtyShards() throws IOException {
+        boolean hasDirtyShard = false;
+        for (Shard shard : shards.values()) {
+            if (!shard.isDirty) {
+                continue;
+            }
+            shardDirectory.writeShard(shard.name, shard.tasks);
+            shard.latestEnd = latestEndOf(shard.tasks);
+            shard.isDirty = false;
+            hasDirtyShard = true;
+        }
+        if (!hasDirtyShard) {
+            return;
+        }
+        shards.values().removeIf(shard -> shard.taskCount == 0);
+        shardDirectory.writeManifest(getManifest());
+    }
+
+    /**
+     * Retrieves the manifest entries of the shards.
+     *
+     * @return The shards, in shard order.
+     */
+    public List<ShardInfo> getShardInfos() {
+        List<ShardInfo> shardInfos = new ArrayList<>();
+        for (Shard shard : shards.values()) {
+            shardInfos.add(new ShardInfo(shard.name, shard.taskCount, shard.latestEnd));
+        }
+        return shardInfos;
+    }
+
+    /**
+     * Retrieves the manifest describing the shards and the order of the list across them.
+     *
+     * @return The manifest of the list.
+     */
+    public ShardManifest getManifest() {
+        List<ShardRun> order = new ArrayList<>();
+        int runStart = 0;
+        for (int index = 1; index <= positions.size(); index++) {
+            if (index == positions.size() || positions.get(index) != positions.get(runStart)) {
+                order.add(new ShardRun(positions.get(runStart).name, index - runStart));
+                runStart = index;
+            }
+        }
+        return new ShardManifest(getShardInfos(), order);
+    }
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, positions.size());
+        Shard shard = positions.get(index);
+        return loadUnchecked(shard).get(getLocalIndices()[index]);
+    }
+
+    @Override
+    public int size() {
+        return positions.size();
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        Objects.checkIndex(index, positions.size() + 1);
+        String name = shardNameOf(task);
+        Shard shard = shards.computeIfAbsent(name, shardName -> new Shard(new ShardInfo(shardName, 0, null)));
+        List<Task> tasks = loadUnchecked(shard);
+        // The task goes after the tasks of its shard that come before it in the list
+        int localIndex = (index == positions.size()) ? tasks.size() : countBefore(shard, index);
+        tasks.add(localIndex, task);
+        positions.add(index, shard);
+        localIndices = null;
+        shard.taskCount++;
+        shard.latestEnd = later(shard.latestEnd, endOf(task));
+        shard.isDirty = true;
+        modCount++;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        Objects.checkIndex(index, positions.size());
+        Shard shard = positions.get(index);
+        if (!shardNameOf(task).equals(shard.name)) {
+            Task previous = remove(index);
+            add(index, task);
+            return previous;
+        }
+        Task previous = loadUnchecked(shard).set(getLocalIndices()[index], task);
+        shard.latestEnd = later(shard.latestEnd, endOf(task));
+        shard.isDirty = true;
+        return previous;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Objects.checkIndex(index, positions.size());
+        Shard shard = positions.get(index);
+        Task removed = loadUnchecked(shard).remove(getLocalIndices()[index]);
+        positions.remove(index);
+        localIndices = null;
+        shard.taskCount--;
+        shard.isDirty = true; // The latest end is only tightened when the shard is written
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public int indexOf(Object obj) {
+        if (!(obj instanceof Task task)) {
+            return -1;
+        }
+        Shard shard = shards.get(shardNameOf(task));
+        if (shard == null) {
+            return -1;
+        }
+        int localIndex = loadUnchecked(shard).indexOf(task);
+        if (localIndex < 0) {
+            return -1;
+        }
+        int[] indices = getLocalIndices();
+        for (int index = 0; index < positions.size(); index++) {
+            if (positions.get(index) == shard && indices[index] == localIndex) {
+                return index;
+            }
+        }
+        throw new AssertionError("Every task of a shard has a position");
+    }
+
+    @Override
+    public boolean contains(Object obj) {
+        if (!(obj instanceof Task task)) {
+            return false;
+        }
+        Shard shard = shards.get(shardNameOf(task));
+        return shard != null && loadUnchecked(shard).contains(task);
+    }
+
+    /**
+     * Sorts the whole list stably, reading every shard, and keeps the tasks of each shard in the new order.
+     *
+     * @param comparator The comparator to sort by.
+     */
+    @Override
+    public void sort(Comparator<? super Task> comparator) {
+        List<Task> tasks = new ArrayList<>(this);
+        tasks.sort(comparator);
+        for (Shard shard : shards.values()) {
+            shard.tasks.clear();
+            shard.isDirty = true;
+        }
+        positions.clear();
+        localIndices = null;
+        for (Task task : tasks) {
+            Shard shard = shards.get(shardNameOf(task));
+            shard.tasks.add(task);
+            positions.add(shard);
+        }
+        modCount++;
+    }
+
+    /**
+     * Retrieves the index within its shard of the task at every position of the list, computing them again after
+     * the order changed.
+     *
+     * @return The local index of every position.
+     */
+    private int[] getLocalIndices() {
+        if (localIndices != null) {
+            return localIndices;
+        }
+        for (Shard shard : shards.values()) {
+            shard.positionCount = 0;
+        }
+        int[] indices = new int[positions.size()];
+        for (int index = 0; index < indices.length; index++) {
+            indices[index] = positions.get(index).positionCount++;
+        }
+        localIndices = indices;
+        return indices;
+    }
+
+    /**
+     * Counts the tasks of a shard that come before a position of the list.
+     *
+     * @param shard The shard.
+     * @param index The position in the list.
+     * @return The number of positions before the index that hold a task of the shard.
+     */
+    private int countBefore(Shard shard, int index) {
+        int count = 0;
+        for (int position = 0; position < index; position++) {
+            if (positions.get(position) == shard) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the tasks of a shard if they have not been read yet.
+     *
+     * @param shard The shard to read.
+     * @return The tasks of the shard.
+     * @throws FileContentException If the shard is improperly formatted or does not match the manifest.
+     * @throws IOException          If the shard cannot be read.
+     */
+    private List<Task> load(Shard shard) throws FileContentException, IOException {
+        if (shard.tasks != null) {
+            return shard.tasks;
+        }
+        List<Task> tasks = new ArrayList<>(shardDirectory.readShard(shard.name).getTasks());
+        if (tasks.size() != shard.taskCount) {
+            throw new FileContentException(Messages.MESSAGE_SHARD_MANIFEST_MISMATCH,
+                    String.format("Shard='%s', Expected=%d, Actual=%d", shard.name, shard.taskCount, tasks.size()),
+                    Messages.MESSAGE_INVALID_SHARD_MANIFEST_HELP);
+        }
+        for (Task task : tasks) {
+            if (!shardNameOf(task).equals(shard.name)) {
+                throw new FileContentException(Messages.MESSAGE_SHARD_MANIFEST_MISMATCH,
+                        String.format("Shard='%s', Task='%s'", shard.name, task),
+                        Messages.MESSAGE_INVALID_SHARD_MANIFEST_HELP);
+            }
+        }
+        shard.tasks = tasks;
+        return tasks;
+    }
+
+    /**
+     * Reads the tasks of a shard if they have not been read yet, for list operations that cannot throw.
+     *
+     * @param shard The shard to read.
+     * @return The tasks of the shard.
+     * @throws UncheckedFileContentException If the shard is improperly formatted or does not match the manifest.
+     * @throws UncheckedIOException          If the shard cannot be read.
+     */
+    private List<Task> loadUnchecked(Shard shard) {
+        try {
+            return load(shard);
+        } catch (FileContentException e) {
+            throw new UncheckedFileContentException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Shard='%s'", shard.name), e);
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package wkduke.storage.sql;
+
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.TaskStore;
+import wkduke.storage.decoder.TaskDecoder;
+import wkduke.storage.encoder.TaskEncoder;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the tasks of a task file in an embedded, file-based SQL database next to it, e.g.
+ * {@code tasks.txt.sql.mv.db} for {@code tasks.txt}, through JDBC and the H2 driver. No server is involved.
+ *
+ * <p>Each task is a row of the {@code tasks} table holding its {@link TaskStore} key, which orders the rows in list
+ * order, and its encoded line, which is authoritative, together with columns derived from it for queries: the
+ * description, the start and end of a time aware task, and the span of an event in minutes. The key, description,
+ * start and span columns are indexed, so that a mutation changes only its rows and a date query reads only the rows
+ * within range. Like the date index, a range query is widened by the longest event span to find the events that
+ * started earlier and are still running. A keyword query is a {@code LIKE} on the description, which no index can
+ * serve, but it runs in the database without decoding the tasks that do not match.</p>
+ *
+ * <p>The table is created under another name, filled and only then renamed, so an interrupted creation leaves no
+ * half-filled table behind. Every other change runs in a single transaction. Database errors are reported as
+ * {@link IOException}s naming the database.</p>
+ */
+public class SqlTaskStore implements TaskStore {
+    public static final String DATABASE_FILE_SUFFIX = ".sql";
+    private static final String JDBC_URL_PREFIX = "jdbc:h2:file:";
+    private static final String TABLE_NAME = "TASKS";
+    private static final String STAGING_TABLE_NAME = "TASKS_STAGING";
+    private static final char LIKE_ESCAPE = '\\';
+    private static final String INSERT_COLUMNS =
+            "(list_key, encoded_task, description, start_time, end_time, span_minutes) VALUES (?, ?, ?, ?, ?, ?)";
+    private final Path databasePath;
+    private Connection connection;
+
+    /**
+     * Constructs a {@code SqlTaskStore} for the given task file. The database is only opened on first use.
+     *
+     * @param dataFilePath The task file whose tasks are kept in the database.
+     */
+    public SqlTaskStore(Path dataFilePath) {
+        assert dataFilePath != null : "Precondition failed: 'dataFilePath' cannot be null";
+        databasePath = Path.of(dataFilePath + DATABASE_FILE_SUFFIX).toAbsolutePath();
+    }
+
+    /**
+     * Retrieves the path of the database, without the suffix the driver adds to its files.
+     *
+     * @return The path of the database.
+     */
+    @Override
+    public Path getStorePath() {
+        return databasePath;
+    }
+
+    /**
+     * Opens the connection to the database on first use, creating the database file if it does not exist.
+     *
+     * @return The open connection, with auto-commit turned off.
+     * @throws SQLException If the database cannot be opened.
+     */
+    private Connection connect() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = DriverManager.getConnection(JDBC_URL_PREFIX + databasePath);
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+
+    @Override
+    public synchronized boolean exists() throws IOException {
+        try (ResultSet tables = connect().getMetaData().getTables(null, null, TABLE_NAME, null)) {
+            return tables.next();
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    /**
+     * Creates the tasks table holding the given tasks. The table only appears once it is filled.
+     *
+     * @param tasks The initial tasks, in order.
+     * @return The keys of the rows written, one per task in list order.
+     * @throws IOException If the table cannot be created.
+     */
+    @Override
+    public synchronized long[] create(List<Task> tasks) throws IOException {
+        assert tasks != null : "Precondition failed: 'tasks' cannot be null";
+        try {
+            Connection connection = connect();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS " + STAGING_TABLE_NAME);
+                statement.execute("CREATE TABLE " + STAGING_TABLE_NAME + " (list_key BIGINT NOT NULL PRIMARY KEY, "
+                        + "encoded_task VARCHAR NOT NULL, description VARCHAR NOT NULL, start_time TIMESTAMP, "
+                        + "end_time TIMESTAMP, span_minutes BIGINT)");
+                statement.execute("CREATE INDEX tasks_description ON " + STAGING_TABLE_NAME + " (description)");
+                statement.execute("CREATE INDEX tasks_start_time ON " + STAGING_TABLE_NAME + " (start_time)");
+                statement.execute("CREATE INDEX tasks_span_minutes ON " + STAGING_TABLE_NAME + " (span_minutes)");
+                long[] keys = insert(STAGING_TABLE_NAME, tasks);
+                connection.commit();
+                statement.execute("ALTER TABLE " + STAGING_TABLE_NAME + " RENAME TO " + TABLE_NAME);
+                connection.commit();
+                return keys;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized long[] loadKeys() throws IOException {
+        try (PreparedStatement statement = connect().prepareStatement(
+                "SELECT list_key FROM " + TABLE_NAME + " ORDER BY list_key")) {
+            return readKeys(statement);
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized List<Task> loadAll() throws IOException, FileContentException {
+        try (PreparedStatement statement = connect().prepareStatement(
+                "SELECT encoded_task FROM " + TABLE_NAME + " ORDER BY list_key")) {
+            return readTasks(statement);
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized Map<Long, Task> readBetween(long fromKey, long toKey) throws IOException, FileContentException {
+        try (PreparedStatement statement = connect().prepareStatement("SELECT list_key, encoded_task FROM "
+                + TABLE_NAME + " WHERE list_key BETWEEN ? AND ? ORDER BY list_key")) {
+            statement.setLong(1, fromKey);
+            statement.setLong(2, toKey);
+            Map<Long, Task> tasksByKey = new LinkedHashMap<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    tasksByKey.put(rows.getLong(1), TaskDecoder.decodeTask(rows.getString(2)));
+                }
+            }
+            return tasksByKey;
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    /**
+     * Inserts a task at the end of the list, under the key after the highest one in the table.
+     *
+     * @param task The task to insert.
+     * @return The key of the row written.
+     * @throws IOException If the row cannot be inserted.
+     */
+    @Override
+    public synchronized long insert(Task task) throws IOException {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        try {
+            Connection connection = connect();
+            try (Statement statement = connection.createStatement();
+                 ResultSet rows = statement.executeQuery("SELECT MAX(list_key) FROM " + TABLE_NAME)) {
+                rows.next();
+                long key = rows.getObject(1) == null ? 0 : rows.getLong(1) + 1;
+                insert(TABLE_NAME, key, List.of(task));
+                connection.commit();
+                return key;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void update(Map<Long, Task> tasksByKey) throws IOException {
+        assert tasksByKey != null : "Precondition failed: 'tasksByKey' cannot be null";
+        try {
+            Connection connection = connect();
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE " + TABLE_NAME
+                    + " SET encoded_task = ?, description = ?, start_time = ?, end_time = ?, span_minutes = ?"
+                    + " WHERE list_key = ?")) {
+                for (Map.Entry<Long, Task> keyedTask : tasksByKey.entrySet()) {
+                    bindColumns(statement, 1, keyedTask.getValue());
+                    statement.setLong(6, keyedTask.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    /**
+     * Deletes the rows of removed tasks. Keys only order the rows, so no other row is changed.
+     *
+     * @param keys The keys of the rows to delete.
+     * @throws IOException If the rows cannot be deleted.
+     */
+    @Override
+    public synchronized void delete(Collection<Long> keys) throws IOException {
+        assert keys != null : "Precondition failed: 'keys' cannot be null";
+        try {
+            Connection connection = connect();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM " + TABLE_NAME + " WHERE list_key = ?")) {
+                for (long key : keys) {
+                    statement.setLong(1, key);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized long[] replaceAll(List<Task> tasks) throws IOException {
+        assert tasks != null : "Precondition failed: 'tasks' cannot be null";
+        try {
+            Connection connection = connect();
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("DELETE FROM " + TABLE_NAME);
+                long[] keys = insert(TABLE_NAME, tasks);
+                connection.commit();
+                return keys;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized long[] findKeysBetween(LocalDateTime from, LocalDateTime to) throws IOException {
+        try (PreparedStatement statement = prepareRangeQuery("list_key", from, to)) {
+            return readKeys(statement);
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized List<Task> findTasksBetween(LocalDateTime from, LocalDateTime to)
+            throws IOException, FileContentException {
+        try (PreparedStatement statement = prepareRangeQuery("encoded_task", from, to)) {
+            return readTasks(statement);
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized long[] findKeysContaining(List<String> keywords) throws IOException {
+        assert keywords != null && !keywords.isEmpty() : "Precondition failed: 'keywords' cannot be empty";
+        StringBuilder query = new StringBuilder("SELECT list_key FROM " + TABLE_NAME + " WHERE ");
+        for (int i = 0; i < keywords.size(); i++) {
+            query.append(i == 0 ? "" : " OR ").append("description LIKE ? ESCAPE '").append(LIKE_ESCAPE).append('\'');
+        }
+        query.append(" ORDER BY list_key");
+        try (PreparedStatement statement = connect().prepareStatement(query.toString())) {
+            for (int i = 0; i < keywords.size(); i++) {
+                statement.setString(i + 1, "%" + escapeLikePattern(keywords.get(i)) + "%");
+            }
+            return readKeys(statement);
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized long[] findKeysWithDescription(String description) throws IOException {
+        assert description != null : "Precondition failed: 'description' cannot be null";
+        try (PreparedStatement statement = connect().prepareStatement(
+                "SELECT list_key FROM " + TABLE_NAME + " WHERE description = ? ORDER BY list_key")) {
+            statement.setString(1, description);
+            return readKeys(statement);
+        } catch (SQLException e) {
+            throw toIOException(e);
+        }
+    }
+
+    /**
+     * Prepares a query for a column of the time aware tasks that may fall within a date-time range. The start is
+     * bounded from below by the longest event span, so that the index on it limits the rows read.
+     *
+     * @param column The column to select.
+     * @param from   The start of the range.
+     * @param to     The end of the range, inclusive.
+     * @return The prepared query, ordered by key.
+     * @throws SQLException If the table cannot be read.
+     */
+    private PreparedStatement prepareRangeQuery(String column, LocalDateTime from, LocalDateTime to)
+            throws SQLException {
+        long maxSpanMinutes = 0;
+        try (Statement statement = connect().createStatement();
+             ResultSet rows = statement.executeQuery("SELECT MAX(span_minutes) FROM " + TABLE_NAME)) {
+            if (rows.next()) {
+                maxSpanMinutes = rows.getLong(1);
+            }
+        }
+        PreparedStatement statement = connect().prepareStatement("SELECT " + column + " FROM " + TABLE_NAME
+                + " WHERE start_time BETWEEN ? AND ? AND end_time >= ? ORDER BY list_key");
+        statement.setObject(1, from.minusMinutes(maxSpanMinutes));
+        statement.setObject(2, to);
+        statement.setObject(3, from);
+        return statement;
+    }
+
+    /**
+     * Runs a query selecting keys.
+     *
+     * @param statement The query.
+     * @return The keys, in the order of the result.
+     * @throws SQLException If the query fails.
+     */
+    private static long[] readKeys(PreparedStatement statement) throws SQLException {
+        long[] keys = new long[16];
+        int keyCount = 0;
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                if (keyCount == keys.length) {
+                    keys = Arrays.copyOf(keys, keyCount * 2);
+                }
+                keys[keyCount++] = rows.getLong(1);
+            }
+        }
+        return Arrays.copyOf(keys, keyCount);
+    }
+
+    /**
+     * Runs a query selecting encoded tasks and decodes them.
+     *
+     * @param statement The query.
+     * @return The decoded tasks, in the order of the result.
+     * @throws SQLException         If the query fails.
+     * @throws FileContentException If a row holds an improperly formatted task.
+     */
+    private static List<Task> readTasks(PreparedStatement statement) throws SQLException, FileContentException {
+        List<Task> tasks = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                tasks.add(TaskDecoder.decodeTask(rows.getString(1)));
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Inserts tasks as the rows of an emptied table, under the keys {@code 0} to {@code n - 1}, without committing.
+     *
+     * @param tableName The table to insert into.
+     * @param tasks     The tasks to insert, in order.
+     * @return The keys of the rows written, one per task.
+     * @throws SQLException If the rows cannot be inserted.
+     */
+    private long[] insert(String tableName, List<Task> tasks) throws SQLException {
+        insert(tableName, 0, tasks);
+        long[] keys = new long[tasks.size()];
+        Arrays.setAll(keys, i -> i);
+        return keys;
+    }
+
+    /**
+     * Inserts tasks as rows with consecutive keys in one batch, without committing.
+     *
+     * @param tableName The table to insert into.
+     * @param fromKey   The key of the first task.
+     * @param tasks     The tasks to insert, in order.
+     * @throws SQLException If the rows cannot be inserted.
+     */
+    private void insert(String tableName, long fromKey, List<Task> tasks) throws SQLException {
+        try (PreparedStatement statement = connect().prepareStatement(
+                "INSERT INTO " + tableName + " " + INSERT_COLUMNS)) {
+            long key = fromKey;
+            for (Task task : tasks) {
+                statement.setLong(1, key++);
+                bindColumns(statement, 2, task);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Binds the encoded line of a task and the query columns derived from it to consecutive parameters.
+     * Descriptions are always written inline, since the database has no blob file.
+     *
+     * @param statement  The statement to bind to.
+     * @param firstIndex The 1-based index of the parameter for the encoded line.
+     * @param task       The task to bind.
+     * @throws SQLException If a parameter cannot be bound.
+     */
+    private static void bindColumns(PreparedStatement statement, int firstIndex, Task task) throws SQLException {
+        statement.setString(firstIndex, TaskEncoder.encodeTask(task));
+        statement.setString(firstIndex + 1, task.getDescription());
+        LocalDateTime start = null;
+        LocalDateTime end = null;
+        if (task instanceof Deadline deadline) {
+            start = deadline.getBy();
+            end = deadline.getBy();
+        } else if (task instanceof Event event) {
+            start = event.getFrom();
+            end = event.getTo();
+        }
+        statement.setObject(firstIndex + 2, start, Types.TIMESTAMP);
+        statement.setObject(firstIndex + 3, end, Types.TIMESTAMP);
+        if (start == null) {
+            statement.setNull(firstIndex + 4, Types.BIGINT);
+        } else {
+            statement.setLong(firstIndex + 4, Duration.between(start, end).toMinutes());
+        }
+    }
+
+    /**
+     * Escapes the wildcards of a {@code LIKE} pattern, so that a keyword only matches itself.
+     *
+     * @param keyword The keyword to escape.
+     * @return The escaped keyword.
+     */
+    private static String escapeLikePattern(String keyword) {
+        StringBuilder pattern = new StringBuilder(keyword.length());
+        for (char c : keyword.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.toString();
+    }
+
+    /**
+     * Wraps a database error in an {@code IOException} naming the database.
+     *
+     * @param e The database error.
+     * @return The wrapping exception.
+     */
+    private IOException toIOException(SQLException e) {
+        return new IOException(String.format("FilePath='%s'", databasePath), e);
+    }
+}
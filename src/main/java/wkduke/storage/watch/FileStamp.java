@@ -0,0 +1,109 @@
+package wkduke.storage.watch;
+
+import wkduke.storage.index.ContentFingerprint;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the size, modification time and {@link ContentFingerprint} of a file as WKDuke last read or wrote it, so
+ * that a change made outside WKDuke can be noticed before the file is written again.
+ *
+ * <p>A file is only read to compare fingerprints while its size and modification time still match but cannot prove
+ * that the content is unchanged: right after it was written, since another write within the resolution of the file
+ * system clock keeps the modification time. Once the fingerprint matched and the modification time is old enough,
+ * checking the size and modification time alone suffices.</p>
+ */
+public class FileStamp {
+    private static final long RACY_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private final long size;
+    private final long fingerprint;
+    private long modifiedNanos;
+    private boolean isVerified;
+
+    /**
+     * Constructs a {@code FileStamp} from the attributes of a file and the fingerprint of its content.
+     *
+     * @param size          The size of the file.
+     * @param modifiedNanos The modification time of the file, in nanoseconds since the epoch.
+     * @param fingerprint   The fingerprint of the content of the file.
+     */
+    private FileStamp(long size, long modifiedNanos, long fingerprint) {
+        this.size = size;
+        this.modifiedNanos = modifiedNanos;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Stamps a file whose content fingerprint is already known, e.g. because WKDuke just wrote it.
+     *
+     * @param path        The file to stamp.
+     * @param fingerprint The fingerprint of the content of the file.
+     * @return The stamp of the file.
+     * @throws IOException If the attributes of the file cannot be read.
+     */
+    public static FileStamp of(Path path, long fingerprint) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new FileStamp(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), fingerprint);
+    }
+
+    /**
+     * Stamps a file by reading its content.
+     * The attributes are read first, so that a change made while the file is read shows up as a mismatch later.
+     *
+     * @param path The file to stamp.
+     * @return The stamp of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static FileStamp read(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new FileStamp(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                ContentFingerprint.of(path));
+    }
+
+    /**
+     * Stamps the file again after WKDuke overwrote bytes of it in place.
+     *
+     * @param path              The file to stamp.
+     * @param fingerprintChange The change in the fingerprint made by the overwritten bytes.
+     * @return The new stamp of the file.
+     * @throws IOException If the attributes of the file cannot be read.
+     */
+    public FileStamp changedBy(Path path, long fingerprintChange) throws IOException {
+        return of(path, fingerprint + fingerprintChange);
+    }
+
+    /**
+     * Checks whether the file still has the content it had when it was stamped.
+     *
+     * @param path The stamped file.
+     * @return {@code true} if the content is unchanged; {@code false} if it was changed or the file was removed.
+     * @throws IOException If the file cannot be read.
+     */
+    public synchronized boolean matches(Path path) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        long modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        if (attributes.size() != size) {
+            return false;
+        }
+        if (isVerified && modified == modifiedNanos) {
+            return true;
+        }
+        if (ContentFingerprint.of(path) != fingerprint) {
+            return false;
+        }
+        // The content is unchanged, e.g. the file was only touched, so the new modification time is adopted
+        modifiedNanos = modified;
+        isVerified = System.currentTimeMillis() * 1_000_000 - modified > RACY_WINDOW_NANOS;
+        return true;
+    }
+}
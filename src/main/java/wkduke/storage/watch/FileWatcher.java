@@ -0,0 +1,91 @@
+package wkduke.storage.watch;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a single file for changes on a daemon thread, through a {@link WatchService} on its directory.
+ *
+ * <p>A file is usually written in several steps, or replaced by moving a new file over it, so each burst of
+ * events is collapsed: the change handler only runs once no further event for the file has arrived for
+ * {@link #SETTLE_MILLIS}. Changes made by WKDuke itself are reported too, so the handler must tell them apart.</p>
+ */
+public class FileWatcher implements AutoCloseable {
+    public static final long SETTLE_MILLIS = 100;
+    private final Path filePath;
+    private final Runnable changeHandler;
+    private final WatchService watchService;
+
+    /**
+     * Constructs a {@code FileWatcher} and starts watching the given file.
+     *
+     * @param filePath      The file to watch.
+     * @param changeHandler The handler run on the watcher thread after the file was created or modified.
+     * @throws IOException If the directory of the file cannot be watched.
+     */
+    public FileWatcher(Path filePath, Runnable changeHandler) throws IOException {
+        assert filePath != null : "Precondition failed: 'filePath' cannot be null";
+        assert changeHandler != null : "Precondition failed: 'changeHandler' cannot be null";
+        this.filePath = filePath.toAbsolutePath();
+        this.changeHandler = changeHandler;
+        Path directory = this.filePath.getParent();
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(this::watch, "wkduke-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Waits for events on the watched file until the watcher is closed, running the change handler once each burst
+     * of events has settled.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                if (!isFileChanged(watchService.take())) {
+                    continue;
+                }
+                WatchKey key;
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    isFileChanged(key);
+                }
+                changeHandler.run();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was closed
+        }
+    }
+
+    /**
+     * Drains the events of a watch key and re-arms it.
+     *
+     * @param key The signalled watch key.
+     * @return {@code true} if any event was about the watched file, or events were lost; {@code false} otherwise.
+     */
+    private boolean isFileChanged(WatchKey key) {
+        boolean isChanged = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            isChanged |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || filePath.getFileName().equals(event.context());
+        }
+        key.reset();
+        return isChanged;
+    }
+
+    /**
+     * Stops watching the file. A change handler that is already running is left to finish.
+     *
+     * @throws IOException If the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,190 @@
+package wkduke.storage.watch;
+
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.blob.BlobStore;
+import wkduke.storage.decoder.TaskDecoder;
+import wkduke.storage.decoder.TaskFileReader;
+import wkduke.storage.encoder.TaskEncoder;
+import wkduke.storage.format.FormatHeader;
+import wkduke.task.Task;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares a text task file that was changed outside WKDuke with the tasks held in memory, line by line.
+ *
+ * <p>Every task in memory is keyed by a hash of the line it is written as, which is cached on the task. A line of
+ * the file whose hash and bytes match a task keeps that task instance, so only the lines that were added or edited
+ * are decoded. The tasks of the file are then compared with the tasks in memory to find the single range that
+ * differs, which is all a caller has to replace.</p>
+ */
+public class TaskFileDiff {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private final List<Task> tasks;
+    private final int decodedRecordCount;
+    private final int fromIndex;
+    private final int currentToIndex;
+    private final int changedToIndex;
+
+    private TaskFileDiff(List<Task> currentTasks, List<Task> tasks, int decodedRecordCount) {
+        this.tasks = tasks;
+        this.decodedRecordCount = decodedRecordCount;
+        int prefixLength = 0;
+        int maxLength = Math.min(currentTasks.size(), tasks.size());
+        while (prefixLength < maxLength && currentTasks.get(prefixLength).equals(tasks.get(prefixLength))) {
+            prefixLength++;
+        }
+        int suffixLength = 0;
+        while (suffixLength < maxLength - prefixLength && currentTasks.get(currentTasks.size() - 1 - suffixLength)
+                .equals(tasks.get(tasks.size() - 1 - suffixLength))) {
+            suffixLength++;
+        }
+        fromIndex = prefixLength;
+        currentToIndex = currentTasks.size() - suffixLength;
+        changedToIndex = tasks.size() - suffixLength;
+    }
+
+    /**
+     * Compares the lines of a task file with the tasks in memory.
+     *
+     * @param currentTasks  The tasks in memory, in order.
+     * @param filePath      The task file to compare with.
+     * @param isChecksummed {@code true} if the lines are written with a checksum suffix.
+     * @param lineBlobStore The blob store that the lines of the tasks in memory refer to, or {@code null} if they
+     *                      are written with every description inline.
+     * @param blobStore     The blob store of the task file, or {@code null} if it has none.
+     * @return The differences between the file and the tasks in memory.
+     * @throws FileContentException If a changed line is not a valid encoded task, or the file holds a duplicate task.
+     * @throws IOException          If the file cannot be read.
+     */
+    public static TaskFileDiff compare(List<Task> currentTasks, Path filePath, boolean isChecksummed,
+                                       BlobStore lineBlobStore, BlobStore blobStore)
+            throws FileContentException, IOException {
+        assert currentTasks != null : "Precondition failed: 'currentTasks' cannot be null";
+        assert filePath != null : "Precondition failed: 'filePath' cannot be null";
+        Map<Long, Task> tasksByLineHash = new HashMap<>();
+        for (Task task : currentTasks) {
+            byte[] line = TaskEncoder.encodeLine(task, isChecksummed, lineBlobStore);
+            tasksByLineHash.put(hashLine(line, contentLength(line)), task);
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        Set<Task> seenTasks = new HashSet<>();
+        int[] decodedRecordCount = {0};
+        long recordsStart = FormatHeader.findRecordsStart(filePath);
+        TaskFileReader.forEachRawLine(filePath, recordsStart, Long.MAX_VALUE, (line, length, lineOffset) -> {
+            Task task = tasksByLineHash.remove(hashLine(line, length));
+            if (task == null
+                    || !isSameLine(TaskEncoder.encodeLine(task, isChecksummed, lineBlobStore), line, length)) {
+                String encodedTask = new String(line, 0, length, StandardCharsets.UTF_8);
+                task = TaskDecoder.decodeLine(encodedTask, isChecksummed, blobStore);
+                decodedRecordCount[0]++;
+            }
+            if (!seenTasks.add(task)) {
+                throw new FileContentException(Messages.MESSAGE_DUPLICATE_TASK_IN_FILE,
+                        String.format("EncodedTask='%s'", new String(line, 0, length, StandardCharsets.UTF_8)),
+                        Messages.MESSAGE_DUPLICATE_TASK_IN_FILE_HELP);
+            }
+            tasks.add(task);
+        });
+        return new TaskFileDiff(currentTasks, tasks, decodedRecordCount[0]);
+    }
+
+    /**
+     * Hashes the content of a line with 64-bit FNV-1a, so that lines of different tasks practically never collide.
+     *
+     * @param line   The buffer holding the line.
+     * @param length The number of bytes of the buffer that belong to the line, without its line terminator.
+     * @return The hash of the line.
+     */
+    private static long hashLine(byte[] line, int length) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (line[i] & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Retrieves the length of an encoded line without its line terminator.
+     *
+     * @param line The encoded line, including its line terminator.
+     * @return The number of bytes before the line terminator.
+     */
+    private static int contentLength(byte[] line) {
+        int length = line.length;
+        while (length > 0 && (line[length - 1] == '\n' || line[length - 1] == '\r')) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Checks whether a line read from the file is exactly the encoded line of a task, ruling out a hash collision.
+     *
+     * @param encodedLine The encoded line of the task, including its line terminator.
+     * @param line        The buffer holding the line read from the file.
+     * @param length      The number of bytes of the buffer that belong to the line.
+     * @return {@code true} if the lines are the same; {@code false} otherwise.
+     */
+    private static boolean isSameLine(byte[] encodedLine, byte[] line, int length) {
+        return Arrays.equals(encodedLine, 0, contentLength(encodedLine), line, 0, length);
+    }
+
+    /**
+     * Checks whether the file holds different tasks from the tasks in memory.
+     *
+     * @return {@code true} if some tasks were added, removed, changed or moved; {@code false} otherwise.
+     */
+    public boolean isChanged() {
+        return fromIndex != currentToIndex || fromIndex != changedToIndex;
+    }
+
+    /**
+     * Retrieves the number of lines that did not match a task in memory and had to be decoded.
+     *
+     * @return The number of decoded lines.
+     */
+    public int getDecodedRecordCount() {
+        return decodedRecordCount;
+    }
+
+    /**
+     * Retrieves the index of the first task that differs between the file and memory.
+     *
+     * @return The index of the start of the changed range.
+     */
+    public int getFromIndex() {
+        return fromIndex;
+    }
+
+    /**
+     * Retrieves the index just past the last task in memory that the changed range replaces.
+     *
+     * @return The end index of the replaced range of the tasks in memory.
+     */
+    public int getCurrentToIndex() {
+        return currentToIndex;
+    }
+
+    /**
+     * Retrieves the tasks of the file that replace the changed range of the tasks in memory.
+     * Tasks whose lines are unchanged are the same instances as in memory.
+     *
+     * @return The tasks of the changed range, in file order.
+     */
+    public List<Task> getChangedTasks() {
+        return tasks.subList(fromIndex, changedToIndex);
+    }
+}
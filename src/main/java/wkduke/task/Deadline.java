@@ -35,6 +35,20 @@ public class Deadline extends Task implements TimeAware {
         this.by = by;
     }
 
+    /**
+     * Constructs a {@code Deadline} task whose description is stored outside the task, with the specified deadline
+     * date-time, completion status, and priority.
+     *
+     * @param descriptionSource The source of the description of the task.
+     * @param by                The date and time by which the task is due.
+     * @param isDone            The completion status of the task.
+     * @param priority          The priority level of the task.
+     */
+    public Deadline(DescriptionSource descriptionSource, LocalDateTime by, boolean isDone, TaskPriority priority) {
+        super(descriptionSource, isDone, priority);
+        this.by = by;
+    }
+
     /**
      * Retrieves the date and time by which the task is due.
      *
@@ -97,6 +111,16 @@ public class Deadline extends Task implements TimeAware {
         return super.equals(obj);
     }
 
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}, combining the description and the due date.
+     *
+     * @return The hash code of this deadline.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + by.hashCode();
+    }
+
     /**
      * Returns a string representation of the task, including its type and due date.
      *
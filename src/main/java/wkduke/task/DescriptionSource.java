@@ -0,0 +1,22 @@
+package wkduke.task;
+
+/**
+ * Supplies the description of a task that is stored outside the task, so that it is only read when needed.
+ * Sources are immutable: a source always supplies the same description, and two equal sources supply equal
+ * descriptions.
+ */
+public interface DescriptionSource {
+    /**
+     * Reads the description.
+     *
+     * @return The description of the task.
+     */
+    String loadDescription();
+
+    /**
+     * Retrieves the hash code of the description without reading it.
+     *
+     * @return The value of {@code hashCode()} of the description.
+     */
+    int getDescriptionHashCode();
+}
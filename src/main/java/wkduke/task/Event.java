@@ -40,6 +40,23 @@ public class Event extends Task implements TimeAware {
         this.to = to;
     }
 
+    /**
+     * Constructs an {@code Event} task whose description is stored outside the task, with the specified start
+     * date-time, end date-time, completion status, and priority.
+     *
+     * @param descriptionSource The source of the description of the event.
+     * @param from              The start date and time of the event.
+     * @param to                The end date and time of the event.
+     * @param isDone            The completion status of the event.
+     * @param priority          The priority level of the event.
+     */
+    public Event(DescriptionSource descriptionSource, LocalDateTime from, LocalDateTime to, boolean isDone,
+                 TaskPriority priority) {
+        super(descriptionSource, isDone, priority);
+        this.from = from;
+        this.to = to;
+    }
+
     /**
      * Retrieves the start date and time of the event.
      *
@@ -117,6 +134,16 @@ public class Event extends Task implements TimeAware {
         return super.equals(obj);
     }
 
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}, combining the description and the time range.
+     *
+     * @return The hash code of this event.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * super.hashCode() + from.hashCode()) + to.hashCode();
+    }
+
     /**
      * Returns a string representation of the event, including its type, time range, and description.
      *
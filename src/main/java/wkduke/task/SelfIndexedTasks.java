@@ -0,0 +1,9 @@
+package wkduke.task;
+
+/**
+ * Represents a list of tasks that finds its own tasks without holding them all in memory, e.g. by reading only the
+ * part of a file an equal task would be in. A {@link TaskList} backed by such a list delegates
+ * {@link TaskList#contains(Task)} to it instead of building a hash index over every task.
+ */
+public interface SelfIndexedTasks {
+}
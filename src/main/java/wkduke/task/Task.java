@@ -3,11 +3,17 @@ package wkduke.task;
 /**
  * Represents a general task with a description and completion status.
  * Subclasses must implement methods for encoding and date-based checks.
+ *
+ * <p>A long description may be kept outside the task by a {@link DescriptionSource}, in which case it is only read
+ * when {@link #getDescription()} is first called. Tasks are hashed and compared through the source where possible,
+ * so that finding or comparing them does not read the description.</p>
  */
 public abstract class Task {
     private final String description;
+    private final DescriptionSource descriptionSource;
     private boolean isDone;
     private TaskPriority priority;
+    private byte[] cachedEncoding;
 
     /**
      * Constructs a {@code Task} with the specified description, initially marked as not done and
@@ -17,6 +23,7 @@ public abstract class Task {
      */
     Task(String description) {
         this.description = description;
+        this.descriptionSource = null;
         this.isDone = false;
         this.priority = TaskPriority.LOW;
     }
@@ -30,6 +37,23 @@ public abstract class Task {
      */
     Task(String description, boolean isDone, TaskPriority priority) {
         this.description = description;
+        this.descriptionSource = null;
+        this.isDone = isDone;
+        this.priority = priority;
+    }
+
+    /**
+     * Constructs a {@code Task} whose description is stored outside the task, with the specified completion status
+     * and priority.
+     *
+     * @param descriptionSource The source of the description of the task.
+     * @param isDone            The completion status of the task.
+     * @param priority          The priority level of the task.
+     */
+    Task(DescriptionSource descriptionSource, boolean isDone, TaskPriority priority) {
+        assert descriptionSource != null : "Precondition failed: 'descriptionSource' cannot be null";
+        this.description = null;
+        this.descriptionSource = descriptionSource;
         this.isDone = isDone;
         this.priority = priority;
     }
@@ -49,7 +73,25 @@ public abstract class Task {
      * @return The description of the task as a {@code String}.
      */
     public String getDescription() {
-        return description;
+        return (descriptionSource == null) ? description : descriptionSource.loadDescription();
+    }
+
+    /**
+     * Retrieves the source of the description if it is stored outside the task.
+     *
+     * @return The source of the description, or {@code null} if the task holds its description.
+     */
+    public DescriptionSource getDescriptionSource() {
+        return descriptionSource;
+    }
+
+    /**
+     * Retrieves the hash code of the description, without reading a description stored outside the task.
+     *
+     * @return The hash code of the description.
+     */
+    private int hashCodeOfDescription() {
+        return (descriptionSource == null) ? description.hashCode() : descriptionSource.getDescriptionHashCode();
     }
 
     /**
@@ -68,6 +110,7 @@ public abstract class Task {
      */
     public void setPriority(TaskPriority priority) {
         this.priority = priority;
+        cachedEncoding = null;
     }
 
     /**
@@ -92,6 +135,7 @@ public abstract class Task {
      */
     public void markAsDone() {
         isDone = true;
+        cachedEncoding = null;
     }
 
     /**
@@ -99,6 +143,27 @@ public abstract class Task {
      */
     public void markAsUndone() {
         isDone = false;
+        cachedEncoding = null;
+    }
+
+    /**
+     * Retrieves the encoded form of this task cached by the storage layer.
+     * The cache is cleared whenever the status or priority changes, the only fields that can change.
+     *
+     * @return The cached encoded bytes, or {@code null} if the task has changed since they were cached.
+     */
+    public byte[] getCachedEncoding() {
+        return cachedEncoding;
+    }
+
+    /**
+     * Caches the encoded form of this task, so that unchanged tasks are not encoded again on every save.
+     * The array is shared with every caller of {@link #getCachedEncoding()} and must not be modified.
+     *
+     * @param cachedEncoding The encoded bytes of the task in its current state.
+     */
+    public void setCachedEncoding(byte[] cachedEncoding) {
+        this.cachedEncoding = cachedEncoding;
     }
 
     /**
@@ -113,13 +178,27 @@ public abstract class Task {
         if (!(obj instanceof Task task)) {
             return false;
         }
-        if (!description.equals(task.description)) {
+        if (!priority.equals(task.priority) || isDone != task.isDone) {
             return false;
         }
-        if (!priority.equals(task.priority)) {
-            return false;
+        if (descriptionSource != null && descriptionSource.equals(task.descriptionSource)) {
+            return true;
         }
-        return isDone == task.isDone;
+        // Comparing the hash codes first avoids reading descriptions stored outside the tasks
+        return hashCodeOfDescription() == task.hashCodeOfDescription()
+                && getDescription().equals(task.getDescription());
+    }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     * Only the fields that never change are hashed, so the hash code of a task stays the same when it is
+     * marked or its priority is updated, and the task can stay in hash-based indexes while it changes.
+     *
+     * @return The hash code of this task.
+     */
+    @Override
+    public int hashCode() {
+        return hashCodeOfDescription();
     }
 
     /**
@@ -129,6 +208,6 @@ public abstract class Task {
      */
     @Override
     public String toString() {
-        return "[" + priority + "][" + getStatusIcon() + "] " + description;
+        return "[" + priority + "][" + getStatusIcon() + "] " + getDescription();
     }
 }
\ No newline at end of file
@@ -1,13 +1,24 @@
 package wkduke.task;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages a list of tasks, providing methods to add, delete, and query tasks.
+ *
+ * <p>Tasks are also indexed by their hash code so that {@link #contains(Task)} does not scan the list.
+ * The index groups tasks into buckets rather than using a {@code HashSet}, because marking a task or updating
+ * its priority changes which tasks it equals, but never its hash code. Tasks must therefore be added and
+ * removed through this class, not through {@link #getTasks()}. The index is only built on the first
+ * {@link #contains(Task)}, so a lazily decoded list of tasks is not decoded just by wrapping it. A list of tasks
+ * implementing {@link SelfIndexedTasks} is never indexed here, since it can find a task without reading every
+ * task.</p>
  */
 public class TaskList {
     private final List<Task> tasks;
+    private Map<Integer, List<Task>> tasksByHash;
 
     /**
      * Constructs an empty {@code TaskList}.
@@ -16,10 +27,49 @@ public class TaskList {
         tasks = new ArrayList<>();
     }
 
+    /**
+     * Constructs a {@code TaskList} backed by the given list of tasks.
+     *
+     * @param tasks The tasks in the list, in order.
+     */
     public TaskList(List<Task> tasks) {
         this.tasks = tasks;
     }
 
+    /**
+     * Adds a task to the hash index, if it has been built.
+     *
+     * @param task The task to index.
+     */
+    private void index(Task task) {
+        if (tasksByHash == null) {
+            return;
+        }
+        tasksByHash.computeIfAbsent(task.hashCode(), hash -> new ArrayList<>(1)).add(task);
+    }
+
+    /**
+     * Removes a task instance from the hash index, if it has been built.
+     *
+     * @param task The task instance to remove.
+     */
+    private void unindex(Task task) {
+        if (tasksByHash == null) {
+            return;
+        }
+        List<Task> bucket = tasksByHash.get(task.hashCode());
+        assert bucket != null : "Precondition failed: 'task' must be indexed";
+        for (int i = 0; i < bucket.size(); i++) {
+            if (bucket.get(i) == task) {
+                bucket.remove(i);
+                break;
+            }
+        }
+        if (bucket.isEmpty()) {
+            tasksByHash.remove(task.hashCode());
+        }
+    }
+
     /**
      * Adds a task to the task list.
      *
@@ -28,6 +78,7 @@ public class TaskList {
     public void addTask(Task task) {
         assert task != null : "Precondition failed: 'task' cannot be null";
         tasks.add(task);
+        index(task);
     }
 
     /**
@@ -37,7 +88,57 @@ public class TaskList {
      */
     public void deleteTask(Task task) {
         assert task != null : "Precondition failed: 'task' cannot be null";
-        tasks.remove(task);
+        int index = tasks.indexOf(task);
+        if (index >= 0) {
+            unindex(tasks.remove(index));
+        }
+    }
+
+    /**
+     * Replaces a range of the task list with the given tasks, which may be of a different length.
+     *
+     * @param fromIndex    The index of the first task to replace.
+     * @param toIndex      The index just past the last task to replace.
+     * @param replacements The tasks to put in place of the range, in order.
+     */
+    public void replaceTasks(int fromIndex, int toIndex, List<Task> replacements) {
+        assert replacements != null : "Precondition failed: 'replacements' cannot be null";
+        assert fromIndex >= 0 && fromIndex <= toIndex && toIndex <= tasks.size()
+                : "Precondition failed: 'fromIndex' and 'toIndex' must be a range of the task list";
+        List<Task> replaced = tasks.subList(fromIndex, toIndex);
+        replaced.forEach(this::unindex);
+        replaced.clear();
+        tasks.addAll(fromIndex, replacements);
+        replacements.forEach(this::index);
+    }
+
+    /**
+     * Checks if the task list contains a task equal to the specified task, in constant expected time.
+     *
+     * @param task The task to look for.
+     * @return {@code true} if an equal task is in the list; {@code false} otherwise.
+     */
+    public boolean contains(Task task) {
+        assert task != null : "Precondition failed: 'task' cannot be null";
+        if (tasks instanceof SelfIndexedTasks) {
+            return tasks.contains(task);
+        }
+        if (tasksByHash == null) {
+            tasksByHash = new HashMap<>();
+            for (Task existing : tasks) {
+                index(existing);
+            }
+        }
+        List<Task> bucket = tasksByHash.get(task.hashCode());
+        if (bucket == null) {
+            return false;
+        }
+        for (Task candidate : bucket) {
+            if (task.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
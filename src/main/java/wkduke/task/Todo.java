@@ -25,6 +25,18 @@ public class Todo extends Task {
         super(description, isDone, priority);
     }
 
+    /**
+     * Constructs a {@code Todo} task whose description is stored outside the task, with the specified completion
+     * status and priority.
+     *
+     * @param descriptionSource The source of the description of the task.
+     * @param isDone            The completion status of the task.
+     * @param priority          The priority level of the task.
+     */
+    public Todo(DescriptionSource descriptionSource, boolean isDone, TaskPriority priority) {
+        super(descriptionSource, isDone, priority);
+    }
+
     /**
      * Retrieves the type of this task as {@code TaskType.TODO}.
      *
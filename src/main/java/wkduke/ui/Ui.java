@@ -5,6 +5,7 @@ import wkduke.exception.WKDukeException;
 import wkduke.exception.storage.StorageFilePathException;
 import wkduke.exception.storage.StorageOperationException;
 import wkduke.storage.Storage;
+import wkduke.storage.StorageOptions;
 import wkduke.task.Task;
 import wkduke.task.TaskList;
 
@@ -112,14 +113,10 @@ public class Ui {
      * @param taskList The taskList used to determine task index.
      * @param tasks    The tasks to format.
      * @return A list of formatted task strings.
-     * @throws AssertionError If the taskList is empty and tasks are present.
      */
     private List<String> formatTasksWithIndex(TaskList taskList, List<Task> tasks) {
-        // The 'tasks' list is expected to come from 'taskList', as there is a dependency to retrieve task's index
-        // based on their position in 'taskList'.
-        if (!tasks.isEmpty()) {
-            assert !taskList.isEmpty() : "Precondition failed: 'taskList' cannot be empty when 'tasks' list is populated";
-        }
+        // The index of each task is retrieved based on its position in 'taskList'. Tasks that are not in it,
+        // such as archived tasks, are numbered 'x'.
 
         // Determine the number of digits needed for formatting
         int totalTasks = taskList.size();
@@ -159,10 +156,11 @@ public class Ui {
         out.print(Messages.MESSAGE_FLEXIBLE_DATA_SOURCE.indent(INDENT_LEVEL2_NUM));
         out.print(MESSAGE_FLEXIBLE_INPUT_PROMPT);
         String filePath = in.nextLine().trim();
+        StorageOptions options = StorageOptions.fromSystemProperties();
 
         while (!filePath.isEmpty()) {
             try {
-                Storage storage = new Storage(filePath);
+                Storage storage = new Storage(filePath, options);
                 out.printf((MESSAGE_CUSTOM_DATA_SOURCE_POST) + "%n", filePath);
                 return storage;
             } catch (StorageOperationException | StorageFilePathException e) {
@@ -173,7 +171,7 @@ public class Ui {
         }
         out.println(MESSAGE_DEFAULT_DATA_SOURCE_POST);
         out.println();
-        return new Storage();
+        return new Storage(options);
     }
 
     /**
@@ -198,7 +196,6 @@ public class Ui {
      *
      * @param taskList    The task list used to determine task indices.
      * @param uiTaskGroup The {@link UiTaskGroup} to print.
-     * @throws AssertionError If the task list is empty while tasks are present in the group.
      */
     public void printUiTaskGroup(TaskList taskList, UiTaskGroup uiTaskGroup) {
         printUiTaskGroups(taskList, List.of(uiTaskGroup));
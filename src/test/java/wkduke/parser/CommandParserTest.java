@@ -9,8 +9,10 @@ import org.junit.jupiter.api.TestClassOrder;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.command.ArchiveCommand;
 import wkduke.command.Command;
 import wkduke.command.ExitCommand;
+import wkduke.command.RestoreCommand;
 import wkduke.command.create.AddDeadlineCommand;
 import wkduke.command.create.AddEventCommand;
 import wkduke.command.create.AddTodoCommand;
@@ -96,7 +98,10 @@ class CommandParserTest {
             return Stream.of(
                     new Object[]{"find book", new FindCommand(List.of("book"))},
                     new Object[]{"find report", new FindCommand(List.of("report"))},
-                    new Object[]{"find assignment,report", new FindCommand(List.of("assignment", "report"))}
+                    new Object[]{"find assignment,report", new FindCommand(List.of("assignment", "report"))},
+                    new Object[]{"find report /archive", new FindCommand(List.of("report"), true)},
+                    new Object[]{"find report /asof 2024-11-01 18:00",
+                            new FindCommand(List.of("report"), LocalDateTime.of(2024, 11, 1, 18, 0))}
             );
         }
 
@@ -106,7 +111,11 @@ class CommandParserTest {
                     new Object[]{"list /on 2024-11-05",
                             new ListOnCommand(LocalDateTime.of(2024, 11, 5, 0, 0))},
                     new Object[]{"list /on 2024/11/05",
-                            new ListOnCommand(LocalDateTime.of(2024, 11, 5, 0, 0))}
+                            new ListOnCommand(LocalDateTime.of(2024, 11, 5, 0, 0))},
+                    new Object[]{"list /archive", new ListCommand(true)},
+                    new Object[]{"list /on 2024-11-05 /archive",
+                            new ListOnCommand(LocalDateTime.of(2024, 11, 5, 0, 0), true)},
+                    new Object[]{"list /asof 2024-11-01", new ListCommand(LocalDateTime.of(2024, 11, 1, 0, 0))}
             );
         }
 
@@ -119,6 +128,13 @@ class CommandParserTest {
             );
         }
 
+        private static Stream<Object[]> validRestoreCommandProvider() {
+            return Stream.of(
+                    new Object[]{"restore 20241101-181500", new RestoreCommand("20241101-181500")},
+                    new Object[]{"restore  20241101-181500-2 ", new RestoreCommand("20241101-181500-2")}
+            );
+        }
+
         private static Stream<Object[]> validSortCommandProvider() {
             return Stream.of(
                     new Object[]{"sort /by priority /order asc", new SortByPriorityCommand(SortOrder.ASCENDING)},
@@ -161,6 +177,13 @@ class CommandParserTest {
             assertInstanceOf(ExitCommand.class, result, "Expected an instance of ExitCommand");
         }
 
+        @Order(1)
+        @Test
+        void parseCommand_archiveCommand_returnsArchiveCommand() throws CommandFormatException, TaskFormatException {
+            Command result = CommandParser.parseCommand("archive");
+            assertInstanceOf(ArchiveCommand.class, result, "Expected an instance of ArchiveCommand");
+        }
+
         @Order(4)
         @ParameterizedTest
         @MethodSource("validDeadlineCommandProvider")
@@ -209,6 +232,14 @@ class CommandParserTest {
             assertEquals(expected, result);
         }
 
+        @Order(12)
+        @ParameterizedTest
+        @MethodSource("validRestoreCommandProvider")
+        void parseCommand_validRestoreCommands_returnsRestoreCommand(String input, RestoreCommand expected) throws CommandFormatException, TaskFormatException {
+            Command result = CommandParser.parseCommand(input);
+            assertEquals(expected, result);
+        }
+
         @Order(11)
         @ParameterizedTest
         @MethodSource("validSortCommandProvider")
@@ -287,7 +318,10 @@ class CommandParserTest {
             return Stream.of(
                     "find", // Missing keyword
                     "find ",        // Empty keyword
-                    "find ,"        // Only comma
+                    "find ,",       // Only comma
+                    "find /archive", // Only the archive flag
+                    "find report /archive /asof 2024-11-01", // Archive searched as of a past time
+                    "find report /asof invalid-date"         // Invalid as of date format
             );
         }
 
@@ -295,7 +329,9 @@ class CommandParserTest {
             return Stream.of(
                     "list /on ",        // Missing arguments
                     "list /on invalid-date",    // Invalid date format
-                    "list extra arguments"      // Invalid arguments
+                    "list extra arguments",     // Invalid arguments
+                    "list /asof invalid-date",  // Invalid as of date format
+                    "list /on 2024-11-05 /asof 2024-11-01" // As of combined with a date filter
             );
         }
 
@@ -308,6 +344,14 @@ class CommandParserTest {
             );
         }
 
+        private static Stream<String> invalidRestoreCommandProvider() {
+            return Stream.of(
+                    "restore",  // Missing backup name
+                    "restore ../tasks",         // Path outside the backup directory
+                    "restore 20241101 181500"   // More than one name
+            );
+        }
+
         private static Stream<String> invalidSortCommandProvider() {
             return Stream.of(
                     "sort",                             // Missing /by and /order
@@ -394,6 +438,13 @@ class CommandParserTest {
             assertThrows(CommandFormatException.class, () -> CommandParser.parseCommand(input));
         }
 
+        @Order(11)
+        @ParameterizedTest
+        @MethodSource("invalidRestoreCommandProvider")
+        void parseCommand_invalidRestoreCommands_throwsCommandFormatException(String input) {
+            assertThrows(CommandFormatException.class, () -> CommandParser.parseCommand(input));
+        }
+
         @Order(12)
         @ParameterizedTest
         @MethodSource("invalidSortCommandProvider")
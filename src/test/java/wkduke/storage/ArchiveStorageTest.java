@@ -0,0 +1,142 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveStorageTest extends StorageFixture {
+    private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+    private static Stream<String> writeModeProvider() {
+        return Stream.of("rewrite", "patch", "journal");
+    }
+
+    @Override
+    void configure(StorageOptions options) {
+        options.setArchiveAfterDays(30);
+    }
+
+    private static Task createOldDoneDeadline() {
+        return new Deadline("Submit report", NOW.minusDays(90), true, TaskPriority.HIGH);
+    }
+
+    private static Task createOldDoneEvent() {
+        return new Event("Team offsite", NOW.minusDays(60), NOW.minusDays(59), true, TaskPriority.MEDIUM);
+    }
+
+    private static Task createPendingDeadline() {
+        return new Deadline("File taxes", NOW.minusDays(90), false, TaskPriority.HIGH);
+    }
+
+    private static Task createOldMarkedDeadline() {
+        return new Deadline("File taxes", NOW.minusDays(90), true, TaskPriority.HIGH);
+    }
+
+    private static Task createRecentDoneDeadline() {
+        return new Deadline("Pay rent", NOW.minusDays(2), true, TaskPriority.LOW);
+    }
+
+    private static Task createDoneTodo() {
+        return new Todo("Read book", true, TaskPriority.LOW);
+    }
+
+    private static TaskList createAgedTaskList() {
+        return new TaskList(new ArrayList<>(List.of(createOldDoneDeadline(), createPendingDeadline(),
+                createDoneTodo(), createOldDoneEvent(), createRecentDoneDeadline())));
+    }
+
+    private static List<Task> readArchive(Storage storage) throws FileContentException, StorageOperationException {
+        List<Task> archivedTasks = new ArrayList<>();
+        storage.forEachArchivedTask(archivedTasks::add);
+        return archivedTasks;
+    }
+
+    @Test
+    void archiveCompletedTasks_oldCompletedTasks_movedToArchive()
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = createAgedTaskList();
+        storage.save(taskList);
+        assertTrue(readArchive(storage).isEmpty());
+
+        List<Task> oldDoneTasks = List.of(createOldDoneDeadline(), createOldDoneEvent());
+        assertEquals(oldDoneTasks, storage.archiveCompletedTasks(taskList));
+        List<Task> hotTasks = List.of(createPendingDeadline(), createDoneTodo(), createRecentDoneDeadline());
+        assertEquals(hotTasks, taskList.getTasks());
+        assertEquals(new TaskList(hotTasks), new Storage(filePath).load());
+        assertEquals(oldDoneTasks, readArchive(storage));
+
+        // A later sweep appends to the archive
+        assertTrue(storage.archiveCompletedTasks(taskList).isEmpty());
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+        assertEquals(List.of(createOldMarkedDeadline()), storage.archiveCompletedTasks(taskList));
+        assertEquals(List.of(createOldDoneDeadline(), createOldDoneEvent(), createOldMarkedDeadline()),
+                readArchive(storage));
+    }
+
+    @ParameterizedTest
+    @MethodSource("writeModeProvider")
+    void load_archiveAge_sweptBeforeReturning(String writeMode)
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        new Storage(filePath).save(createAgedTaskList());
+        StorageOptions options = createOptions();
+        options.setWriteMode(WriteMode.fromCode(writeMode));
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+
+        assertEquals(3, taskList.size());
+        assertFalse(taskList.contains(createOldDoneDeadline()));
+        assertEquals(List.of(createOldDoneDeadline(), createOldDoneEvent()), readArchive(storage));
+        assertEquals(taskList, new Storage(filePath).load());
+
+        // Tasks that become old enough during a session stay until the next load or archive command
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+        storage.flush();
+        assertEquals(3, taskList.size());
+        assertEquals(List.of(createOldDoneDeadline(), createOldDoneEvent()), readArchive(storage));
+    }
+
+    @Test
+    void archiveCompletedTasks_tornArchiveTail_cutOffBeforeAppending()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.wkd");
+        Storage storage = new Storage(filePath.toString(), createOptions());
+        TaskList taskList = createAgedTaskList();
+        storage.save(taskList);
+        storage.archiveCompletedTasks(taskList);
+        byte[] archive = Files.readAllBytes(storage.getArchivePath());
+        Files.write(storage.getArchivePath(), List.of("torn"), StandardOpenOption.APPEND);
+
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+        storage.archiveCompletedTasks(taskList);
+        assertTrue(Files.size(storage.getArchivePath()) > archive.length);
+        assertEquals(List.of(createOldDoneDeadline(), createOldDoneEvent(), createOldMarkedDeadline()),
+                readArchive(storage));
+    }
+}
@@ -0,0 +1,208 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Deadline;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BackupStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private static Stream<String> writeModeProvider() {
+        return Stream.of("rewrite", "patch", "journal");
+    }
+
+    private static List<Task> createTasks() {
+        return List.of(
+                new Todo("Read book", false, TaskPriority.LOW),
+                new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.HIGH),
+                new Todo("Water plants", true, TaskPriority.MEDIUM)
+        );
+    }
+
+    private static void addTask(Storage storage, TaskList taskList, Task task) throws StorageOperationException {
+        synchronized (taskList) {
+            taskList.addTask(task);
+            storage.saveAddedTask(taskList, task);
+        }
+    }
+
+    @Order(1)
+    @ParameterizedTest
+    @MethodSource("writeModeProvider")
+    void restore_afterLaterChanges_bringsBackBackedUpTasks(String writeMode)
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        StorageOptions options = new StorageOptions();
+        options.setWriteMode(WriteMode.fromCode(writeMode));
+        options.setJournalCompactionThreshold(128);
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+        for (Task task : createTasks()) {
+            addTask(storage, taskList, task);
+        }
+        String name = storage.backup(taskList);
+
+        addTask(storage, taskList, new Todo("Buy groceries", false, TaskPriority.HIGH));
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+        Task deletedTask = taskList.getTask(1);
+        taskList.deleteTask(deletedTask);
+        storage.saveDeletedTasks(taskList, Map.of(1, deletedTask));
+        storage.flush();
+        assertEquals(List.of(name), storage.listBackups());
+
+        assertTrue(storage.restore(taskList, name));
+        assertEquals(new TaskList(new ArrayList<>(createTasks())), taskList);
+        assertEquals(taskList, new Storage(filePath, options).load());
+    }
+
+    @Order(2)
+    @Test
+    void backup_journalAppendedWhileCopying_holdsTasksAtBackupTime()
+            throws StorageOperationException, FileContentException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        StorageOptions options = new StorageOptions();
+        options.setWriteMode(WriteMode.JOURNAL);
+        options.setJournalCompactionThreshold(512);
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+        for (int i = 0; i < 20; i++) {
+            addTask(storage, taskList, new Todo("Task " + i, false, TaskPriority.LOW));
+        }
+        String name = storage.backup(taskList);
+        TaskList expected = new TaskList(new ArrayList<>(taskList.getTasks()));
+
+        // Later appends and compactions must not leak into the backup
+        for (int i = 20; i < 40; i++) {
+            addTask(storage, taskList, new Todo("Task " + i, false, TaskPriority.LOW));
+        }
+        storage.flush();
+        Path backupPath = storage.getBackupDirectory().resolve(name).resolve(filePath.getFileName());
+        assertEquals(expected, new Storage(backupPath.toString(), options).load());
+        assertEquals(40, new Storage(filePath.toString(), options).load().size());
+    }
+
+    @Order(3)
+    @Test
+    void restore_blobbedDescriptions_restoresDescriptions() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        StorageOptions options = new StorageOptions();
+        options.setBlobThreshold(16);
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+        Task longTask = new Todo("Read the whole of the storage design notes", false, TaskPriority.LOW);
+        addTask(storage, taskList, longTask);
+        String name = storage.backup(taskList);
+        storage.flush();
+
+        taskList.deleteTask(longTask);
+        storage.saveDeletedTasks(taskList, Map.of(0, longTask));
+        assertTrue(storage.restore(taskList, name));
+        assertEquals(List.of(longTask), taskList.getTasks());
+        assertEquals(longTask.getDescription(), new Storage(filePath).load().getTask(0).getDescription());
+    }
+
+    @Order(4)
+    @Test
+    void restore_unknownBackup_leavesTaskListUnchanged() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = storage.load();
+        for (Task task : createTasks()) {
+            addTask(storage, taskList, task);
+        }
+        assertFalse(Files.exists(storage.getBackupDirectory()));
+
+        assertFalse(storage.restore(taskList, "20241101-181500"));
+        assertFalse(storage.restore(taskList, ".."));
+        assertEquals(createTasks(), taskList.getTasks());
+        assertEquals(List.of(), storage.listBackups());
+    }
+
+    private static Map<String, String> readFiles(Path directory) throws IOException {
+        Map<String, String> contents = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.toList()) {
+                contents.put(path.getFileName().toString(), Files.readString(path));
+            }
+        }
+        return contents;
+    }
+
+    @Order(5)
+    @Test
+    void restore_journalBackup_leavesBackupFilesUntouched()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        StorageOptions options = new StorageOptions();
+        options.setWriteMode(WriteMode.JOURNAL);
+        options.setBlobThreshold(16);
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+        for (Task task : createTasks()) {
+            addTask(storage, taskList, task);
+        }
+        String name = storage.backup(taskList);
+        storage.flush();
+        Path backupDirectory = storage.getBackupDirectory().resolve(name);
+        // A torn last entry would make loading the backup as a task file compact it
+        Files.writeString(backupDirectory.resolve("tasks.txt.journal"), "+ 3 T | L | 0 | Wa",
+                StandardOpenOption.APPEND);
+        Map<String, String> backupFiles = readFiles(backupDirectory);
+
+        taskList.deleteTask(taskList.getTask(0));
+        storage.saveDeletedTasks(taskList, Map.of(0, createTasks().get(0)));
+        assertTrue(storage.restore(taskList, name));
+        assertEquals(createTasks(), taskList.getTasks());
+        assertEquals(backupFiles, readFiles(backupDirectory));
+    }
+
+    @Order(6)
+    @Test
+    void listBackups_journalBackupStillCopying_listsAndRestoresBackup()
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        StorageOptions options = new StorageOptions();
+        options.setWriteMode(WriteMode.JOURNAL);
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+        for (Task task : createTasks()) {
+            addTask(storage, taskList, task);
+        }
+        String name = storage.backup(taskList);
+        assertEquals(List.of(name), storage.listBackups());
+
+        addTask(storage, taskList, new Todo("Buy groceries", false, TaskPriority.HIGH));
+        String laterName = storage.backup(taskList);
+        assertTrue(storage.restore(taskList, laterName));
+        assertEquals(createTasks().size() + 1, taskList.size());
+    }
+}
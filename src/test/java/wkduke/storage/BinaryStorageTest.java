@@ -0,0 +1,136 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+class BinaryStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private static TaskList createTaskList() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("Read book", false, TaskPriority.LOW));
+        tasks.add(new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), true, TaskPriority.HIGH));
+        tasks.add(new Event("Team meeting", LocalDateTime.of(2024, 11, 1, 9, 0),
+                LocalDateTime.of(2024, 11, 1, 10, 30), false, TaskPriority.MEDIUM));
+        tasks.add(new Deadline("Caf\u00e9 opening", LocalDateTime.of(1960, 1, 1, 0, 0), false, TaskPriority.LOW));
+        return new TaskList(tasks);
+    }
+
+    @Order(1)
+    @Nested
+    @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+    class ValidTests {
+        @Order(1)
+        @Test
+        void load_afterSave_returnsSameTaskList() throws StorageOperationException, FileContentException {
+            String filePath = tempDir.resolve("tasks.wkd").toString();
+            TaskList taskList = createTaskList();
+            new Storage(filePath).save(taskList);
+
+            Storage storage = new Storage(filePath);
+            assertEquals(StorageFormat.BINARY, storage.getFormat());
+            assertEquals(taskList, storage.load());
+        }
+
+        @Order(2)
+        @Test
+        void load_newFile_returnsEmptyTaskList() throws StorageOperationException, FileContentException {
+            Storage storage = new Storage(tempDir.resolve("tasks.wkd").toString());
+            assertEquals(0, storage.load().size());
+        }
+
+        @Order(3)
+        @Test
+        void convert_textToBinaryAndBack_preservesTasks()
+                throws StorageOperationException, FileContentException, IOException {
+            String textPath = tempDir.resolve("tasks.txt").toString();
+            String binaryPath = tempDir.resolve("tasks.wkd").toString();
+            String roundTripPath = tempDir.resolve("round-trip.txt").toString();
+            TaskList taskList = createTaskList();
+            new Storage(textPath).save(taskList);
+
+            assertEquals(taskList, StorageConverter.convert(textPath, binaryPath));
+            assertEquals(taskList, new Storage(binaryPath).load());
+            assertTrue(Files.size(Path.of(binaryPath)) < Files.size(Path.of(textPath)));
+
+            StorageConverter.convert(binaryPath, roundTripPath);
+            assertEquals(Files.readAllLines(Path.of(textPath)), Files.readAllLines(Path.of(roundTripPath)));
+        }
+    }
+
+    @Order(2)
+    @Nested
+    @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+    class InvalidTests {
+        @Order(1)
+        @Test
+        void load_unknownHeader_throwsFileContentException() throws StorageOperationException, IOException {
+            Path filePath = tempDir.resolve("tasks.wkd");
+            Files.write(filePath, new byte[]{'T', ' ', '|', ' '});
+            assertThrows(FileContentException.class, new Storage(filePath.toString())::load);
+        }
+
+        @Order(2)
+        @Test
+        void load_truncatedRecord_throwsFileContentException() throws StorageOperationException, IOException {
+            Path filePath = tempDir.resolve("tasks.wkd");
+            new Storage(filePath.toString()).save(createTaskList());
+            byte[] content = Files.readAllBytes(filePath);
+            Files.write(filePath, Arrays.copyOf(content, content.length - 1));
+
+            FileContentException exception = assertThrows(FileContentException.class,
+                    new Storage(filePath.toString())::load);
+            assertEquals(String.format("FilePath='%s', Record=4", filePath), exception.getDetail());
+        }
+
+        @Order(3)
+        @Test
+        void convert_sameFile_throwsStorageOperationException() {
+            String filePath = tempDir.resolve("tasks.txt").toString();
+            assertThrows(StorageOperationException.class, () -> StorageConverter.convert(filePath, filePath));
+        }
+
+        @Order(4)
+        @Test
+        void convert_missingSource_keepsTarget() throws StorageOperationException, IOException {
+            String sourcePath = tempDir.resolve("missing.txt").toString();
+            Path targetPath = tempDir.resolve("tasks.wkd");
+            new Storage(targetPath.toString()).save(createTaskList());
+            byte[] target = Files.readAllBytes(targetPath);
+
+            assertThrows(StorageOperationException.class,
+                    () -> StorageConverter.convert(sourcePath, targetPath.toString()));
+            assertTrue(Files.notExists(Path.of(sourcePath)));
+            assertArrayEquals(target, Files.readAllBytes(targetPath));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.exception.storage.UncheckedFileContentException;
+import wkduke.storage.blob.BlobStore;
+import wkduke.task.Deadline;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BlobStorageTest extends StorageFixture {
+    private static final int BLOB_THRESHOLD = 64;
+    private static final String LONG_DESCRIPTION = "Write up the quarterly report, ".repeat(10) + "and send it";
+
+    private static Stream<String> loadModeProvider() {
+        return Stream.of("eager", "lazy", "paged");
+    }
+
+    @Override
+    void configure(StorageOptions options) {
+        options.setBlobThreshold(BLOB_THRESHOLD);
+    }
+
+    private static TaskList createLongTaskList() {
+        return new TaskList(List.of(
+                new Todo("Read book", false, TaskPriority.LOW),
+                new Deadline(LONG_DESCRIPTION, LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.HIGH),
+                new Todo(LONG_DESCRIPTION + " again", true, TaskPriority.MEDIUM)
+        ));
+    }
+
+    @Test
+    void save_longDescriptions_writesReferencesToBlobFile() throws StorageOperationException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        TaskList taskList = createLongTaskList();
+        new Storage(filePath.toString(), createOptions()).save(taskList);
+
+        List<String> lines = Files.readAllLines(filePath);
+        assertEquals("T | L | 0 | Read book", lines.get(0));
+        assertTrue(lines.get(1).startsWith("d | H | 0 | 0:" + LONG_DESCRIPTION.length() + ":"));
+        assertTrue(lines.get(2).startsWith("t | M | 1 | " + LONG_DESCRIPTION.length() + ":"));
+        assertEquals(LONG_DESCRIPTION + LONG_DESCRIPTION + " again",
+                Files.readString(Path.of(filePath + BlobStore.BLOB_FILE_SUFFIX), StandardCharsets.UTF_8));
+        assertEquals(createLongTaskList(), taskList);
+    }
+
+    @ParameterizedTest
+    @MethodSource("loadModeProvider")
+    void load_blobReferences_readsDescriptionsWhenNeeded(String loadMode)
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        TaskList savedTaskList = createLongTaskList();
+        new Storage(filePath, createOptions()).save(savedTaskList);
+
+        StorageOptions options = createOptions();
+        options.setLazyLoad(loadMode.equals("lazy"));
+        options.setHeapBudget(loadMode.equals("paged") ? 4096 : 0);
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+        assertEquals(savedTaskList, taskList);
+        assertEquals(LONG_DESCRIPTION, taskList.getTask(1).getDescription());
+        assertTrue(taskList.getTask(2).toString().endsWith(LONG_DESCRIPTION + " again"));
+
+        // Rewriting keeps the references, so no description is appended twice
+        long blobFileSize = Path.of(filePath + BlobStore.BLOB_FILE_SUFFIX).toFile().length();
+        taskList.getTask(1).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(1));
+        Task addedTask = new Todo(LONG_DESCRIPTION + " once more", false, TaskPriority.LOW);
+        taskList.addTask(addedTask);
+        storage.saveAddedTask(taskList, addedTask);
+        assertEquals(blobFileSize + addedTask.getDescription().length(),
+                Path.of(filePath + BlobStore.BLOB_FILE_SUFFIX).toFile().length());
+        assertEquals(taskList, new Storage(filePath, createOptions()).load());
+    }
+
+    @Test
+    void save_blobThresholdTurnedOff_writesDescriptionsInline()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        new Storage(filePath.toString(), createOptions()).save(createLongTaskList());
+
+        Storage storage = new Storage(filePath.toString());
+        TaskList taskList = storage.load();
+        storage.save(taskList);
+        assertEquals("D | H | 0 | " + LONG_DESCRIPTION + " | 2024-11-05 23:59", Files.readAllLines(filePath).get(1));
+        assertEquals(createLongTaskList(), new Storage(filePath.toString()).load());
+    }
+
+    @Test
+    void load_damagedBlobFile_reportsInvalidReference()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Path blobPath = Path.of(filePath + BlobStore.BLOB_FILE_SUFFIX);
+        new Storage(filePath.toString(), createOptions()).save(createLongTaskList());
+
+        // A description that no longer matches its hash is only found once it is read
+        Files.writeString(blobPath, LONG_DESCRIPTION.replace('W', 'w') + LONG_DESCRIPTION + " again");
+        TaskList taskList = new Storage(filePath.toString(), createOptions()).load();
+        assertEquals(new Todo("Read book", false, TaskPriority.LOW), taskList.getTask(0));
+        assertThrows(UncheckedFileContentException.class, () -> taskList.getTask(1).getDescription());
+        assertEquals(LONG_DESCRIPTION + " again", taskList.getTask(2).getDescription());
+
+        // A reference past the end of the blob file fails the load
+        Files.writeString(blobPath, LONG_DESCRIPTION);
+        assertThrows(FileContentException.class, () -> new Storage(filePath.toString(), createOptions()).load());
+    }
+
+    @Test
+    void load_blobFileChangedAfterDescriptionRead_keepsReadDescription()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Storage storage = new Storage(filePath.toString(), createOptions());
+        storage.save(createLongTaskList());
+        TaskList taskList = storage.load();
+        assertEquals(LONG_DESCRIPTION, taskList.getTask(1).getDescription());
+
+        Files.writeString(Path.of(filePath + BlobStore.BLOB_FILE_SUFFIX), "");
+        assertEquals(LONG_DESCRIPTION, taskList.getTask(1).getDescription());
+        storage.close();
+    }
+
+    @Test
+    void save_loadedBlobReferences_comparesAndRewritesWithoutReadingDescriptions()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Path blobPath = Path.of(filePath + BlobStore.BLOB_FILE_SUFFIX);
+        Storage storage = new Storage(filePath.toString(), createOptions());
+        storage.save(createLongTaskList());
+        TaskList taskList = storage.load();
+        TaskList reloadedTaskList = storage.load();
+        String blobs = Files.readString(blobPath);
+
+        // Any read of a description would now fail its hash check
+        Files.writeString(blobPath, blobs.replace('W', 'w'));
+        assertEquals(taskList, reloadedTaskList);
+        assertEquals(createLongTaskList().getTask(1).hashCode(), taskList.getTask(1).hashCode());
+        taskList.getTask(2).markAsUndone();
+        storage.save(taskList);
+        assertTrue(Files.readAllLines(filePath).get(2).startsWith("t | M | 0 | " + LONG_DESCRIPTION.length() + ":"));
+
+        Files.writeString(blobPath, blobs);
+        TaskList expected = createLongTaskList();
+        expected.getTask(2).markAsUndone();
+        assertEquals(expected, new Storage(filePath.toString(), createOptions()).load());
+        storage.close();
+    }
+}
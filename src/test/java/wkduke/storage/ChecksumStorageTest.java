@@ -0,0 +1,125 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.exception.storage.UncheckedFileContentException;
+import wkduke.storage.checksum.RecordChecksum;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChecksumStorageTest extends StorageFixture {
+    @Override
+    void configure(StorageOptions options) {
+        options.setChecksummed(true);
+    }
+
+    @Test
+    void save_checksummed_writesValidSuffixAndLoadsBack()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        TaskList taskList = createTaskList();
+        new Storage(filePath.toString(), createOptions()).save(taskList);
+
+        for (String line : Files.readAllLines(filePath)) {
+            assertEquals(RecordChecksum.Status.VALID, RecordChecksum.check(line));
+        }
+        assertEquals(taskList, new Storage(filePath.toString(), createOptions()).load());
+        // Without the option a suffix is not special, so it is read as part of the last field
+        assertThrows(FileContentException.class, () -> new Storage(filePath.toString()).load());
+        assertEquals(4, new Storage(filePath.toString(), createOptions()).verify().recordCount());
+    }
+
+    @Test
+    void verify_corruptedAndLegacyLines_reportsTheirOffsets()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        new Storage(filePath.toString(), createOptions()).save(createTaskList());
+        List<String> lines = Files.readAllLines(filePath);
+        lines.set(1, lines.get(1).replace("Submit", "Submlt"));
+        lines.add("T | L | 0 | Legacy line");
+        Files.write(filePath, lines);
+
+        long secondLineOffset = (lines.get(0) + System.lineSeparator()).getBytes(StandardCharsets.UTF_8).length;
+        long legacyLineOffset = Files.size(filePath)
+                - (lines.get(4) + System.lineSeparator()).getBytes(StandardCharsets.UTF_8).length;
+        VerificationResult result = new Storage(filePath.toString(), createOptions()).verify();
+        assertEquals(5, result.recordCount());
+        assertEquals(List.of(secondLineOffset, legacyLineOffset), result.badRecordOffsets());
+    }
+
+    @Test
+    void load_corruptedLine_quarantinesLineAndRewritesFile()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        new Storage(filePath.toString(), createOptions()).save(createTaskList());
+        List<String> lines = Files.readAllLines(filePath);
+        String corruptedLine = lines.get(1).replace("Submit", "Submlt");
+        lines.set(1, corruptedLine);
+        lines.add("not a task");
+        Files.write(filePath, lines);
+
+        Storage storage = new Storage(filePath.toString(), createOptions());
+        TaskList taskList = storage.load();
+
+        TaskList expectedTaskList = createTaskList();
+        expectedTaskList.deleteTask(expectedTaskList.getTask(1));
+        assertEquals(expectedTaskList, taskList);
+        assertEquals(2, storage.getQuarantinedRecordCount());
+        assertEquals(List.of(corruptedLine, "not a task"), Files.readAllLines(storage.getQuarantinePath()));
+        assertTrue(storage.verify().badRecordOffsets().isEmpty());
+        assertEquals(expectedTaskList, new Storage(filePath.toString(), createOptions()).load());
+    }
+
+    @Test
+    void load_parallelDecodeWithCorruptedLine_quarantinesLine()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        TaskList taskList = new TaskList();
+        for (int i = 0; i < 20000; i++) {
+            taskList.addTask(new Todo("Task " + i, false, TaskPriority.LOW));
+        }
+        new Storage(filePath.toString(), createOptions()).save(taskList);
+        List<String> lines = Files.readAllLines(filePath);
+        lines.set(12345, lines.get(12345).replace("Task", "Tusk"));
+        Files.write(filePath, lines);
+
+        StorageOptions options = createOptions();
+        options.setParallelDecodeThreshold(0);
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList loadedTaskList = storage.load();
+
+        assertEquals(19999, loadedTaskList.size());
+        assertEquals(1, storage.getQuarantinedRecordCount());
+        assertEquals(new Todo("Task 12346", false, TaskPriority.LOW), loadedTaskList.getTask(12345));
+    }
+
+    @Test
+    void load_lazyLoadWithCorruptedLine_rejectsLineOnAccess()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        new Storage(filePath.toString(), createOptions()).save(createTaskList());
+        List<String> lines = Files.readAllLines(filePath);
+        lines.set(1, lines.get(1).replace("Submit", "Submlt"));
+        Files.write(filePath, lines);
+
+        StorageOptions options = createOptions();
+        options.setLazyLoad(true);
+        TaskList taskList = new Storage(filePath.toString(), options).load();
+
+        assertEquals(createTaskList().getTask(0), taskList.getTask(0));
+        assertThrows(UncheckedFileContentException.class, () -> taskList.getTask(1));
+        assertEquals(createTaskList().getTask(2), taskList.getTask(2));
+    }
+}
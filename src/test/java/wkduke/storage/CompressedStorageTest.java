@@ -0,0 +1,150 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.compressed.BlockGzipFormat;
+import wkduke.storage.decoder.CompressedTaskListDecoder;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+class CompressedStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private static TaskList createTaskList(int count) {
+        TaskList taskList = new TaskList();
+        LocalDateTime start = LocalDateTime.of(2024, 11, 1, 9, 0);
+        for (int i = 0; i < count; i++) {
+            switch (i % 3) {
+                case 0 -> taskList.addTask(new Todo("Read book " + i, false, TaskPriority.LOW));
+                case 1 -> taskList.addTask(new Deadline("Submit report " + i, start.plusHours(i), true,
+                        TaskPriority.HIGH));
+                default -> taskList.addTask(new Event("Caf\u00e9 meeting " + i, start.plusHours(i),
+                        start.plusHours(i + 1), false, TaskPriority.MEDIUM));
+            }
+        }
+        return taskList;
+    }
+
+    @Order(1)
+    @Nested
+    @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+    class ValidTests {
+        @Order(1)
+        @Test
+        void load_afterSaveOfManyBlocks_returnsSameTaskList() throws StorageOperationException, FileContentException {
+            String filePath = tempDir.resolve("tasks.txt.gz").toString();
+            TaskList taskList = createTaskList(10_000);
+            new Storage(filePath).save(taskList);
+
+            Storage storage = new Storage(filePath);
+            assertEquals(StorageFormat.COMPRESSED, storage.getFormat());
+            assertEquals(taskList, storage.load());
+        }
+
+        @Order(2)
+        @Test
+        void save_compressedFormat_isGzipOfTextFormat() throws StorageOperationException, IOException {
+            Path compressedPath = tempDir.resolve("tasks.txt.gz");
+            Path textPath = tempDir.resolve("tasks.txt");
+            TaskList taskList = createTaskList(10_000);
+            new Storage(compressedPath.toString()).save(taskList);
+            new Storage(textPath.toString()).save(taskList);
+
+            ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(compressedPath))) {
+                in.transferTo(decompressed);
+            }
+            assertArrayEquals(Files.readAllBytes(textPath), decompressed.toByteArray());
+            assertTrue(Files.size(compressedPath) < Files.size(textPath) / 4);
+        }
+
+        @Order(3)
+        @Test
+        void decodeTaskList_zeroParallelThreshold_returnsSameTaskList()
+                throws StorageOperationException, FileContentException, IOException {
+            Path filePath = tempDir.resolve("tasks.txt.gz");
+            TaskList taskList = createTaskList(10_000);
+            new Storage(filePath.toString()).save(taskList);
+
+            assertEquals(taskList, CompressedTaskListDecoder.decodeTaskList(filePath, 0));
+        }
+
+        @Order(4)
+        @Test
+        void load_lineLongerThanBlock_returnsSameTaskList() throws StorageOperationException, FileContentException {
+            String filePath = tempDir.resolve("tasks.txt.gz").toString();
+            TaskList taskList = createTaskList(10);
+            taskList.addTask(new Todo("Long ".repeat(BlockGzipFormat.BLOCK_SIZE), false, TaskPriority.LOW));
+            new Storage(filePath).save(taskList);
+
+            assertEquals(taskList, new Storage(filePath).load());
+        }
+    }
+
+    @Order(2)
+    @Nested
+    @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+    class InvalidTests {
+        @Order(1)
+        @Test
+        void load_corruptBlock_throwsFileContentException() throws StorageOperationException, IOException {
+            Path filePath = tempDir.resolve("tasks.txt.gz");
+            new Storage(filePath.toString()).save(createTaskList(100));
+            byte[] content = Files.readAllBytes(filePath);
+            content[BlockGzipFormat.HEADER_LENGTH + 10] ^= 0x55;
+            Files.write(filePath, content);
+
+            assertThrows(FileContentException.class, () -> new Storage(filePath.toString()).load());
+        }
+
+        @Order(2)
+        @Test
+        void load_truncatedFile_throwsFileContentException() throws StorageOperationException, IOException {
+            Path filePath = tempDir.resolve("tasks.txt.gz");
+            new Storage(filePath.toString()).save(createTaskList(100));
+            byte[] content = Files.readAllBytes(filePath);
+            Files.write(filePath, Arrays.copyOf(content, content.length - 1));
+
+            assertThrows(FileContentException.class, () -> new Storage(filePath.toString()).load());
+        }
+
+        @Order(3)
+        @Test
+        void load_oversizedTrailerLength_throwsFileContentException() throws StorageOperationException, IOException {
+            Path filePath = tempDir.resolve("tasks.txt.gz");
+            new Storage(filePath.toString()).save(createTaskList(100));
+            byte[] content = Files.readAllBytes(filePath);
+            content[content.length - 1] = 0x7f; // The uncompressed size of the last block, little-endian
+            Files.write(filePath, content);
+
+            assertThrows(FileContentException.class, () -> new Storage(filePath.toString()).load());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.decoder.LazyTaskList;
+import wkduke.storage.index.DateIndex;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DateIndexStorageTest extends StorageFixture {
+    private static Stream<String> fileNameProvider() {
+        return Stream.of("tasks.txt", "tasks.wkd");
+    }
+
+    @Override
+    void configure(StorageOptions options) {
+        options.setDateIndexed(true);
+    }
+
+    private static List<Task> filterBetween(List<Task> tasks, LocalDateTime from, LocalDateTime to) {
+        List<Task> matchingTasks = new ArrayList<>();
+        for (Task task : tasks) {
+            boolean isWithin = (task instanceof Deadline deadline)
+                    ? !deadline.getBy().isBefore(from) && !deadline.getBy().isAfter(to)
+                    : (task instanceof Event event) && !event.getFrom().isAfter(to) && !event.getTo().isBefore(from);
+            if (isWithin) {
+                matchingTasks.add(task);
+            }
+        }
+        return matchingTasks;
+    }
+
+    @ParameterizedTest
+    @MethodSource("fileNameProvider")
+    void findTasksBetween_savedAndAppendedTasks_matchesFullScan(String fileName)
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve(fileName).toString();
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+        createTaskList(3000).getTasks().forEach(taskList::addTask);
+        storage.save(taskList);
+        for (int i = 3000; i < 3600; i++) {
+            Task task = createTask(i);
+            taskList.addTask(task);
+            storage.saveAddedTask(taskList, task);
+        }
+
+        assertTrue(Files.exists(Path.of(filePath + DateIndex.INDEX_FILE_SUFFIX)));
+        assertEquals(taskList, new Storage(filePath).load());
+        LocalDateTime from = BASE.plusDays(30);
+        LocalDateTime to = BASE.plusDays(45);
+        List<Task> matchingTasks = storage.findTasksBetween(from, to);
+        assertFalse(matchingTasks.isEmpty());
+        assertEquals(filterBetween(taskList.getTasks(), from, to), matchingTasks);
+    }
+
+    @Test
+    void findTasksBetween_fileChangedOutsideStorage_rebuildsStaleIndex()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Storage storage = new Storage(filePath.toString(), createOptions());
+        TaskList taskList = new TaskList();
+        taskList.addTask(new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.LOW));
+        storage.save(taskList);
+
+        Files.write(filePath, List.of(
+                "T | L | 0 | Read book",
+                "E | M | 0 | Team retreat | 2024-11-04 09:00 | 2024-11-08 17:00",
+                "D | H | 1 | Pay bills | 2024-11-06 12:00"
+        ));
+
+        List<Task> matchingTasks = storage.findTasksBetween(LocalDateTime.of(2024, 11, 5, 0, 0),
+                LocalDateTime.of(2024, 11, 5, 23, 59));
+        assertEquals(List.of(new Event("Team retreat", LocalDateTime.of(2024, 11, 4, 9, 0),
+                LocalDateTime.of(2024, 11, 8, 17, 0), false, TaskPriority.MEDIUM)), matchingTasks);
+    }
+
+    @Test
+    void getTasksPossiblyOn_lazyLoadWithIndex_decodesOnlyIndexedCandidates()
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        TaskList savedTaskList = createTaskList(600);
+        new Storage(filePath, createOptions()).save(savedTaskList);
+
+        StorageOptions options = createOptions();
+        options.setLazyLoad(true);
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+        LocalDateTime on = BASE.plusDays(10);
+        List<Task> candidateTasks = storage.getTasksPossiblyOn(taskList, on);
+
+        LazyTaskList lazyTasks = assertInstanceOf(LazyTaskList.class, taskList.getTasks());
+        assertFalse(lazyTasks.isFullyDecoded());
+        assertTrue(candidateTasks.size() < taskList.size());
+        List<Task> expectedTasks = filterBetween(savedTaskList.getTasks(), on.toLocalDate().atStartOfDay(),
+                on.toLocalDate().atTime(23, 59));
+        assertTrue(candidateTasks.containsAll(expectedTasks));
+    }
+
+    @Test
+    void insert_manyAscendingEntries_splitsInternalPages() throws FileContentException, IOException {
+        Path dataFilePath = tempDir.resolve("tasks.txt");
+        Files.createFile(dataFilePath);
+        DateIndex dateIndex = new DateIndex(dataFilePath);
+        dateIndex.rebuild(List.of(), new long[0], 0);
+
+        Random random = new Random(42);
+        int entryCount = 30000;
+        for (int i = 0; i < entryCount; i++) {
+            dateIndex.insert(new Deadline("Task " + i, BASE.plusMinutes(i), false, TaskPriority.LOW), i, 0);
+        }
+        dateIndex.insert(new Todo("Undated", false, TaskPriority.LOW), entryCount, 0);
+
+        assertTrue(dateIndex.isCurrent());
+        for (int query = 0; query < 20; query++) {
+            int start = random.nextInt(entryCount);
+            int end = Math.min(entryCount - 1, start + random.nextInt(2000));
+            long[] expectedOffsets = new long[end - start + 1];
+            for (int i = start; i <= end; i++) {
+                expectedOffsets[i - start] = i;
+            }
+            assertArrayEquals(expectedOffsets,
+                    dateIndex.findRecordOffsets(BASE.plusMinutes(start), BASE.plusMinutes(end)));
+        }
+    }
+
+    @Test
+    void findTasksBetween_sameSizeEditWithinModificationTime_rebuildsStaleIndex()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Storage storage = new Storage(filePath.toString(), createOptions());
+        TaskList taskList = new TaskList();
+        taskList.addTask(new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.LOW));
+        storage.save(taskList);
+        FileTime modified = Files.getLastModifiedTime(filePath);
+
+        // Same size and modification time, as an edit within the resolution of the file system's clock would leave
+        Files.writeString(filePath, Files.readString(filePath).replace("2024-11-05", "2024-12-05"));
+        Files.setLastModifiedTime(filePath, modified);
+
+        assertEquals(List.of(), storage.findTasksBetween(LocalDateTime.of(2024, 11, 5, 0, 0),
+                LocalDateTime.of(2024, 11, 5, 23, 59)));
+        assertEquals(List.of(new Deadline("Submit report", LocalDateTime.of(2024, 12, 5, 23, 59), false,
+                TaskPriority.LOW)), storage.findTasksBetween(LocalDateTime.of(2024, 12, 5, 0, 0),
+                LocalDateTime.of(2024, 12, 5, 23, 59)));
+    }
+
+    @Test
+    void findRecordOffsets_oneLongEvent_widensOnlyItsOwnBucket() throws FileContentException, IOException {
+        Path dataFilePath = tempDir.resolve("tasks.txt");
+        Files.createFile(dataFilePath);
+        List<Task> tasks = new ArrayList<>();
+        long[] recordOffsets = new long[1001];
+        for (int i = 0; i < 1000; i++) {
+            tasks.add(new Deadline("Task " + i, BASE.plusHours(i), false, TaskPriority.LOW));
+            recordOffsets[i] = i;
+        }
+        tasks.add(new Event("Sabbatical", BASE.minusYears(2), BASE.plusYears(3), false, TaskPriority.LOW));
+        recordOffsets[1000] = 1000;
+        DateIndex dateIndex = new DateIndex(dataFilePath);
+        dateIndex.rebuild(tasks, recordOffsets, 0);
+
+        long[] expectedOffsets = new long[12];
+        for (int i = 0; i <= 10; i++) {
+            expectedOffsets[i] = 100 + i;
+        }
+        expectedOffsets[11] = 1000;
+        assertArrayEquals(expectedOffsets, dateIndex.findRecordOffsets(BASE.plusHours(100), BASE.plusHours(110)));
+    }
+}
@@ -0,0 +1,193 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.checksum.RecordChecksum;
+import wkduke.storage.decoder.TaskDecoder;
+import wkduke.storage.encoder.TaskEncoder;
+import wkduke.storage.format.FormatHeader;
+import wkduke.storage.format.FormatMigrator;
+import wkduke.storage.format.RecordMigration;
+import wkduke.task.Deadline;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class FormatMigrationTest {
+    private static final List<RecordMigration> TAGGING_MIGRATIONS = List.of(
+            record -> record + " a",
+            record -> record + " b",
+            record -> record + " c"
+    );
+
+    @TempDir
+    Path tempDir;
+
+    private static Stream<String> storageModeProvider() {
+        return Stream.of("rewrite", "patch", "journal", "lazy", "paged");
+    }
+
+    private static StorageOptions createOptions(String storageMode) {
+        StorageOptions options = new StorageOptions();
+        options.setChecksummed(true);
+        options.setDateIndexed(true);
+        switch (storageMode) {
+            case "lazy" -> options.setLazyLoad(true);
+            case "paged" -> options.setHeapBudget(1);
+            default -> options.setWriteMode(WriteMode.fromCode(storageMode));
+        }
+        return options;
+    }
+
+    private static Stream<String> invalidHeaderProvider() {
+        return Stream.of(
+                "#wkduke-format 2",         // Newer than this WKDuke reads
+                "#wkduke-format 1",         // Version 1 is never written with a header
+                "#wkduke-format two",       // Non-numeric version
+                "#wkduke-format",           // Missing version
+                "# T | L | 0 | Read book"   // Not a header at all
+        );
+    }
+
+    @Order(1)
+    @Test
+    void load_currentVersionFile_leavesFileUntouched()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        TaskList taskList = new TaskList(new ArrayList<>(List.of(
+                new Todo("Read book", false, TaskPriority.LOW),
+                new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.HIGH)
+        )));
+        new Storage(filePath.toString()).save(taskList);
+        byte[] savedBytes = Files.readAllBytes(filePath);
+
+        assertEquals(taskList, new Storage(filePath.toString()).load());
+        assertArrayEquals(savedBytes, Files.readAllBytes(filePath));
+        assertFalse(new FormatMigrator().isMigrationNeeded(filePath));
+    }
+
+    @Order(2)
+    @Test
+    void migrate_olderVersions_appliesEachMissingMigrationOnce() throws FileContentException, IOException {
+        Path legacyPath = tempDir.resolve("legacy.txt");
+        Path versionTwoPath = tempDir.resolve("version-two.txt");
+        Files.write(legacyPath, List.of("T | L | 0 | Read book", "", "T | H | 1 | Water plants"));
+        Files.write(versionTwoPath, List.of("#wkduke-format 2", "T | L | 0 | Read book"));
+        FormatMigrator migrator = new FormatMigrator(TAGGING_MIGRATIONS);
+
+        assertTrue(migrator.migrate(legacyPath));
+        assertEquals(List.of("#wkduke-format 4", "T | L | 0 | Read book a b c", "", "T | H | 1 | Water plants a b c"),
+                Files.readAllLines(legacyPath));
+        assertTrue(migrator.migrate(versionTwoPath));
+        assertEquals(List.of("#wkduke-format 4", "T | L | 0 | Read book b c"), Files.readAllLines(versionTwoPath));
+
+        // A file in the target version is not rewritten
+        assertFalse(migrator.migrate(legacyPath));
+        assertEquals(4, FormatHeader.readVersion(legacyPath));
+        assertEquals(List.of("#wkduke-format 4", "T | L | 0 | Read book b c"), Files.readAllLines(versionTwoPath));
+    }
+
+    @Order(3)
+    @Test
+    void migrate_checksummedRecords_recomputesValidChecksums() throws FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        String checksummedLine = new String(TaskEncoder.encodeLine(new Todo("Read book", false, TaskPriority.LOW),
+                true), StandardCharsets.UTF_8).strip();
+        String corruptedLine = checksummedLine.replace("Read", "Lend");
+        Files.write(filePath, List.of(checksummedLine, corruptedLine));
+        FormatMigrator migrator = new FormatMigrator(List.of(record -> record.replace(" | L | ", " | H | ")));
+
+        assertTrue(migrator.migrate(filePath));
+        List<String> lines = Files.readAllLines(filePath);
+        assertEquals(RecordChecksum.Status.VALID, RecordChecksum.check(lines.get(1)));
+        assertEquals(new Todo("Read book", false, TaskPriority.HIGH), TaskDecoder.decodeLine(lines.get(1), true, null));
+        assertEquals(corruptedLine, lines.get(2));
+    }
+
+    @Order(4)
+    @ParameterizedTest
+    @MethodSource("invalidHeaderProvider")
+    void load_unsupportedOrInvalidHeader_throwsFileContentException(String header)
+            throws StorageOperationException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        List<String> lines = List.of(header, "T | L | 0 | Read book");
+        Files.write(filePath, lines);
+
+        assertThrows(FileContentException.class, () -> new Storage(filePath.toString()).load());
+        assertEquals(lines, Files.readAllLines(filePath));
+    }
+
+    @Order(5)
+    @ParameterizedTest
+    @MethodSource("storageModeProvider")
+    void load_newerVersionStorage_keepsHeaderThroughEveryWrite(String storageMode)
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Deadline submitReport =
+                new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.HIGH);
+        new Storage(filePath.toString()).save(new TaskList(new ArrayList<>(List.of(
+                new Todo("Read book", false, TaskPriority.LOW), submitReport))));
+        AtomicInteger migratedRecordCount = new AtomicInteger();
+        FormatMigrator migrator = new FormatMigrator(List.of(record -> {
+            migratedRecordCount.incrementAndGet();
+            return record;
+        }));
+
+        Storage storage = new Storage(filePath.toString(), createOptions(storageMode), migrator);
+        TaskList taskList = storage.load();
+        assertEquals(2, migratedRecordCount.get());
+        assertEquals("#wkduke-format 2", Files.readAllLines(filePath).get(0));
+
+        Todo waterPlants = new Todo("Water plants", false, TaskPriority.MEDIUM);
+        taskList.addTask(waterPlants);
+        storage.saveAddedTask(taskList, waterPlants);
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+        Task readBook = taskList.getTask(0);
+        taskList.deleteTask(readBook);
+        storage.saveDeletedTasks(taskList, Map.of(0, readBook));
+        assertTrue(storage.getTasksPossiblyOn(taskList, LocalDateTime.of(2024, 11, 5, 0, 0)).contains(submitReport));
+        storage.close();
+
+        Storage reloadedStorage = new Storage(filePath.toString(), createOptions(storageMode), migrator);
+        TaskList reloadedTaskList = reloadedStorage.load();
+        assertEquals(List.of(submitReport, waterPlants), reloadedTaskList.getTasks());
+        assertEquals(2, reloadedStorage.verify().recordCount());
+        reloadedTaskList.getTasks().sort(Comparator.comparing(Task::getPriority));
+        reloadedStorage.save(reloadedTaskList);
+        reloadedStorage.close();
+
+        List<String> lines = Files.readAllLines(filePath);
+        assertEquals("#wkduke-format 2", lines.get(0));
+        assertEquals(1, lines.stream().filter(FormatHeader::isHeader).count());
+        assertEquals(reloadedTaskList, new Storage(filePath.toString(), createOptions(storageMode), migrator).load());
+        assertEquals(2, migratedRecordCount.get());
+    }
+}
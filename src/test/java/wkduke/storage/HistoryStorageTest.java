@@ -0,0 +1,289 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Deadline;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryStorageTest extends StorageFixture {
+    private static Stream<String> writeModeProvider() {
+        return Stream.of("rewrite", "patch", "journal");
+    }
+
+    private StorageOptions createOptions(int checkpointInterval) {
+        StorageOptions options = createOptions();
+        options.setHistoryCheckpointInterval(checkpointInterval);
+        return options;
+    }
+
+    private static TaskList copyOf(TaskList taskList) {
+        List<Task> tasks = new ArrayList<>();
+        for (Task task : taskList.getTasks()) {
+            Task copy = task instanceof Deadline deadline
+                    ? new Deadline(task.getDescription(), deadline.getBy(), task.isDone(), task.getPriority())
+                    : new Todo(task.getDescription(), task.isDone(), task.getPriority());
+            tasks.add(copy);
+        }
+        return new TaskList(tasks);
+    }
+
+    // Waits until the clock has moved on, so that the time between two mutations falls between them
+    private static LocalDateTime tick() throws InterruptedException {
+        Thread.sleep(5);
+        LocalDateTime now = LocalDateTime.now();
+        Thread.sleep(5);
+        return now;
+    }
+
+    @ParameterizedTest
+    @MethodSource("writeModeProvider")
+    void loadAsOf_pastTimes_reconstructsEachState(String writeMode)
+            throws StorageOperationException, FileContentException, InterruptedException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        StorageOptions options = createOptions(3);
+        options.setWriteMode(WriteMode.fromCode(writeMode));
+        Storage storage = new Storage(filePath, options);
+        LocalDateTime beforeHistory = tick();
+        TaskList taskList = storage.load();
+
+        List<LocalDateTime> times = new ArrayList<>();
+        List<TaskList> states = new ArrayList<>();
+        times.add(tick());
+        states.add(copyOf(taskList));
+        for (int i = 0; i < 8; i++) {
+            Task task = i % 2 == 0
+                    ? new Todo("Task " + i, false, TaskPriority.LOW)
+                    : new Deadline("Task " + i, LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.HIGH);
+            taskList.addTask(task);
+            storage.saveAddedTask(taskList, task);
+            if (i % 3 == 1) {
+                taskList.getTask(0).markAsDone();
+                storage.saveUpdatedTasks(taskList, List.of(0));
+            }
+            if (i == 5) {
+                Task deletedTask = taskList.getTask(2);
+                taskList.deleteTask(deletedTask);
+                storage.saveDeletedTasks(taskList, Map.of(2, deletedTask));
+            }
+            times.add(tick());
+            states.add(copyOf(taskList));
+        }
+
+        assertNull(storage.loadAsOf(beforeHistory));
+        for (int i = 0; i < times.size(); i++) {
+            assertEquals(states.get(i), storage.loadAsOf(times.get(i)));
+        }
+        assertEquals(taskList, storage.loadAsOf(LocalDateTime.now().plusDays(1)));
+
+        // A restarted storage reads the same history
+        assertEquals(states.get(4), new Storage(filePath, options).loadAsOf(times.get(4)));
+    }
+
+    @Test
+    void loadAsOf_wholeListMutation_reconstructsFromCheckpoint()
+            throws StorageOperationException, FileContentException, InterruptedException {
+        Storage storage = new Storage(tempDir.resolve("tasks.wkd").toString(), createOptions(100));
+        TaskList taskList = storage.load();
+        taskList.addTask(new Todo("Read book", false, TaskPriority.LOW));
+        storage.saveAddedTask(taskList, taskList.getTask(0));
+        taskList.addTask(new Todo("Water plants", false, TaskPriority.HIGH));
+        storage.saveAddedTask(taskList, taskList.getTask(1));
+        LocalDateTime beforeSort = tick();
+        TaskList unsortedTaskList = copyOf(taskList);
+
+        taskList.getTasks().sort(Comparator.comparing(Task::getPriority).reversed());
+        storage.save(taskList);
+        LocalDateTime afterSort = tick();
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+
+        assertEquals(unsortedTaskList, storage.loadAsOf(beforeSort));
+        TaskList sortedTaskList = storage.loadAsOf(afterSort);
+        assertEquals(List.of(new Todo("Water plants", false, TaskPriority.HIGH),
+                new Todo("Read book", false, TaskPriority.LOW)), sortedTaskList.getTasks());
+        assertEquals(taskList, storage.loadAsOf(LocalDateTime.now()));
+    }
+
+    @Test
+    void load_fileChangedOutsideHistory_startsNewCheckpoint()
+            throws StorageOperationException, FileContentException, IOException, InterruptedException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        StorageOptions options = createOptions(100);
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+        taskList.addTask(new Todo("Read book", false, TaskPriority.LOW));
+        storage.saveAddedTask(taskList, taskList.getTask(0));
+        LocalDateTime beforeEdit = tick();
+
+        Files.writeString(filePath, "T | M | 0 | Buy groceries" + System.lineSeparator(),
+                StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(filePath, FileTime.fromMillis(System.currentTimeMillis()));
+        Storage restartedStorage = new Storage(filePath.toString(), options);
+        TaskList restartedTaskList = restartedStorage.load();
+        restartedTaskList.addTask(new Todo("Water plants", false, TaskPriority.HIGH));
+        restartedStorage.saveAddedTask(restartedTaskList, restartedTaskList.getTask(2));
+
+        assertEquals(List.of(new Todo("Read book", false, TaskPriority.LOW)),
+                restartedStorage.loadAsOf(beforeEdit).getTasks());
+        assertEquals(restartedTaskList, restartedStorage.loadAsOf(LocalDateTime.now()));
+    }
+
+    @Test
+    void loadAsOf_tornHistoryTail_cutOffBeforeAppending()
+            throws StorageOperationException, FileContentException, IOException, InterruptedException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        StorageOptions options = createOptions(100);
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+        taskList.addTask(new Todo("Read book", false, TaskPriority.LOW));
+        storage.saveAddedTask(taskList, taskList.getTask(0));
+        Files.writeString(Path.of(filePath + ".history"), "@ 2024-11-01T10:1", StandardOpenOption.APPEND);
+
+        Storage restartedStorage = new Storage(filePath, options);
+        TaskList restartedTaskList = restartedStorage.load();
+        restartedTaskList.addTask(new Todo("Water plants", false, TaskPriority.HIGH));
+        restartedStorage.saveAddedTask(restartedTaskList, restartedTaskList.getTask(1));
+        assertEquals(restartedTaskList, restartedStorage.loadAsOf(tick()));
+    }
+
+    @Test
+    void loadAsOf_noHistoryKept_returnsNull() throws StorageOperationException, FileContentException {
+        Storage storage = new Storage(tempDir.resolve("tasks.txt").toString());
+        TaskList taskList = storage.load();
+        taskList.addTask(new Todo("Read book", false, TaskPriority.LOW));
+        storage.saveAddedTask(taskList, taskList.getTask(0));
+        assertNull(storage.loadAsOf(LocalDateTime.now()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("writeModeProvider")
+    void load_unchangedTaskListReloaded_noCheckpointAdded(String writeMode)
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        StorageOptions options = createOptions(100);
+        options.setWriteMode(WriteMode.fromCode(writeMode));
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+        taskList.addTask(new Todo("Read book", false, TaskPriority.LOW));
+        storage.saveAddedTask(taskList, taskList.getTask(0));
+        storage.save(taskList);
+        Path historyPath = Path.of(filePath + ".history");
+        long historySize = Files.size(historyPath);
+
+        for (int i = 0; i < 3; i++) {
+            Files.setLastModifiedTime(filePath, FileTime.fromMillis(System.currentTimeMillis() + 1000L * (i + 1)));
+            assertEquals(taskList, new Storage(filePath.toString(), options).load());
+        }
+        assertEquals(historySize, Files.size(historyPath));
+    }
+
+    @Test
+    void loadAsOf_writeBehind_recordsOnlyWrittenMutations()
+            throws StorageOperationException, FileContentException, InterruptedException {
+        StorageOptions options = createOptions(2);
+        options.setDurability(Durability.ON_EXIT);
+        Storage storage = new Storage(tempDir.resolve("tasks.txt").toString(), options);
+        TaskList taskList = storage.load();
+        for (int i = 0; i < 3; i++) {
+            taskList.addTask(new Todo("Task " + i, false, TaskPriority.LOW));
+            storage.saveAddedTask(taskList, taskList.getTask(i));
+        }
+        assertEquals(List.of(), storage.loadAsOf(tick()).getTasks());
+
+        storage.flush();
+        LocalDateTime afterFlush = tick();
+        taskList.getTasks().sort(Comparator.comparing(Task::getDescription).reversed());
+        storage.save(taskList);
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+        TaskList unsortedTaskList = storage.loadAsOf(tick());
+        assertEquals("Task 0", unsortedTaskList.getTask(0).getDescription());
+        assertEquals(unsortedTaskList, storage.loadAsOf(afterFlush));
+
+        storage.flush();
+        assertEquals(taskList, storage.loadAsOf(tick()));
+    }
+
+    @Test
+    void load_historyRetention_dropsCheckpointsBeforeRetention()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        StorageOptions options = createOptions(1);
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+        for (int i = 0; i < 3; i++) {
+            taskList.addTask(new Todo("Task " + i, false, TaskPriority.LOW));
+            storage.saveAddedTask(taskList, taskList.getTask(i));
+        }
+        // Moves the history back by ten years, keeping the length of every line and thus every offset
+        Path historyPath = Path.of(filePath + ".history");
+        Path indexPath = Path.of(filePath + ".history.idx");
+        for (Path path : List.of(historyPath, indexPath)) {
+            Matcher matcher = Pattern.compile("(?m)^(@ |= |)(\\d{4})-").matcher(Files.readString(path));
+            Files.writeString(path, matcher.replaceAll(match -> match.group(1)
+                    + (Integer.parseInt(match.group(2)) - 10) + "-"));
+        }
+        long historySize = Files.size(historyPath);
+        LocalDateTime beforeRetention = LocalDateTime.now().minusYears(9);
+
+        options.setHistoryRetentionDays(30);
+        Storage restartedStorage = new Storage(filePath.toString(), options);
+        assertEquals(taskList, restartedStorage.load());
+        assertTrue(Files.size(historyPath) < historySize);
+        assertEquals(1, Files.readAllLines(indexPath).size());
+        assertEquals(taskList, restartedStorage.loadAsOf(beforeRetention));
+        assertNull(restartedStorage.loadAsOf(LocalDateTime.now().minusYears(11)));
+    }
+
+    @Test
+    void loadAsOf_historyIndexLost_rebuiltFromHistory()
+            throws StorageOperationException, FileContentException, IOException, InterruptedException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        StorageOptions options = createOptions(2);
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+        List<LocalDateTime> times = new ArrayList<>();
+        List<TaskList> states = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            taskList.addTask(new Todo("Task " + i, false, TaskPriority.LOW));
+            storage.saveAddedTask(taskList, taskList.getTask(i));
+            times.add(tick());
+            states.add(copyOf(taskList));
+        }
+        Path indexPath = Path.of(filePath + ".history.idx");
+        List<String> indexLines = Files.readAllLines(indexPath);
+        Files.delete(indexPath);
+
+        Storage restartedStorage = new Storage(filePath.toString(), options);
+        for (int i = 0; i < times.size(); i++) {
+            assertEquals(states.get(i), restartedStorage.loadAsOf(times.get(i)));
+        }
+        assertNotNull(restartedStorage.loadAsOf(LocalDateTime.now()));
+        assertEquals(indexLines, Files.readAllLines(indexPath));
+    }
+}
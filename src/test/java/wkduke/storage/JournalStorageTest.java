@@ -0,0 +1,158 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.ClassOrderer;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestClassOrder;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Deadline;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestClassOrder(ClassOrderer.OrderAnnotation.class)
+class JournalStorageTest {
+    @TempDir
+    Path tempDir;
+    private StorageOptions options;
+
+    @BeforeEach
+    void setup() {
+        options = new StorageOptions();
+        options.setWriteMode(WriteMode.JOURNAL);
+    }
+
+    @Order(1)
+    @Nested
+    @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+    class ValidTests {
+        @Order(1)
+        @Test
+        void load_afterJournaledMutations_returnsSameTaskList() throws StorageOperationException, FileContentException {
+            String filePath = tempDir.resolve("tasks.txt").toString();
+            Storage storage = new Storage(filePath, options);
+            TaskList taskList = storage.load();
+
+            Task todo = new Todo("Read book", false, TaskPriority.LOW);
+            Task deadline = new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.HIGH);
+            taskList.addTask(todo);
+            storage.saveAddedTask(taskList, todo);
+            taskList.addTask(deadline);
+            storage.saveAddedTask(taskList, deadline);
+            deadline.markAsDone();
+            storage.saveUpdatedTasks(taskList, List.of(1));
+            taskList.deleteTask(todo);
+            storage.saveDeletedTasks(taskList, Map.of(0, todo));
+
+            assertEquals(taskList, new Storage(filePath, options).load());
+        }
+
+        @Order(2)
+        @Test
+        void saveAddedTask_journalPastThreshold_compactsIntoSnapshot()
+                throws StorageOperationException, FileContentException, IOException {
+            options.setJournalCompactionThreshold(1);
+            String filePath = tempDir.resolve("tasks.txt").toString();
+            Storage storage = new Storage(filePath, options);
+            TaskList taskList = storage.load();
+
+            Task todo = new Todo("Read book", false, TaskPriority.LOW);
+            taskList.addTask(todo);
+            storage.saveAddedTask(taskList, todo);
+            storage.close(); // Waits for the background compaction
+
+            assertEquals(List.of("T | L | 0 | Read book"), Files.readAllLines(Path.of(filePath)));
+            assertTrue(Files.notExists(Path.of(filePath + ".journal")));
+            assertEquals(taskList, new Storage(filePath, options).load());
+        }
+
+        @Order(3)
+        @Test
+        void load_tornLastEntry_skipsItAndAppendsAfterIt()
+                throws StorageOperationException, FileContentException, IOException {
+            Path filePath = tempDir.resolve("tasks.txt");
+            Path journalPath = Path.of(filePath + ".journal");
+            Files.writeString(journalPath,
+                    "+ 0 T | L | 0 | Read book" + System.lineSeparator() + "+ 1 T | L | 0 | Wat");
+            Storage storage = new Storage(filePath.toString(), options);
+            TaskList taskList = storage.load();
+            assertEquals(List.of(new Todo("Read book", false, TaskPriority.LOW)), taskList.getTasks());
+
+            Task todo = new Todo("Water plants", false, TaskPriority.MEDIUM);
+            taskList.addTask(todo);
+            storage.saveAddedTask(taskList, todo);
+            assertEquals(taskList, new Storage(filePath.toString(), options).load());
+
+            // A terminated last line that cannot be decoded was torn too
+            Files.writeString(journalPath, "+ 2 T | X" + System.lineSeparator(), StandardOpenOption.APPEND);
+            assertEquals(taskList, new Storage(filePath.toString(), options).load());
+        }
+
+        @Order(4)
+        @Test
+        void close_duringCompaction_reopenedStorageLoadsCompactedSnapshot()
+                throws StorageOperationException, FileContentException {
+            Path filePath = tempDir.resolve("tasks.txt");
+            TaskList taskList = new TaskList();
+            for (int i = 0; i < 20000; i++) {
+                taskList.addTask(new Todo("Task " + i, false, TaskPriority.LOW));
+            }
+            new Storage(filePath.toString()).save(taskList);
+            options.setJournalCompactionThreshold(1);
+            Storage storage = new Storage(filePath.toString(), options);
+            taskList = storage.load();
+
+            for (int i = 0; i < 3; i++) {
+                Task todo = new Todo("Added task " + i, false, TaskPriority.HIGH);
+                taskList.addTask(todo);
+                storage.saveAddedTask(taskList, todo); // Starts a compaction of the whole list
+                storage.close();
+                assertTrue(Files.notExists(Path.of(filePath + ".journal.compacting")));
+                assertTrue(Files.notExists(Path.of(filePath + ".compacted.tmp")));
+                assertEquals(taskList, new Storage(filePath.toString(), options).load());
+            }
+        }
+    }
+
+    @Order(2)
+    @Nested
+    @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+    class InvalidTests {
+        @Order(1)
+        @Test
+        void load_journalNotMatchingSnapshot_throwsFileContentException() throws StorageOperationException, IOException {
+            Path filePath = tempDir.resolve("tasks.txt");
+            Files.write(Path.of(filePath + ".journal"), List.of("- 0 T | L | 0 | Read book"));
+            Storage storage = new Storage(filePath.toString(), options);
+            assertThrows(FileContentException.class, storage::load);
+        }
+
+        @Order(2)
+        @Test
+        void load_malformedEntryBeforeLast_throwsFileContentException() throws StorageOperationException, IOException {
+            Path filePath = tempDir.resolve("tasks.txt");
+            Files.write(Path.of(filePath + ".journal"), List.of("+ 0 T | X", "+ 0 T | L | 0 | Read book"));
+            Storage storage = new Storage(filePath.toString(), options);
+            assertThrows(FileContentException.class, storage::load);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import wkduke.common.Messages;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.exception.storage.UncheckedFileContentException;
+import wkduke.storage.decoder.LazyTaskList;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class LazyStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private static StorageOptions createOptions() {
+        StorageOptions options = new StorageOptions();
+        options.setLazyLoad(true);
+        return options;
+    }
+
+    @Order(1)
+    @Test
+    void load_lazyLoad_decodesTasksOnAccess() throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Files.write(filePath, List.of(
+                "T | L | 0 | Read book",
+                "D | H | 1 | Submit report | 2024-11-05 23:59",
+                "E | M | 0 | Team meeting | 2024-11-01 09:00 | 2024-11-01 10:30"
+        ));
+
+        TaskList taskList = new Storage(filePath.toString(), createOptions()).load();
+        LazyTaskList lazyTasks = assertInstanceOf(LazyTaskList.class, taskList.getTasks());
+        assertFalse(lazyTasks.isFullyDecoded());
+
+        assertEquals(new Todo("Read book", false, TaskPriority.LOW), taskList.getTask(0));
+        assertEquals(new Storage(filePath.toString()).load(), taskList);
+        assertTrue(lazyTasks.isFullyDecoded());
+    }
+
+    @Order(2)
+    @Test
+    void load_lazyLoadWithInvalidLine_reportsLineOnlyWhenAccessed()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Files.write(filePath, List.of("T | L | 0 | Read book", "X | L | 0 | Invalid task"));
+        Storage storage = new Storage(filePath.toString(), createOptions());
+
+        TaskList taskList = storage.load();
+        assertEquals(2, taskList.size());
+        assertEquals(new Todo("Read book", false, TaskPriority.LOW), taskList.getTask(0));
+        assertThrows(UncheckedFileContentException.class, () -> taskList.getTask(1));
+        assertThrows(FileContentException.class, storage::verify);
+        assertThrows(UncheckedFileContentException.class, () -> storage.save(taskList));
+        assertEquals(List.of("T | L | 0 | Read book", "X | L | 0 | Invalid task"), Files.readAllLines(filePath));
+    }
+
+    @Order(3)
+    @Test
+    void saveAddedTask_lazyLoad_keepsUndecodedTasks() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        TaskList initialTaskList = new TaskList();
+        for (int i = 0; i < 5; i++) {
+            initialTaskList.addTask(new Todo("Task " + i, false, TaskPriority.LOW));
+        }
+        new Storage(filePath).save(initialTaskList);
+
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+        Task todo = new Todo("Task 5", false, TaskPriority.HIGH);
+        taskList.addTask(todo);
+        storage.saveAddedTask(taskList, todo);
+
+        assertEquals(6, storage.verify().recordCount());
+        assertEquals(taskList, new Storage(filePath).load());
+    }
+
+    @Order(4)
+    @Test
+    void save_lazyLoadWithDuplicateTask_reportsDuplicateUntilRemoved()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Files.write(filePath, List.of("T | L | 0 | Read book", "T | H | 0 | Water plants", "T | L | 0 | Read book"));
+        Storage storage = new Storage(filePath.toString(), createOptions());
+        TaskList taskList = storage.load();
+
+        UncheckedFileContentException e =
+                assertThrows(UncheckedFileContentException.class, () -> storage.save(taskList));
+        assertEquals(Messages.MESSAGE_DUPLICATE_TASK_IN_FILE, e.getCause().getMessage());
+        assertThrows(UncheckedFileContentException.class, () -> storage.save(taskList));
+
+        taskList.getTasks().remove(2);
+        storage.save(taskList);
+        assertEquals(List.of("T | L | 0 | Read book", "T | H | 0 | Water plants"), Files.readAllLines(filePath));
+    }
+}
@@ -0,0 +1,148 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.decoder.PagedTaskList;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagedStorageTest extends StorageFixture {
+    private static final long HEAP_BUDGET = 8 * 1024;
+
+    private static Stream<String> writeModeProvider() {
+        return Stream.of("rewrite", "patch");
+    }
+
+    @Override
+    void configure(StorageOptions options) {
+        options.setHeapBudget(HEAP_BUDGET);
+    }
+
+    @Test
+    void load_heapBudget_pagesTasksFromFile() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        TaskList savedTaskList = createTaskList(3000);
+        new Storage(filePath).save(savedTaskList);
+
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+        assertInstanceOf(PagedTaskList.class, taskList.getTasks());
+        assertEquals(savedTaskList, taskList);
+        assertTrue(taskList.contains(createTask(2999)));
+        assertEquals(1234, taskList.getTaskIndex(createTask(1234)));
+        assertEquals(3000, storage.verify().recordCount());
+
+        LocalDateTime on = BASE.plusDays(20);
+        List<Task> expectedTasks = new ArrayList<>();
+        for (Task task : savedTaskList.getTasks()) {
+            boolean isOn = (task instanceof Deadline deadline)
+                    ? deadline.getBy().toLocalDate().equals(on.toLocalDate())
+                    : (task instanceof Event event) && !event.getFrom().toLocalDate().isAfter(on.toLocalDate())
+                    && !event.getTo().toLocalDate().isBefore(on.toLocalDate());
+            if (isOn) {
+                expectedTasks.add(task);
+            }
+        }
+        assertFalse(expectedTasks.isEmpty());
+        assertEquals(expectedTasks, storage.getTasksPossiblyOn(taskList, on));
+    }
+
+    @ParameterizedTest
+    @MethodSource("writeModeProvider")
+    void saveUpdatedTasks_changedTaskEvicted_keepsChange(String writeMode)
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        new Storage(filePath).save(createTaskList(2000));
+        StorageOptions options = createOptions();
+        options.setWriteMode(WriteMode.fromCode(writeMode));
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+
+        Task markedTask = taskList.getTask(5);
+        markedTask.markAsDone();
+        taskList.getTask(6).setPriority(TaskPriority.HIGH);
+        for (Task task : taskList.getTasks()) {
+            // Reading every task pushes the changed ones out of the cache
+            task.getDescription();
+        }
+        assertTrue(taskList.getTask(5).isDone());
+        storage.saveUpdatedTasks(taskList, List.of(5, 6));
+
+        TaskList reloadedTaskList = new Storage(filePath).load();
+        assertEquals(taskList, reloadedTaskList);
+        assertTrue(reloadedTaskList.getTask(5).isDone());
+        assertEquals(TaskPriority.HIGH, reloadedTaskList.getTask(6).getPriority());
+    }
+
+    @Test
+    void save_sortedAddedAndDeletedTasks_streamsRewriteAndRebases()
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        new Storage(filePath).save(createTaskList(1500));
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+
+        Comparator<Task> byDescription = Comparator.comparing(Task::getDescription);
+        taskList.getTasks().sort(byDescription.reversed());
+        storage.save(taskList);
+        Task addedTask = new Todo("Added task", false, TaskPriority.HIGH);
+        taskList.addTask(addedTask);
+        storage.saveAddedTask(taskList, addedTask);
+        Task deletedTask = createTask(700);
+        int deletedIndex = taskList.getTaskIndex(deletedTask);
+        taskList.deleteTask(deletedTask);
+        storage.saveDeletedTasks(taskList, Map.of(deletedIndex, deletedTask));
+
+        List<Task> expectedTasks = new ArrayList<>(createTaskList(1500).getTasks());
+        expectedTasks.sort(byDescription.reversed());
+        expectedTasks.add(addedTask);
+        expectedTasks.remove(deletedTask);
+        assertEquals(expectedTasks, taskList.getTasks());
+        assertEquals(new TaskList(expectedTasks), new Storage(filePath).load());
+        assertEquals(new TaskList(expectedTasks), new Storage(filePath, createOptions()).load());
+    }
+
+    @Test
+    void load_duplicateLines_rejectsOrQuarantinesDuplicate()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Files.write(filePath, List.of(
+                "T | L | 0 | Read book",
+                "D | H | 1 | Submit report | 2024-11-05 23:59",
+                "T | L | 0 | Read book"
+        ));
+        assertThrows(FileContentException.class, () -> new Storage(filePath.toString(), createOptions()).load());
+
+        StorageOptions options = createOptions();
+        options.setChecksummed(true);
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+        assertEquals(2, taskList.size());
+        assertEquals(1, storage.getQuarantinedRecordCount());
+        assertEquals(List.of("T | L | 0 | Read book"), Files.readAllLines(storage.getQuarantinePath()));
+        assertEquals(taskList, new Storage(filePath.toString(), options).load());
+    }
+}
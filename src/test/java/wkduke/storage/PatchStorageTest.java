@@ -0,0 +1,110 @@
+package wkduke.storage;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Deadline;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PatchStorageTest extends StorageFixture {
+    private static Stream<String> fileNameProvider() {
+        return Stream.of("tasks.txt", "tasks.wkd");
+    }
+
+    @Override
+    void configure(StorageOptions options) {
+        options.setWriteMode(WriteMode.PATCH);
+    }
+
+    @ParameterizedTest
+    @MethodSource("fileNameProvider")
+    void saveUpdatedTasks_statusAndPriorityChanged_patchesRecordsInPlace(String fileName)
+            throws StorageOperationException, FileContentException, IOException {
+        String filePath = tempDir.resolve(fileName).toString();
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+        Task todo = new Todo("Read book", false, TaskPriority.LOW);
+        Task deadline = new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.LOW);
+        taskList.addTask(todo);
+        storage.saveAddedTask(taskList, todo);
+        taskList.addTask(deadline);
+        storage.saveAddedTask(taskList, deadline);
+        long sizeBeforePatch = Files.size(Path.of(filePath));
+
+        deadline.markAsDone();
+        deadline.setPriority(TaskPriority.HIGH);
+        storage.saveUpdatedTasks(taskList, List.of(1));
+
+        assertEquals(sizeBeforePatch, Files.size(Path.of(filePath)));
+        assertEquals(taskList, new Storage(filePath).load());
+    }
+
+    @ParameterizedTest
+    @MethodSource("fileNameProvider")
+    void saveUpdatedTasks_afterDeleteAndReload_patchesCorrectRecord(String fileName)
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve(fileName).toString();
+        new Storage(filePath).save(createTaskList());
+
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+        Task deleted = taskList.getTask(0);
+        taskList.deleteTask(deleted);
+        storage.saveDeletedTasks(taskList, Map.of(0, deleted));
+        taskList.getTask(1).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(1));
+
+        assertEquals(taskList, new Storage(filePath).load());
+    }
+
+    @ParameterizedTest
+    @MethodSource("fileNameProvider")
+    void saveUpdatedTasks_afterSortAndAdd_patchesRecordsAtTheirNewOffsets(String fileName)
+            throws StorageOperationException, FileContentException, IOException {
+        String filePath = tempDir.resolve(fileName).toString();
+        new Storage(filePath).save(createTaskList());
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+
+        // Sorting moves every record, so the whole file is rewritten and the offsets taken again
+        taskList.getTasks().sort(Comparator.comparing(Task::getPriority).reversed());
+        storage.save(taskList);
+        taskList.getTask(0).markAsDone();
+        taskList.getTask(3).setPriority(TaskPriority.HIGH);
+        storage.saveUpdatedTasks(taskList, List.of(0, 3));
+        assertEquals(taskList, new Storage(filePath).load());
+
+        // A longer record added in front of the last one shifts it, and only a rewrite keeps its offset right
+        Task last = taskList.getTask(3);
+        taskList.deleteTask(last);
+        storage.saveDeletedTasks(taskList, Map.of(3, last));
+        Task added = new Todo("Read the whole of the storage design notes", false, TaskPriority.LOW);
+        taskList.addTask(added);
+        storage.saveAddedTask(taskList, added);
+        taskList.addTask(last);
+        storage.saveAddedTask(taskList, last);
+        long sizeBeforePatch = Files.size(Path.of(filePath));
+        last.markAsDone();
+        added.setPriority(TaskPriority.MEDIUM);
+        storage.saveUpdatedTasks(taskList, List.of(3, 4));
+
+        assertEquals(sizeBeforePatch, Files.size(Path.of(filePath)));
+        assertEquals(taskList, new Storage(filePath).load());
+        assertEquals(taskList, new Storage(filePath, createOptions()).load());
+    }
+}
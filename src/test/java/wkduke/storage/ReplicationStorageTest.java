@@ -0,0 +1,169 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageFilePathException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Deadline;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReplicationStorageTest extends StorageFixture {
+    private static Stream<String> fileNameProvider() {
+        return Stream.of("tasks.txt", "tasks.wkd", "tasks.txt.gz");
+    }
+
+    private StorageOptions createOptions(String fileName) {
+        StorageOptions options = createOptions();
+        options.setReplicaPath(tempDir.resolve("replica").resolve(fileName).toString());
+        return options;
+    }
+
+    private static TaskList loadReplica(StorageOptions options) throws StorageOperationException, FileContentException {
+        StorageOptions replicaOptions = new StorageOptions();
+        replicaOptions.setWriteMode(WriteMode.JOURNAL);
+        return new Storage(options.getReplicaPath(), replicaOptions).load();
+    }
+
+    // Commands mutate the task list while holding its monitor, which keeps shipping in step with the mutations
+    private static void addTask(Storage storage, TaskList taskList, Task task) throws StorageOperationException {
+        synchronized (taskList) {
+            taskList.addTask(task);
+            storage.saveAddedTask(taskList, task);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("fileNameProvider")
+    void saveAddedTask_replicated_shippedInBackground(String fileName)
+            throws StorageOperationException, FileContentException {
+        StorageOptions options = createOptions(fileName);
+        Storage storage = new Storage(tempDir.resolve(fileName).toString(), options);
+        TaskList taskList = storage.load();
+        addTask(storage, taskList, new Todo("Read book", false, TaskPriority.LOW));
+        addTask(storage, taskList, new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false,
+                TaskPriority.HIGH));
+        synchronized (taskList) {
+            taskList.getTask(0).markAsDone();
+            storage.saveUpdatedTasks(taskList, List.of(0));
+        }
+
+        storage.flush();
+        assertEquals(0, storage.getReplicationLag());
+        assertEquals(taskList, loadReplica(options));
+    }
+
+    @Test
+    void save_sortedTaskList_shipsSnapshot() throws StorageOperationException, FileContentException {
+        StorageOptions options = createOptions("tasks.txt");
+        Storage storage = new Storage(tempDir.resolve("tasks.txt").toString(), options);
+        TaskList taskList = storage.load();
+        addTask(storage, taskList, new Todo("Read book", false, TaskPriority.LOW));
+        addTask(storage, taskList, new Todo("Water plants", false, TaskPriority.HIGH));
+
+        synchronized (taskList) {
+            taskList.getTasks().sort(Comparator.comparing(Task::getPriority).reversed());
+            storage.save(taskList);
+        }
+        storage.flush();
+        assertEquals(0, storage.getReplicationLag());
+        assertEquals(taskList, loadReplica(options));
+
+        addTask(storage, taskList, new Todo("Buy groceries", false, TaskPriority.MEDIUM));
+        storage.flush();
+        assertEquals(taskList, loadReplica(options));
+    }
+
+    @Test
+    void load_replicaBehind_catchesUpFromAppliedOffset()
+            throws StorageOperationException, FileContentException, IOException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        StorageOptions options = createOptions("tasks.txt");
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+        addTask(storage, taskList, new Todo("Read book", false, TaskPriority.LOW));
+        storage.flush();
+        Path offsetPath = Path.of(options.getReplicaPath() + ".offset");
+        byte[] offset = Files.readAllBytes(offsetPath);
+        addTask(storage, taskList, new Todo("Water plants", false, TaskPriority.HIGH));
+        storage.close();
+
+        // The replica lost the last shipment, e.g. because its disk was unavailable
+        Files.write(offsetPath, offset);
+        Storage restartedStorage = new Storage(filePath, options);
+        TaskList restartedTaskList = restartedStorage.load();
+        restartedStorage.flush();
+        assertEquals(0, restartedStorage.getReplicationLag());
+        assertEquals(restartedTaskList, loadReplica(options));
+    }
+
+    @Test
+    void flush_tornReplicaJournal_cutOffBeforeApplying()
+            throws StorageOperationException, FileContentException, IOException {
+        StorageOptions options = createOptions("tasks.txt");
+        Storage storage = new Storage(tempDir.resolve("tasks.txt").toString(), options);
+        TaskList taskList = storage.load();
+        addTask(storage, taskList, new Todo("Read book", false, TaskPriority.LOW));
+        storage.flush();
+
+        Path replicaJournalPath = Path.of(options.getReplicaPath() + ".journal");
+        Files.write(replicaJournalPath, List.of("torn"), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        addTask(storage, taskList, new Todo("Water plants", false, TaskPriority.HIGH));
+        storage.flush();
+        assertEquals(taskList, loadReplica(options));
+    }
+
+    @Test
+    void constructor_replicaWithOtherFormat_exceptionThrown() {
+        StorageOptions options = createOptions("tasks.wkd");
+        assertThrows(StorageFilePathException.class,
+                () -> new Storage(tempDir.resolve("tasks.txt").toString(), options));
+    }
+
+    @Test
+    void constructor_replicaWithWriteBehind_exceptionThrown() {
+        StorageOptions options = createOptions("tasks.txt");
+        options.setDurability(Durability.ASYNC);
+        assertThrows(StorageOperationException.class,
+                () -> new Storage(tempDir.resolve("tasks.txt").toString(), options));
+    }
+
+    @Test
+    void flush_replicaMissedEntry_resynchronisedWithSnapshot() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        StorageOptions options = createOptions("tasks.txt");
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+        addTask(storage, taskList, new Todo("Read book", false, TaskPriority.LOW));
+        storage.close();
+
+        // A mutation committed without reaching the replication log, e.g. because appending to it failed
+        Storage unreplicatedStorage = new Storage(filePath);
+        TaskList unreplicatedTaskList = unreplicatedStorage.load();
+        addTask(unreplicatedStorage, unreplicatedTaskList, new Todo("Water plants", false, TaskPriority.HIGH));
+
+        Storage restartedStorage = new Storage(filePath, options);
+        TaskList restartedTaskList = restartedStorage.load();
+        addTask(restartedStorage, restartedTaskList, new Todo("Buy groceries", false, TaskPriority.MEDIUM));
+        restartedStorage.flush();
+        assertEquals(0, restartedStorage.getReplicationLag());
+        assertEquals(restartedTaskList, loadReplica(options));
+        assertEquals(List.of(), restartedStorage.pollBackgroundErrors());
+    }
+}
@@ -0,0 +1,172 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.shard.ShardDirectory;
+import wkduke.storage.shard.ShardedTaskList;
+import wkduke.task.Deadline;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedStorageTest extends StorageFixture {
+    private static Stream<String> fileNameProvider() {
+        return Stream.of("tasks.txt", "tasks.wkd", "tasks.txt.gz");
+    }
+
+    @Override
+    void configure(StorageOptions options) {
+        options.setSharded(true);
+    }
+
+    @ParameterizedTest
+    @MethodSource("fileNameProvider")
+    void save_shardedLayout_writesOneShardPerMonth(String fileName)
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve(fileName).toString();
+        TaskList taskList = createTaskList();
+        new Storage(filePath, createOptions()).save(taskList);
+
+        Path shardPath = tempDir.resolve("tasks-shards");
+        String extension = StorageFormat.fromPath(Path.of(fileName)).getExtension();
+        assertTrue(Files.exists(shardPath.resolve(ShardDirectory.MANIFEST_FILE_NAME)));
+        assertTrue(Files.exists(shardPath.resolve("todo" + extension)));
+        assertTrue(Files.exists(shardPath.resolve("2024-10" + extension)));
+        assertTrue(Files.exists(shardPath.resolve("2024-12" + extension)));
+        assertEquals(taskList, new Storage(filePath, createOptions()).load());
+    }
+
+    @Test
+    void getTasksPossiblyOn_shardedLayout_readsOnlyShardsOnDate()
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        new Storage(filePath, createOptions()).save(createTaskList());
+
+        TaskList taskList = new Storage(filePath, createOptions()).load();
+        ShardedTaskList shardedTasks = assertInstanceOf(ShardedTaskList.class, taskList.getTasks());
+        assertEquals(4, taskList.size());
+        assertEquals(0, shardedTasks.getLoadedShardCount());
+
+        List<Task> candidateTasks = shardedTasks.getTasksPossiblyOn(LocalDateTime.of(2024, 11, 1, 0, 0));
+        assertEquals(1, shardedTasks.getLoadedShardCount());
+        assertEquals(List.of(taskList.getTask(1), taskList.getTask(2)), candidateTasks);
+        assertEquals(2, taskList.getTaskIndex(candidateTasks.get(1)));
+    }
+
+    @Test
+    void load_existingTaskFile_splitsIntoShards() throws StorageOperationException, FileContentException, IOException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        TaskList taskList = createTaskList();
+        new Storage(filePath).save(taskList);
+
+        assertEquals(taskList, new Storage(filePath, createOptions()).load());
+        Files.delete(tempDir.resolve("tasks-shards").resolve(ShardDirectory.MANIFEST_FILE_NAME));
+        assertEquals(taskList, new Storage(filePath, createOptions()).load());
+        assertEquals(4, new Storage(filePath, createOptions()).verify().recordCount());
+    }
+
+    @Test
+    void saveAddedTask_shardedLayout_addsTaskToEndOfList() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        new Storage(filePath, createOptions()).save(createTaskList());
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+
+        Task todo = new Todo("Water plants", false, TaskPriority.LOW);
+        taskList.addTask(todo);
+        storage.saveAddedTask(taskList, todo);
+        taskList.getTask(2).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(2));
+
+        assertEquals(4, taskList.getTaskIndex(todo));
+        assertEquals(taskList, new Storage(filePath, createOptions()).load());
+    }
+
+    @Test
+    void load_everyTaskDeletedAfterSplit_staysEmpty() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        new Storage(filePath).save(createTaskList());
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+
+        List<Task> deletedTasks = List.copyOf(taskList.getTasks());
+        deletedTasks.forEach(taskList::deleteTask);
+        storage.save(taskList);
+
+        assertEquals(new TaskList(), new Storage(filePath, createOptions()).load());
+    }
+
+    @Test
+    void set_taskOfAnotherMonth_keepsPositionInList() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        new Storage(filePath, createOptions()).save(createTaskList());
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+
+        Task movedTask = new Deadline("Submit report", LocalDateTime.of(2025, 1, 5, 23, 59), true, TaskPriority.HIGH);
+        Task previousTask = taskList.getTasks().set(1, movedTask);
+        storage.save(taskList);
+
+        assertEquals(createTaskList().getTask(1), previousTask);
+        assertEquals(1, taskList.getTaskIndex(movedTask));
+        assertTrue(taskList.contains(movedTask));
+        assertEquals(taskList, new Storage(filePath, createOptions()).load());
+    }
+
+    @Test
+    void save_sortedAcrossShards_keepsOrderAfterReload() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        new Storage(filePath, createOptions()).save(createTaskList());
+        Storage storage = new Storage(filePath, createOptions());
+        TaskList taskList = storage.load();
+
+        taskList.getTasks().sort(Comparator.comparing(Task::getPriority).reversed());
+        storage.save(taskList);
+        List<Task> sortedTasks = List.copyOf(taskList.getTasks());
+        assertEquals(TaskPriority.HIGH, sortedTasks.get(0).getPriority());
+        assertEquals(TaskPriority.LOW, sortedTasks.get(3).getPriority());
+        assertEquals(sortedTasks, new Storage(filePath, createOptions()).load().getTasks());
+
+        // Marking a task only writes its shard, and the recorded order still holds
+        Storage reloadedStorage = new Storage(filePath, createOptions());
+        TaskList reloadedTaskList = reloadedStorage.load();
+        reloadedTaskList.getTask(2).markAsDone();
+        reloadedStorage.saveUpdatedTasks(reloadedTaskList, List.of(2));
+        assertEquals(reloadedTaskList, new Storage(filePath, createOptions()).load());
+    }
+
+    @Test
+    void load_manifestWithoutOrder_listsShardsOneAfterAnother()
+            throws StorageOperationException, FileContentException, IOException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        TaskList taskList = createTaskList();
+        taskList.getTasks().add(0, taskList.getTasks().remove(3));
+        new Storage(filePath, createOptions()).save(taskList);
+
+        Path manifestPath = tempDir.resolve("tasks-shards").resolve(ShardDirectory.MANIFEST_FILE_NAME);
+        Files.write(manifestPath, Files.readAllLines(manifestPath).stream()
+                .filter(line -> !line.startsWith(">")).toList());
+        assertEquals(createTaskList(), new Storage(filePath, createOptions()).load());
+
+        Files.writeString(manifestPath, "> todo | 2" + System.lineSeparator(), StandardOpenOption.APPEND);
+        assertThrows(FileContentException.class, () -> new Storage(filePath, createOptions()).load());
+    }
+}
@@ -0,0 +1,160 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageConflictException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Deadline;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SharedStorageTest extends StorageFixture {
+    @Override
+    void configure(StorageOptions options) {
+        options.setWriteMode(WriteMode.JOURNAL);
+        options.setShared(true);
+    }
+
+    private static Task createReadBook() {
+        return new Todo("Read book", false, TaskPriority.LOW);
+    }
+
+    private static Task createSubmitReport() {
+        return new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.HIGH);
+    }
+
+    private Storage createStorage() throws StorageOperationException {
+        return new Storage(tempDir.resolve("tasks.txt").toString(), createOptions());
+    }
+
+    private static void addTask(Storage storage, TaskList taskList, Task task) throws StorageOperationException {
+        taskList.addTask(task);
+        storage.saveAddedTask(taskList, task);
+    }
+
+    @Test
+    void refresh_otherProcessAppended_appliesNewEntries() throws StorageOperationException, FileContentException {
+        Storage firstStorage = createStorage();
+        Storage secondStorage = createStorage();
+        TaskList firstTaskList = firstStorage.load();
+        TaskList secondTaskList = secondStorage.load();
+
+        addTask(firstStorage, firstTaskList, createReadBook());
+        secondStorage.refresh(secondTaskList);
+        assertEquals(List.of(createReadBook()), secondTaskList.getTasks());
+        Task readBook = secondTaskList.getTask(0);
+
+        addTask(firstStorage, firstTaskList, createSubmitReport());
+        secondStorage.refresh(secondTaskList);
+        assertSame(readBook, secondTaskList.getTask(0));
+        secondTaskList.getTask(1).markAsDone();
+        secondStorage.saveUpdatedTasks(secondTaskList, List.of(1));
+
+        firstStorage.refresh(firstTaskList);
+        assertTrue(firstTaskList.getTask(1).isDone());
+        assertEquals(firstTaskList, secondTaskList);
+        assertEquals(firstTaskList, createStorage().load());
+    }
+
+    @Test
+    void saveAddedTask_staleTaskList_rejectedAndReloaded() throws StorageOperationException, FileContentException {
+        Storage firstStorage = createStorage();
+        Storage secondStorage = createStorage();
+        TaskList firstTaskList = firstStorage.load();
+        TaskList secondTaskList = secondStorage.load();
+
+        addTask(firstStorage, firstTaskList, createReadBook());
+        Task secondTask = createSubmitReport();
+        assertThrows(StorageConflictException.class, () -> addTask(secondStorage, secondTaskList, secondTask));
+        assertEquals(List.of(createReadBook()), secondTaskList.getTasks());
+
+        // Retrying on the reloaded list keeps both changes
+        addTask(secondStorage, secondTaskList, secondTask);
+        assertEquals(List.of(createReadBook(), createSubmitReport()), createStorage().load().getTasks());
+    }
+
+    @Test
+    void refresh_otherProcessCompacted_reloadsWholeList() throws StorageOperationException, FileContentException {
+        Storage firstStorage = createStorage();
+        Storage secondStorage = createStorage();
+        TaskList firstTaskList = firstStorage.load();
+        addTask(firstStorage, firstTaskList, createReadBook());
+        addTask(firstStorage, firstTaskList, createSubmitReport());
+        TaskList secondTaskList = secondStorage.load();
+
+        firstTaskList.getTasks().sort(Comparator.comparing(Task::getPriority).reversed());
+        firstStorage.save(firstTaskList);
+        secondStorage.refresh(secondTaskList);
+        assertEquals(firstTaskList, secondTaskList);
+        assertEquals(List.of(createSubmitReport(), createReadBook()), secondTaskList.getTasks());
+
+        addTask(secondStorage, secondTaskList, new Todo("Water plants", false, TaskPriority.MEDIUM));
+        firstStorage.refresh(firstTaskList);
+        assertEquals(secondTaskList, firstTaskList);
+    }
+
+    @Test
+    void saveAddedTask_concurrentWriterProcesses_noLostUpdates() throws StorageOperationException,
+            FileContentException, IOException, InterruptedException {
+        int taskCountPerWriter = 50;
+        List<Process> writers = new ArrayList<>();
+        for (int writer = 0; writer < 2; writer++) {
+            // Separate JVMs, since the threads of one JVM are already serialised before taking the file lock
+            writers.add(new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-ea", "-cp", System.getProperty("java.class.path"), WriterProcess.class.getName(),
+                    tempDir.resolve("tasks.txt").toString(), "Writer " + writer + " task ",
+                    String.valueOf(taskCountPerWriter))
+                    .redirectErrorStream(true)
+                    .start());
+        }
+        for (Process writer : writers) {
+            String output = new String(writer.getInputStream().readAllBytes());
+            assertEquals(0, writer.waitFor(), output);
+        }
+        TaskList taskList = createStorage().load();
+        assertEquals(2 * taskCountPerWriter, taskList.size());
+        for (int writer = 0; writer < 2; writer++) {
+            for (int i = 0; i < taskCountPerWriter; i++) {
+                assertTrue(taskList.contains(new Todo("Writer " + writer + " task " + i, false, TaskPriority.LOW)));
+            }
+        }
+    }
+
+    /**
+     * Adds tasks to a shared task file from its own JVM, retrying each addition that conflicts with another writer.
+     */
+    static class WriterProcess {
+        public static void main(String[] args) throws StorageOperationException, FileContentException {
+            StorageOptions options = new SharedStorageTest().createOptions();
+            options.setJournalCompactionThreshold(512);
+            Storage storage = new Storage(args[0], options);
+            TaskList taskList = storage.load();
+            for (int i = 0; i < Integer.parseInt(args[2]); i++) {
+                Task task = new Todo(args[1] + i, false, TaskPriority.LOW);
+                while (true) {
+                    storage.refresh(taskList);
+                    try {
+                        addTask(storage, taskList, task);
+                        break;
+                    } catch (StorageConflictException e) {
+                        assert !taskList.contains(task) : "A rejected task must not stay in the task list";
+                    }
+                }
+            }
+        }
+    }
+}
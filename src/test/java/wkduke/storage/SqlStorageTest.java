@@ -0,0 +1,182 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.sql.SqlTaskStore;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class SqlStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private static Task createReadBook() {
+        return new Todo("Read book", false, TaskPriority.LOW);
+    }
+
+    private static Task createSubmitReport() {
+        return new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.HIGH);
+    }
+
+    private static Task createConference() {
+        return new Event("Conference", LocalDateTime.of(2024, 11, 4, 9, 0), LocalDateTime.of(2024, 11, 6, 17, 0),
+                false, TaskPriority.MEDIUM);
+    }
+
+    private static Task createTeamMeeting() {
+        return new Event("Team meeting", LocalDateTime.of(2024, 11, 6, 10, 0), LocalDateTime.of(2024, 11, 6, 11, 0),
+                false, TaskPriority.MEDIUM);
+    }
+
+    private static TaskList createTaskList() {
+        return new TaskList(new ArrayList<>(List.of(createReadBook(), createSubmitReport(), createConference(),
+                createTeamMeeting())));
+    }
+
+    private Storage createStorage() throws StorageOperationException {
+        StorageOptions options = new StorageOptions();
+        options.setSqlBacked(true);
+        return new Storage(tempDir.resolve("tasks.txt").toString(), options);
+    }
+
+    @Order(1)
+    @Test
+    void load_existingFile_importedOnce() throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        new Storage(filePath.toString()).save(createTaskList());
+        String fileContent = Files.readString(filePath);
+
+        Storage storage = createStorage();
+        TaskList taskList = storage.load();
+        assertEquals(createTaskList(), taskList);
+
+        taskList.deleteTask(taskList.getTask(0));
+        storage.saveDeletedTasks(taskList, Map.of(0, createReadBook()));
+        assertEquals(fileContent, Files.readString(filePath));
+        assertEquals(List.of(createSubmitReport(), createConference(), createTeamMeeting()),
+                createStorage().load().getTasks());
+        assertEquals(3, storage.verify().recordCount());
+    }
+
+    @Order(2)
+    @Test
+    void saveMutations_rowByRow_matchesTaskList() throws StorageOperationException, FileContentException {
+        Storage storage = createStorage();
+        TaskList taskList = storage.load();
+        for (Task task : createTaskList().getTasks()) {
+            taskList.addTask(task);
+            storage.saveAddedTask(taskList, task);
+        }
+        assertEquals(createTaskList(), createStorage().load());
+
+        taskList.getTask(1).markAsDone();
+        taskList.getTask(3).setPriority(TaskPriority.HIGH);
+        storage.saveUpdatedTasks(taskList, List.of(1, 3));
+        assertEquals(taskList, createStorage().load());
+
+        Task firstTask = taskList.getTask(0);
+        Task thirdTask = taskList.getTask(2);
+        taskList.deleteTask(firstTask);
+        taskList.deleteTask(thirdTask);
+        storage.saveDeletedTasks(taskList, Map.of(0, firstTask, 2, thirdTask));
+        assertEquals(taskList, createStorage().load());
+
+        taskList.addTask(new Todo("Water plants", false, TaskPriority.LOW));
+        storage.saveAddedTask(taskList, taskList.getTask(2));
+        taskList.getTasks().sort(Comparator.comparing(Task::getPriority));
+        storage.save(taskList);
+        assertEquals(taskList, createStorage().load());
+    }
+
+    @Order(3)
+    @Test
+    void getTasksPossiblyOn_sqlBacked_returnsOnlyTasksOnDate() throws StorageOperationException,
+            FileContentException {
+        Storage storage = createStorage();
+        storage.load();
+        storage.save(createTaskList());
+        TaskList taskList = storage.load();
+
+        List<Task> candidateTasks = storage.getTasksPossiblyOn(taskList, LocalDateTime.of(2024, 11, 5, 0, 0));
+        assertEquals(List.of(createSubmitReport(), createConference()), candidateTasks);
+        assertSame(taskList.getTask(1), candidateTasks.get(0));
+        assertEquals(List.of(createConference(), createTeamMeeting()),
+                storage.getTasksPossiblyOn(taskList, LocalDateTime.of(2024, 11, 6, 12, 0)));
+        assertEquals(List.of(), storage.getTasksPossiblyOn(taskList, LocalDateTime.of(2024, 11, 3, 0, 0)));
+        assertEquals(List.of(createSubmitReport(), createConference()), storage.findTasksBetween(
+                LocalDateTime.of(2024, 11, 5, 0, 0), LocalDateTime.of(2024, 11, 5, 23, 59)));
+
+        // A list that was not loaded from the database cannot be narrowed down by it
+        TaskList otherTaskList = createTaskList();
+        assertEquals(otherTaskList.getTasks(),
+                storage.getTasksPossiblyOn(otherTaskList, LocalDateTime.of(2024, 11, 5, 0, 0)));
+    }
+
+    @Order(4)
+    @Test
+    void getTasksPossiblyContaining_sqlBacked_matchesKeywordsLiterally() throws StorageOperationException,
+            FileContentException {
+        Storage storage = createStorage();
+        TaskList taskList = storage.load();
+        for (Task task : createTaskList().getTasks()) {
+            taskList.addTask(task);
+            storage.saveAddedTask(taskList, task);
+        }
+        Task discountTask = new Todo("Claim 10% discount", false, TaskPriority.LOW);
+        taskList.addTask(discountTask);
+        storage.saveAddedTask(taskList, discountTask);
+
+        assertEquals(List.of(createSubmitReport(), createTeamMeeting()),
+                storage.getTasksPossiblyContaining(taskList, List.of("report", "meeting")));
+        assertEquals(List.of(discountTask), storage.getTasksPossiblyContaining(taskList, List.of("0%")));
+        assertEquals(List.of(), storage.getTasksPossiblyContaining(taskList, List.of("_ook", "Report")));
+        assertFalse(storage.isBackupSupported());
+    }
+
+    @Order(5)
+    @Test
+    void saveDeletedTasks_middleTask_deletesOnlyItsRow() throws StorageOperationException, FileContentException,
+            IOException {
+        Storage storage = createStorage();
+        storage.load();
+        storage.save(createTaskList());
+        TaskList taskList = storage.load();
+
+        taskList.deleteTask(taskList.getTask(1));
+        storage.saveDeletedTasks(taskList, Map.of(1, createSubmitReport()));
+        SqlTaskStore taskStore = new SqlTaskStore(tempDir.resolve("tasks.txt"));
+        assertArrayEquals(new long[]{0, 2, 3}, taskStore.loadKeys());
+        assertEquals(List.of(createReadBook(), createConference(), createTeamMeeting()),
+                createStorage().load().getTasks());
+
+        Task task = new Todo("Water plants", false, TaskPriority.LOW);
+        taskList.addTask(task);
+        storage.saveAddedTask(taskList, task);
+        assertArrayEquals(new long[]{0, 2, 3, 4}, taskStore.loadKeys());
+        assertEquals(taskList, createStorage().load());
+    }
+}
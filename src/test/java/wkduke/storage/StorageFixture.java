@@ -0,0 +1,90 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.io.TempDir;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the fixture shared by the storage tests: a temporary directory of their own, the storage options under test
+ * and freshly built tasks. Every test builds its files from these, so no test depends on another one running first.
+ */
+abstract class StorageFixture {
+    static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Sets the options exercised by the test class. Leaves the defaults unless overridden.
+     *
+     * @param options The options to configure.
+     */
+    void configure(StorageOptions options) {
+    }
+
+    /**
+     * Creates new storage options configured for the test class.
+     *
+     * @return The configured options.
+     */
+    StorageOptions createOptions() {
+        StorageOptions options = new StorageOptions();
+        configure(options);
+        return options;
+    }
+
+    /**
+     * Creates a new list of sample tasks: a todo, a deadline, an event spanning two months and a deadline in a later
+     * month.
+     *
+     * @return A mutable {@code TaskList} of new tasks.
+     */
+    static TaskList createTaskList() {
+        return new TaskList(new ArrayList<>(List.of(
+                new Todo("Read book", false, TaskPriority.LOW),
+                new Deadline("Submit report", LocalDateTime.of(2024, 10, 5, 23, 59), false, TaskPriority.HIGH),
+                new Event("Team retreat", LocalDateTime.of(2024, 10, 30, 9, 0), LocalDateTime.of(2024, 11, 2, 18, 0),
+                        false, TaskPriority.MEDIUM),
+                new Deadline("Pay rent", LocalDateTime.of(2024, 12, 1, 12, 0), false, TaskPriority.LOW)
+        )));
+    }
+
+    /**
+     * Creates the task with the given number out of a series of distinct todos, deadlines and events whose dates are
+     * spread over the months after {@link #BASE}.
+     *
+     * @param i The number of the task.
+     * @return A new task, equal to every other task created with the same number.
+     */
+    static Task createTask(int i) {
+        return switch (i % 3) {
+            case 0 -> new Todo("Todo " + i, false, TaskPriority.LOW);
+            case 1 -> new Deadline("Deadline " + i, BASE.plusHours(i * 7L % 5000), false, TaskPriority.MEDIUM);
+            default -> new Event("Event " + i, BASE.plusHours(i * 5L % 5000), BASE.plusHours(i * 5L % 5000 + i % 50),
+                    false, TaskPriority.HIGH);
+        };
+    }
+
+    /**
+     * Creates a list of the first tasks of the series of {@link #createTask(int)}.
+     *
+     * @param taskCount The number of tasks.
+     * @return A mutable {@code TaskList} of new tasks.
+     */
+    static TaskList createTaskList(int taskCount) {
+        TaskList taskList = new TaskList();
+        for (int i = 0; i < taskCount; i++) {
+            taskList.addTask(createTask(i));
+        }
+        return taskList;
+    }
+}
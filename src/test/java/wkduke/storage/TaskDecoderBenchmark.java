@@ -0,0 +1,93 @@
+package wkduke.storage;
+
+import wkduke.exception.TaskFormatException;
+import wkduke.exception.storage.FileContentException;
+import wkduke.parser.TimeParser;
+import wkduke.storage.decoder.TaskDecoder;
+import wkduke.task.Deadline;
+import wkduke.task.Event;
+import wkduke.task.Task;
+import wkduke.task.TaskPriority;
+import wkduke.task.TaskType;
+import wkduke.task.Todo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link TaskDecoder} against the regular-expression decoder it replaced.
+ * Run manually with {@code java -cp <classpath> wkduke.storage.TaskDecoderBenchmark [lineCount]}.
+ */
+public class TaskDecoderBenchmark {
+    private static final Pattern LEGACY_TASK_PATTERN = Pattern.compile(
+            "(?<taskType>[TDE]) \\| (?<taskPriority>[LMH]) \\| (?<taskStatus>[01]) \\| (?<taskDescription>[^|]+)"
+                    + "(?: \\| (?<by>[^|]+))?"
+                    + "(?: \\| (?<from>[^|]+) \\| (?<to>[^|]+))?"
+    );
+    private static final int ROUNDS = 5;
+
+    /**
+     * Decodes a task with the former regular-expression based implementation.
+     */
+    private static Task decodeWithRegex(String encodedTask) throws TaskFormatException {
+        Matcher matcher = LEGACY_TASK_PATTERN.matcher(encodedTask);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(encodedTask);
+        }
+        String description = matcher.group("taskDescription");
+        TaskPriority priority = TaskPriority.fromCode(matcher.group("taskPriority"));
+        boolean isDone = "1".equals(matcher.group("taskStatus"));
+        return switch (TaskType.fromCode(matcher.group("taskType"))) {
+            case TODO -> new Todo(description, isDone, priority);
+            case DEADLINE -> new Deadline(description, TimeParser.parseDateTime(matcher.group("by")), isDone, priority);
+            case EVENT -> new Event(description, TimeParser.parseDateTime(matcher.group("from")),
+                    TimeParser.parseDateTime(matcher.group("to")), isDone, priority);
+        };
+    }
+
+    /**
+     * Generates an even mix of encoded todo, deadline and event lines.
+     */
+    private static List<String> generateLines(int lineCount) {
+        List<String> lines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            String day = String.format("2024-%02d-%02d", i % 12 + 1, i % 28 + 1);
+            lines.add(switch (i % 3) {
+                case 0 -> "T | L | 0 | Read book number " + i;
+                case 1 -> "D | H | 1 | Submit report " + i + " | " + day + " 23:59";
+                default -> "E | M | 0 | Attend workshop " + i + " | " + day + " 09:00 | " + day + " 17:00";
+            });
+        }
+        return lines;
+    }
+
+    public static void main(String[] args) throws FileContentException, TaskFormatException {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        List<String> lines = generateLines(lineCount);
+        for (String line : lines) {
+            if (!TaskDecoder.decodeTask(line).equals(decodeWithRegex(line))) {
+                throw new AssertionError("Decoders disagree on: " + line);
+            }
+        }
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (String line : lines) {
+                decodeWithRegex(line);
+            }
+            long regexNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (String line : lines) {
+                TaskDecoder.decodeTask(line);
+            }
+            long singlePassNanos = System.nanoTime() - start;
+
+            System.out.printf("Round %d: regex %.1f ns/line, single-pass %.1f ns/line (%.1fx)%n", round,
+                    (double) regexNanos / lineCount, (double) singlePassNanos / lineCount,
+                    (double) regexNanos / singlePassNanos);
+        }
+    }
+}
@@ -52,7 +52,8 @@ class TaskDecoderTest {
                     new Object[]{"D | H | 1 | Submit report | 2024-11-05 23:59", deadlineHighDone},
                     new Object[]{"D | L | 0 | Start project | 2024-12-10 12:00", deadlineLowNotDone},
                     new Object[]{"E | M | 0 | Attend workshop | 2024-11-05 09:00 | 2024-11-05 17:00", eventMedium},
-                    new Object[]{"E | H | 1 | Meeting | 2024-11-10 08:00 | 2024-11-10 18:00", eventHighDone}
+                    new Object[]{"E | H | 1 | Meeting | 2024-11-10 08:00 | 2024-11-10 18:00", eventHighDone},
+                    new Object[]{"D | L | 0 | Start project | 2024/12/10 1200", deadlineLowNotDone}
             );
         }
 
@@ -77,7 +78,10 @@ class TaskDecoderTest {
                     "E | 0 | Attend workshop | 09:00 | ",           // Missing end date for Event
                     "D | 0 | Submit report | invalid-date",         // Invalid date format
                     "T | X | 1 | Submit report",                    // Missing priority for Todo
-                    "D | | 1 | Submit report | 2024-11-05 23:59"    // Missing priority for Deadline
+                    "D | | 1 | Submit report | 2024-11-05 23:59",   // Missing priority for Deadline
+                    "T | L | 0 | Read|book",                        // Separator without surrounding spaces
+                    "D | L | 0 | Submit report | 2024-13-05 23:59", // Out-of-range month
+                    "E | M | 0 | Attend workshop | 2024-11-05 09:00" // Missing end date-time for Event
             );
         }
 
@@ -4,24 +4,38 @@ import org.junit.jupiter.api.ClassOrderer;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestClassOrder;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import wkduke.storage.encoder.TaskEncoder;
+import wkduke.storage.encoder.TaskListEncoder;
 import wkduke.task.Deadline;
 import wkduke.task.Event;
 import wkduke.task.Task;
+import wkduke.task.TaskList;
 import wkduke.task.TaskPriority;
 import wkduke.task.Todo;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 @TestClassOrder(ClassOrderer.OrderAnnotation.class)
 class TaskEncoderTest {
+    @TempDir
+    static Path tempDir;
+
     @Order(1)
     @Nested
     @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
@@ -51,5 +65,35 @@ class TaskEncoderTest {
             String encodedTask = TaskEncoder.encodeTask(task);
             assertEquals(expectedEncodedString, encodedTask);
         }
+
+        @Order(2)
+        @Test
+        void writeTaskList_validTaskList_matchesFilesWriteOutput() throws IOException {
+            TaskList taskList = new TaskList();
+            validTaskProvider().forEach(arguments -> taskList.addTask((Task) arguments[0]));
+            taskList.addTask(new Deadline("Year one", LocalDateTime.of(1, 1, 1, 0, 0), false, TaskPriority.LOW));
+
+            Path streamedPath = tempDir.resolve("streamed.txt");
+            Path expectedPath = tempDir.resolve("expected.txt");
+            TaskListEncoder.writeTaskList(taskList, streamedPath);
+            Files.write(expectedPath, TaskListEncoder.encodeTaskList(taskList));
+            assertArrayEquals(Files.readAllBytes(expectedPath), Files.readAllBytes(streamedPath));
+        }
+
+        @Order(3)
+        @Test
+        void encodeLine_afterStatusOrPriorityChange_reencodesOnlyChangedTask() {
+            Task unchanged = new Todo("Read book", false, TaskPriority.LOW);
+            Task changed = new Deadline("Submit report", LocalDateTime.of(2024, 11, 5, 23, 59), false, TaskPriority.LOW);
+            byte[] unchangedLine = TaskEncoder.encodeLine(unchanged);
+            byte[] changedLine = TaskEncoder.encodeLine(changed);
+
+            changed.markAsDone();
+            changed.setPriority(TaskPriority.HIGH);
+            assertSame(unchangedLine, TaskEncoder.encodeLine(unchanged));
+            assertNotSame(changedLine, TaskEncoder.encodeLine(changed));
+            assertEquals(TaskEncoder.encodeTask(changed) + System.lineSeparator(),
+                    new String(TaskEncoder.encodeLine(changed), StandardCharsets.UTF_8));
+        }
     }
 }
@@ -0,0 +1,97 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.storage.decoder.TaskFileReader;
+import wkduke.storage.decoder.TaskListDecoder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TaskFileReaderTest {
+    @TempDir
+    Path tempDir;
+
+    private static Stream<String> fileContentProvider() {
+        return Stream.of(
+                "",                                   // Empty file
+                "T | L | 0 | Read book",              // No trailing line terminator
+                "T | L | 0 | Read book\n",            // Unix line terminators
+                "T | L | 0 | Read book\r\nT | H | 1 | Caf\u00e9\r\n", // Windows line terminators and non-ASCII text
+                "T | L | 0 | Read book\r\rT | H | 1 | Swim\n\n"  // Old Mac line terminators and blank lines
+        );
+    }
+
+    @Order(1)
+    @ParameterizedTest
+    @MethodSource("fileContentProvider")
+    void forEachLine_anyLineTerminators_matchesReadAllLines(String content) throws IOException, FileContentException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Files.writeString(filePath, content, StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        TaskFileReader.forEachLine(filePath, lines::add);
+        assertEquals(Files.readAllLines(filePath), lines);
+    }
+
+    @Order(2)
+    @Test
+    void forEachLine_lineLongerThanBuffer_returnsWholeLine() throws IOException, FileContentException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        String longLine = "T | L | 0 | " + "a".repeat(10_000);
+        Files.writeString(filePath, longLine + System.lineSeparator());
+        List<String> lines = new ArrayList<>();
+        TaskFileReader.forEachLine(filePath, lines::add);
+        assertEquals(List.of(longLine), lines);
+    }
+
+    @Order(3)
+    @ParameterizedTest
+    @MethodSource("fileContentProvider")
+    void splitLines_anyChunkCount_chunksMatchReadAllLines(String content) throws IOException, FileContentException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Files.writeString(filePath, content, StandardCharsets.UTF_8);
+        for (int chunkCount = 1; chunkCount <= content.length() + 1; chunkCount++) {
+            long[] boundaries = TaskFileReader.splitLines(filePath, chunkCount);
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                TaskFileReader.forEachLine(filePath, boundaries[i], boundaries[i + 1], lines::add);
+            }
+            assertEquals(Files.readAllLines(filePath), lines);
+        }
+    }
+
+    @Order(4)
+    @Test
+    void decodeTaskList_aboveParallelThreshold_matchesSequentialDecode() throws IOException, FileContentException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            lines.add("T | L | " + (i % 2) + " | Task number " + i);
+        }
+        Files.write(filePath, lines);
+        assertEquals(TaskListDecoder.decodeTaskList(filePath), TaskListDecoder.decodeTaskList(filePath, 0));
+
+        lines.add(lines.get(0));
+        Files.write(filePath, lines);
+        FileContentException sequential = assertThrows(FileContentException.class,
+                () -> TaskListDecoder.decodeTaskList(filePath));
+        FileContentException parallel = assertThrows(FileContentException.class,
+                () -> TaskListDecoder.decodeTaskList(filePath, 0));
+        assertEquals(sequential.getDetail(), parallel.getDetail());
+    }
+}
@@ -0,0 +1,196 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageConflictException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.storage.watch.TaskFileDiff;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WatchStorageTest extends StorageFixture {
+    private static Stream<String> writeModeProvider() {
+        return Stream.of("rewrite", "patch");
+    }
+
+    @Test
+    void reloadExternalChanges_ownSave_changesNothing() throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(filePath);
+        TaskList taskList = createTaskList();
+        storage.save(taskList);
+
+        TaskFileDiff diff = storage.reloadExternalChanges(taskList);
+        assertFalse(diff.isChanged());
+        assertEquals(0, diff.getDecodedRecordCount());
+        assertEquals(createTaskList(), taskList);
+    }
+
+    @ParameterizedTest
+    @MethodSource("writeModeProvider")
+    void reloadExternalChanges_editedLines_decodesOnlyChangedRecords(String writeMode)
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        StorageOptions options = createOptions();
+        options.setWriteMode(WriteMode.fromCode(writeMode));
+        new Storage(filePath.toString()).save(createTaskList());
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+        Task firstTask = taskList.getTask(0);
+        Task lastTask = taskList.getTask(3);
+
+        List<String> lines = new ArrayList<>(Files.readAllLines(filePath));
+        lines.set(1, lines.get(1).replace("D | H | 0", "D | H | 1"));
+        lines.remove(2);
+        lines.add(3, "T | M | 0 | Buy groceries");
+        Files.write(filePath, lines);
+
+        TaskFileDiff diff = storage.reloadExternalChanges(taskList);
+        assertTrue(diff.isChanged());
+        assertEquals(2, diff.getDecodedRecordCount());
+        assertEquals(new Storage(filePath.toString()).load(), taskList);
+        assertSame(firstTask, taskList.getTask(0));
+        assertSame(lastTask, taskList.getTask(2));
+        assertTrue(taskList.getTask(1).isDone());
+        assertTrue(taskList.contains(new Todo("Buy groceries", false, TaskPriority.MEDIUM)));
+
+        // Later saves keep the external changes instead of overwriting them
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+        assertEquals(taskList, new Storage(filePath.toString()).load());
+        assertEquals(4, taskList.size());
+    }
+
+    @Test
+    void reloadExternalChanges_invalidOrDuplicateLine_leavesTaskListUnchanged()
+            throws StorageOperationException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        Storage storage = new Storage(filePath.toString());
+        TaskList taskList = createTaskList();
+        storage.save(taskList);
+        List<String> lines = Files.readAllLines(filePath);
+
+        Files.writeString(filePath, lines.get(0) + System.lineSeparator() + "X | torn");
+        assertThrows(FileContentException.class, () -> storage.reloadExternalChanges(taskList));
+        Files.write(filePath, List.of(lines.get(0), lines.get(1), lines.get(1)));
+        assertThrows(FileContentException.class, () -> storage.reloadExternalChanges(taskList));
+        assertEquals(createTaskList(), taskList);
+    }
+
+    @ParameterizedTest
+    @MethodSource("writeModeProvider")
+    void saveUpdatedTasks_watchedFileChangedSinceLoad_appliesChangeInsteadOfOverwriting(String writeMode)
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        new Storage(filePath.toString()).save(createTaskList());
+        StorageOptions options = createOptions();
+        options.setWatched(true);
+        options.setWriteMode(WriteMode.fromCode(writeMode));
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+
+        // A sync tool typically replaces the file by moving a new one over it
+        Path syncedPath = tempDir.resolve("tasks.txt.sync");
+        Files.copy(filePath, syncedPath);
+        Files.writeString(syncedPath, "E | L | 0 | Concert | 2024-12-01 19:00 | 2024-12-01 22:00"
+                + System.lineSeparator(), StandardOpenOption.APPEND);
+        Files.move(syncedPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        String syncedContent = Files.readString(filePath);
+
+        taskList.getTask(0).markAsDone();
+        assertThrows(StorageConflictException.class, () -> storage.saveUpdatedTasks(taskList, List.of(0)));
+        assertEquals(syncedContent, Files.readString(filePath));
+        assertEquals(5, taskList.size());
+        assertFalse(taskList.getTask(0).isDone());
+
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+        assertEquals(taskList, new Storage(filePath.toString()).load());
+    }
+
+    @Test
+    void save_watchedFileChangedKeepingSizeAndModificationTime_appliesChange()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        StorageOptions options = createOptions();
+        options.setWatched(true);
+        Storage storage = new Storage(filePath.toString(), options);
+        storage.load();
+        TaskList taskList = createTaskList();
+        storage.save(taskList);
+
+        // An edit within the resolution of the file system clock keeps both the size and the modification time
+        FileTime modified = Files.getLastModifiedTime(filePath);
+        Files.writeString(filePath, Files.readString(filePath).replace("T | L | 0", "T | L | 1"));
+        Files.setLastModifiedTime(filePath, modified);
+
+        taskList.addTask(new Todo("Buy groceries", false, TaskPriority.MEDIUM));
+        assertThrows(StorageConflictException.class, () -> storage.saveAddedTask(taskList, taskList.getTask(4)));
+        assertEquals(4, taskList.size());
+        assertTrue(taskList.getTask(0).isDone());
+
+        // Touching the file without changing it is no conflict
+        Files.setLastModifiedTime(filePath, FileTime.fromMillis(modified.toMillis() + 5000));
+        taskList.getTask(1).markAsDone();
+        storage.save(taskList);
+        assertEquals(taskList, new Storage(filePath.toString()).load());
+    }
+
+    @Test
+    void load_manyWatchedStoragesClosed_releasesTheirWatchers()
+            throws StorageOperationException, FileContentException {
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        new Storage(filePath).save(createTaskList());
+        StorageOptions options = createOptions();
+        options.setWatched(true);
+
+        // More than the watch services a user may hold open at once on Linux
+        for (int i = 0; i < 300; i++) {
+            Storage storage = new Storage(filePath, options);
+            assertEquals(createTaskList(), storage.load());
+            storage.close();
+        }
+    }
+
+    @Test
+    void refresh_fileChangedWhileClosed_appliesChange()
+            throws StorageOperationException, FileContentException, IOException {
+        Path filePath = tempDir.resolve("tasks.txt");
+        new Storage(filePath.toString()).save(createTaskList());
+        StorageOptions options = createOptions();
+        options.setWatched(true);
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+        storage.close();
+
+        Files.writeString(filePath, "T | M | 0 | Buy groceries" + System.lineSeparator(), StandardOpenOption.APPEND);
+        storage.refresh(taskList);
+        assertEquals(5, taskList.size());
+        assertEquals(new Todo("Buy groceries", false, TaskPriority.MEDIUM), taskList.getTask(4));
+
+        taskList.getTask(0).markAsDone();
+        storage.saveUpdatedTasks(taskList, List.of(0));
+        assertEquals(taskList, new Storage(filePath.toString()).load());
+        storage.close();
+    }
+}
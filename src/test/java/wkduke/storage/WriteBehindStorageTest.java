@@ -0,0 +1,70 @@
+package wkduke.storage;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import wkduke.exception.storage.FileContentException;
+import wkduke.exception.storage.StorageOperationException;
+import wkduke.task.Task;
+import wkduke.task.TaskList;
+import wkduke.task.TaskPriority;
+import wkduke.task.Todo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class WriteBehindStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private static void addTasks(Storage storage, TaskList taskList, int count) throws StorageOperationException {
+        for (int i = 0; i < count; i++) {
+            Task todo = new Todo("Task " + i, false, TaskPriority.LOW);
+            synchronized (taskList) {
+                taskList.addTask(todo);
+                storage.saveAddedTask(taskList, todo);
+            }
+        }
+    }
+
+    @Order(1)
+    @Test
+    void flush_asyncDurability_writesLatestTaskList() throws StorageOperationException, FileContentException {
+        StorageOptions options = new StorageOptions();
+        options.setDurability(Durability.ASYNC);
+        options.setWriteBehindDelayMillis(1);
+        String filePath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = new Storage(filePath, options);
+        TaskList taskList = storage.load();
+
+        addTasks(storage, taskList, 50);
+        storage.flush();
+
+        assertEquals(taskList, new Storage(filePath).load());
+    }
+
+    @Order(2)
+    @Test
+    void saveAddedTask_onExitDurability_writesOnlyOnFlush()
+            throws StorageOperationException, FileContentException, IOException {
+        StorageOptions options = new StorageOptions();
+        options.setDurability(Durability.ON_EXIT);
+        options.setWriteMode(WriteMode.JOURNAL);
+        Path filePath = tempDir.resolve("tasks.txt");
+        Storage storage = new Storage(filePath.toString(), options);
+        TaskList taskList = storage.load();
+
+        addTasks(storage, taskList, 3);
+        assertEquals(List.of(), Files.readAllLines(filePath));
+
+        storage.flush();
+        assertEquals(taskList, new Storage(filePath.toString()).load());
+    }
+}
@@ -0,0 +1,66 @@
+package wkduke.task;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TaskListTest {
+    private static Stream<Object[]> equalTasksProvider() {
+        LocalDateTime from = LocalDateTime.of(2024, 11, 1, 9, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 11, 1, 10, 30);
+        return Stream.of(
+                new Object[]{new Todo("Read book"), new Todo("Read book", false, TaskPriority.LOW)},
+                new Object[]{new Deadline("Submit report", to, true, TaskPriority.HIGH),
+                        new Deadline("Submit report", to, true, TaskPriority.HIGH)},
+                new Object[]{new Event("Team meeting", from, to), new Event("Team meeting", from, to)}
+        );
+    }
+
+    @Order(1)
+    @ParameterizedTest
+    @MethodSource("equalTasksProvider")
+    void hashCode_equalTasks_returnsSameHashCode(Task task, Task equalTask) {
+        assertEquals(task, equalTask);
+        assertEquals(task.hashCode(), equalTask.hashCode());
+    }
+
+    @Order(2)
+    @Test
+    void contains_afterTaskMarkedAsDone_matchesCurrentStatus() {
+        Task task = new Todo("Read book");
+        TaskList taskList = new TaskList(new ArrayList<>(List.of(task)));
+        assertTrue(taskList.contains(new Todo("Read book")));
+
+        task.markAsDone();
+        assertFalse(taskList.contains(new Todo("Read book")));
+        assertTrue(taskList.contains(new Todo("Read book", true, TaskPriority.LOW)));
+    }
+
+    @Order(3)
+    @Test
+    void contains_afterTaskDeleted_returnsFalse() {
+        TaskList taskList = new TaskList();
+        Task todo = new Todo("Read book");
+        Task deadline = new Deadline("Read book", LocalDateTime.of(2024, 11, 5, 23, 59));
+        taskList.addTask(todo);
+        taskList.addTask(deadline);
+
+        taskList.deleteTask(new Todo("Read book"));
+        assertFalse(taskList.contains(todo));
+        assertTrue(taskList.contains(deadline));
+        assertEquals(List.of(deadline), taskList.getTasks());
+    }
+}